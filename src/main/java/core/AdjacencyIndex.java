@@ -0,0 +1,155 @@
+package core;
+
+/*
+ Copyright 2023 VMware, Inc.
+ SPDX-License-Identifier: BSD-2-Clause
+*/
+
+import core.utils.IntBitmapSet;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Per-vertex edge buckets of a {@link TimePartition}, partitioned by the label of the edges.
+ * Map<vertexId, Map<labelId, TreeMap<timeOffset, Set<edgeId>>>>. A label specific lookup only touches the buckets
+ * of that label while the whole neighborhood is the union over the few labels of the vertex.
+ */
+class AdjacencyIndex {
+    static final int ALL_LABELS = Integer.MIN_VALUE;
+
+    private final Int2ObjectOpenHashMap<Int2ObjectOpenHashMap<TreeMap<Integer, IntBitmapSet>>> edgesByVertex =
+            new Int2ObjectOpenHashMap<>();
+
+    void add(final int vertexId, final int labelId, final int timeOffset, final int edgeId) {
+        edgesByVertex.computeIfAbsent(vertexId, v -> new Int2ObjectOpenHashMap<>(1))
+                .computeIfAbsent(labelId, l -> new TreeMap<>())
+                .computeIfAbsent(timeOffset, t -> new IntBitmapSet())
+                .add(edgeId);
+    }
+
+    /**
+     * Adds the edges of the vertex with the label, or with any label for {@link #ALL_LABELS}, added till the
+     * offset to the set.
+     */
+    void collect(final int vertexId, final int labelId, final int floorKey, final IntBitmapSet into) {
+        final Int2ObjectOpenHashMap<TreeMap<Integer, IntBitmapSet>> edgesByLabel = edgesByVertex.get(vertexId);
+        if (null == edgesByLabel) {
+            return;
+        }
+        if (ALL_LABELS != labelId) {
+            collect(edgesByLabel.get(labelId), floorKey, into);
+            return;
+        }
+        for (final TreeMap<Integer, IntBitmapSet> edgesByTime : edgesByLabel.values()) {
+            collect(edgesByTime, floorKey, into);
+        }
+    }
+
+    /**
+     * Adds the edges of the vertex with the label, or with any label for {@link #ALL_LABELS}, added within the
+     * offsets [fromKey, toKey] to the set.
+     */
+    void collectBetween(final int vertexId,
+                        final int labelId,
+                        final int fromKey,
+                        final int toKey,
+                        final IntBitmapSet into) {
+        final Int2ObjectOpenHashMap<TreeMap<Integer, IntBitmapSet>> edgesByLabel = edgesByVertex.get(vertexId);
+        if (null == edgesByLabel) {
+            return;
+        }
+        if (ALL_LABELS != labelId) {
+            collectBetween(edgesByLabel.get(labelId), fromKey, toKey, into);
+            return;
+        }
+        for (final TreeMap<Integer, IntBitmapSet> edgesByTime : edgesByLabel.values()) {
+            collectBetween(edgesByTime, fromKey, toKey, into);
+        }
+    }
+
+    /**
+     * Applies the action to the buckets of the edges of the vertex with the label, or with any label for
+     * {@link #ALL_LABELS}, added till the offset, without merging them.
+     */
+    void forEachBucket(final int vertexId,
+                       final int labelId,
+                       final int floorKey,
+                       final Consumer<IntBitmapSet> action) {
+        final Int2ObjectOpenHashMap<TreeMap<Integer, IntBitmapSet>> edgesByLabel = edgesByVertex.get(vertexId);
+        if (null == edgesByLabel) {
+            return;
+        }
+        if (ALL_LABELS != labelId) {
+            forEachBucket(edgesByLabel.get(labelId), floorKey, action);
+            return;
+        }
+        for (final TreeMap<Integer, IntBitmapSet> edgesByTime : edgesByLabel.values()) {
+            forEachBucket(edgesByTime, floorKey, action);
+        }
+    }
+
+    /**
+     * Applies the action to the time bucket maps of the vertex, one map per label.
+     */
+    void forEachBucketMap(final int vertexId, final Consumer<TreeMap<Integer, IntBitmapSet>> action) {
+        final Int2ObjectOpenHashMap<TreeMap<Integer, IntBitmapSet>> edgesByLabel = edgesByVertex.get(vertexId);
+        if (null != edgesByLabel) {
+            for (final Int2ObjectMap.Entry<TreeMap<Integer, IntBitmapSet>> e : edgesByLabel.int2ObjectEntrySet()) {
+                action.accept(e.getValue());
+            }
+        }
+    }
+
+    /**
+     * Applies the action to the edges of the vertex added within the partition, label by label, along with the label.
+     */
+    void forEachLabel(final int vertexId, final ObjIntConsumer<IntBitmapSet> action) {
+        final Int2ObjectOpenHashMap<TreeMap<Integer, IntBitmapSet>> edgesByLabel = edgesByVertex.get(vertexId);
+        if (null != edgesByLabel) {
+            for (final Int2ObjectMap.Entry<TreeMap<Integer, IntBitmapSet>> e : edgesByLabel.int2ObjectEntrySet()) {
+                final IntBitmapSet ids = new IntBitmapSet();
+                collect(e.getValue(), Integer.MAX_VALUE, ids);
+                action.accept(ids, e.getIntKey());
+            }
+        }
+    }
+
+    int[] getVertexIds() {
+        return edgesByVertex.keySet().toIntArray();
+    }
+
+    private static void collect(final TreeMap<Integer, IntBitmapSet> edgesByTime,
+                                final int floorKey,
+                                final IntBitmapSet into) {
+        if (null == edgesByTime) {
+            return;
+        }
+        for (final IntBitmapSet ids : edgesByTime.headMap(floorKey, true).values()) {
+            into.or(ids);
+        }
+    }
+
+    private static void forEachBucket(final TreeMap<Integer, IntBitmapSet> edgesByTime,
+                                      final int floorKey,
+                                      final Consumer<IntBitmapSet> action) {
+        if (null != edgesByTime) {
+            edgesByTime.headMap(floorKey, true).values().forEach(action);
+        }
+    }
+
+    private static void collectBetween(final TreeMap<Integer, IntBitmapSet> edgesByTime,
+                                       final int fromKey,
+                                       final int toKey,
+                                       final IntBitmapSet into) {
+        if (null == edgesByTime) {
+            return;
+        }
+        for (final IntBitmapSet ids : edgesByTime.subMap(fromKey, true, toKey, true).values()) {
+            into.or(ids);
+        }
+    }
+}
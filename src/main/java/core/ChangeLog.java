@@ -0,0 +1,70 @@
+package core;
+
+/*
+ Copyright 2023 VMware, Inc.
+ SPDX-License-Identifier: BSD-2-Clause
+*/
+
+import com.google.common.base.Preconditions;
+import it.unimi.dsi.fastutil.HashCommon;
+import model.ChangeEvent;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded ring of the latest change events of a graph, shared by all the subscriptions.
+ * Writers claim a sequence with a single atomic increment and publish the event in the slot of the sequence,
+ * neither of them ever waits for the readers. Every subscription reads the ring at its own pace from its own
+ * cursor, a subscription lagging by more than the capacity skips the overwritten events and counts them as dropped.
+ */
+class ChangeLog {
+    private final AtomicReferenceArray<ChangeEvent> slots;
+    private final int mask;
+    // sequence of the next event to be claimed
+    private final AtomicLong nextSequence = new AtomicLong(0L);
+
+    ChangeLog(final int capacity) {
+        Preconditions.checkArgument(capacity > 0, String.format("Change log capacity %d should be positive", capacity));
+        final int size = (int) HashCommon.nextPowerOfTwo((long) capacity);
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    void publish(final ChangeEvent.Type type,
+                 final long timestamp,
+                 final int entityId,
+                 final int srcVertexId,
+                 final int destVertexId,
+                 final String name,
+                 final Object value) {
+        final long sequence = nextSequence.getAndIncrement();
+        final ChangeEvent event = new ChangeEvent(sequence, type, timestamp, entityId, srcVertexId, destVertexId,
+                name, value);
+        final int slot = (int) sequence & mask;
+        // a writer that has been lapped while publishing must not replace a newer event
+        for (ChangeEvent current = slots.get(slot);
+             null == current || current.getSequence() < sequence;
+             current = slots.get(slot)) {
+            if (slots.compareAndSet(slot, current, event)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return the event published in the slot of the sequence, either the event of the sequence, an older event
+     * while the sequence has not been published yet, a newer one once it has been overwritten, or null
+     */
+    ChangeEvent get(final long sequence) {
+        return slots.get((int) sequence & mask);
+    }
+
+    long getNextSequence() {
+        return nextSequence.get();
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+}
@@ -0,0 +1,85 @@
+package core;
+
+/*
+ Copyright 2023 VMware, Inc.
+ SPDX-License-Identifier: BSD-2-Clause
+*/
+
+import com.google.common.base.Preconditions;
+import model.ChangeEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Cursor of a consumer over the change events of a {@link TemporalGraph}, starting with the first change applied
+ * after the subscription. Events are delivered in order, in batches pulled by the consumer from its own thread, so
+ * that a slow consumer never stalls the ingest. A consumer falling behind by more than the change log capacity
+ * misses the overwritten events, see {@link #getDroppedEvents()}.
+ * A subscription is meant to be polled by a single thread.
+ */
+public class ChangeSubscription {
+    private final ChangeLog changeLog;
+    // sequence of the next event to be delivered
+    private long nextSequence;
+    private long droppedEvents = 0L;
+
+    ChangeSubscription(final ChangeLog changeLog) {
+        this.changeLog = changeLog;
+        this.nextSequence = changeLog.getNextSequence();
+    }
+
+    /**
+     * Hands the published events over to the consumer, in order.
+     * @param consumer  invoked with every event of the batch
+     * @param maxEvents upper bound on the size of the batch
+     * @return the number of events delivered
+     */
+    public int poll(final Consumer<ChangeEvent> consumer, final int maxEvents) {
+        Preconditions.checkArgument(maxEvents > 0, String.format("Batch size %d should be positive", maxEvents));
+        int delivered = 0;
+        while (delivered < maxEvents) {
+            final ChangeEvent event = changeLog.get(nextSequence);
+            if (null == event || event.getSequence() < nextSequence) {
+                // not published yet
+                break;
+            }
+            if (event.getSequence() > nextSequence) {
+                // lapped by the writers, resume from the oldest event the ring may still hold
+                final long resumeSequence = Math.max(nextSequence + 1L, event.getSequence() - changeLog.capacity() + 1L);
+                droppedEvents += resumeSequence - nextSequence;
+                nextSequence = resumeSequence;
+                continue;
+            }
+            consumer.accept(event);
+            nextSequence++;
+            delivered++;
+        }
+        return delivered;
+    }
+
+    /**
+     * @param maxEvents upper bound on the size of the batch
+     * @return the published events in order, empty if there are none
+     */
+    public List<ChangeEvent> poll(final int maxEvents) {
+        final List<ChangeEvent> events = new ArrayList<>();
+        poll(events::add, maxEvents);
+        return events;
+    }
+
+    /**
+     * @return the number of events the subscription has missed due to falling behind the writers
+     */
+    public long getDroppedEvents() {
+        return droppedEvents;
+    }
+
+    /**
+     * @return the number of events published and not delivered yet, including the ones about to be dropped
+     */
+    public long getLag() {
+        return Math.max(0L, changeLog.getNextSequence() - nextSequence);
+    }
+}
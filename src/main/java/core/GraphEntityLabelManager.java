@@ -5,31 +5,61 @@ package core;
  SPDX-License-Identifier: BSD-2-Clause
 */
 
-import org.apache.commons.collections4.BidiMap;
-import org.apache.commons.collections4.bidimap.DualHashBidiMap;
-
-import java.util.Objects;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 
+/**
+ * Dictionary of the labels of the vertices and edges.
+ * Labels are assigned dense int ids in the order they are first seen, which lets the storage keep the label of
+ * every entity within a primitive array and key its indexes by the label id. Label names are unique in the edge
+ * and vertex space.
+ */
 class GraphEntityLabelManager {
+    static final int NO_LABEL = -1;
+
+    private final Object2IntOpenHashMap<String> labelIds = new Object2IntOpenHashMap<>();
 
-    private final BidiMap<String, Long> nameToIdMap = new DualHashBidiMap<>();
+    // label names indexed by label id
+    private final ObjectArrayList<String> labelNames = new ObjectArrayList<>();
 
-    Long addLabel(final String label) {
-        if (nameToIdMap.containsKey(label)) {
+    GraphEntityLabelManager() {
+        labelIds.defaultReturnValue(NO_LABEL);
+    }
+
+    synchronized int addLabel(final String label) {
+        if (labelIds.containsKey(label)) {
             throw new IllegalArgumentException(String.format("Label %s already exists. Labels names must be " +
                                                                      "unique in the edge and vertex space", label));
         }
-        long labelId = Objects.hash(System.currentTimeMillis(), label);
-        nameToIdMap.put(label, labelId);
-        return labelId;
+        return getOrAddLabelId(label);
     }
 
-    String getLabel(final long labelId) {
-        return nameToIdMap.getKey(labelId);
+    /**
+     * @param label the label name, null for unlabelled entities
+     * @return the id of the label, {@link #NO_LABEL} for a null label
+     */
+    synchronized int getOrAddLabelId(final String label) {
+        if (null == label) {
+            return NO_LABEL;
+        }
+        int labelId = labelIds.getInt(label);
+        if (NO_LABEL == labelId) {
+            labelId = labelNames.size();
+            labelNames.add(label);
+            labelIds.put(label, labelId);
+        }
+        return labelId;
     }
 
-    void deleteLabel(final String label) {
-        nameToIdMap.remove(label);
+    /**
+     * @param label the label name
+     * @return the id of the label, {@link #NO_LABEL} if the label is unknown
+     */
+    synchronized int getLabelId(final String label) {
+        return labelIds.getInt(label);
     }
 
+    synchronized String getLabel(final int labelId) {
+        return NO_LABEL == labelId ? null : labelNames.get(labelId);
+    }
 }
@@ -0,0 +1,210 @@
+package core;
+
+/*
+ Copyright 2023 VMware, Inc.
+ SPDX-License-Identifier: BSD-2-Clause
+*/
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import core.utils.IntBitmapSet;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Background maintenance of a {@link TemporalGraph}.
+ * The service periodically applies the configured retention by dropping whole partitions, and compacts
+ * the sealed partitions, i.e. the partitions ending before the current time, incrementally:
+ * <ul>
+ *     <li>time buckets are replaced by trimmed copies without any growth slack</li>
+ *     <li>property registries are trimmed to their size</li>
+ *     <li>property series are re-encoded into their sealed form</li>
+ * </ul>
+ * Every run is bounded by a time slice derived from the configured CPU budget. The work left over when
+ * the slice expires is resumed by the next run, so that queries running concurrently never observe a
+ * long pause. Every step copies a single structure and puts the copy back while holding the monitor of the
+ * partition, which serializes it with the ingest path writing to the same partition. Readers are not blocked:
+ * a step only replaces the values of existing keys within the partition maps and never resizes them.
+ */
+public class GraphMaintenanceService implements AutoCloseable {
+    private final TemporalGraph graph;
+    private final Config config;
+    private final ArrayDeque<Runnable> pendingSteps = new ArrayDeque<>();
+    private ScheduledExecutorService executor;
+    private TimePartition partitionUnderCompaction;
+
+    public GraphMaintenanceService(final TemporalGraph graph, final Config config) {
+        Preconditions.checkArgument(config.getCpuBudget() > 0.0d && config.getCpuBudget() <= 1.0d,
+                "CPU budget should be within (0, 1]");
+        Preconditions.checkArgument(config.getIntervalMillis() > 0L, "Interval should be a positive duration");
+        this.graph = graph;
+        this.config = config;
+    }
+
+    public synchronized void start() {
+        Preconditions.checkState(null == executor, "Maintenance service already started");
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread t = new Thread(r, "temporal-graph-maintenance");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.scheduleWithFixedDelay(this::runOnce, config.getIntervalMillis(), config.getIntervalMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (null != executor) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    /**
+     * Performs a single bounded slice of maintenance work.
+     * @return true if compaction work is still pending after the slice
+     */
+    @VisibleForTesting
+    synchronized boolean runOnce() {
+        final long deadline = System.nanoTime() + getSliceNanos();
+        final long now = config.getClock().getAsLong();
+        if (config.getRetentionMillis() > 0L && now - config.getRetentionMillis() > graph.getInitTs()) {
+            graph.dropPartitionsTill(now - config.getRetentionMillis());
+        }
+        if (config.getRollupRetentionMillis() > 0L && now - config.getRollupRetentionMillis() > graph.getInitTs()) {
+            graph.purgeRollupsAtTime(now - config.getRollupRetentionMillis());
+        }
+        do {
+            if (pendingSteps.isEmpty() && !scheduleNextPartition(now)) {
+                return false;
+            }
+            pendingSteps.poll().run();
+            if (pendingSteps.isEmpty() && null != partitionUnderCompaction) {
+                partitionUnderCompaction.setCompacted(true);
+                partitionUnderCompaction = null;
+            }
+        } while (System.nanoTime() < deadline);
+        return !pendingSteps.isEmpty() || null != findSealedPartition(now);
+    }
+
+    private long getSliceNanos() {
+        return (long) (TimeUnit.MILLISECONDS.toNanos(config.getIntervalMillis()) * config.getCpuBudget());
+    }
+
+    /*
+     * Splits the compaction of the oldest sealed partition, which has not been compacted yet, into
+     * small steps. Each step touches a single time bucket map or property series.
+     */
+    private boolean scheduleNextPartition(final long now) {
+        final TimePartition partition = findSealedPartition(now);
+        if (null == partition) {
+            return false;
+        }
+        partitionUnderCompaction = partition;
+        // the keys are listed under the monitor as well, the ingest path may be resizing the maps
+        synchronized (partition) {
+            schedulePartitionCompaction(partition);
+        }
+        return true;
+    }
+
+    private void schedulePartitionCompaction(final TimePartition partition) {
+        addStep(partition, () -> freezeBuckets(partition.getVerticesByTime()));
+        addStep(partition, () -> freezeBuckets(partition.getEdgesByTime()));
+        addStep(partition, () -> freezeBuckets(partition.getVerticesEndedByTime()));
+        addStep(partition, () -> freezeBuckets(partition.getEdgesEndedByTime()));
+        scheduleAdjacencyCompaction(partition, partition.getOutgoingEdgesByTimeForVertex());
+        scheduleAdjacencyCompaction(partition, partition.getIncomingEdgesByTimeForVertex());
+        scheduleAdjacencyCompaction(partition, partition.getOutgoingEdgesEndedByTimeForVertex());
+        scheduleAdjacencyCompaction(partition, partition.getIncomingEdgesEndedByTimeForVertex());
+        scheduleRegistryCompaction(partition, partition.getVertexProperties());
+        scheduleRegistryCompaction(partition, partition.getEdgeProperties());
+        for (final int propertyId : new IntOpenHashSet(partition.getPropertyStore().getPropertyIds())) {
+            addStep(partition, () -> partition.getPropertyStore().seal(propertyId));
+        }
+    }
+
+    /*
+     * A step holds the monitor of the partition, a write landing between the copy and the put would be lost.
+     */
+    private void addStep(final TimePartition partition, final Runnable step) {
+        pendingSteps.add(() -> {
+            synchronized (partition) {
+                step.run();
+            }
+        });
+    }
+
+    private TimePartition findSealedPartition(final long now) {
+        for (final TimePartition partition : graph.getPartitions()) {
+            if (partition.getEndTs() + config.getSealDelayMillis() > now) {
+                return null;
+            }
+            if (partition != partitionUnderCompaction && !partition.isCompacted()) {
+                return partition;
+            }
+        }
+        return null;
+    }
+
+    private void scheduleAdjacencyCompaction(final TimePartition partition, final AdjacencyIndex adjacency) {
+        for (final int vertexId : adjacency.getVertexIds()) {
+            addStep(partition, () -> adjacency.forEachBucketMap(vertexId, GraphMaintenanceService::freezeBuckets));
+        }
+    }
+
+    private void scheduleRegistryCompaction(final TimePartition partition, final Map<Integer, IntOpenHashSet> registry) {
+        for (final int entityId : new IntOpenHashSet(registry.keySet())) {
+            addStep(partition, () -> {
+                final IntOpenHashSet propertyIds = registry.get(entityId);
+                if (null != propertyIds) {
+                    // a copy sized to the content, trimming in place would rehash under the readers
+                    registry.put(entityId, new IntOpenHashSet(propertyIds, 1.0f));
+                }
+            });
+        }
+    }
+
+    private static void freezeBuckets(final Map<Integer, IntBitmapSet> buckets) {
+        for (final int key : new IntOpenHashSet(buckets.keySet())) {
+            buckets.put(key, TimePartition.freeze(buckets.get(key)));
+        }
+    }
+
+    @Data
+    @Builder(toBuilder = true)
+    public static final class Config {
+        // data older than now - retention is dropped. Non positive values disable the retention
+        @Builder.Default
+        private final long retentionMillis = 0L;
+
+        // rollups older than now - rollup retention are dropped, usually longer than the retention of the raw
+        // data. Non positive values disable the rollup retention
+        @Builder.Default
+        private final long rollupRetentionMillis = 0L;
+
+        // delay between two maintenance runs
+        @Builder.Default
+        private final long intervalMillis = TimeUnit.SECONDS.toMillis(1L);
+
+        // fraction of the interval a single run is allowed to take, i.e. the fraction of a core used
+        @Builder.Default
+        private final double cpuBudget = 0.1d;
+
+        // grace period after the end of a partition before it is considered sealed
+        @Builder.Default
+        private final long sealDelayMillis = TimeUnit.MINUTES.toMillis(1L);
+
+        // source of the current time, in the same time base as the graph timestamps
+        @Builder.Default
+        private final LongSupplier clock = System::currentTimeMillis;
+    }
+}
@@ -0,0 +1,348 @@
+package core;
+
+/*
+ Copyright 2023 VMware, Inc.
+ SPDX-License-Identifier: BSD-2-Clause
+*/
+
+import com.google.common.base.Preconditions;
+import core.utils.IntBitmapSet;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import it.unimi.dsi.fastutil.ints.IntSet;
+import it.unimi.dsi.fastutil.ints.IntSets;
+import model.Direction;
+import model.TimestampedPropertyValue;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Read only view of a {@link TemporalGraph} at a single instant.
+ * The partitions covering the instant are resolved once, when the snapshot is taken, and every vertex resolves
+ * its adjacency once, on its first lookup, from the checkpoint and the buckets of the latest of these partitions.
+ * The later lookups of the vertex, and the neighbors derived from its edges, are served from the cache without
+ * validating the timestamp or walking the partitions again, which suits analyses asking many questions at the
+ * same instant.
+ * The snapshot pins the partitions it has resolved, changes applied to the graph at or before the instant after
+ * a vertex has been resolved are not reflected for that vertex. A snapshot is not thread safe.
+ */
+public class GraphSnapshot {
+    private static final String VERTEX_NOT_FOUND_ERR_MSG_TEMPLATE = "Vertex with Id %d not found at time: %d.";
+    private static final String EDGE_NOT_FOUND_ERR_MSG_TEMPLATE = "Edge with Id %d not found at time: %d.";
+
+    private final TemporalGraph graph;
+    private final long timestamp;
+    // partitions starting at or before the timestamp, oldest first
+    private final List<TimePartition> partitions;
+    // latest of the partitions, merged with the checkpoint of the graph by the as-of lookups, null without any
+    // partition
+    private final TimePartition checkpointPartition;
+    // vertices added after the snapshot has been taken are numbered from this bound
+    private final int vertexIdBound;
+
+    private IntSet vertices;
+    private IntSet edges;
+    private final Int2ObjectOpenHashMap<IntSet> outEdges = new Int2ObjectOpenHashMap<>();
+    private final Int2ObjectOpenHashMap<IntSet> inEdges = new Int2ObjectOpenHashMap<>();
+    private final Int2ObjectOpenHashMap<IntSet> outNeighbors = new Int2ObjectOpenHashMap<>();
+    private final Int2ObjectOpenHashMap<IntSet> inNeighbors = new Int2ObjectOpenHashMap<>();
+
+    private final ConcurrentHashMap<String, Integer> labelIds = new ConcurrentHashMap<>();
+
+    // property registries of the entities read so far
+    private final Int2ObjectOpenHashMap<Collection<PropertyHeader>> vertexProperties = new Int2ObjectOpenHashMap<>();
+    private final Int2ObjectOpenHashMap<Collection<PropertyHeader>> edgeProperties = new Int2ObjectOpenHashMap<>();
+
+    GraphSnapshot(final TemporalGraph graph, final long timestamp, final List<TimePartition> partitions) {
+        this.graph = graph;
+        this.timestamp = timestamp;
+        this.partitions = partitions;
+        this.checkpointPartition = partitions.isEmpty() ? null : partitions.get(partitions.size() - 1);
+        this.vertexIdBound = graph.getVertexCount();
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return the bound on the ids of the vertices known when the snapshot has been taken, suitable for sizing
+     * arrays indexed by vertex id
+     */
+    public int getVertexIdBound() {
+        return vertexIdBound;
+    }
+
+    /**
+     * @return the vertices present at the instant
+     */
+    public IntSet getVertices() {
+        if (null == vertices) {
+            vertices = IntSets.unmodifiable(null == checkpointPartition
+                    ? new IntBitmapSet()
+                    : graph.collectLiveVertices(checkpointPartition, timestamp));
+        }
+        return vertices;
+    }
+
+    /**
+     * @return the edges present at the instant
+     */
+    public IntSet getEdges() {
+        if (null == edges) {
+            edges = IntSets.unmodifiable(null == checkpointPartition
+                    ? new IntBitmapSet()
+                    : graph.collectLiveEdges(checkpointPartition, timestamp));
+        }
+        return edges;
+    }
+
+    /**
+     * @param label the label of the edges, null for all the edges
+     * @return the edges with the label present at the instant
+     */
+    public IntSet getEdges(final String label) {
+        if (null == label) {
+            return getEdges();
+        }
+        final int labelId = getLabelId(label);
+        final IntBitmapSet labelled = new IntBitmapSet();
+        if (GraphEntityLabelManager.NO_LABEL != labelId) {
+            for (final IntIterator it = getEdges().iterator(); it.hasNext(); ) {
+                final int edgeId = it.nextInt();
+                if (graph.getEdgeLabelId(edgeId) == labelId) {
+                    labelled.add(edgeId);
+                }
+            }
+        }
+        return IntSets.unmodifiable(labelled);
+    }
+
+    /**
+     * @return the edges going out of the vertex at the instant
+     */
+    public IntSet getOutEdges(final int vertexId) {
+        IntSet edges = outEdges.get(vertexId);
+        if (null == edges) {
+            checkVertex(vertexId);
+            edges = IntSets.unmodifiable(collectOutEdges(vertexId, AdjacencyIndex.ALL_LABELS));
+            outEdges.put(vertexId, edges);
+        }
+        return edges;
+    }
+
+    /**
+     * @return the edges coming into the vertex at the instant
+     */
+    public IntSet getInEdges(final int vertexId) {
+        IntSet edges = inEdges.get(vertexId);
+        if (null == edges) {
+            checkVertex(vertexId);
+            edges = IntSets.unmodifiable(collectInEdges(vertexId, AdjacencyIndex.ALL_LABELS));
+            inEdges.put(vertexId, edges);
+        }
+        return edges;
+    }
+
+    /**
+     * @return the destinations of the edges going out of the vertex at the instant
+     */
+    public IntSet getOutNeighbors(final int vertexId) {
+        IntSet neighbors = outNeighbors.get(vertexId);
+        if (null == neighbors) {
+            final IntBitmapSet destinations = new IntBitmapSet();
+            for (final IntIterator edges = getOutEdges(vertexId).iterator(); edges.hasNext(); ) {
+                destinations.add(graph.getEdgeDestVertex(edges.nextInt()));
+            }
+            neighbors = IntSets.unmodifiable(destinations);
+            outNeighbors.put(vertexId, neighbors);
+        }
+        return neighbors;
+    }
+
+    /**
+     * @return the sources of the edges coming into the vertex at the instant
+     */
+    public IntSet getInNeighbors(final int vertexId) {
+        IntSet neighbors = inNeighbors.get(vertexId);
+        if (null == neighbors) {
+            final IntBitmapSet sources = new IntBitmapSet();
+            for (final IntIterator edges = getInEdges(vertexId).iterator(); edges.hasNext(); ) {
+                sources.add(graph.getEdgeSrcVertex(edges.nextInt()));
+            }
+            neighbors = IntSets.unmodifiable(sources);
+            inNeighbors.put(vertexId, neighbors);
+        }
+        return neighbors;
+    }
+
+    public int getEdgeSrcVertex(final int edgeId) {
+        checkEdge(edgeId);
+        return graph.getEdgeSrcVertex(edgeId);
+    }
+
+    public int getEdgeDestVertex(final int edgeId) {
+        checkEdge(edgeId);
+        return graph.getEdgeDestVertex(edgeId);
+    }
+
+    /**
+     * @return the value of the vertex property at the instant, null if the vertex has no value for it
+     */
+    public TimestampedPropertyValue getVertexProperty(final int vertexId, final String propertyName) {
+        Collection<PropertyHeader> headers = vertexProperties.get(vertexId);
+        if (null == headers) {
+            checkVertex(vertexId);
+            headers = graph.getVertexPropertyHeaders(vertexId);
+            vertexProperties.put(vertexId, headers);
+        }
+        return getProperty(headers, propertyName);
+    }
+
+    /**
+     * @return the value of the edge property at the instant, null if the edge has no value for it
+     */
+    public TimestampedPropertyValue getEdgeProperty(final int edgeId, final String propertyName) {
+        Collection<PropertyHeader> headers = edgeProperties.get(edgeId);
+        if (null == headers) {
+            checkEdge(edgeId);
+            headers = graph.getEdgePropertyHeaders(edgeId);
+            edgeProperties.put(edgeId, headers);
+        }
+        return getProperty(headers, propertyName);
+    }
+
+    /**
+     * Adds the vertices adjacent to the vertex through the edges of the direction to the set. Unlike the other
+     * lookups nothing is cached, which makes it safe to invoke concurrently, e.g. from parallel traversals.
+     * @param label the label of the edges to follow, null to follow all the edges
+     */
+    public void collectNeighbors(final int vertexId,
+                                 final Direction direction,
+                                 final String label,
+                                 final IntBitmapSet into) {
+        final int labelId = getLabelId(label);
+        if (GraphEntityLabelManager.NO_LABEL == labelId) {
+            return;
+        }
+        if (Direction.IN != direction) {
+            for (final IntIterator edges = collectOutEdges(vertexId, labelId).iterator(); edges.hasNext(); ) {
+                into.add(graph.getEdgeDestVertex(edges.nextInt()));
+            }
+        }
+        if (Direction.OUT != direction) {
+            for (final IntIterator edges = collectInEdges(vertexId, labelId).iterator(); edges.hasNext(); ) {
+                into.add(graph.getEdgeSrcVertex(edges.nextInt()));
+            }
+        }
+    }
+
+    /**
+     * Adds the edges of the vertex in the direction alive at some instant of [fromTimestamp, t], t being the instant
+     * of the snapshot, to the set. The edges alive at the start of the latest partition starting at or before
+     * fromTimestamp are taken from the checkpoint, only the buckets of the partitions from there on are walked.
+     * Like {@link #collectNeighbors} it may be invoked concurrently.
+     * @param label the label of the edges, null for all the edges
+     */
+    public void collectEdgesAliveSince(final int vertexId,
+                                       final Direction direction,
+                                       final String label,
+                                       final long fromTimestamp,
+                                       final IntBitmapSet into) {
+        final int labelId = getLabelId(label);
+        if (GraphEntityLabelManager.NO_LABEL == labelId || partitions.isEmpty()) {
+            return;
+        }
+        final long endedTs = Math.min(fromTimestamp, timestamp);
+        int first = partitions.size() - 1;
+        while (first > 0 && partitions.get(first).getStartTs() > endedTs) {
+            first--;
+        }
+        final IntBitmapSet added = new IntBitmapSet();
+        final IntBitmapSet ended = new IntBitmapSet();
+        if (Direction.IN != direction) {
+            added.or(graph.collectStartOutEdges(partitions.get(first), vertexId, labelId));
+        }
+        if (Direction.OUT != direction) {
+            added.or(graph.collectStartInEdges(partitions.get(first), vertexId, labelId));
+        }
+        for (final TimePartition partition : partitions.subList(first, partitions.size())) {
+            if (Direction.IN != direction) {
+                partition.collectOutEdges(vertexId, labelId, timestamp, endedTs, added, ended);
+            }
+            if (Direction.OUT != direction) {
+                partition.collectInEdges(vertexId, labelId, timestamp, endedTs, added, ended);
+            }
+        }
+        added.andNot(ended);
+        into.or(added);
+    }
+
+    /**
+     * @return the start of the validity of the edge, the earliest timestamp it has been asserted at
+     */
+    public long getEdgeCreationTime(final int edgeId) {
+        checkEdge(edgeId);
+        return graph.getEdgeCreationTime(edgeId);
+    }
+
+    /**
+     * @return the end of the validity of the edge, exclusive, Long.MAX_VALUE while the edge is alive
+     */
+    public long getEdgeEndTime(final int edgeId) {
+        checkEdge(edgeId);
+        return graph.getEdgeEndTime(edgeId);
+    }
+
+    // label ids are resolved once per snapshot, null stands for all the labels
+    private int getLabelId(final String label) {
+        if (null == label) {
+            return AdjacencyIndex.ALL_LABELS;
+        }
+        return labelIds.computeIfAbsent(label, graph::getLabelId);
+    }
+
+    /**
+     * Reads the raw value of the edge property at the instant without caching anything, it may be invoked
+     * concurrently.
+     * @return the value, null if the edge has no value for the property
+     */
+    public Object getEdgePropertyValue(final int edgeId, final String propertyName) {
+        checkEdge(edgeId);
+        return graph.getEdgePropertyValue(edgeId, propertyName, timestamp);
+    }
+
+    private TimestampedPropertyValue getProperty(final Collection<PropertyHeader> headers, final String propertyName) {
+        for (final PropertyHeader header : headers) {
+            if (propertyName.equals(header.getName())) {
+                final Object value = graph.getPropertyValueAtTime(header, timestamp);
+                return null == value ? null : new TimestampedPropertyValue(header.getName(), value);
+            }
+        }
+        return null;
+    }
+
+    private IntBitmapSet collectOutEdges(final int vertexId, final int labelId) {
+        return null == checkpointPartition
+                ? new IntBitmapSet()
+                : graph.collectLiveOutEdges(checkpointPartition, vertexId, labelId, timestamp);
+    }
+
+    private IntBitmapSet collectInEdges(final int vertexId, final int labelId) {
+        return null == checkpointPartition
+                ? new IntBitmapSet()
+                : graph.collectLiveInEdges(checkpointPartition, vertexId, labelId, timestamp);
+    }
+
+    private void checkVertex(final int vertexId) {
+        Preconditions.checkArgument(vertexId >= 0 && vertexId < graph.getVertexCount(),
+                String.format(VERTEX_NOT_FOUND_ERR_MSG_TEMPLATE, vertexId, timestamp));
+    }
+
+    private void checkEdge(final int edgeId) {
+        Preconditions.checkArgument(edgeId >= 0 && edgeId < graph.getEdgeCount(),
+                String.format(EDGE_NOT_FOUND_ERR_MSG_TEMPLATE, edgeId, timestamp));
+    }
+}
@@ -0,0 +1,204 @@
+package core;
+
+/*
+ Copyright 2023 VMware, Inc.
+ SPDX-License-Identifier: BSD-2-Clause
+*/
+
+import core.utils.IntBitmapSet;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+
+import java.util.function.IntPredicate;
+
+/**
+ * The vertices and edges alive right before the start of the latest {@link TimePartition}, i.e. added and not
+ * ended within the earlier partitions. The graph keeps a single checkpoint which rolls forward whenever a later
+ * partition is created, an as-of query merges it with the buckets of the partition covering its timestamp only,
+ * instead of the buckets of every earlier partition. The checkpoint of an earlier partition is derived by rewinding
+ * this one through the ends recorded within the partitions in between.
+ * The live edges are also kept by end point vertex, partitioned by label like the {@link AdjacencyIndex}, so that
+ * neighborhood lookups are served the same way. The checkpoint costs about the size of the live graph.
+ * Every method runs under the monitor of the checkpoint.
+ */
+class PartitionCheckpoint {
+    private final IntBitmapSet vertices = new IntBitmapSet();
+    private final IntBitmapSet edges = new IntBitmapSet();
+    // Map<vertexId, Map<labelId, Set<edgeId>>>
+    private final Int2ObjectOpenHashMap<Int2ObjectOpenHashMap<IntBitmapSet>> outEdges = new Int2ObjectOpenHashMap<>();
+    private final Int2ObjectOpenHashMap<Int2ObjectOpenHashMap<IntBitmapSet>> inEdges = new Int2ObjectOpenHashMap<>();
+    // start of the partition the checkpoint stands before, Long.MIN_VALUE before the first partition
+    private long startTs = Long.MIN_VALUE;
+
+    synchronized long getStartTs() {
+        return startTs;
+    }
+
+    /**
+     * Rolls the checkpoint forward to the start of the partition following the latest one. The entities added
+     * within the latest partition and still alive at the new start join the checkpoint, the entities ended within
+     * it leave the checkpoint. Only the buckets of the latest partition are read.
+     * @param latest      the latest partition, null if there is none
+     * @param nextStartTs the start of the partition created after the latest one
+     */
+    synchronized void advance(final TimePartition latest,
+                              final long nextStartTs,
+                              final IntPredicate vertexAlive,
+                              final IntPredicate edgeAlive) {
+        if (null != latest) {
+            final IntBitmapSet addedVertices = new IntBitmapSet();
+            final IntBitmapSet endedVertices = new IntBitmapSet();
+            latest.collectVertices(latest.getEndTs(), addedVertices, endedVertices);
+            addedVertices.removeIf((int vertexId) -> !vertexAlive.test(vertexId));
+            vertices.or(addedVertices);
+            vertices.andNot(endedVertices);
+            final IntBitmapSet addedEdges = new IntBitmapSet();
+            final IntBitmapSet endedEdges = new IntBitmapSet();
+            latest.collectEdges(latest.getEndTs(), addedEdges, endedEdges);
+            addedEdges.removeIf((int edgeId) -> !edgeAlive.test(edgeId));
+            edges.or(addedEdges);
+            edges.andNot(endedEdges);
+            advance(outEdges, latest.getOutgoingEdgesByTimeForVertex(), latest.getOutgoingEdgesEndedByTimeForVertex(),
+                    addedEdges);
+            advance(inEdges, latest.getIncomingEdgesByTimeForVertex(), latest.getIncomingEdgesEndedByTimeForVertex(),
+                    addedEdges);
+        }
+        startTs = nextStartTs;
+    }
+
+    synchronized void addVertex(final int vertexId) {
+        vertices.add(vertexId);
+    }
+
+    synchronized void endVertex(final int vertexId) {
+        vertices.remove(vertexId);
+    }
+
+    synchronized void addEdge(final int edgeId, final int srcVertexId, final int destVertexId, final int labelId) {
+        edges.add(edgeId);
+        add(outEdges, srcVertexId, labelId, edgeId);
+        add(inEdges, destVertexId, labelId, edgeId);
+    }
+
+    synchronized void endEdge(final int edgeId, final int srcVertexId, final int destVertexId, final int labelId) {
+        edges.remove(edgeId);
+        remove(outEdges, srcVertexId, labelId, edgeId);
+        remove(inEdges, destVertexId, labelId, edgeId);
+    }
+
+    /*
+     * The collectors add the entities of the checkpoint to the set and return the start of the partition the
+     * checkpoint stands before, both read atomically.
+     */
+    synchronized long collectVertices(final IntBitmapSet into) {
+        into.or(vertices);
+        return startTs;
+    }
+
+    synchronized long collectEdges(final IntBitmapSet into) {
+        into.or(edges);
+        return startTs;
+    }
+
+    // labelId restricts the edges to a label, AdjacencyIndex.ALL_LABELS collects the whole neighborhood
+    synchronized long collectOutEdges(final int vertexId, final int labelId, final IntBitmapSet into) {
+        collect(outEdges, vertexId, labelId, into);
+        return startTs;
+    }
+
+    synchronized long collectInEdges(final int vertexId, final int labelId, final IntBitmapSet into) {
+        collect(inEdges, vertexId, labelId, into);
+        return startTs;
+    }
+
+    // the edges of the latest partition have already been filtered, the ended ones were all added before its end
+    private static void advance(final Int2ObjectOpenHashMap<Int2ObjectOpenHashMap<IntBitmapSet>> edgesByVertex,
+                                final AdjacencyIndex added,
+                                final AdjacencyIndex ended,
+                                final IntBitmapSet aliveEdges) {
+        for (final int vertexId : added.getVertexIds()) {
+            added.forEachLabel(vertexId, (ids, labelId) -> {
+                ids.and(aliveEdges);
+                if (!ids.isEmpty()) {
+                    edgesByVertex.computeIfAbsent(vertexId, v -> new Int2ObjectOpenHashMap<>(1))
+                            .computeIfAbsent(labelId, l -> new IntBitmapSet())
+                            .or(ids);
+                }
+            });
+        }
+        for (final int vertexId : ended.getVertexIds()) {
+            ended.forEachLabel(vertexId, (ids, labelId) -> remove(edgesByVertex, vertexId, labelId, ids));
+        }
+    }
+
+    private static void add(final Int2ObjectOpenHashMap<Int2ObjectOpenHashMap<IntBitmapSet>> edgesByVertex,
+                            final int vertexId,
+                            final int labelId,
+                            final int edgeId) {
+        edgesByVertex.computeIfAbsent(vertexId, v -> new Int2ObjectOpenHashMap<>(1))
+                .computeIfAbsent(labelId, l -> new IntBitmapSet())
+                .add(edgeId);
+    }
+
+    private static void remove(final Int2ObjectOpenHashMap<Int2ObjectOpenHashMap<IntBitmapSet>> edgesByVertex,
+                               final int vertexId,
+                               final int labelId,
+                               final int edgeId) {
+        final IntBitmapSet ids = get(edgesByVertex, vertexId, labelId);
+        if (null != ids) {
+            ids.remove(edgeId);
+            dropIfEmpty(edgesByVertex, vertexId, labelId, ids);
+        }
+    }
+
+    private static void remove(final Int2ObjectOpenHashMap<Int2ObjectOpenHashMap<IntBitmapSet>> edgesByVertex,
+                               final int vertexId,
+                               final int labelId,
+                               final IntBitmapSet edgeIds) {
+        final IntBitmapSet ids = get(edgesByVertex, vertexId, labelId);
+        if (null != ids) {
+            ids.andNot(edgeIds);
+            dropIfEmpty(edgesByVertex, vertexId, labelId, ids);
+        }
+    }
+
+    private static IntBitmapSet get(final Int2ObjectOpenHashMap<Int2ObjectOpenHashMap<IntBitmapSet>> edgesByVertex,
+                                    final int vertexId,
+                                    final int labelId) {
+        final Int2ObjectOpenHashMap<IntBitmapSet> edgesByLabel = edgesByVertex.get(vertexId);
+        return null == edgesByLabel ? null : edgesByLabel.get(labelId);
+    }
+
+    // the sets emptied by a removal are dropped, the checkpoint only weighs the live edges
+    private static void dropIfEmpty(final Int2ObjectOpenHashMap<Int2ObjectOpenHashMap<IntBitmapSet>> edgesByVertex,
+                                    final int vertexId,
+                                    final int labelId,
+                                    final IntBitmapSet ids) {
+        if (ids.isEmpty()) {
+            final Int2ObjectOpenHashMap<IntBitmapSet> edgesByLabel = edgesByVertex.get(vertexId);
+            edgesByLabel.remove(labelId);
+            if (edgesByLabel.isEmpty()) {
+                edgesByVertex.remove(vertexId);
+            }
+        }
+    }
+
+    private static void collect(final Int2ObjectOpenHashMap<Int2ObjectOpenHashMap<IntBitmapSet>> edgesByVertex,
+                                final int vertexId,
+                                final int labelId,
+                                final IntBitmapSet into) {
+        final Int2ObjectOpenHashMap<IntBitmapSet> edgesByLabel = edgesByVertex.get(vertexId);
+        if (null == edgesByLabel) {
+            return;
+        }
+        if (AdjacencyIndex.ALL_LABELS != labelId) {
+            final IntBitmapSet ids = edgesByLabel.get(labelId);
+            if (null != ids) {
+                into.or(ids);
+            }
+            return;
+        }
+        for (final IntBitmapSet ids : edgesByLabel.values()) {
+            into.or(ids);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package core;
+
+/*
+ Copyright 2023 VMware, Inc.
+ SPDX-License-Identifier: BSD-2-Clause
+*/
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Light-weight description of a property attached to a vertex or an edge.
+ * The samples of the property are stored separately within the time partitions they fall in,
+ * the header only retains what is required to locate and append to the series.
+ */
+@Data
+@AllArgsConstructor
+class PropertyHeader {
+    private final int id;
+    private final String name;
+    private final long time;
+    private long latestTimestamp;
+}
@@ -0,0 +1,185 @@
+package core;
+
+/*
+ Copyright 2023 VMware, Inc.
+ SPDX-License-Identifier: BSD-2-Clause
+*/
+
+import com.google.common.base.Preconditions;
+import core.utils.IntBitmapSet;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2LongOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Secondary indexes of the values of the properties of a kind of entity, one index per indexed property name.
+ * The values are dictionary coded and every value maps to the posting list of the entities holding it, each
+ * posting valid within [validFrom, validTo). A posting stays open, validTo being Long.MAX_VALUE, till the property
+ * of the entity takes another value. Samples of an entity are expected in chronological order, a sample preceding
+ * the latest sample of the entity is rejected since it would have to split the postings already recorded.
+ */
+class PropertyValueIndex {
+    private static final int NO_VALUE = -1;
+    private static final long NO_SAMPLE = Long.MIN_VALUE;
+    private static final String OUT_OF_ORDER_ERR_MSG_TEMPLATE = "Sample at %d of the indexed property %s of entity %d precedes its latest sample at %d.";
+
+    private final Map<String, ValueIndex> indexesByName = new HashMap<>();
+
+    PropertyValueIndex(final Set<String> propertyNames) {
+        for (final String propertyName : propertyNames) {
+            indexesByName.put(propertyName, new ValueIndex());
+        }
+    }
+
+    boolean isIndexed(final String propertyName) {
+        return indexesByName.containsKey(propertyName);
+    }
+
+    /**
+     * Rejects a sample of an indexed property preceding the latest sample of the entity, before the sample gets
+     * stored anywhere.
+     */
+    synchronized void checkOrder(final String propertyName, final int entityId, final long timestamp) {
+        final ValueIndex index = indexesByName.get(propertyName);
+        if (null != index) {
+            checkOrder(index, propertyName, entityId, timestamp);
+        }
+    }
+
+    /**
+     * Records the value of the property of the entity from the timestamp on, a null value ends the open posting.
+     */
+    synchronized void add(final String propertyName, final int entityId, final Object value, final long timestamp) {
+        final ValueIndex index = indexesByName.get(propertyName);
+        checkOrder(index, propertyName, entityId, timestamp);
+        index.latestTimestamps.put(entityId, timestamp);
+        final int valueId = null == value ? NO_VALUE : index.getOrAddValueId(value);
+        final int openValueId = index.openValueIds.get(entityId);
+        if (valueId == openValueId) {
+            return;
+        }
+        if (NO_VALUE != openValueId) {
+            index.postings.get(openValueId).validTo.set(index.openPositions.get(entityId), timestamp);
+            index.openValueIds.remove(entityId);
+            index.openPositions.remove(entityId);
+        }
+        if (NO_VALUE != valueId) {
+            final Postings postings = index.postings.get(valueId);
+            index.openValueIds.put(entityId, valueId);
+            index.openPositions.put(entityId, postings.entityIds.size());
+            postings.add(entityId, timestamp, Long.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Adds the entities holding the value at some time within [fromTs, toTs] to the set.
+     */
+    synchronized void collect(final String propertyName,
+                              final Object value,
+                              final long fromTs,
+                              final long toTs,
+                              final IntBitmapSet into) {
+        final ValueIndex index = indexesByName.get(propertyName);
+        final int valueId = index.valueIds.getInt(value);
+        if (NO_VALUE == valueId) {
+            return;
+        }
+        final Postings postings = index.postings.get(valueId);
+        for (int i = 0; i < postings.entityIds.size(); i++) {
+            if (postings.validFrom.getLong(i) <= toTs && postings.validTo.getLong(i) > fromTs) {
+                into.add(postings.entityIds.getInt(i));
+            }
+        }
+    }
+
+    /**
+     * Drops the postings ending at or before the timestamp.
+     */
+    synchronized void purgeTill(final long timestamp) {
+        for (final ValueIndex index : indexesByName.values()) {
+            // later samples follow the purged range, the latest sample of an entity without open posting is moot
+            index.latestTimestamps.int2LongEntrySet().removeIf(e -> e.getLongValue() <= timestamp
+                    && !index.openValueIds.containsKey(e.getIntKey()));
+            for (final Postings postings : index.postings) {
+                int retained = 0;
+                for (int i = 0; i < postings.entityIds.size(); i++) {
+                    final long validTo = postings.validTo.getLong(i);
+                    if (validTo <= timestamp) {
+                        continue;
+                    }
+                    final int entityId = postings.entityIds.getInt(i);
+                    postings.entityIds.set(retained, entityId);
+                    postings.validFrom.set(retained, postings.validFrom.getLong(i));
+                    postings.validTo.set(retained, validTo);
+                    if (Long.MAX_VALUE == validTo) {
+                        index.openPositions.put(entityId, retained);
+                    }
+                    retained++;
+                }
+                postings.truncate(retained);
+            }
+        }
+    }
+
+    private static void checkOrder(final ValueIndex index,
+                                   final String propertyName,
+                                   final int entityId,
+                                   final long timestamp) {
+        final long latestTimestamp = index.latestTimestamps.get(entityId);
+        Preconditions.checkArgument(timestamp >= latestTimestamp, String.format(OUT_OF_ORDER_ERR_MSG_TEMPLATE,
+                timestamp, propertyName, entityId, latestTimestamp));
+    }
+
+    private static final class ValueIndex {
+        // dictionary of the values, the posting lists are indexed by the value id
+        private final Object2IntOpenHashMap<Object> valueIds = new Object2IntOpenHashMap<>();
+        private final ObjectArrayList<Postings> postings = new ObjectArrayList<>();
+
+        // value id and position within the posting list of the open posting of every entity
+        private final Int2IntOpenHashMap openValueIds = new Int2IntOpenHashMap();
+        private final Int2IntOpenHashMap openPositions = new Int2IntOpenHashMap();
+        // timestamp of the latest sample of every entity
+        private final Int2LongOpenHashMap latestTimestamps = new Int2LongOpenHashMap();
+
+        private ValueIndex() {
+            valueIds.defaultReturnValue(NO_VALUE);
+            openValueIds.defaultReturnValue(NO_VALUE);
+            latestTimestamps.defaultReturnValue(NO_SAMPLE);
+        }
+
+        private int getOrAddValueId(final Object value) {
+            int valueId = valueIds.getInt(value);
+            if (NO_VALUE == valueId) {
+                valueId = postings.size();
+                postings.add(new Postings());
+                valueIds.put(value, valueId);
+            }
+            return valueId;
+        }
+    }
+
+    private static final class Postings {
+        private final IntArrayList entityIds = new IntArrayList(1);
+        private final LongArrayList validFrom = new LongArrayList(1);
+        private final LongArrayList validTo = new LongArrayList(1);
+
+        private void add(final int entityId, final long from, final long to) {
+            entityIds.add(entityId);
+            validFrom.add(from);
+            validTo.add(to);
+        }
+
+        private void truncate(final int size) {
+            entityIds.size(size);
+            validFrom.size(size);
+            validTo.size(size);
+        }
+    }
+}
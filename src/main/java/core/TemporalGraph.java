@@ -7,499 +7,2117 @@ package core;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
-import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import core.propertystore.PropertyStore;
+import core.propertystore.RollupSeries;
+import core.propertystore.SeriesAggregator;
+import core.utils.ByteKeyDictionary;
+import core.utils.CommonUtils;
+import core.utils.IntBitmapSet;
+import core.utils.TopKHeap;
+import core.utils.UnionFind;
 import exceptions.PropertyNotFoundException;
-import it.unimi.dsi.fastutil.ints.Int2ObjectAVLTreeMap;
-import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
-import it.unimi.dsi.fastutil.ints.Int2ObjectSortedMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntIterator;
 import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
-import it.unimi.dsi.fastutil.ints.IntSet;
-import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
-import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
-import it.unimi.dsi.fastutil.objects.ObjectSortedSet;
-import lombok.AllArgsConstructor;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
 import lombok.EqualsAndHashCode;
+import model.AggregateFunction;
+import model.ChangeEvent;
 import model.Graph;
+import model.GraphDiff;
 import model.Property;
+import model.PropertyAggregate;
+import model.RankedEntity;
+import model.RollupBucket;
+import model.TemporalProperty;
 import model.TimestampedPropertyValue;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.DoubleSummaryStatistics;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Collectors;
+import java.util.function.IntToDoubleFunction;
+import java.util.stream.IntStream;
 
 @EqualsAndHashCode
-@AllArgsConstructor
 public class TemporalGraph implements Graph {
-    static final int MAX_GRAPH_STORAGE_DURATION = Integer.MAX_VALUE;
+    public static final int UNKNOWN_VERTEX = ByteKeyDictionary.NO_ID;
     private static final String TIME_RANGE_CROSSED_ERR_MSG_TEMPLATE = "Timestamp supplied %s falls beyond supported range.";
+    private static final String PARTITION_DURATION_ERR_MSG_TEMPLATE = "Partition duration %d ms should be a multiple of %s fitting 32-bit offsets.";
+    private static final String BUCKET_RESOLUTION_ERR_MSG_TEMPLATE = "Bucket resolution %d ms should be a multiple of %s dividing the partition duration %d ms.";
+    private static final String PURGED_TIME_ERR_MSG_TEMPLATE = "Timestamp supplied %d falls within the purged range of the graph.";
     private static final String SRC_DEST_NOT_FOUND_ERR_MSG_TEMPLATE = "Source vertex Id %d or destination vertex Id %d not found at time: %d.";
     private static final String VERTEX_NOT_FOUND_ERR_MSG_TEMPLATE = "Vertex with Id %d not found at time: %d.";
     private static final String EDGE_NOT_FOUND_ERR_MSG_TEMPLATE = "Edge with Id %d not found at time: %d.";
+    // degree from which the edges of a vertex are aggregated in parallel
+    private static final int PARALLEL_AGGREGATION_THRESHOLD = 4096;
+    // number of the candidates ranked by a single task of a top-k query
+    private static final int RANKING_CHUNK_SIZE = 4096;
+    private static final String ROLLUP_RESOLUTION_ERR_MSG_TEMPLATE = "Rollup resolution %d ms of property %s should be positive.";
+    private static final String PROPERTY_NOT_INDEXED_ERR_MSG_TEMPLATE = "Values of the property %s are not indexed.";
+    private static final String TIME_WINDOW_ERR_MSG_TEMPLATE = "Window start %d should precede the window end %d.";
+    private static final String ENTITY_NOT_FOUND_ERR_MSG_TEMPLATE = "%s with Id %d not found.";
+    private static final String ENTITY_REMOVED_ERR_MSG_TEMPLATE = "%s with Id %d already removed at time: %d.";
+    private static final String REMOVAL_TIME_ERR_MSG_TEMPLATE = "Removal time: %d should not precede %s addition time %d.";
     private static final String NULL_EMPTY_PROPERTIES_ERR_MSG_TEMPLATE = "Properties can't be empty or null";
     private static final String PROPERTIES_TIME_ERR_MSG_TEMPLATE = "Property addition time: %d should be greater than %s addition time %d for property %s";
+    private static final String PROPERTY_OUT_OF_ORDER_ERR_MSG_TEMPLATE = "Incoming timestamp: %d for property %s is less than last known timestamp: %d";
+    private static final String PROPERTY_SAMPLES_ORDER_ERR_MSG_TEMPLATE = "Samples of the property %s of the %s should be in chronological order.";
+    private static final int NO_EDGE = -1;
+    // type tags prefixing the encoded external keys, keys of different types never collide
+    private static final byte STRING_KEY = 1;
+    private static final byte LONG_KEY = 2;
+    private static final byte UUID_KEY = 3;
     private final long initTs;
-    // atomic running counter for a vertex index
+    private final TemporalGraphConfig config;
+    // number of the vertices added so far, raised once the columns of the new vertex are appended
     private final AtomicInteger vertexIndex = new AtomicInteger(0);
 
-    // atomic running counter for an edge index
+    // number of the edges added so far, raised once the columns of the new edge are appended
     private final AtomicInteger edgeIndex = new AtomicInteger(0);
 
-    // map maintaining vertices as per time Map<timeDifferential, Set<>>
-    private final TreeMap<Integer, IntSet> verticesByTime = new TreeMap<>();
+    // serializes the allocation of the entity ids with the writes to the entity columns below. A reader checking an
+    // id against the counters above sees the columns of the entity
+    private final Object columnLock = new Object();
 
-    // stores outgoing edges of a vertex map<vertexId, TreeMap<time, <EdgeIds>>>
-    private final Map<Integer, TreeMap<Integer, IntSet>> outgoingEdgesByTimeForVertex = new Int2ObjectOpenHashMap<>();
-    // stores incoming edges of a vertex
-    private final Map<Integer, TreeMap<Integer, IntSet>> incomingEdgesByTimeForVertex = new Int2ObjectOpenHashMap<>();
+    // time partitions keyed by the partition number counted from the graph init time
+    private final ConcurrentSkipListMap<Long, TimePartition> partitions = new ConcurrentSkipListMap<>();
 
-    // time differential to edges Ids set
-    private final Int2ObjectAVLTreeMap<IntSet> edgesByTime = new Int2ObjectAVLTreeMap<>();
+    // serializes the creation of the partitions with the updates of the checkpoint
+    private final Object checkpointLock = new Object();
 
-    // vertex to property map <vertexId, Set<Property>>
-    private final Map<Integer, IntOpenHashSet> vertexProperties = new Int2ObjectOpenHashMap<>();
+    // entities alive right before the start of the latest partition, rolled forward along with the partitions
+    private final PartitionCheckpoint checkpoint = new PartitionCheckpoint();
 
-    // edge to property map <EdgeId, Set<Property>>
-    private final Map<Integer, IntOpenHashSet> edgeProperties = new Int2ObjectOpenHashMap<>();
+    // creation time of the vertices indexed by vertex id, used to locate the partition owning the vertex
+    private final LongArrayList vertexCreationTimes = new LongArrayList();
 
-    private final PropertyStore propertyStore = new PropertyStore();
+    // creation time of the edges indexed by edge id, used to locate the partition owning the edge
+    private final LongArrayList edgeCreationTimes = new LongArrayList();
 
-    // This needs to be checked while finding time differential from the user specified timestamp
+    // end of the validity of the vertices indexed by vertex id, Long.MAX_VALUE while the vertex is alive
+    private final LongArrayList vertexEndTimes = new LongArrayList();
+
+    // end of the validity of the edges indexed by edge id, Long.MAX_VALUE while the edge is alive
+    private final LongArrayList edgeEndTimes = new LongArrayList();
+
+    // end points of the edges indexed by edge id
+    private final IntArrayList edgeSrcVertices = new IntArrayList();
+    private final IntArrayList edgeDestVertices = new IntArrayList();
+
+    // time of the latest assertion of the edges indexed by edge id. The partition covering it holds the property
+    // registry of the edge
+    private final LongArrayList edgeAnchorTimes = new LongArrayList();
+
+    // time of the latest assertion of the vertices indexed by vertex id. The end points of an upserted edge are
+    // re-asserted along with the edge
+    private final LongArrayList vertexAssertionTimes = new LongArrayList();
+
+    // label ids of the vertices indexed by vertex id
+    private final IntArrayList vertexLabels = new IntArrayList();
+
+    // label ids of the edges indexed by edge id
+    private final IntArrayList edgeLabels = new IntArrayList();
+
+    // upserted edges chained by their end points, <pack(src, dest), edgeId> heads the chain linked by nextPairEdges
+    private final Long2IntOpenHashMap pairEdges = new Long2IntOpenHashMap();
+    private final IntArrayList nextPairEdges = new IntArrayList();
+
+    private final GraphEntityLabelManager labelManager = new GraphEntityLabelManager();
+
+    // external keys of the vertices added through getOrAddVertex, guarded by its own monitor. The keys of the
+    // vertices forgotten by the retention are evicted
+    private final ByteKeyDictionary vertexKeys = new ByteKeyDictionary();
+
+    // partitions numbered below this one have been dropped by retention
+    private volatile long firstRetainedPartition = 0L;
+
+    // change events for the subscribers, null till the first subscription
+    private volatile ChangeLog changeLog;
+
+    // vertices connected by the edges added so far, null unless connectivity tracking is enabled
+    private final UnionFind connectivity;
+
+    // rollup tiers of the numeric property series by entity id and property name, retained independently of the
+    // partitions. Every map is guarded by itself
+    private final Int2ObjectOpenHashMap<Map<String, RollupSeries>> vertexRollups = new Int2ObjectOpenHashMap<>();
+    private final Int2ObjectOpenHashMap<Map<String, RollupSeries>> edgeRollups = new Int2ObjectOpenHashMap<>();
+
+    // secondary indexes of the values of the configured properties
+    private final PropertyValueIndex vertexValueIndex;
+    private final PropertyValueIndex edgeValueIndex;
+
+    public TemporalGraph(final long initTs) {
+        this(initTs, TemporalGraphConfig.defaultConfig());
+    }
+
+    public TemporalGraph(final long initTs, final TemporalGraphConfig config) {
+        Preconditions.checkArgument(config.getPartitionDurationMillis() > 0L,
+                "Partition duration should be a positive number of milliseconds");
+        final long unitMillis = config.getTimeUnit().toMillis(1L);
+        Preconditions.checkArgument(unitMillis >= 1L, "Time unit should not be finer than milliseconds");
+        Preconditions.checkArgument(config.getPartitionDurationMillis() % unitMillis == 0L
+                        && config.getPartitionDurationMillis() / unitMillis <= Integer.MAX_VALUE,
+                String.format(PARTITION_DURATION_ERR_MSG_TEMPLATE, config.getPartitionDurationMillis(), config.getTimeUnit()));
+        Preconditions.checkArgument(config.getBucketMillis() % unitMillis == 0L
+                        && config.getPartitionDurationMillis() % config.getBucketMillis() == 0L,
+                String.format(BUCKET_RESOLUTION_ERR_MSG_TEMPLATE, config.getBucketMillis(), config.getTimeUnit(),
+                        config.getPartitionDurationMillis()));
+        for (final Map.Entry<String, long[]> e : config.getRollupResolutionsMillis().entrySet()) {
+            for (final long resolution : e.getValue()) {
+                Preconditions.checkArgument(resolution > 0L,
+                        String.format(ROLLUP_RESOLUTION_ERR_MSG_TEMPLATE, resolution, e.getKey()));
+            }
+        }
+        this.initTs = initTs;
+        this.config = config;
+        this.pairEdges.defaultReturnValue(NO_EDGE);
+        this.connectivity = config.isConnectivityTracking() ? new UnionFind() : null;
+        this.vertexValueIndex = new PropertyValueIndex(config.getIndexedVertexProperties());
+        this.edgeValueIndex = new PropertyValueIndex(config.getIndexedEdgeProperties());
+    }
+
+    // This needs to be checked while finding the partition from the user specified timestamp. Every partition
+    // rebases the timestamps falling within it, hence there is no upper bound besides the long range.
     @VisibleForTesting
     protected boolean validateTimestamp(final long ts) {
-        if (ts < initTs) {
-            return false;
-        }
-        return ts - initTs < MAX_GRAPH_STORAGE_DURATION;
+        return ts >= initTs;
     }
 
     @Override
     public int addVertex(final Collection<Property> properties, final long timestamp) {
+        return addVertex(null, properties, timestamp);
+    }
+
+    @Override
+    public int addVertex(final String label, final Collection<Property> properties, final long timestamp) {
         Preconditions.checkArgument(validateTimestamp(timestamp),
                 String.format(TIME_RANGE_CROSSED_ERR_MSG_TEMPLATE, timestamp));
+        Preconditions.checkArgument(isRetained(timestamp), String.format(PURGED_TIME_ERR_MSG_TEMPLATE, timestamp));
         // Preconditions.checkArgument(null != properties && !properties.isEmpty(), NULL_EMPTY_PROPERTIES_ERR_MSG_TEMPLATE);
-        final int vertexId = vertexIndex.getAndIncrement();
-        IntSet vertexIds = verticesByTime.computeIfAbsent((int) (timestamp - initTs), t -> new IntOpenHashSet(1));
-        vertexIds.add(vertexId);
+        final int labelId = labelManager.getOrAddLabelId(label);
+        final int vertexId;
+        synchronized (columnLock) {
+            vertexId = vertexIndex.get();
+            vertexCreationTimes.add(timestamp);
+            vertexEndTimes.add(Long.MAX_VALUE);
+            vertexAssertionTimes.add(timestamp);
+            vertexLabels.add(labelId);
+            vertexIndex.set(vertexId + 1);
+        }
+        final TimePartition partition = recordVertexAdded(vertexId, timestamp);
         //adding property for vertex if properties are specified. first compress the property
         if (properties != null && !properties.isEmpty()) {
-            for (final Property p : properties) {
-                Preconditions.checkArgument(timestamp <= p.getTime(),
-                        String.format(PROPERTIES_TIME_ERR_MSG_TEMPLATE, p.getTime(), "Vertex", timestamp, p.getName()));
+            checkPropertyTimes(properties, "Vertex", timestamp);
+            final IntOpenHashSet propertyIds = storeProperties(partition, properties);
+            synchronized (partition) {
+                partition.getVertexProperties().put(vertexId, propertyIds);
             }
-            IntOpenHashSet propertyIds = new IntOpenHashSet(properties.size());
-            properties.stream().forEach( p -> {
-                propertyIds.add(p.getId());
-                propertyStore.put(p.getId(), p);
-            });
-            vertexProperties.put(vertexId, propertyIds);
+            onSamples(true, vertexId, properties);
         }
+        publishChange(ChangeEvent.Type.VERTEX_ADDED, timestamp, vertexId, -1, -1, label, null);
 
         return vertexId;
     }
 
+    /**
+     * Returns the vertex registered with the external key. A vertex is added at the timestamp and registered with
+     * the key if the key is unknown or if its vertex has been removed at or before the timestamp, or forgotten by
+     * the retention.
+     * @param externalKey the key of the vertex within the client domain
+     * @param timestamp   the timestamp at which the vertex would be inserted in the graph
+     * @return the identifier of the vertex as present within the graph storage layer
+     */
+    public int getOrAddVertex(final String externalKey, final long timestamp) {
+        return getOrAddVertex(encodeKey(externalKey), timestamp);
+    }
+
+    public int getOrAddVertex(final long externalKey, final long timestamp) {
+        return getOrAddVertex(encodeKey(externalKey), timestamp);
+    }
+
+    public int getOrAddVertex(final UUID externalKey, final long timestamp) {
+        return getOrAddVertex(encodeKey(externalKey), timestamp);
+    }
+
+    /**
+     * @param externalKey the key of the vertex within the client domain
+     * @return the identifier of the vertex latest registered with the key, {@link #UNKNOWN_VERTEX} if there is none
+     * or if the vertex has been forgotten by the retention
+     */
+    public int getVertexId(final String externalKey) {
+        return getVertexId(encodeKey(externalKey));
+    }
+
+    public int getVertexId(final long externalKey) {
+        return getVertexId(encodeKey(externalKey));
+    }
+
+    public int getVertexId(final UUID externalKey) {
+        return getVertexId(encodeKey(externalKey));
+    }
+
+    /**
+     * @param vertexId the identifier of the vertex as present within the graph storage layer
+     * @return the external key, a {@link String}, {@link Long} or {@link UUID}, the vertex has been registered with,
+     * null for the vertices added without a key
+     */
+    public Object getVertexKey(final int vertexId) {
+        final byte[] key;
+        synchronized (vertexKeys) {
+            key = vertexKeys.getKey(vertexId);
+        }
+        if (null == key) {
+            return null;
+        }
+        final ByteBuffer buffer = ByteBuffer.wrap(key, 1, key.length - 1);
+        switch (key[0]) {
+            case STRING_KEY:
+                return new String(key, 1, key.length - 1, StandardCharsets.UTF_8);
+            case LONG_KEY:
+                return buffer.getLong();
+            default:
+                return new UUID(buffer.getLong(), buffer.getLong());
+        }
+    }
+
+    private int getOrAddVertex(final byte[] key, final long timestamp) {
+        synchronized (vertexKeys) {
+            return vertexKeys.getOrAdd(key, vertexId -> isKnownVertex(vertexId)
+                    && vertexEndTimes.getLong(vertexId) > timestamp
+                    ? vertexId
+                    : addVertex(null, timestamp));
+        }
+    }
+
+    private int getVertexId(final byte[] key) {
+        synchronized (vertexKeys) {
+            final int vertexId = vertexKeys.get(key);
+            return isKnownVertex(vertexId) ? vertexId : UNKNOWN_VERTEX;
+        }
+    }
+
+    // a vertex ended before the first retained partition is forgotten, along with its key on the next purge
+    private boolean isKnownVertex(final int vertexId) {
+        return UNKNOWN_VERTEX != vertexId && isRetained(vertexEndTimes.getLong(vertexId));
+    }
+
+    private static byte[] encodeKey(final String externalKey) {
+        final byte[] chars = externalKey.getBytes(StandardCharsets.UTF_8);
+        final byte[] key = new byte[chars.length + 1];
+        key[0] = STRING_KEY;
+        System.arraycopy(chars, 0, key, 1, chars.length);
+        return key;
+    }
+
+    private static byte[] encodeKey(final long externalKey) {
+        return ByteBuffer.allocate(Long.BYTES + 1).put(LONG_KEY).putLong(externalKey).array();
+    }
+
+    private static byte[] encodeKey(final UUID externalKey) {
+        return ByteBuffer.allocate(2 * Long.BYTES + 1).put(UUID_KEY)
+                .putLong(externalKey.getMostSignificantBits())
+                .putLong(externalKey.getLeastSignificantBits())
+                .array();
+    }
+
     @Override
     public int addEdge(int srcVertexId, int destVertexId, Collection<Property> properties, long timestamp) {
+        return addEdge(srcVertexId, destVertexId, null, properties, timestamp);
+    }
+
+    @Override
+    public int addEdge(final int srcVertexId,
+                       final int destVertexId,
+                       final String label,
+                       final Collection<Property> properties,
+                       final long timestamp) {
         Preconditions.checkArgument(validateTimestamp(timestamp),
                 String.format(TIME_RANGE_CROSSED_ERR_MSG_TEMPLATE, timestamp));
+        Preconditions.checkArgument(isRetained(timestamp), String.format(PURGED_TIME_ERR_MSG_TEMPLATE, timestamp));
         Preconditions.checkArgument((srcVertexId < vertexIndex.get() && destVertexId < vertexIndex.get()),
                 String.format(SRC_DEST_NOT_FOUND_ERR_MSG_TEMPLATE, srcVertexId, destVertexId, timestamp));
+        Preconditions.checkArgument(vertexEndTimes.getLong(srcVertexId) > timestamp
+                        && vertexEndTimes.getLong(destVertexId) > timestamp,
+                String.format(SRC_DEST_NOT_FOUND_ERR_MSG_TEMPLATE, srcVertexId, destVertexId, timestamp));
 
-        final int edgeId = edgeIndex.getAndIncrement();
-        final int timeDifferential = (int) (timestamp - initTs);
-        final IntSet edgeIds = edgesByTime.computeIfAbsent(timeDifferential, t -> new IntOpenHashSet(1));
-        edgeIds.add(edgeId);
-
-        //add outgoing edges in the map
-        addEdgeForVertices(srcVertexId, timeDifferential, edgeId, outgoingEdgesByTimeForVertex);
-
-        //add incoming edges in the map
-        addEdgeForVertices(destVertexId, timeDifferential, edgeId, incomingEdgesByTimeForVertex);
-
+        final int labelId = labelManager.getOrAddLabelId(label);
+        final int edgeId;
+        synchronized (columnLock) {
+            edgeId = edgeIndex.get();
+            edgeCreationTimes.add(timestamp);
+            edgeEndTimes.add(Long.MAX_VALUE);
+            edgeSrcVertices.add(srcVertexId);
+            edgeDestVertices.add(destVertexId);
+            edgeAnchorTimes.add(timestamp);
+            edgeLabels.add(labelId);
+            nextPairEdges.add(NO_EDGE);
+            edgeIndex.set(edgeId + 1);
+        }
+        final TimePartition partition = recordEdgeAdded(edgeId, timestamp);
         //adding property for edge if properties are specified
         if (properties != null && !properties.isEmpty()) {
-            for (final Property p : properties) {
-                Preconditions.checkArgument(timestamp <= p.getTime(),
-                        String.format(PROPERTIES_TIME_ERR_MSG_TEMPLATE, p.getTime(), "Edge", timestamp, p.getName()));
+            checkPropertyTimes(properties, "Edge", timestamp);
+            final IntOpenHashSet propertyIds = storeProperties(partition, properties);
+            synchronized (partition) {
+                partition.getEdgeProperties().put(edgeId, propertyIds);
+            }
+            onSamples(false, edgeId, properties);
+        }
+        // the edge is announced once stored
+        publishChange(ChangeEvent.Type.EDGE_ADDED, timestamp, edgeId, srcVertexId, destVertexId, label, null);
+        if (null != connectivity) {
+            synchronized (connectivity) {
+                connectivity.union(srcVertexId, destVertexId);
             }
-            IntOpenHashSet propertyIds = new IntOpenHashSet(properties.size());
-            properties.stream().forEach( p -> {
-                propertyIds.add(p.getId());
-                propertyStore.put(p.getId(), p);
-            });
-            edgeProperties.put(edgeId, propertyIds);
+        }
+        // an edge added late to a removed vertex ends along with the vertex
+        final long vertexEndTs = Math.min(vertexEndTimes.getLong(srcVertexId), vertexEndTimes.getLong(destVertexId));
+        if (Long.MAX_VALUE != vertexEndTs) {
+            endEdge(edgeId, vertexEndTs);
         }
 
         return edgeId;
     }
 
-    private void addEdgeForVertices(final int vertexId,
-                                    final int timeDifferential,
-                                    final int edgeId,
-                                    final Map<Integer, TreeMap<Integer, IntSet>> edgesByTimeForVertex) {
-        final TreeMap<Integer, IntSet> edgeMap = edgesByTimeForVertex.computeIfAbsent(vertexId, t -> new TreeMap<>());
-        final Set<Integer> outgoingEdges = edgeMap.computeIfAbsent(timeDifferential, t -> new IntOpenHashSet(1));
-        outgoingEdges.add(edgeId);
+    // the properties of an entity are validated before any of them is stored
+    private static void checkPropertyTimes(final Collection<Property> properties,
+                                           final String entityType,
+                                           final long timestamp) {
+        if (null != properties) {
+            for (final Property p : properties) {
+                Preconditions.checkArgument(timestamp <= p.getTime(), String.format(PROPERTIES_TIME_ERR_MSG_TEMPLATE,
+                        p.getTime(), entityType, timestamp, p.getName()));
+                // the stores, the rollups and the value indexes consume the samples in order
+                final List<TemporalProperty.TimeStampWithValue> values = ((TemporalProperty) p).getValues();
+                for (int i = 1; i < values.size(); i++) {
+                    Preconditions.checkArgument(
+                            values.get(i - 1).getTimeDifferential() <= values.get(i).getTimeDifferential(),
+                            String.format(PROPERTY_SAMPLES_ORDER_ERR_MSG_TEMPLATE, p.getName(), entityType));
+                }
+            }
+        }
     }
 
     @Override
-    public Iterator<Integer> getVerticesAtTime(final long timestamp) {
-        Preconditions.checkArgument(validateTimestamp(timestamp),
-                String.format(TIME_RANGE_CROSSED_ERR_MSG_TEMPLATE, timestamp));
-        final int timeDifferential = (int) (timestamp - initTs);
-        final Map.Entry<Integer, IntSet> floorEntry = verticesByTime.floorEntry(timeDifferential);
-        if (null == floorEntry || null == floorEntry.getKey()) {
-            return Collections.emptyIterator();
-        }
-        return getIntIterator(verticesByTime.firstKey(), floorEntry.getKey(), verticesByTime).iterator();
+    public int upsertEdge(final int srcVertexId, final int destVertexId, final String label, final long timestamp) {
+        return upsertEdge(srcVertexId, destVertexId, label, Collections.emptyMap(), timestamp);
     }
 
+    /*
+     * Algorithm
+     * The edges upserted between a pair of vertices are chained from the pair map, the edge with the same label
+     * whose validity covers the timestamp, or starts after it, is the logical edge. Without such an edge a new one
+     * is added and chained. Otherwise the edge is re-asserted within the partition covering the timestamp, once
+     * per partition, so that the window queries over the partition see it along with its end points. Its property
+     * registry moves to that partition.
+     * The property values are appended to the series of the edge, unknown properties are added to the edge.
+     */
     @Override
-    public Iterator<Integer> getEdgesAtTime(final int srcVertexId,
-                                            final int destVertexId,
-                                            final long timestamp) {
+    public int upsertEdge(final int srcVertexId,
+                          final int destVertexId,
+                          final String label,
+                          final Map<String, Object> propertyValues,
+                          final long timestamp) {
         Preconditions.checkArgument(validateTimestamp(timestamp),
                 String.format(TIME_RANGE_CROSSED_ERR_MSG_TEMPLATE, timestamp));
+        Preconditions.checkArgument(isRetained(timestamp), String.format(PURGED_TIME_ERR_MSG_TEMPLATE, timestamp));
         Preconditions.checkArgument((srcVertexId < vertexIndex.get() && destVertexId < vertexIndex.get()),
                 String.format(SRC_DEST_NOT_FOUND_ERR_MSG_TEMPLATE, srcVertexId, destVertexId, timestamp));
-        Set<Integer> outEdges = Sets.newHashSet(getOutEdgesAtTime(srcVertexId, timestamp));
-        if (outEdges.isEmpty()) {
-            return Collections.emptyIterator();
+        final int labelId = labelManager.getOrAddLabelId(label);
+        final long pair = CommonUtils.pack2IntsInLong(srcVertexId, destVertexId);
+        int edgeId = NO_EDGE;
+        // the lookup and the chaining of a new edge are atomic, concurrent upserts of a pair resolve the same edge
+        synchronized (pairEdges) {
+            for (int e = pairEdges.get(pair); NO_EDGE != e; e = nextPairEdges.getInt(e)) {
+                if (edgeLabels.getInt(e) == labelId && edgeEndTimes.getLong(e) > timestamp) {
+                    // the chain runs from the newest edge, the oldest edge ending after the timestamp covers it
+                    edgeId = e;
+                }
+            }
+            if (NO_EDGE == edgeId) {
+                edgeId = addEdge(srcVertexId, destVertexId, label, null, timestamp);
+                synchronized (columnLock) {
+                    nextPairEdges.set(edgeId, pairEdges.get(pair));
+                }
+                pairEdges.put(pair, edgeId);
+            } else {
+                reassertEdge(edgeId, timestamp);
+            }
         }
-        Set<Integer> inEdges = Sets.newHashSet(getInEdgesAtTime(destVertexId, timestamp));
-        if (inEdges.isEmpty()) {
-            return Collections.emptyIterator();
+        for (final Map.Entry<String, Object> e : propertyValues.entrySet()) {
+            final PropertyHeader header = getPropertyFromSet(e.getKey(), getEdgePropertyHeaders(edgeId));
+            if (null == header) {
+                // the edge may have carried the property before its registry got purged
+                edgeValueIndex.checkOrder(e.getKey(), edgeId, timestamp);
+                final TemporalProperty property = TemporalProperty.builder().name(e.getKey()).time(timestamp).build();
+                property.setValueAtTime(timestamp, e.getValue());
+                final TimePartition anchor = getOrCreatePartition(edgeAnchorTimes.getLong(edgeId));
+                final IntOpenHashSet propertyIds = storeProperties(anchor, Collections.singleton(property));
+                synchronized (anchor) {
+                    anchor.getEdgeProperties().computeIfAbsent(edgeId, id -> new IntOpenHashSet(1)).addAll(propertyIds);
+                }
+                onSample(false, edgeId, e.getKey(), timestamp, e.getValue());
+            } else {
+                appendSample(false, edgeId, header, e.getValue(), timestamp);
+            }
+            publishChange(ChangeEvent.Type.EDGE_PROPERTY_APPENDED, timestamp, edgeId, srcVertexId, destVertexId,
+                    e.getKey(), e.getValue());
         }
-        outEdges.retainAll(inEdges);
-        return outEdges.iterator();
+        return edgeId;
     }
 
-    @Override
-    public Iterator<Integer> getOutEdgesAtTime(final int vertexId, final long timestamp) {
-        Preconditions.checkArgument(validateTimestamp(timestamp),
-                String.format(TIME_RANGE_CROSSED_ERR_MSG_TEMPLATE, timestamp));
-        Preconditions.checkArgument(vertexId < vertexIndex.get(),
-                String.format(VERTEX_NOT_FOUND_ERR_MSG_TEMPLATE, vertexId, timestamp));
-        final TreeMap<Integer, IntSet> outgoingEdgesForVertex = outgoingEdgesByTimeForVertex.get(vertexId);
-        if (null == outgoingEdgesForVertex) {
-            return Collections.emptyIterator();
+    private void reassertEdge(final int edgeId, final long timestamp) {
+        final long anchorTs = edgeAnchorTimes.getLong(edgeId);
+        final boolean laterPartition = getPartitionNumber(timestamp) > getPartitionNumber(anchorTs);
+        if (timestamp < edgeCreationTimes.getLong(edgeId) || laterPartition) {
+            recordEdgeAdded(edgeId, timestamp);
         }
-        final int timeDifferential = (int) (timestamp - initTs);
-        final Map.Entry<Integer, IntSet> floorEntry = outgoingEdgesForVertex.floorEntry(timeDifferential);
-        if (null == floorEntry || null == floorEntry.getKey()) {
-            return Collections.emptyIterator();
+        setColumn(edgeCreationTimes, edgeId, Math.min(timestamp, edgeCreationTimes.getLong(edgeId)));
+        if (laterPartition) {
+            // the property registry moves along, the partition of the previous assertion may be dropped first
+            final TimePartition anchor = getOrCreatePartition(timestamp);
+            final IntOpenHashSet propertyIds = new IntOpenHashSet();
+            synchronized (anchor) {
+                for (final PropertyHeader header : getEdgePropertyHeaders(edgeId)) {
+                    propertyIds.add(header.getId());
+                    anchor.getPropertyHeaders().put(header.getId(), header);
+                }
+                if (!propertyIds.isEmpty()) {
+                    anchor.getEdgeProperties().put(edgeId, propertyIds);
+                }
+            }
+            setColumn(edgeAnchorTimes, edgeId, timestamp);
+            // the end points are re-asserted along with the edge
+            reassertVertex(edgeSrcVertices.getInt(edgeId), timestamp);
+            reassertVertex(edgeDestVertices.getInt(edgeId), timestamp);
         }
-        return getIntIterator(outgoingEdgesForVertex.firstKey(), floorEntry.getKey(), outgoingEdgesForVertex).iterator();
     }
 
-    @Override
-    public Iterator<Integer> getInEdgesAtTime(final int vertexId, final long timestamp) {
-        Preconditions.checkArgument(validateTimestamp(timestamp),
-                String.format(TIME_RANGE_CROSSED_ERR_MSG_TEMPLATE, timestamp));
-        Preconditions.checkArgument(vertexId < vertexIndex.get(),
-                String.format(VERTEX_NOT_FOUND_ERR_MSG_TEMPLATE, vertexId, timestamp));
-        final TreeMap<Integer, IntSet> incomingEdgesForVertex = incomingEdgesByTimeForVertex.get(vertexId);
-        if (null == incomingEdgesForVertex) {
-            return null;
-        }
-        final int timeDifferential = (int) (timestamp - initTs);
-        final Integer floorKey = incomingEdgesForVertex.floorEntry(timeDifferential).getKey();
-        if (null == floorKey) {
-            return null;
+    private void reassertVertex(final int vertexId, final long timestamp) {
+        if (getPartitionNumber(timestamp) > getPartitionNumber(vertexAssertionTimes.getLong(vertexId))
+                && vertexEndTimes.getLong(vertexId) > timestamp) {
+            recordVertexAdded(vertexId, timestamp);
+            setColumn(vertexAssertionTimes, vertexId, timestamp);
         }
-        return getIntIterator(incomingEdgesForVertex.firstKey(), floorKey, incomingEdgesForVertex).iterator();
     }
 
     @Override
-    public Collection<TimestampedPropertyValue> getVertexPropertiesAtTime(final int vertexId, final long timestamp) {
+    public void removeVertex(final int vertexId, final long timestamp) {
         Preconditions.checkArgument(validateTimestamp(timestamp),
                 String.format(TIME_RANGE_CROSSED_ERR_MSG_TEMPLATE, timestamp));
+        Preconditions.checkArgument(isRetained(timestamp), String.format(PURGED_TIME_ERR_MSG_TEMPLATE, timestamp));
         Preconditions.checkArgument(vertexId < vertexIndex.get(),
                 String.format(VERTEX_NOT_FOUND_ERR_MSG_TEMPLATE, vertexId, timestamp));
-        final Set<Property> allProperties = getEntityProperties(vertexProperties, vertexId);
-        final Set<TimestampedPropertyValue> propertiesWithValue = new HashSet<>();
-        for (final Property p : allProperties) {
-            final Object value = p.getValueAtTime(timestamp);
-            if (null == value) {
-                continue;
+        Preconditions.checkArgument(Long.MAX_VALUE == vertexEndTimes.getLong(vertexId),
+                String.format(ENTITY_REMOVED_ERR_MSG_TEMPLATE, "Vertex", vertexId, vertexEndTimes.getLong(vertexId)));
+        Preconditions.checkArgument(timestamp >= vertexCreationTimes.getLong(vertexId),
+                String.format(REMOVAL_TIME_ERR_MSG_TEMPLATE, timestamp, "Vertex", vertexCreationTimes.getLong(vertexId)));
+        // the incident edges cannot outlive the vertex
+        final IntBitmapSet incidentEdges = collectOutEdges(vertexId, AdjacencyIndex.ALL_LABELS, timestamp);
+        incidentEdges.or(collectInEdges(vertexId, AdjacencyIndex.ALL_LABELS, timestamp));
+        for (final int edgeId : incidentEdges) {
+            if (edgeCreationTimes.getLong(edgeId) <= timestamp) {
+                endEdge(edgeId, timestamp);
             }
-            propertiesWithValue.add(new TimestampedPropertyValue(p.getName(), value));
         }
-        return propertiesWithValue;
+        setColumn(vertexEndTimes, vertexId, timestamp);
+        recordVertexEnded(vertexId, timestamp);
+        publishChange(ChangeEvent.Type.VERTEX_REMOVED, timestamp, vertexId, -1, -1, null, null);
     }
 
     @Override
-    public TimestampedPropertyValue getVertexPropertyAtTime(final int vertexId, final String propertyName, final long timestamp) {
+    public void removeEdge(final int edgeId, final long timestamp) {
         Preconditions.checkArgument(validateTimestamp(timestamp),
                 String.format(TIME_RANGE_CROSSED_ERR_MSG_TEMPLATE, timestamp));
-        Preconditions.checkArgument(vertexId < vertexIndex.get(),
-                String.format(VERTEX_NOT_FOUND_ERR_MSG_TEMPLATE, vertexId, timestamp));
-        final Set<Property> allProperties = getEntityProperties(vertexProperties, vertexId);
-        for (final Property p : allProperties) {
-            if (!propertyName.equals(p.getName())) {
-                continue;
-            }
-            final Object value = p.getValueAtTime(timestamp);
-            if (null == value) {
-                return null;
-            }
-            return new TimestampedPropertyValue(p.getName(), value);
+        Preconditions.checkArgument(isRetained(timestamp), String.format(PURGED_TIME_ERR_MSG_TEMPLATE, timestamp));
+        Preconditions.checkArgument(edgeId < edgeIndex.get(),
+                String.format(EDGE_NOT_FOUND_ERR_MSG_TEMPLATE, edgeId, timestamp));
+        Preconditions.checkArgument(Long.MAX_VALUE == edgeEndTimes.getLong(edgeId),
+                String.format(ENTITY_REMOVED_ERR_MSG_TEMPLATE, "Edge", edgeId, edgeEndTimes.getLong(edgeId)));
+        Preconditions.checkArgument(timestamp >= edgeCreationTimes.getLong(edgeId),
+                String.format(REMOVAL_TIME_ERR_MSG_TEMPLATE, timestamp, "Edge", edgeCreationTimes.getLong(edgeId)));
+        endEdge(edgeId, timestamp);
+    }
+
+    /*
+     * Records the end of the edge validity within the partition covering the timestamp. Queries subtract the
+     * edges ended till their timestamp from the edges added till then.
+     */
+    private void endEdge(final int edgeId, final long timestamp) {
+        setColumn(edgeEndTimes, edgeId, timestamp);
+        recordEdgeEnded(edgeId, timestamp);
+        publishChange(ChangeEvent.Type.EDGE_REMOVED, timestamp, edgeId, edgeSrcVertices.getInt(edgeId),
+                edgeDestVertices.getInt(edgeId), null, null);
+    }
+
+    // an append may be reallocating the column, a value set into the array being replaced would be lost
+    private void setColumn(final LongArrayList column, final int id, final long value) {
+        synchronized (columnLock) {
+            column.set(id, value);
         }
-        return null;
     }
 
-    @Override
-    public Collection<TimestampedPropertyValue> getEdgePropertiesAtTime(final int edgeId, final long timestamp) {
-        Preconditions.checkArgument(validateTimestamp(timestamp),
-                String.format(TIME_RANGE_CROSSED_ERR_MSG_TEMPLATE, timestamp));
-        Preconditions.checkArgument(edgeId < edgeIndex.get(),
-                String.format(EDGE_NOT_FOUND_ERR_MSG_TEMPLATE, edgeId, timestamp));
-        final Set<Property> allProperties = getEntityProperties(edgeProperties, edgeId);
-        final Set<TimestampedPropertyValue> propertiesWithValue = new HashSet<>();
-        for (final Property p : allProperties) {
-            final Object value = p.getValueAtTime(timestamp);
-            if (null == value) {
-                continue;
+    /*
+     * Registers the properties with the partition owning the entity and spreads the samples of every
+     * property across the partitions covering the sample timestamps.
+     */
+    private IntOpenHashSet storeProperties(final TimePartition owner, final Collection<Property> properties) {
+        final IntOpenHashSet propertyIds = new IntOpenHashSet(properties.size());
+        for (final Property p : properties) {
+            final TemporalProperty tp = (TemporalProperty) p;
+            final List<TemporalProperty.TimeStampWithValue> values = tp.getValues();
+            long latestTimestamp = tp.getLatestTimestamp();
+            if (!values.isEmpty()) {
+                latestTimestamp = Math.max(latestTimestamp, tp.toTimestamp(values.get(values.size() - 1).getTimeDifferential()));
+            }
+            propertyIds.add(p.getId());
+            synchronized (owner) {
+                owner.getPropertyHeaders().put(p.getId(), new PropertyHeader(p.getId(), p.getName(), p.getTime(), latestTimestamp));
             }
-            propertiesWithValue.add(new TimestampedPropertyValue(p.getName(), value));
+            // every partition holds its slice of the series, rebased to the first sample of the slice
+            TimePartition slicePartition = null;
+            TemporalProperty slice = null;
+            for (final TemporalProperty.TimeStampWithValue value : values) {
+                final long sampleTs = tp.toTimestamp(value.getTimeDifferential());
+                if (null == slicePartition || sampleTs >= slicePartition.getEndTs()) {
+                    storeSlice(slicePartition, slice);
+                    slicePartition = getOrCreatePartition(sampleTs);
+                    slice = newSlice(slicePartition, p.getId(), p.getName(), sampleTs);
+                }
+                slice.setValueAtTime(sampleTs, value.getObject());
+            }
+            storeSlice(slicePartition, slice);
         }
-        return propertiesWithValue;
+        return propertyIds;
     }
 
     @Override
-    public TimestampedPropertyValue getEdgePropertyAtTime(final int edgeId, final String propertyName, final long timestamp) {
+    public Iterator<Integer> getVerticesAtTime(final long timestamp) {
         Preconditions.checkArgument(validateTimestamp(timestamp),
                 String.format(TIME_RANGE_CROSSED_ERR_MSG_TEMPLATE, timestamp));
-        Preconditions.checkArgument(edgeId < edgeIndex.get(),
-                String.format(EDGE_NOT_FOUND_ERR_MSG_TEMPLATE, edgeId, timestamp));
-        final Set<Property> allProperties = getEntityProperties(edgeProperties, edgeId);
-        for (final Property p : allProperties) {
-            if (!propertyName.equals(p.getName())) {
-                continue;
-            }
-            final Object value = p.getValueAtTime(timestamp);
-            return new TimestampedPropertyValue(p.getName(), value);
+        final IntBitmapSet vertices = collectVertices(timestamp);
+        if (vertices.isEmpty()) {
+            return Collections.emptyIterator();
         }
-        return null;
+        return vertices.iterator();
     }
 
     @Override
-    public Map<Integer, Collection<TimestampedPropertyValue>> getEdgePropertiesAtTime(final int srcVertexId,
-                                                                                      final int destVertexId,
-                                                                                      final long timestamp) {
+    public Iterator<Integer> getEdgesAtTime(final int srcVertexId,
+                                            final int destVertexId,
+                                            final long timestamp) {
         Preconditions.checkArgument(validateTimestamp(timestamp),
                 String.format(TIME_RANGE_CROSSED_ERR_MSG_TEMPLATE, timestamp));
         Preconditions.checkArgument((srcVertexId < vertexIndex.get() && destVertexId < vertexIndex.get()),
                 String.format(SRC_DEST_NOT_FOUND_ERR_MSG_TEMPLATE, srcVertexId, destVertexId, timestamp));
-        final Iterator<Integer> edgesBetweenVertices = getEdgesAtTime(srcVertexId, destVertexId, timestamp);
-        final Map<Integer, Collection<TimestampedPropertyValue>> edgeToProperties = new Int2ObjectOpenHashMap<>();
-        if (null == edgesBetweenVertices) {
-            return edgeToProperties;
+        final IntBitmapSet outEdges = collectOutEdges(srcVertexId, AdjacencyIndex.ALL_LABELS, timestamp);
+        if (outEdges.isEmpty()) {
+            return Collections.emptyIterator();
         }
-        for (final int edgeId : Sets.newHashSet(edgesBetweenVertices)) {
-            edgeToProperties.put(edgeId, getEdgePropertiesAtTime(edgeId, timestamp));
+        final IntBitmapSet inEdges = collectInEdges(destVertexId, AdjacencyIndex.ALL_LABELS, timestamp);
+        if (inEdges.isEmpty()) {
+            return Collections.emptyIterator();
         }
-        return edgeToProperties;
+        outEdges.and(inEdges);
+        return outEdges.iterator();
     }
 
     @Override
-    public Map<Integer, TimestampedPropertyValue> getEdgePropertyAtTime(final int srcVertexId,
-                                                                        final int destVertexId,
-                                                                        final String propertyName,
-                                                                        final long timestamp) {
+    public Iterator<Integer> getOutEdgesAtTime(final int vertexId, final long timestamp) {
         Preconditions.checkArgument(validateTimestamp(timestamp),
                 String.format(TIME_RANGE_CROSSED_ERR_MSG_TEMPLATE, timestamp));
-        Preconditions.checkArgument((srcVertexId < vertexIndex.get() && destVertexId < vertexIndex.get()),
-                String.format(SRC_DEST_NOT_FOUND_ERR_MSG_TEMPLATE, srcVertexId, destVertexId, timestamp));
-        final Iterator<Integer> edgesBetweenVertices = getEdgesAtTime(srcVertexId, destVertexId, timestamp);
-        final Map<Integer, TimestampedPropertyValue> edgeToProperties = new Int2ObjectOpenHashMap<>();
-        if (null == edgesBetweenVertices) {
-            return edgeToProperties;
-        }
-        for (final int edgeId : Sets.newHashSet(edgesBetweenVertices)) {
-            edgeToProperties.put(edgeId, getEdgePropertyAtTime(edgeId, propertyName, timestamp));
+        Preconditions.checkArgument(vertexId < vertexIndex.get(),
+                String.format(VERTEX_NOT_FOUND_ERR_MSG_TEMPLATE, vertexId, timestamp));
+        final IntBitmapSet outEdges = collectOutEdges(vertexId, AdjacencyIndex.ALL_LABELS, timestamp);
+        if (outEdges.isEmpty()) {
+            return Collections.emptyIterator();
         }
-        return edgeToProperties;
+        return outEdges.iterator();
     }
 
     @Override
-    public void addVertexProperty(final int vertexId,
-                                  final String propertyName,
-                                  final Object value,
-                                  long timestamp) throws PropertyNotFoundException {
+    public double aggregateOutEdgeProperty(final int vertexId,
+                                           final String propertyName,
+                                           final AggregateFunction function,
+                                           final long timestamp) {
         Preconditions.checkArgument(validateTimestamp(timestamp),
                 String.format(TIME_RANGE_CROSSED_ERR_MSG_TEMPLATE, timestamp));
         Preconditions.checkArgument(vertexId < vertexIndex.get(),
                 String.format(VERTEX_NOT_FOUND_ERR_MSG_TEMPLATE, vertexId, timestamp));
-        final Set<Property> allProperties = getEntityProperties(vertexProperties, vertexId);
-        final Property p = getPropertyFromSet(propertyName, allProperties);
-        if (null == p) {
-            throw new PropertyNotFoundException(String.format("Property %s not found for the vertex: %d", propertyName, vertexId));
-        } else {
-            p.setValueAtTime(timestamp, value);
-            propertyStore.put(p.getId(), p);
-        }
+        return aggregateEdgeProperty(vertexId, true, propertyName, function, timestamp);
     }
 
     @Override
-    public void addEdgeProperty(final int edgeId,
-                                final String propertyName,
-                                final Object value,
-                                long timestamp) throws PropertyNotFoundException {
+    public double aggregateInEdgeProperty(final int vertexId,
+                                          final String propertyName,
+                                          final AggregateFunction function,
+                                          final long timestamp) {
         Preconditions.checkArgument(validateTimestamp(timestamp),
                 String.format(TIME_RANGE_CROSSED_ERR_MSG_TEMPLATE, timestamp));
-        Preconditions.checkArgument(edgeId < edgeIndex.get(),
-                String.format(EDGE_NOT_FOUND_ERR_MSG_TEMPLATE, edgeId, timestamp));
-        final Set<Property> allProperties = getEntityProperties(edgeProperties, edgeId);
-        final Property p = getPropertyFromSet(propertyName, allProperties);
-        if (null == p) {
-            throw new PropertyNotFoundException(String.format("Property %s not found for the edge: %d", propertyName, edgeId));
-        } else {
-            p.setValueAtTime(timestamp, value);
-            propertyStore.put(p.getId(), p);
-        }
+        Preconditions.checkArgument(vertexId < vertexIndex.get(),
+                String.format(VERTEX_NOT_FOUND_ERR_MSG_TEMPLATE, vertexId, timestamp));
+        return aggregateEdgeProperty(vertexId, false, propertyName, function, timestamp);
     }
 
     @Override
-    public Iterator<Integer> getAllEdgesAtTime(long timestamp) {
+    public List<RankedEntity> getTopEdgesByProperty(final String propertyName, final int k, final long timestamp) {
         Preconditions.checkArgument(validateTimestamp(timestamp),
                 String.format(TIME_RANGE_CROSSED_ERR_MSG_TEMPLATE, timestamp));
-        final int timeDifferential = (int) (timestamp - initTs);
+        Preconditions.checkArgument(k >= 0, "The number of entities to be ranked should not be negative");
+        final IntBitmapSet edges = collectEdges(timestamp);
+        return rank(edges.toIntArray(), k, edgeId -> toRankValue(getEdgePropertyValue(edgeId, propertyName, timestamp)));
+    }
 
-        final Set<Integer> allEdgesAtTime = getIntIterator(timeDifferential, edgesByTime);
-        if (allEdgesAtTime.isEmpty()) {
-            return Collections.emptyIterator();
-        }
-        return allEdgesAtTime.iterator();
+    @Override
+    public List<RankedEntity> getTopEdgesByProperty(final String propertyName,
+                                                    final AggregateFunction function,
+                                                    final int k,
+                                                    final long fromTimestamp,
+                                                    final long toTimestamp) {
+        Preconditions.checkArgument(validateTimestamp(fromTimestamp),
+                String.format(TIME_RANGE_CROSSED_ERR_MSG_TEMPLATE, fromTimestamp));
+        Preconditions.checkArgument(fromTimestamp <= toTimestamp,
+                String.format(TIME_WINDOW_ERR_MSG_TEMPLATE, fromTimestamp, toTimestamp));
+        Preconditions.checkArgument(k >= 0, "The number of entities to be ranked should not be negative");
+        final int[] edges = collectEdgesWithin(fromTimestamp, toTimestamp).toIntArray();
+        return rank(edges, k, edgeId -> toRankValue(aggregateProperty(findEdgePropertyHeader(edgeId, propertyName),
+                fromTimestamp, toTimestamp), function));
     }
 
-    /*
-    * Algorithm
-    * Graph init time : t0, purging time of graph: tp
-    * Get all vertices till time floor(tp). => v
-    * Get all the outgoing / incoming edges for those vertices. => e
-    * From Property store, remove all the data points for each property of the e, v from init time till floor(tp).*/
     @Override
-    public void purgeAtTime(final long timestamp) {
+    public List<RankedEntity> getTopVerticesByProperty(final String propertyName, final int k, final long timestamp) {
         Preconditions.checkArgument(validateTimestamp(timestamp),
                 String.format(TIME_RANGE_CROSSED_ERR_MSG_TEMPLATE, timestamp));
-        purgeEdgeProperties(timestamp);
-        purgeVertexProperties(timestamp);
-
-    }
-
-    private void purgeVertexProperties(long timestamp) {
-        Iterator<Integer> verticesIterator = getVerticesAtTime(timestamp);
-        if (null == verticesIterator) {
-            return;
-        }
-        for (final int vertexId : Lists.newArrayList(verticesIterator)) {
-            IntOpenHashSet propertyIdsPerVertex = vertexProperties.get(vertexId);
-            if (null == propertyIdsPerVertex) {
-                continue;
-            }
-            propertyStore.purgePropertiesTillTime(propertyIdsPerVertex
-                    , timestamp);
-        }
+        Preconditions.checkArgument(k >= 0, "The number of entities to be ranked should not be negative");
+        final IntBitmapSet vertices = collectVertices(timestamp);
+        return rank(vertices.toIntArray(), k,
+                vertexId -> toRankValue(getVertexPropertyValue(vertexId, propertyName, timestamp)));
     }
 
-    private void purgeEdgeProperties(final long timestamp) {
-        Iterator<Integer> edgesIterator = getAllEdgesAtTime(timestamp);
-        if (null == edgesIterator) {
-            return;
-        }
-        for (final int edgeId : Lists.newArrayList(edgesIterator)) {
-            IntOpenHashSet propertyIdsPerEdge = edgeProperties.get(edgeId);
-            if (null == propertyIdsPerEdge) {
-                continue;
-            }
-            propertyStore.purgePropertiesTillTime(propertyIdsPerEdge, timestamp);
-        }
+    @Override
+    public List<RankedEntity> getTopVerticesByProperty(final String propertyName,
+                                                       final AggregateFunction function,
+                                                       final int k,
+                                                       final long fromTimestamp,
+                                                       final long toTimestamp) {
+        Preconditions.checkArgument(validateTimestamp(fromTimestamp),
+                String.format(TIME_RANGE_CROSSED_ERR_MSG_TEMPLATE, fromTimestamp));
+        Preconditions.checkArgument(fromTimestamp <= toTimestamp,
+                String.format(TIME_WINDOW_ERR_MSG_TEMPLATE, fromTimestamp, toTimestamp));
+        Preconditions.checkArgument(k >= 0, "The number of entities to be ranked should not be negative");
+        final int[] vertices = collectVerticesWithin(fromTimestamp, toTimestamp).toIntArray();
+        return rank(vertices, k, vertexId -> toRankValue(aggregateProperty(
+                findVertexPropertyHeader(vertexId, propertyName), fromTimestamp, toTimestamp), function));
     }
 
-    private void trimInternalMapsForVertexEdgeDirectionMapping(Int2ObjectOpenHashMap mapping) {
-        Int2ObjectMap.FastEntrySet<TreeMap<Integer, IntSet>> entries = ((Int2ObjectOpenHashMap<TreeMap<Integer, IntSet>>) mapping).int2ObjectEntrySet();
-        for (Int2ObjectMap.Entry<TreeMap<Integer, IntSet>> entry : entries) {
-            TreeMap<Integer, IntSet> tm = entry.getValue();
-            for (Map.Entry<Integer, IntSet> intSet : tm.entrySet()) {
-                ((IntOpenHashSet)(intSet.getValue())).trim();
-            }
-        }
+    @Override
+    public Iterator<Integer> getVerticesByPropertyValue(final String propertyName,
+                                                       final Object value,
+                                                       final long timestamp) {
+        return getVerticesByPropertyValue(propertyName, value, timestamp, timestamp);
     }
 
-    private void trimInternalMapsForVertexToEdgeMapping(Long2ObjectOpenHashMap mapping) {
-        Long2ObjectMap.FastEntrySet<IntSet> entries = mapping.long2ObjectEntrySet();
-        for (Long2ObjectMap.Entry<IntSet> entry : entries) {
-            IntSet is = entry.getValue();
-            ((IntOpenHashSet)(is)).trim();
+    @Override
+    public Iterator<Integer> getVerticesByPropertyValue(final String propertyName,
+                                                       final Object value,
+                                                       final long fromTimestamp,
+                                                       final long toTimestamp) {
+        Preconditions.checkArgument(validateTimestamp(fromTimestamp),
+                String.format(TIME_RANGE_CROSSED_ERR_MSG_TEMPLATE, fromTimestamp));
+        Preconditions.checkArgument(fromTimestamp <= toTimestamp,
+                String.format(TIME_WINDOW_ERR_MSG_TEMPLATE, fromTimestamp, toTimestamp));
+        Preconditions.checkArgument(vertexValueIndex.isIndexed(propertyName),
+                String.format(PROPERTY_NOT_INDEXED_ERR_MSG_TEMPLATE, propertyName));
+        final IntBitmapSet vertices = new IntBitmapSet();
+        vertexValueIndex.collect(propertyName, value, fromTimestamp, toTimestamp, vertices);
+        // the property outlives neither the vertex nor its retention
+        vertices.removeIf((int vertexId) -> vertexCreationTimes.getLong(vertexId) > toTimestamp
+                || vertexEndTimes.getLong(vertexId) <= fromTimestamp
+                || !isRetained(vertexEndTimes.getLong(vertexId)));
+        if (vertices.isEmpty()) {
+            return Collections.emptyIterator();
         }
+        return vertices.iterator();
     }
 
-    private void trimInternalMapsForProperties(Int2ObjectOpenHashMap mapping) {
-        Int2ObjectMap.FastEntrySet<IntSet> entries = mapping.int2ObjectEntrySet();
-        for (Int2ObjectMap.Entry<IntSet> entry : entries) {
-            IntSet is = entry.getValue();
-            ((IntOpenHashSet)(is)).trim();
-        }
+    @Override
+    public Iterator<Integer> getEdgesByPropertyValue(final String propertyName,
+                                                    final Object value,
+                                                    final long timestamp) {
+        return getEdgesByPropertyValue(propertyName, value, timestamp, timestamp);
     }
 
-    private Property getPropertyFromSet(final String propertyName, final Set<Property> allProperties) {
-        if (null == allProperties) {
-            return null;
-        }
-        for (final Property p : allProperties) {
-            if (propertyName.equals(p.getName())) {
-                return p;
-            }
+    @Override
+    public Iterator<Integer> getEdgesByPropertyValue(final String propertyName,
+                                                    final Object value,
+                                                    final long fromTimestamp,
+                                                    final long toTimestamp) {
+        Preconditions.checkArgument(validateTimestamp(fromTimestamp),
+                String.format(TIME_RANGE_CROSSED_ERR_MSG_TEMPLATE, fromTimestamp));
+        Preconditions.checkArgument(fromTimestamp <= toTimestamp,
+                String.format(TIME_WINDOW_ERR_MSG_TEMPLATE, fromTimestamp, toTimestamp));
+        Preconditions.checkArgument(edgeValueIndex.isIndexed(propertyName),
+                String.format(PROPERTY_NOT_INDEXED_ERR_MSG_TEMPLATE, propertyName));
+        final IntBitmapSet edges = new IntBitmapSet();
+        edgeValueIndex.collect(propertyName, value, fromTimestamp, toTimestamp, edges);
+        // the property outlives neither the edge nor its retention
+        edges.removeIf((int edgeId) -> edgeCreationTimes.getLong(edgeId) > toTimestamp
+                || edgeEndTimes.getLong(edgeId) <= fromTimestamp
+                || !isRetained(edgeEndTimes.getLong(edgeId)));
+        if (edges.isEmpty()) {
+            return Collections.emptyIterator();
         }
-        return null;
+        return edges.iterator();
     }
 
-    private Set<Integer> getIntIterator(final int firstKey,
-                                        final int floorKey,
-                                        final TreeMap<Integer, IntSet> map) {
-        final Set<Integer> entityCollection = new HashSet<>();
-        final Map<Integer, IntSet> subMap = map.subMap(firstKey, true, floorKey, true);
-        if (null == subMap) {
-            return entityCollection;
-        }
-        for (final Map.Entry<Integer, IntSet> entry : subMap.entrySet()) {
-            entityCollection.addAll(entry.getValue());
+    @Override
+    public Iterator<Integer> getVerticesByPropertyRange(final String propertyName,
+                                                       final double minValue,
+                                                       final double maxValue,
+                                                       final long fromTimestamp,
+                                                       final long toTimestamp) {
+        Preconditions.checkArgument(validateTimestamp(fromTimestamp),
+                String.format(TIME_RANGE_CROSSED_ERR_MSG_TEMPLATE, fromTimestamp));
+        Preconditions.checkArgument(fromTimestamp <= toTimestamp,
+                String.format(TIME_WINDOW_ERR_MSG_TEMPLATE, fromTimestamp, toTimestamp));
+        final List<PropertyStore> stores = getStoresWithin(fromTimestamp, toTimestamp);
+        if (stores.isEmpty()) {
+            return Collections.emptyIterator();
         }
-        return entityCollection;
+        final int[] vertices = collectVerticesWithin(fromTimestamp, toTimestamp).toIntArray();
+        final int[] matches = IntStream.of(vertices).parallel()
+                .filter(vertexId -> anyWithin(stores, findVertexPropertyHeader(vertexId, propertyName), minValue,
+                        maxValue, fromTimestamp, toTimestamp))
+                .toArray();
+        return IntArrayList.wrap(matches).iterator();
     }
 
-    private Set<Integer> getIntIterator(final int floorKey,
-                                        final Int2ObjectAVLTreeMap<IntSet> map) {
-        final Set<Integer> entityCollection = new HashSet<>();
-        Int2ObjectSortedMap<IntSet> headMap =  map.headMap(floorKey);
-        ObjectSortedSet<Int2ObjectMap.Entry<IntSet>> headMapEntries = headMap.int2ObjectEntrySet();
-        for (Int2ObjectMap.Entry<IntSet> e : headMapEntries) {
-            entityCollection.addAll(e.getValue());
-        }
-        IntSet floorKeyEntry = map.get(floorKey);
-        if (floorKeyEntry != null) {
-            entityCollection.addAll(floorKeyEntry);
+    @Override
+    public Iterator<Integer> getEdgesByPropertyRange(final String propertyName,
+                                                    final double minValue,
+                                                    final double maxValue,
+                                                    final long fromTimestamp,
+                                                    final long toTimestamp) {
+        Preconditions.checkArgument(validateTimestamp(fromTimestamp),
+                String.format(TIME_RANGE_CROSSED_ERR_MSG_TEMPLATE, fromTimestamp));
+        Preconditions.checkArgument(fromTimestamp <= toTimestamp,
+                String.format(TIME_WINDOW_ERR_MSG_TEMPLATE, fromTimestamp, toTimestamp));
+        final List<PropertyStore> stores = getStoresWithin(fromTimestamp, toTimestamp);
+        if (stores.isEmpty()) {
+            return Collections.emptyIterator();
         }
-        return entityCollection;
+        final int[] edges = collectEdgesWithin(fromTimestamp, toTimestamp).toIntArray();
+        final int[] matches = IntStream.of(edges).parallel()
+                .filter(edgeId -> anyWithin(stores, findEdgePropertyHeader(edgeId, propertyName), minValue, maxValue,
+                        fromTimestamp, toTimestamp))
+                .toArray();
+        return IntArrayList.wrap(matches).iterator();
     }
 
-    private Set<Property> getEntityProperties(Map<Integer, IntOpenHashSet> entityProperties, final int entityId) {
-        IntOpenHashSet propertyIds = entityProperties.getOrDefault(entityId, new IntOpenHashSet());
-        if (propertyIds.isEmpty()) {
-            return Collections.emptySet();
+    @Override
+    public Iterator<Integer> getInEdgesAtTime(final int vertexId, final long timestamp) {
+        Preconditions.checkArgument(validateTimestamp(timestamp),
+                String.format(TIME_RANGE_CROSSED_ERR_MSG_TEMPLATE, timestamp));
+        Preconditions.checkArgument(vertexId < vertexIndex.get(),
+                String.format(VERTEX_NOT_FOUND_ERR_MSG_TEMPLATE, vertexId, timestamp));
+        final IntBitmapSet inEdges = collectInEdges(vertexId, AdjacencyIndex.ALL_LABELS, timestamp);
+        if (inEdges.isEmpty()) {
+            return Collections.emptyIterator();
+        }
+        return inEdges.iterator();
+    }
+
+    @Override
+    public Iterator<Integer> getOutEdgesAtTime(final int vertexId, final String label, final long timestamp) {
+        Preconditions.checkArgument(validateTimestamp(timestamp),
+                String.format(TIME_RANGE_CROSSED_ERR_MSG_TEMPLATE, timestamp));
+        Preconditions.checkArgument(vertexId < vertexIndex.get(),
+                String.format(VERTEX_NOT_FOUND_ERR_MSG_TEMPLATE, vertexId, timestamp));
+        final int labelId = labelManager.getLabelId(label);
+        if (GraphEntityLabelManager.NO_LABEL == labelId) {
+            return Collections.emptyIterator();
+        }
+        final IntBitmapSet outEdges = collectOutEdges(vertexId, labelId, timestamp);
+        if (outEdges.isEmpty()) {
+            return Collections.emptyIterator();
+        }
+        return outEdges.iterator();
+    }
+
+    @Override
+    public Iterator<Integer> getInEdgesAtTime(final int vertexId, final String label, final long timestamp) {
+        Preconditions.checkArgument(validateTimestamp(timestamp),
+                String.format(TIME_RANGE_CROSSED_ERR_MSG_TEMPLATE, timestamp));
+        Preconditions.checkArgument(vertexId < vertexIndex.get(),
+                String.format(VERTEX_NOT_FOUND_ERR_MSG_TEMPLATE, vertexId, timestamp));
+        final int labelId = labelManager.getLabelId(label);
+        if (GraphEntityLabelManager.NO_LABEL == labelId) {
+            return Collections.emptyIterator();
+        }
+        final IntBitmapSet inEdges = collectInEdges(vertexId, labelId, timestamp);
+        if (inEdges.isEmpty()) {
+            return Collections.emptyIterator();
+        }
+        return inEdges.iterator();
+    }
+
+    @Override
+    public Iterator<Integer> getOutEdgesBetween(final int vertexId, final long fromTimestamp, final long toTimestamp) {
+        validateWindow(fromTimestamp, toTimestamp);
+        Preconditions.checkArgument(vertexId < vertexIndex.get(),
+                String.format(VERTEX_NOT_FOUND_ERR_MSG_TEMPLATE, vertexId, fromTimestamp));
+        final IntBitmapSet outEdges = new IntBitmapSet();
+        for (final TimePartition partition : getPartitionsBetween(fromTimestamp, toTimestamp)) {
+            partition.collectOutEdgesBetween(vertexId, AdjacencyIndex.ALL_LABELS, fromTimestamp, toTimestamp, outEdges);
+        }
+        return outEdges.isEmpty() ? Collections.emptyIterator() : outEdges.iterator();
+    }
+
+    @Override
+    public Iterator<Integer> getInEdgesBetween(final int vertexId, final long fromTimestamp, final long toTimestamp) {
+        validateWindow(fromTimestamp, toTimestamp);
+        Preconditions.checkArgument(vertexId < vertexIndex.get(),
+                String.format(VERTEX_NOT_FOUND_ERR_MSG_TEMPLATE, vertexId, fromTimestamp));
+        final IntBitmapSet inEdges = new IntBitmapSet();
+        for (final TimePartition partition : getPartitionsBetween(fromTimestamp, toTimestamp)) {
+            partition.collectInEdgesBetween(vertexId, AdjacencyIndex.ALL_LABELS, fromTimestamp, toTimestamp, inEdges);
+        }
+        return inEdges.isEmpty() ? Collections.emptyIterator() : inEdges.iterator();
+    }
+
+    @Override
+    public Iterator<Integer> getAllEdgesBetween(final long fromTimestamp, final long toTimestamp) {
+        validateWindow(fromTimestamp, toTimestamp);
+        final IntBitmapSet edges = new IntBitmapSet();
+        for (final TimePartition partition : getPartitionsBetween(fromTimestamp, toTimestamp)) {
+            partition.collectEdgesBetween(fromTimestamp, toTimestamp, edges);
+        }
+        return edges.isEmpty() ? Collections.emptyIterator() : edges.iterator();
+    }
+
+    /*
+     * Algorithm
+     * Graph as of t2 = graph as of t1 + entities added within (t1, t2] - entities ended within (t1, t2].
+     * Only the buckets of the window are read. Entities both added and ended within the window cancel out,
+     * and upserted edges, along with their end points, re-asserted within the window were already present at t1
+     * when created in a bucket up to the one of t1.
+     */
+    @Override
+    public GraphDiff getDiff(final long fromTimestamp, final long toTimestamp) {
+        validateWindow(fromTimestamp, toTimestamp);
+        final IntBitmapSet addedVertices = new IntBitmapSet();
+        final IntBitmapSet endedVertices = new IntBitmapSet();
+        final IntBitmapSet addedEdges = new IntBitmapSet();
+        final IntBitmapSet endedEdges = new IntBitmapSet();
+        for (final TimePartition partition : partitions.subMap(getPartitionNumber(fromTimestamp), true,
+                getPartitionNumber(toTimestamp), true).values()) {
+            partition.collectVertexChanges(fromTimestamp, toTimestamp, addedVertices, endedVertices);
+            partition.collectEdgeChanges(fromTimestamp, toTimestamp, addedEdges, endedEdges);
+        }
+        addedVertices.andNot(endedVertices);
+        addedEdges.andNot(endedEdges);
+        final long fromBucket = getBucketNumber(fromTimestamp);
+        addedVertices.removeIf((int vertexId) -> getBucketNumber(vertexCreationTimes.getLong(vertexId)) <= fromBucket);
+        addedEdges.removeIf((int edgeId) -> getBucketNumber(edgeCreationTimes.getLong(edgeId)) <= fromBucket);
+        endedVertices.removeIf((int vertexId) -> getBucketNumber(vertexCreationTimes.getLong(vertexId)) > fromBucket);
+        endedEdges.removeIf((int edgeId) -> getBucketNumber(edgeCreationTimes.getLong(edgeId)) > fromBucket);
+        return new GraphDiff(fromTimestamp, toTimestamp, addedVertices, endedVertices, addedEdges, endedEdges);
+    }
+
+    private void validateWindow(final long fromTimestamp, final long toTimestamp) {
+        Preconditions.checkArgument(validateTimestamp(fromTimestamp),
+                String.format(TIME_RANGE_CROSSED_ERR_MSG_TEMPLATE, fromTimestamp));
+        Preconditions.checkArgument(fromTimestamp < toTimestamp,
+                String.format(TIME_WINDOW_ERR_MSG_TEMPLATE, fromTimestamp, toTimestamp));
+    }
+
+    @Override
+    public String getVertexLabel(final int vertexId) {
+        Preconditions.checkArgument(vertexId < vertexIndex.get(),
+                String.format(ENTITY_NOT_FOUND_ERR_MSG_TEMPLATE, "Vertex", vertexId));
+        return labelManager.getLabel(vertexLabels.getInt(vertexId));
+    }
+
+    @Override
+    public String getEdgeLabel(final int edgeId) {
+        Preconditions.checkArgument(edgeId < edgeIndex.get(),
+                String.format(ENTITY_NOT_FOUND_ERR_MSG_TEMPLATE, "Edge", edgeId));
+        return labelManager.getLabel(edgeLabels.getInt(edgeId));
+    }
+
+    @Override
+    public Collection<TimestampedPropertyValue> getVertexPropertiesAtTime(final int vertexId, final long timestamp) {
+        Preconditions.checkArgument(validateTimestamp(timestamp),
+                String.format(TIME_RANGE_CROSSED_ERR_MSG_TEMPLATE, timestamp));
+        Preconditions.checkArgument(vertexId < vertexIndex.get(),
+                String.format(VERTEX_NOT_FOUND_ERR_MSG_TEMPLATE, vertexId, timestamp));
+        return getPropertiesAtTime(getVertexPropertyHeaders(vertexId), timestamp);
+    }
+
+    @Override
+    public TimestampedPropertyValue getVertexPropertyAtTime(final int vertexId, final String propertyName, final long timestamp) {
+        Preconditions.checkArgument(validateTimestamp(timestamp),
+                String.format(TIME_RANGE_CROSSED_ERR_MSG_TEMPLATE, timestamp));
+        Preconditions.checkArgument(vertexId < vertexIndex.get(),
+                String.format(VERTEX_NOT_FOUND_ERR_MSG_TEMPLATE, vertexId, timestamp));
+        final PropertyHeader header = getPropertyFromSet(propertyName, getVertexPropertyHeaders(vertexId));
+        if (null == header) {
+            return null;
+        }
+        final Object value = getPropertyValueAtTime(header, timestamp);
+        if (null == value) {
+            return null;
+        }
+        return new TimestampedPropertyValue(header.getName(), value);
+    }
+
+    @Override
+    public Collection<TimestampedPropertyValue> getEdgePropertiesAtTime(final int edgeId, final long timestamp) {
+        Preconditions.checkArgument(validateTimestamp(timestamp),
+                String.format(TIME_RANGE_CROSSED_ERR_MSG_TEMPLATE, timestamp));
+        Preconditions.checkArgument(edgeId < edgeIndex.get(),
+                String.format(EDGE_NOT_FOUND_ERR_MSG_TEMPLATE, edgeId, timestamp));
+        return getPropertiesAtTime(getEdgePropertyHeaders(edgeId), timestamp);
+    }
+
+    @Override
+    public TimestampedPropertyValue getEdgePropertyAtTime(final int edgeId, final String propertyName, final long timestamp) {
+        Preconditions.checkArgument(validateTimestamp(timestamp),
+                String.format(TIME_RANGE_CROSSED_ERR_MSG_TEMPLATE, timestamp));
+        Preconditions.checkArgument(edgeId < edgeIndex.get(),
+                String.format(EDGE_NOT_FOUND_ERR_MSG_TEMPLATE, edgeId, timestamp));
+        final PropertyHeader header = getPropertyFromSet(propertyName, getEdgePropertyHeaders(edgeId));
+        if (null == header) {
+            return null;
+        }
+        return new TimestampedPropertyValue(header.getName(), getPropertyValueAtTime(header, timestamp));
+    }
+
+    @Override
+    public Map<Integer, Collection<TimestampedPropertyValue>> getEdgePropertiesAtTime(final int srcVertexId,
+                                                                                      final int destVertexId,
+                                                                                      final long timestamp) {
+        Preconditions.checkArgument(validateTimestamp(timestamp),
+                String.format(TIME_RANGE_CROSSED_ERR_MSG_TEMPLATE, timestamp));
+        Preconditions.checkArgument((srcVertexId < vertexIndex.get() && destVertexId < vertexIndex.get()),
+                String.format(SRC_DEST_NOT_FOUND_ERR_MSG_TEMPLATE, srcVertexId, destVertexId, timestamp));
+        final Iterator<Integer> edgesBetweenVertices = getEdgesAtTime(srcVertexId, destVertexId, timestamp);
+        final Map<Integer, Collection<TimestampedPropertyValue>> edgeToProperties = new Int2ObjectOpenHashMap<>();
+        if (null == edgesBetweenVertices) {
+            return edgeToProperties;
+        }
+        for (final int edgeId : Sets.newHashSet(edgesBetweenVertices)) {
+            edgeToProperties.put(edgeId, getEdgePropertiesAtTime(edgeId, timestamp));
+        }
+        return edgeToProperties;
+    }
+
+    @Override
+    public Map<Integer, TimestampedPropertyValue> getEdgePropertyAtTime(final int srcVertexId,
+                                                                        final int destVertexId,
+                                                                        final String propertyName,
+                                                                        final long timestamp) {
+        Preconditions.checkArgument(validateTimestamp(timestamp),
+                String.format(TIME_RANGE_CROSSED_ERR_MSG_TEMPLATE, timestamp));
+        Preconditions.checkArgument((srcVertexId < vertexIndex.get() && destVertexId < vertexIndex.get()),
+                String.format(SRC_DEST_NOT_FOUND_ERR_MSG_TEMPLATE, srcVertexId, destVertexId, timestamp));
+        final Iterator<Integer> edgesBetweenVertices = getEdgesAtTime(srcVertexId, destVertexId, timestamp);
+        final Map<Integer, TimestampedPropertyValue> edgeToProperties = new Int2ObjectOpenHashMap<>();
+        if (null == edgesBetweenVertices) {
+            return edgeToProperties;
+        }
+        for (final int edgeId : Sets.newHashSet(edgesBetweenVertices)) {
+            edgeToProperties.put(edgeId, getEdgePropertyAtTime(edgeId, propertyName, timestamp));
+        }
+        return edgeToProperties;
+    }
+
+    @Override
+    public PropertyAggregate aggregateVertexProperty(final int vertexId,
+                                                     final String propertyName,
+                                                     final long fromTimestamp,
+                                                     final long toTimestamp) {
+        Preconditions.checkArgument(validateTimestamp(fromTimestamp),
+                String.format(TIME_RANGE_CROSSED_ERR_MSG_TEMPLATE, fromTimestamp));
+        Preconditions.checkArgument(fromTimestamp <= toTimestamp,
+                String.format(TIME_WINDOW_ERR_MSG_TEMPLATE, fromTimestamp, toTimestamp));
+        Preconditions.checkArgument(vertexId < vertexIndex.get(),
+                String.format(VERTEX_NOT_FOUND_ERR_MSG_TEMPLATE, vertexId, toTimestamp));
+        return aggregateProperty(getPropertyFromSet(propertyName, getVertexPropertyHeaders(vertexId)),
+                fromTimestamp, toTimestamp);
+    }
+
+    @Override
+    public PropertyAggregate aggregateEdgeProperty(final int edgeId,
+                                                   final String propertyName,
+                                                   final long fromTimestamp,
+                                                   final long toTimestamp) {
+        Preconditions.checkArgument(validateTimestamp(fromTimestamp),
+                String.format(TIME_RANGE_CROSSED_ERR_MSG_TEMPLATE, fromTimestamp));
+        Preconditions.checkArgument(fromTimestamp <= toTimestamp,
+                String.format(TIME_WINDOW_ERR_MSG_TEMPLATE, fromTimestamp, toTimestamp));
+        Preconditions.checkArgument(edgeId < edgeIndex.get(),
+                String.format(EDGE_NOT_FOUND_ERR_MSG_TEMPLATE, edgeId, toTimestamp));
+        return aggregateProperty(getPropertyFromSet(propertyName, getEdgePropertyHeaders(edgeId)),
+                fromTimestamp, toTimestamp);
+    }
+
+    @Override
+    public List<RollupBucket> getVertexPropertyRollup(final int vertexId,
+                                                      final String propertyName,
+                                                      final long fromTimestamp,
+                                                      final long toTimestamp,
+                                                      final long resolutionMillis) {
+        Preconditions.checkArgument(validateTimestamp(fromTimestamp),
+                String.format(TIME_RANGE_CROSSED_ERR_MSG_TEMPLATE, fromTimestamp));
+        Preconditions.checkArgument(fromTimestamp <= toTimestamp,
+                String.format(TIME_WINDOW_ERR_MSG_TEMPLATE, fromTimestamp, toTimestamp));
+        Preconditions.checkArgument(resolutionMillis > 0L, "Resolution should be a positive number of milliseconds");
+        Preconditions.checkArgument(vertexId < vertexIndex.get(),
+                String.format(VERTEX_NOT_FOUND_ERR_MSG_TEMPLATE, vertexId, toTimestamp));
+        final List<RollupBucket> buckets = getRollupBuckets(vertexRollups, vertexId, propertyName, fromTimestamp,
+                toTimestamp, resolutionMillis);
+        if (null != buckets) {
+            return buckets;
+        }
+        return downsample(getPropertyFromSet(propertyName, getVertexPropertyHeaders(vertexId)), fromTimestamp,
+                toTimestamp, resolutionMillis);
+    }
+
+    @Override
+    public List<RollupBucket> getEdgePropertyRollup(final int edgeId,
+                                                    final String propertyName,
+                                                    final long fromTimestamp,
+                                                    final long toTimestamp,
+                                                    final long resolutionMillis) {
+        Preconditions.checkArgument(validateTimestamp(fromTimestamp),
+                String.format(TIME_RANGE_CROSSED_ERR_MSG_TEMPLATE, fromTimestamp));
+        Preconditions.checkArgument(fromTimestamp <= toTimestamp,
+                String.format(TIME_WINDOW_ERR_MSG_TEMPLATE, fromTimestamp, toTimestamp));
+        Preconditions.checkArgument(resolutionMillis > 0L, "Resolution should be a positive number of milliseconds");
+        Preconditions.checkArgument(edgeId < edgeIndex.get(),
+                String.format(EDGE_NOT_FOUND_ERR_MSG_TEMPLATE, edgeId, toTimestamp));
+        final List<RollupBucket> buckets = getRollupBuckets(edgeRollups, edgeId, propertyName, fromTimestamp,
+                toTimestamp, resolutionMillis);
+        if (null != buckets) {
+            return buckets;
+        }
+        return downsample(getPropertyFromSet(propertyName, getEdgePropertyHeaders(edgeId)), fromTimestamp,
+                toTimestamp, resolutionMillis);
+    }
+
+    /**
+     * Drops the rollup buckets ending at or before the timestamp. Rollups are not affected by
+     * {@link #purgeAtTime(long)}, which lets them be retained for longer than the raw samples.
+     * @param timestamp the timestamp till which the rollups need to be purged
+     */
+    public void purgeRollupsAtTime(final long timestamp) {
+        purgeRollups(vertexRollups, timestamp);
+        purgeRollups(edgeRollups, timestamp);
+    }
+
+    @Override
+    public void addVertexProperty(final int vertexId,
+                                  final String propertyName,
+                                  final Object value,
+                                  long timestamp) throws PropertyNotFoundException {
+        Preconditions.checkArgument(validateTimestamp(timestamp),
+                String.format(TIME_RANGE_CROSSED_ERR_MSG_TEMPLATE, timestamp));
+        Preconditions.checkArgument(isRetained(timestamp), String.format(PURGED_TIME_ERR_MSG_TEMPLATE, timestamp));
+        Preconditions.checkArgument(vertexId < vertexIndex.get(),
+                String.format(VERTEX_NOT_FOUND_ERR_MSG_TEMPLATE, vertexId, timestamp));
+        final PropertyHeader header = getPropertyFromSet(propertyName, getVertexPropertyHeaders(vertexId));
+        if (null == header) {
+            throw new PropertyNotFoundException(String.format("Property %s not found for the vertex: %d", propertyName, vertexId));
+        } else {
+            appendSample(true, vertexId, header, value, timestamp);
+        }
+        publishChange(ChangeEvent.Type.VERTEX_PROPERTY_APPENDED, timestamp, vertexId, -1, -1, propertyName, value);
+    }
+
+    @Override
+    public void addEdgeProperty(final int edgeId,
+                                final String propertyName,
+                                final Object value,
+                                long timestamp) throws PropertyNotFoundException {
+        Preconditions.checkArgument(validateTimestamp(timestamp),
+                String.format(TIME_RANGE_CROSSED_ERR_MSG_TEMPLATE, timestamp));
+        Preconditions.checkArgument(isRetained(timestamp), String.format(PURGED_TIME_ERR_MSG_TEMPLATE, timestamp));
+        Preconditions.checkArgument(edgeId < edgeIndex.get(),
+                String.format(EDGE_NOT_FOUND_ERR_MSG_TEMPLATE, edgeId, timestamp));
+        final PropertyHeader header = getPropertyFromSet(propertyName, getEdgePropertyHeaders(edgeId));
+        if (null == header) {
+            throw new PropertyNotFoundException(String.format("Property %s not found for the edge: %d", propertyName, edgeId));
+        } else {
+            appendSample(false, edgeId, header, value, timestamp);
+        }
+        publishChange(ChangeEvent.Type.EDGE_PROPERTY_APPENDED, timestamp, edgeId, edgeSrcVertices.getInt(edgeId),
+                edgeDestVertices.getInt(edgeId), propertyName, value);
+    }
+
+    @Override
+    public Iterator<Integer> getAllEdgesAtTime(long timestamp) {
+        Preconditions.checkArgument(validateTimestamp(timestamp),
+                String.format(TIME_RANGE_CROSSED_ERR_MSG_TEMPLATE, timestamp));
+        final IntBitmapSet allEdgesAtTime = collectEdges(timestamp);
+        if (allEdgesAtTime.isEmpty()) {
+            return Collections.emptyIterator();
+        }
+        return allEdgesAtTime.iterator();
+    }
+
+    /*
+    * Algorithm
+    * Graph init time : t0, purging time of graph: tp
+    * Drop every partition that ends at or before tp. The vertices and edges ended within those partitions, along
+    * with their property registries, and the property samples recorded within them go away along with the
+    * partition reference. The entities alive at the start of the first retained partition stay in the checkpoint
+    * and their registries are carried to the first retained partition.
+    * For the partition straddling tp, remove the data points of its property samples till tp.*/
+    @Override
+    public void purgeAtTime(final long timestamp) {
+        Preconditions.checkArgument(validateTimestamp(timestamp),
+                String.format(TIME_RANGE_CROSSED_ERR_MSG_TEMPLATE, timestamp));
+        dropPartitionsTill(timestamp);
+        final TimePartition straddlingPartition = partitions.get(getPartitionNumber(timestamp));
+        if (null != straddlingPartition) {
+            synchronized (straddlingPartition) {
+                straddlingPartition.getPropertyStore().purgeTillTime(timestamp);
+            }
+        }
+    }
+
+    /*
+     * Drops the partitions ending at or before the timestamp. Besides the registries carried forward and the keys of
+     * the forgotten vertices only the references to the partitions are released, which makes it cheap enough to be
+     * invoked in the background while the graph is queried.
+     */
+    void dropPartitionsTill(final long timestamp) {
+        final long partitionNumber = getPartitionNumber(timestamp + 1L);
+        final boolean anyDropped;
+        synchronized (checkpointLock) {
+            final Map<Long, TimePartition> dropped = partitions.headMap(partitionNumber);
+            anyDropped = !dropped.isEmpty();
+            if (anyDropped) {
+                carryForward(dropped.values(), partitionNumber);
+            }
+            firstRetainedPartition = Math.max(firstRetainedPartition, partitionNumber);
+            dropped.clear();
+        }
+        // the keys are resolved while adding vertices, hence under their own monitor outside of the checkpoint lock
+        if (anyDropped) {
+            synchronized (vertexKeys) {
+                vertexKeys.removeIf(vertexId -> !isRetained(vertexEndTimes.getLong(vertexId)));
+            }
+        }
+        vertexValueIndex.purgeTill(timestamp);
+        edgeValueIndex.purgeTill(timestamp);
+        publishChange(ChangeEvent.Type.PURGE, timestamp, -1, -1, -1, null, null);
+    }
+
+    /*
+     * The first retained partition is created if need be, the as-of lookups from its start merge it with the
+     * checkpoint.
+     * Their property registries are moved from the dropped partitions to that partition, the registry of an
+     * upserted edge anchored within a retained partition is already there.
+     */
+    private void carryForward(final Collection<TimePartition> dropped, final long firstRetained) {
+        final long retainedFromTs = initTs + firstRetained * config.getPartitionDurationMillis();
+        final TimePartition target = getOrCreatePartition(retainedFromTs);
+        for (final TimePartition partition : dropped) {
+            synchronized (partition) {
+                final List<Integer> vertices = new ArrayList<>();
+                for (final int vertexId : partition.getVertexProperties().keySet()) {
+                    if (vertexEndTimes.getLong(vertexId) >= retainedFromTs) {
+                        vertices.add(vertexId);
+                    }
+                }
+                final List<Integer> edges = new ArrayList<>();
+                for (final int edgeId : partition.getEdgeProperties().keySet()) {
+                    if (edgeEndTimes.getLong(edgeId) >= retainedFromTs
+                            && getPartitionNumber(edgeAnchorTimes.getLong(edgeId)) < firstRetained) {
+                        edges.add(edgeId);
+                    }
+                }
+                synchronized (target) {
+                    for (final int vertexId : vertices) {
+                        carryRegistry(partition, target, partition.getVertexProperties().get(vertexId));
+                        target.getVertexProperties().put(vertexId, partition.getVertexProperties().get(vertexId));
+                    }
+                    for (final int edgeId : edges) {
+                        carryRegistry(partition, target, partition.getEdgeProperties().get(edgeId));
+                        target.getEdgeProperties().put(edgeId, partition.getEdgeProperties().get(edgeId));
+                    }
+                }
+            }
+        }
+    }
+
+    private static void carryRegistry(final TimePartition from, final TimePartition to, final IntOpenHashSet propertyIds) {
+        for (final IntIterator it = propertyIds.iterator(); it.hasNext(); ) {
+            final int propertyId = it.nextInt();
+            to.getPropertyHeaders().put(propertyId, from.getPropertyHeaders().get(propertyId));
+        }
+    }
+
+    /**
+     * Subscribes to the changes applied to the graph from now on: vertices and edges added or removed, property
+     * samples appended and purges. The properties passed along with an added vertex or edge are not emitted as
+     * separate samples. The events are retained within a bounded ring, see
+     * {@link TemporalGraphConfig#getChangeLogCapacity()}, and publishing them never blocks the ingest.
+     * @return a subscription to be polled by the consumer
+     */
+    public ChangeSubscription subscribe() {
+        ChangeLog log = changeLog;
+        if (null == log) {
+            synchronized (this) {
+                log = changeLog;
+                if (null == log) {
+                    log = new ChangeLog(config.getChangeLogCapacity());
+                    changeLog = log;
+                }
+            }
+        }
+        return new ChangeSubscription(log);
+    }
+
+    private void publishChange(final ChangeEvent.Type type,
+                               final long timestamp,
+                               final int entityId,
+                               final int srcVertexId,
+                               final int destVertexId,
+                               final String name,
+                               final Object value) {
+        final ChangeLog log = changeLog;
+        if (null != log) {
+            log.publish(type, timestamp, entityId, srcVertexId, destVertexId, name, value);
+        }
+    }
+
+    /**
+     * Takes a view of the graph at the instant, resolving the partitions covering it once for all the lookups
+     * served by the view.
+     * @param timestamp the instant of the view
+     * @return a snapshot of the graph at the timestamp
+     */
+    public GraphSnapshot snapshotAt(final long timestamp) {
+        Preconditions.checkArgument(validateTimestamp(timestamp),
+                String.format(TIME_RANGE_CROSSED_ERR_MSG_TEMPLATE, timestamp));
+        return new GraphSnapshot(this, timestamp, new ArrayList<>(getPartitionsTill(timestamp)));
+    }
+
+    /**
+     * Tells whether the vertices are weakly connected by the edges added so far, in near constant time. The
+     * connectivity is maintained incrementally as the edges are added and accounts neither for the removals nor for
+     * the timestamps, the components of the graph at a point in time are computed by
+     * {@link core.analytics.Components#weaklyConnected}. Requires {@link TemporalGraphConfig#isConnectivityTracking()}.
+     */
+    public boolean areConnected(final int vertexId1, final int vertexId2) {
+        Preconditions.checkState(null != connectivity, "Connectivity tracking is not enabled");
+        Preconditions.checkArgument(vertexId1 < vertexIndex.get() && vertexId2 < vertexIndex.get(),
+                String.format(ENTITY_NOT_FOUND_ERR_MSG_TEMPLATE, "Vertex", Math.max(vertexId1, vertexId2)));
+        synchronized (connectivity) {
+            return connectivity.connected(vertexId1, vertexId2);
+        }
+    }
+
+    long getInitTs() {
+        return initTs;
+    }
+
+    // partitions currently retained by the graph, oldest first
+    Collection<TimePartition> getPartitions() {
+        return partitions.values();
+    }
+
+    int getVertexCount() {
+        return vertexIndex.get();
+    }
+
+    int getEdgeCount() {
+        return edgeIndex.get();
+    }
+
+    int getLabelId(final String label) {
+        return labelManager.getLabelId(label);
+    }
+
+    int getEdgeLabelId(final int edgeId) {
+        return edgeLabels.getInt(edgeId);
+    }
+
+    long getEdgeCreationTime(final int edgeId) {
+        return edgeCreationTimes.getLong(edgeId);
+    }
+
+    long getEdgeEndTime(final int edgeId) {
+        return edgeEndTimes.getLong(edgeId);
+    }
+
+    int getEdgeSrcVertex(final int edgeId) {
+        return edgeSrcVertices.getInt(edgeId);
+    }
+
+    int getEdgeDestVertex(final int edgeId) {
+        return edgeDestVertices.getInt(edgeId);
+    }
+
+    /*
+     * Appends the sample to the slice of the property series held by the partition covering the timestamp, under
+     * the monitor of its header, so that the concurrent appends to a series reach the rollups and the value index
+     * in the order of the series.
+     */
+    private void appendSample(final boolean vertex,
+                              final int entityId,
+                              final PropertyHeader header,
+                              final Object value,
+                              final long timestamp) {
+        synchronized (header) {
+            appendPropertyValue(header, value, timestamp);
+            onSample(vertex, entityId, header.getName(), timestamp, value);
+        }
+    }
+
+    private void appendPropertyValue(final PropertyHeader header, final Object value, final long timestamp) {
+        if (timestamp < header.getLatestTimestamp()) {
+            throw new IllegalArgumentException(String.format(PROPERTY_OUT_OF_ORDER_ERR_MSG_TEMPLATE, timestamp,
+                    header.getName(), header.getLatestTimestamp()));
+        }
+        final TimePartition partition = getOrCreatePartition(timestamp);
+        synchronized (partition) {
+            Property slice = partition.getPropertyStore().get(header.getId());
+            if (null == slice) {
+                slice = newSlice(partition, header.getId(), header.getName(), timestamp);
+            }
+            slice.setValueAtTime(timestamp, value);
+            partition.getPropertyStore().put(header.getId(), slice);
+        }
+        header.setLatestTimestamp(timestamp);
+    }
+
+    /*
+     * The slices of a series are visited in the order of their partitions, each store merges the summary of a
+     * slice lying within the window and only decodes the slices straddling its bounds.
+     */
+    private PropertyAggregate aggregateProperty(final PropertyHeader header,
+                                                final long fromTimestamp,
+                                                final long toTimestamp) {
+        final SeriesAggregator aggregator = new SeriesAggregator();
+        if (null == header) {
+            return aggregator.toAggregate();
+        }
+        for (final TimePartition partition : partitions.subMap(getPartitionNumber(fromTimestamp), true,
+                getPartitionNumber(toTimestamp), true).values()) {
+            partition.getPropertyStore().aggregate(header.getId(), fromTimestamp, toTimestamp, aggregator);
+        }
+        return aggregator.toAggregate();
+    }
+
+    /*
+     * Folds the value of the property of every edge alive at the timestamp into the statistics within a single
+     * pass over the edges alive at the start of the partition and over the buckets of the partition, which are
+     * disjoint, the edges ended since are skipped on the way instead of merging the buckets first. The values are
+     * looked up in the property stores without materializing the registries or the series of the edges. The
+     * buckets of high degree vertices are folded in parallel over the common pool, each into statistics of its own.
+     */
+    private double aggregateEdgeProperty(final int vertexId,
+                                         final boolean outgoing,
+                                         final String propertyName,
+                                         final AggregateFunction function,
+                                         final long timestamp) {
+        final TimePartition partition = getCheckpointPartition(timestamp);
+        if (null == partition) {
+            return function.evaluate(0L, 0d, Double.NaN, Double.NaN);
+        }
+        final List<IntBitmapSet> buckets = new ArrayList<>();
+        if (outgoing) {
+            buckets.add(collectStartOutEdges(partition, vertexId, AdjacencyIndex.ALL_LABELS));
+            partition.forEachOutEdgeBucket(vertexId, AdjacencyIndex.ALL_LABELS, timestamp, buckets::add);
+        } else {
+            buckets.add(collectStartInEdges(partition, vertexId, AdjacencyIndex.ALL_LABELS));
+            partition.forEachInEdgeBucket(vertexId, AdjacencyIndex.ALL_LABELS, timestamp, buckets::add);
+        }
+        int edgeCount = 0;
+        for (final IntBitmapSet bucket : buckets) {
+            edgeCount += bucket.size();
+        }
+        final DoubleSummaryStatistics stats;
+        if (edgeCount >= PARALLEL_AGGREGATION_THRESHOLD) {
+            stats = buckets.parallelStream()
+                    .collect(DoubleSummaryStatistics::new,
+                            (bucketStats, bucket) -> foldEdgeValues(partition, bucket, propertyName, timestamp,
+                                    bucketStats),
+                            DoubleSummaryStatistics::combine);
+        } else {
+            stats = new DoubleSummaryStatistics();
+            for (final IntBitmapSet bucket : buckets) {
+                foldEdgeValues(partition, bucket, propertyName, timestamp, stats);
+            }
+        }
+        return function.evaluate(stats.getCount(), stats.getSum(), stats.getMin(), stats.getMax());
+    }
+
+    private void foldEdgeValues(final TimePartition partition,
+                                final IntBitmapSet edges,
+                                final String propertyName,
+                                final long timestamp,
+                                final DoubleSummaryStatistics stats) {
+        for (final IntIterator it = edges.iterator(); it.hasNext(); ) {
+            final int edgeId = it.nextInt();
+            if (partition.isEndedAt(edgeEndTimes.getLong(edgeId), timestamp)) {
+                continue;
+            }
+            final Object value = getEdgePropertyValue(edgeId, propertyName, timestamp);
+            if (value instanceof Number) {
+                stats.accept(((Number) value).doubleValue());
+            }
+        }
+    }
+
+    /*
+     * The candidates are split into chunks, every chunk is ranked into a bounded heap of its own in parallel and
+     * the heaps are merged afterwards. Candidates without a value, i.e. NaN, are skipped.
+     */
+    private static List<RankedEntity> rank(final int[] candidates, final int k, final IntToDoubleFunction value) {
+        final int chunks = (candidates.length + RANKING_CHUNK_SIZE - 1) / RANKING_CHUNK_SIZE;
+        final TopKHeap top = IntStream.range(0, chunks).parallel()
+                .mapToObj(chunk -> {
+                    final TopKHeap heap = new TopKHeap(k);
+                    final int end = Math.min(candidates.length, (chunk + 1) * RANKING_CHUNK_SIZE);
+                    for (int i = chunk * RANKING_CHUNK_SIZE; i < end; i++) {
+                        final double v = value.applyAsDouble(candidates[i]);
+                        if (!Double.isNaN(v)) {
+                            heap.offer(candidates[i], v);
+                        }
+                    }
+                    return heap;
+                })
+                .reduce((heap, other) -> {
+                    heap.merge(other);
+                    return heap;
+                })
+                .orElseGet(() -> new TopKHeap(k));
+        final RankedEntity[] ranked = new RankedEntity[top.size()];
+        for (int i = ranked.length - 1; i >= 0; i--) {
+            final double key = top.peekKey();
+            ranked[i] = new RankedEntity(top.poll(), key);
+        }
+        return Arrays.asList(ranked);
+    }
+
+    /*
+     * Property stores of the partitions overlapping the window, the zone maps of the blocks of every series rule out
+     * the blocks, hence the series, without a sample in the value range.
+     */
+    private List<PropertyStore> getStoresWithin(final long fromTimestamp, final long toTimestamp) {
+        final List<PropertyStore> stores = new ArrayList<>();
+        for (final TimePartition partition : partitions.subMap(getPartitionNumber(fromTimestamp), true,
+                getPartitionNumber(toTimestamp), true).values()) {
+            stores.add(partition.getPropertyStore());
+        }
+        return stores;
+    }
+
+    private static boolean anyWithin(final List<PropertyStore> stores,
+                                     final PropertyHeader header,
+                                     final double minValue,
+                                     final double maxValue,
+                                     final long fromTimestamp,
+                                     final long toTimestamp) {
+        if (null == header) {
+            return false;
+        }
+        for (final PropertyStore store : stores) {
+            if (store.anyWithin(header.getId(), minValue, maxValue, fromTimestamp, toTimestamp)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * The entities valid at some time within [fromTimestamp, toTimestamp]: the entities alive at the start of the
+     * latest partition starting at or before fromTimestamp, or of the first partition after it, along with the
+     * entities added within the partitions from there till toTimestamp. Only these candidates are checked against
+     * their creation and end time.
+     */
+    private IntBitmapSet collectVerticesWithin(final long fromTimestamp, final long toTimestamp) {
+        final Collection<TimePartition> overlapping = getPartitionsOverlapping(fromTimestamp, toTimestamp);
+        if (overlapping.isEmpty()) {
+            return new IntBitmapSet();
+        }
+        final IntBitmapSet vertices = collectStartVertices(overlapping.iterator().next());
+        final IntBitmapSet ended = new IntBitmapSet();
+        for (final TimePartition partition : overlapping) {
+            partition.collectVertices(partition.getEndTs(), vertices, ended);
+        }
+        vertices.removeIf((int vertexId) -> vertexCreationTimes.getLong(vertexId) > toTimestamp
+                || vertexEndTimes.getLong(vertexId) <= fromTimestamp);
+        return vertices;
+    }
+
+    private IntBitmapSet collectEdgesWithin(final long fromTimestamp, final long toTimestamp) {
+        final Collection<TimePartition> overlapping = getPartitionsOverlapping(fromTimestamp, toTimestamp);
+        if (overlapping.isEmpty()) {
+            return new IntBitmapSet();
+        }
+        final IntBitmapSet edges = collectStartEdges(overlapping.iterator().next());
+        final IntBitmapSet ended = new IntBitmapSet();
+        for (final TimePartition partition : overlapping) {
+            partition.collectEdges(partition.getEndTs(), edges, ended);
+        }
+        edges.removeIf((int edgeId) -> edgeCreationTimes.getLong(edgeId) > toTimestamp
+                || edgeEndTimes.getLong(edgeId) <= fromTimestamp);
+        return edges;
+    }
+
+    private static double toRankValue(final Object value) {
+        return value instanceof Number ? ((Number) value).doubleValue() : Double.NaN;
+    }
+
+    private static double toRankValue(final PropertyAggregate aggregate, final AggregateFunction function) {
+        return 0L == aggregate.getCount() ? Double.NaN
+                : function.evaluate(aggregate.getCount(), aggregate.getSum(), aggregate.getMin(), aggregate.getMax());
+    }
+
+    private void onSamples(final boolean vertex, final int entityId, final Collection<Property> properties) {
+        final PropertyValueIndex valueIndex = vertex ? vertexValueIndex : edgeValueIndex;
+        for (final Property p : properties) {
+            if (!config.getRollupResolutionsMillis().containsKey(p.getName()) && !valueIndex.isIndexed(p.getName())) {
+                continue;
+            }
+            final TemporalProperty tp = (TemporalProperty) p;
+            for (final TemporalProperty.TimeStampWithValue value : tp.getValues()) {
+                onSample(vertex, entityId, p.getName(), tp.toTimestamp(value.getTimeDifferential()), value.getObject());
+            }
+        }
+    }
+
+    /*
+     * Maintains the rollups and the value index of the property, if any, along with the samples of the entities.
+     */
+    private void onSample(final boolean vertex,
+                          final int entityId,
+                          final String propertyName,
+                          final long timestamp,
+                          final Object value) {
+        rollUp(vertex ? vertexRollups : edgeRollups, entityId, propertyName, timestamp, value);
+        final PropertyValueIndex valueIndex = vertex ? vertexValueIndex : edgeValueIndex;
+        if (valueIndex.isIndexed(propertyName)) {
+            valueIndex.add(propertyName, entityId, value, timestamp);
+        }
+    }
+
+    /*
+     * Adds a numeric sample to the rollup tiers configured for the property, if any.
+     */
+    private void rollUp(final Int2ObjectOpenHashMap<Map<String, RollupSeries>> rollups,
+                        final int entityId,
+                        final String propertyName,
+                        final long timestamp,
+                        final Object value) {
+        final long[] resolutions = config.getRollupResolutionsMillis().get(propertyName);
+        if (null == resolutions || !(value instanceof Number)) {
+            return;
+        }
+        final RollupSeries series;
+        synchronized (rollups) {
+            series = rollups.computeIfAbsent(entityId, id -> new HashMap<>(1))
+                    .computeIfAbsent(propertyName, name -> new RollupSeries(resolutions));
+        }
+        series.add(timestamp, ((Number) value).doubleValue());
+    }
+
+    /*
+     * Buckets of the coarsest rollup tier dividing the resolution, null if the property has no such tier.
+     */
+    private static List<RollupBucket> getRollupBuckets(final Int2ObjectOpenHashMap<Map<String, RollupSeries>> rollups,
+                                                       final int entityId,
+                                                       final String propertyName,
+                                                       final long fromTimestamp,
+                                                       final long toTimestamp,
+                                                       final long resolutionMillis) {
+        final RollupSeries series;
+        synchronized (rollups) {
+            final Map<String, RollupSeries> seriesByName = rollups.get(entityId);
+            series = null == seriesByName ? null : seriesByName.get(propertyName);
+        }
+        return null == series ? null : series.getBuckets(fromTimestamp, toTimestamp, resolutionMillis);
+    }
+
+    /*
+     * Downsamples the raw samples of the buckets overlapping the window, for the resolutions finer than the tiers.
+     */
+    private List<RollupBucket> downsample(final PropertyHeader header,
+                                          final long fromTimestamp,
+                                          final long toTimestamp,
+                                          final long resolutionMillis) {
+        final RollupSeries.Tier tier = new RollupSeries.Tier(resolutionMillis);
+        if (null == header) {
+            return tier.toBuckets();
+        }
+        final long fromTs = RollupSeries.alignTo(fromTimestamp, resolutionMillis);
+        final long toTs = RollupSeries.alignTo(toTimestamp, resolutionMillis) + (resolutionMillis - 1L);
+        for (final TimePartition partition : partitions.subMap(getPartitionNumber(fromTs), true,
+                getPartitionNumber(toTs), true).values()) {
+            final TemporalProperty slice = (TemporalProperty) partition.getPropertyStore().get(header.getId());
+            if (null == slice) {
+                continue;
+            }
+            for (final TemporalProperty.TimeStampWithValue value : slice.getValues()) {
+                final long sampleTs = slice.toTimestamp(value.getTimeDifferential());
+                if (sampleTs >= fromTs && sampleTs <= toTs && value.getObject() instanceof Number) {
+                    final double v = ((Number) value.getObject()).doubleValue();
+                    tier.add(sampleTs, 1L, v, v, v);
+                }
+            }
+        }
+        return tier.toBuckets();
+    }
+
+    private static void purgeRollups(final Int2ObjectOpenHashMap<Map<String, RollupSeries>> rollups,
+                                     final long timestamp) {
+        synchronized (rollups) {
+            for (final Iterator<Map<String, RollupSeries>> it = rollups.values().iterator(); it.hasNext(); ) {
+                final Map<String, RollupSeries> seriesByName = it.next();
+                seriesByName.values().removeIf(series -> {
+                    series.purgeTill(timestamp);
+                    return series.isEmpty();
+                });
+                if (seriesByName.isEmpty()) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    /*
+     * A slice is anchored at its first sample, truncated to the time unit counted from the partition start, rather
+     * than at the partition start itself which may be the epoch. The later samples of the partition follow the
+     * anchor by less than the partition duration.
+     */
+    private TemporalProperty newSlice(final TimePartition partition,
+                                      final int propertyId,
+                                      final String name,
+                                      final long firstSampleTs) {
+        final long unitMillis = config.getTimeUnit().toMillis(1L);
+        return TemporalProperty.builder()
+                .id(propertyId)
+                .name(name)
+                .time(firstSampleTs - Math.floorMod(firstSampleTs - partition.getStartTs(), unitMillis))
+                .timeUnit(config.getTimeUnit())
+                .build();
+    }
+
+    private void storeSlice(final TimePartition partition, final TemporalProperty slice) {
+        if (null != partition) {
+            synchronized (partition) {
+                partition.getPropertyStore().put(slice.getId(), slice);
+            }
+        }
+    }
+
+    /*
+     * The value of a property at a time is the floor sample which lives in the latest partition,
+     * not after the time, holding a sample of the property.
+     */
+    Object getPropertyValueAtTime(final PropertyHeader header, final long timestamp) {
+        for (final TimePartition partition : partitions.headMap(getPartitionNumber(timestamp), true).descendingMap().values()) {
+            final Object value = partition.getPropertyStore().getValueAtTime(header.getId(), timestamp);
+            if (null != value) {
+                return value;
+            }
+            if (partition.getStartTs() <= header.getTime()) {
+                break;
+            }
+        }
+        return null;
+    }
+
+    /*
+     * Point lookup of the value of an edge property at the timestamp, the header of the property is located
+     * without materializing the registry of the edge.
+     */
+    Object getEdgePropertyValue(final int edgeId, final String propertyName, final long timestamp) {
+        final PropertyHeader header = findEdgePropertyHeader(edgeId, propertyName);
+        return null == header ? null : getPropertyValueAtTime(header, timestamp);
+    }
+
+    private Object getVertexPropertyValue(final int vertexId, final String propertyName, final long timestamp) {
+        final PropertyHeader header = findVertexPropertyHeader(vertexId, propertyName);
+        return null == header ? null : getPropertyValueAtTime(header, timestamp);
+    }
+
+    private PropertyHeader findEdgePropertyHeader(final int edgeId, final String propertyName) {
+        final TimePartition owner = getRegistryPartition(edgeAnchorTimes.getLong(edgeId));
+        return null == owner ? null : findPropertyHeader(owner, owner.getEdgeProperties(), edgeId, propertyName);
+    }
+
+    private PropertyHeader findVertexPropertyHeader(final int vertexId, final String propertyName) {
+        final TimePartition owner = getRegistryPartition(vertexCreationTimes.getLong(vertexId));
+        return null == owner ? null : findPropertyHeader(owner, owner.getVertexProperties(), vertexId, propertyName);
+    }
+
+    private static PropertyHeader findPropertyHeader(final TimePartition owner,
+                                                     final Map<Integer, IntOpenHashSet> entityProperties,
+                                                     final int entityId,
+                                                     final String propertyName) {
+        final IntOpenHashSet propertyIds = entityProperties.get(entityId);
+        if (null == propertyIds) {
+            return null;
+        }
+        for (final IntIterator it = propertyIds.iterator(); it.hasNext(); ) {
+            final PropertyHeader header = owner.getPropertyHeaders().get(it.nextInt());
+            if (propertyName.equals(header.getName())) {
+                return header;
+            }
+        }
+        return null;
+    }
+
+    private Collection<TimestampedPropertyValue> getPropertiesAtTime(final Collection<PropertyHeader> headers,
+                                                                    final long timestamp) {
+        final Set<TimestampedPropertyValue> propertiesWithValue = new HashSet<>();
+        for (final PropertyHeader header : headers) {
+            final Object value = getPropertyValueAtTime(header, timestamp);
+            if (null == value) {
+                continue;
+            }
+            propertiesWithValue.add(new TimestampedPropertyValue(header.getName(), value));
+        }
+        return propertiesWithValue;
+    }
+
+    private PropertyHeader getPropertyFromSet(final String propertyName, final Collection<PropertyHeader> allProperties) {
+        if (null == allProperties) {
+            return null;
+        }
+        for (final PropertyHeader p : allProperties) {
+            if (propertyName.equals(p.getName())) {
+                return p;
+            }
+        }
+        return null;
+    }
+
+    Collection<PropertyHeader> getVertexPropertyHeaders(final int vertexId) {
+        final TimePartition owner = getRegistryPartition(vertexCreationTimes.getLong(vertexId));
+        if (null == owner) {
+            return Collections.emptySet();
+        }
+        return getEntityPropertyHeaders(owner, owner.getVertexProperties(), vertexId);
+    }
+
+    Collection<PropertyHeader> getEdgePropertyHeaders(final int edgeId) {
+        final TimePartition owner = getRegistryPartition(edgeAnchorTimes.getLong(edgeId));
+        if (null == owner) {
+            return Collections.emptySet();
+        }
+        return getEntityPropertyHeaders(owner, owner.getEdgeProperties(), edgeId);
+    }
+
+    /*
+     * The registry of an entity is held by the partition covering its anchor, i.e. its creation or the latest
+     * assertion of an upserted edge, or by the first retained partition once that partition has been dropped.
+     */
+    private TimePartition getRegistryPartition(final long anchorTs) {
+        final Map.Entry<Long, TimePartition> entry = partitions.ceilingEntry(getPartitionNumber(anchorTs));
+        return null == entry ? null : entry.getValue();
+    }
+
+    private Collection<PropertyHeader> getEntityPropertyHeaders(final TimePartition owner,
+                                                                final Map<Integer, IntOpenHashSet> entityProperties,
+                                                                final int entityId) {
+        final IntOpenHashSet propertyIds = entityProperties.get(entityId);
+        if (null == propertyIds || propertyIds.isEmpty()) {
+            return Collections.emptySet();
+        }
+        final List<PropertyHeader> headers = new ArrayList<>(propertyIds.size());
+        for (final int propertyId : propertyIds) {
+            headers.add(owner.getPropertyHeaders().get(propertyId));
+        }
+        return headers;
+    }
+
+    // structural time bucket of the timestamp counted from the graph init time
+    private long getBucketNumber(final long timestamp) {
+        return Math.floorDiv(timestamp - initTs, config.getBucketMillis());
+    }
+
+    private long getPartitionNumber(final long timestamp) {
+        return Math.floorDiv(timestamp - initTs, config.getPartitionDurationMillis());
+    }
+
+    /*
+     * The as-of collectors only read the latest partition starting at or before the timestamp, merged with the
+     * entities alive at its start.
+     */
+    private IntBitmapSet collectVertices(final long timestamp) {
+        final TimePartition partition = getCheckpointPartition(timestamp);
+        return null == partition ? new IntBitmapSet() : collectLiveVertices(partition, timestamp);
+    }
+
+    private IntBitmapSet collectEdges(final long timestamp) {
+        final TimePartition partition = getCheckpointPartition(timestamp);
+        return null == partition ? new IntBitmapSet() : collectLiveEdges(partition, timestamp);
+    }
+
+    private IntBitmapSet collectOutEdges(final int vertexId, final int labelId, final long timestamp) {
+        final TimePartition partition = getCheckpointPartition(timestamp);
+        return null == partition ? new IntBitmapSet() : collectLiveOutEdges(partition, vertexId, labelId, timestamp);
+    }
+
+    private IntBitmapSet collectInEdges(final int vertexId, final int labelId, final long timestamp) {
+        final TimePartition partition = getCheckpointPartition(timestamp);
+        return null == partition ? new IntBitmapSet() : collectLiveInEdges(partition, vertexId, labelId, timestamp);
+    }
+
+    private TimePartition getCheckpointPartition(final long timestamp) {
+        final Map.Entry<Long, TimePartition> entry = partitions.floorEntry(getPartitionNumber(timestamp));
+        return null == entry ? null : entry.getValue();
+    }
+
+    /*
+     * The live collectors return the entities alive at a timestamp within or after the partition, the partition
+     * being the latest one starting at or before the timestamp: the entities alive at the start of the partition
+     * merged with the buckets of the partition till the timestamp.
+     */
+    IntBitmapSet collectLiveVertices(final TimePartition partition, final long timestamp) {
+        final IntBitmapSet live = collectStartVertices(partition);
+        final IntBitmapSet ended = new IntBitmapSet();
+        partition.collectVertices(timestamp, live, ended);
+        live.andNot(ended);
+        return live;
+    }
+
+    IntBitmapSet collectLiveEdges(final TimePartition partition, final long timestamp) {
+        final IntBitmapSet live = collectStartEdges(partition);
+        final IntBitmapSet ended = new IntBitmapSet();
+        partition.collectEdges(timestamp, live, ended);
+        live.andNot(ended);
+        return live;
+    }
+
+    // the vertices alive at the start of the partition
+    private IntBitmapSet collectStartVertices(final TimePartition partition) {
+        final IntBitmapSet vertices = new IntBitmapSet();
+        final long checkpointTs = checkpoint.collectVertices(vertices);
+        if (partition.getStartTs() < checkpointTs) {
+            for (final TimePartition later : getPartitionsBefore(partition, checkpointTs)) {
+                later.collectEndedVertices(vertices);
+            }
+            vertices.removeIf((int vertexId) -> !isAliveAt(vertexCreationTimes, vertexEndTimes, vertexId,
+                    partition.getStartTs()));
         }
-        Set<Property> properties =
-                propertyIds.stream().map(propertyStore::get).collect(Collectors.toSet());
+        return vertices;
+    }
+
+    // the edges alive at the start of the partition
+    private IntBitmapSet collectStartEdges(final TimePartition partition) {
+        final IntBitmapSet edges = new IntBitmapSet();
+        final long checkpointTs = checkpoint.collectEdges(edges);
+        if (partition.getStartTs() < checkpointTs) {
+            for (final TimePartition later : getPartitionsBefore(partition, checkpointTs)) {
+                later.collectEndedEdges(edges);
+            }
+            rewind(edges, partition.getStartTs());
+        }
+        return edges;
+    }
+
+    IntBitmapSet collectLiveOutEdges(final TimePartition partition,
+                                     final int vertexId,
+                                     final int labelId,
+                                     final long timestamp) {
+        final IntBitmapSet live = collectStartOutEdges(partition, vertexId, labelId);
+        final IntBitmapSet ended = new IntBitmapSet();
+        partition.collectOutEdges(vertexId, labelId, timestamp, live, ended);
+        live.andNot(ended);
+        return live;
+    }
+
+    IntBitmapSet collectLiveInEdges(final TimePartition partition,
+                                    final int vertexId,
+                                    final int labelId,
+                                    final long timestamp) {
+        final IntBitmapSet live = collectStartInEdges(partition, vertexId, labelId);
+        final IntBitmapSet ended = new IntBitmapSet();
+        partition.collectInEdges(vertexId, labelId, timestamp, live, ended);
+        live.andNot(ended);
+        return live;
+    }
+
+    // the edges going out of the vertex alive at the start of the partition
+    IntBitmapSet collectStartOutEdges(final TimePartition partition, final int vertexId, final int labelId) {
+        final IntBitmapSet edges = new IntBitmapSet();
+        final long checkpointTs = checkpoint.collectOutEdges(vertexId, labelId, edges);
+        if (partition.getStartTs() < checkpointTs) {
+            for (final TimePartition later : getPartitionsBefore(partition, checkpointTs)) {
+                later.collectEndedOutEdges(vertexId, labelId, edges);
+            }
+            rewind(edges, partition.getStartTs());
+        }
+        return edges;
+    }
+
+    // the edges coming into the vertex alive at the start of the partition
+    IntBitmapSet collectStartInEdges(final TimePartition partition, final int vertexId, final int labelId) {
+        final IntBitmapSet edges = new IntBitmapSet();
+        final long checkpointTs = checkpoint.collectInEdges(vertexId, labelId, edges);
+        if (partition.getStartTs() < checkpointTs) {
+            for (final TimePartition later : getPartitionsBefore(partition, checkpointTs)) {
+                later.collectEndedInEdges(vertexId, labelId, edges);
+            }
+            rewind(edges, partition.getStartTs());
+        }
+        return edges;
+    }
+
+    /*
+     * The checkpoint stands before a later partition than the one queried. Along with the edges ended since the
+     * start of the queried partition, it holds the edges alive at that start, and the edges added since then.
+     */
+    private void rewind(final IntBitmapSet edges, final long startTs) {
+        edges.removeIf((int edgeId) -> !isAliveAt(edgeCreationTimes, edgeEndTimes, edgeId, startTs));
+    }
+
+    // alive right before the timestamp, i.e. added before it and not ended before it
+    private static boolean isAliveAt(final LongArrayList creationTimes,
+                                     final LongArrayList endTimes,
+                                     final int id,
+                                     final long timestamp) {
+        return creationTimes.getLong(id) < timestamp && endTimes.getLong(id) >= timestamp;
+    }
+
+    /*
+     * Algorithm
+     * The structural writes are recorded within the partition covering their timestamp. A write preceding the
+     * start of the latest partition, i.e. a late write, is also carried to the checkpoint: an added entity unless
+     * it ended before that start, an ended entity in any case. The end of an entity never precedes any of its
+     * assertions, so the checkpoint stays equal to the entities added and not ended before the latest partition.
+     */
+    private TimePartition recordVertexAdded(final int vertexId, final long timestamp) {
+        final TimePartition partition = getOrCreatePartition(timestamp);
+        partition.addVertex(vertexId, timestamp);
+        synchronized (checkpointLock) {
+            if (timestamp < checkpoint.getStartTs() && vertexEndTimes.getLong(vertexId) >= checkpoint.getStartTs()) {
+                checkpoint.addVertex(vertexId);
+            }
+        }
+        return partition;
+    }
+
+    private void recordVertexEnded(final int vertexId, final long timestamp) {
+        getOrCreatePartition(timestamp).endVertex(vertexId, timestamp);
+        synchronized (checkpointLock) {
+            if (timestamp < checkpoint.getStartTs()) {
+                checkpoint.endVertex(vertexId);
+            }
+        }
+    }
+
+    private TimePartition recordEdgeAdded(final int edgeId, final long timestamp) {
+        final int srcVertexId = edgeSrcVertices.getInt(edgeId);
+        final int destVertexId = edgeDestVertices.getInt(edgeId);
+        final int labelId = edgeLabels.getInt(edgeId);
+        final TimePartition partition = getOrCreatePartition(timestamp);
+        partition.addEdge(edgeId, srcVertexId, destVertexId, labelId, timestamp);
+        synchronized (checkpointLock) {
+            if (timestamp < checkpoint.getStartTs() && edgeEndTimes.getLong(edgeId) >= checkpoint.getStartTs()) {
+                checkpoint.addEdge(edgeId, srcVertexId, destVertexId, labelId);
+            }
+        }
+        return partition;
+    }
+
+    private void recordEdgeEnded(final int edgeId, final long timestamp) {
+        final int srcVertexId = edgeSrcVertices.getInt(edgeId);
+        final int destVertexId = edgeDestVertices.getInt(edgeId);
+        final int labelId = edgeLabels.getInt(edgeId);
+        getOrCreatePartition(timestamp).endEdge(edgeId, srcVertexId, destVertexId, labelId, timestamp);
+        synchronized (checkpointLock) {
+            if (timestamp < checkpoint.getStartTs()) {
+                checkpoint.endEdge(edgeId, srcVertexId, destVertexId, labelId);
+            }
+        }
+    }
+
+    private boolean isRetained(final long timestamp) {
+        return getPartitionNumber(timestamp) >= firstRetainedPartition;
+    }
+
+    /*
+     * A partition created after the latest one rolls the checkpoint forward through the latest partition, which
+     * only reads the buckets of that partition. A partition created before it leaves the checkpoint untouched, the
+     * new partition is still empty.
+     */
+    private TimePartition getOrCreatePartition(final long timestamp) {
+        final long partitionNumber = getPartitionNumber(timestamp);
+        TimePartition partition = partitions.get(partitionNumber);
+        if (null != partition) {
+            return partition;
+        }
+        synchronized (checkpointLock) {
+            partition = partitions.get(partitionNumber);
+            if (null == partition) {
+                partition = new TimePartition(initTs + partitionNumber * config.getPartitionDurationMillis(),
+                        initTs + (partitionNumber + 1) * config.getPartitionDurationMillis(),
+                        config.getBucketMillis());
+                final Map.Entry<Long, TimePartition> latest = partitions.lastEntry();
+                if (null == latest) {
+                    checkpoint.advance(null, partition.getStartTs(), null, null);
+                } else if (latest.getKey() < partitionNumber) {
+                    final long nextStartTs = partition.getStartTs();
+                    synchronized (latest.getValue()) {
+                        checkpoint.advance(latest.getValue(), nextStartTs,
+                                vertexId -> vertexEndTimes.getLong(vertexId) >= nextStartTs,
+                                edgeId -> edgeEndTimes.getLong(edgeId) >= nextStartTs);
+                    }
+                }
+                partitions.put(partitionNumber, partition);
+            }
+            return partition;
+        }
+    }
+
+    // partitions overlapping the window [fromTimestamp, toTimestamp), oldest first
+    private Collection<TimePartition> getPartitionsBetween(final long fromTimestamp, final long toTimestamp) {
+        return partitions.subMap(getPartitionNumber(fromTimestamp), true,
+                getPartitionNumber(toTimestamp - 1L), true).values();
+    }
+
+    // partitions overlapping [fromTimestamp, toTimestamp] from the latest one starting at or before fromTimestamp,
+    // oldest first
+    private Collection<TimePartition> getPartitionsOverlapping(final long fromTimestamp, final long toTimestamp) {
+        final Long fromKey = partitions.floorKey(getPartitionNumber(fromTimestamp));
+        return partitions.subMap(null == fromKey ? getPartitionNumber(fromTimestamp) : fromKey, true,
+                getPartitionNumber(toTimestamp), true).values();
+    }
+
+    // partitions starting at or before the timestamp, oldest first
+    private Collection<TimePartition> getPartitionsTill(final long timestamp) {
+        return partitions.headMap(getPartitionNumber(timestamp), true).values();
+    }
 
-        return properties;
+    // partitions from the partition on, starting before the timestamp, oldest first
+    private Collection<TimePartition> getPartitionsBefore(final TimePartition partition, final long timestamp) {
+        return partitions.subMap(getPartitionNumber(partition.getStartTs()), true,
+                getPartitionNumber(timestamp), false).values();
     }
 }
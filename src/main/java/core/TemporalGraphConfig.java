@@ -0,0 +1,73 @@
+package core;
+
+/*
+ Copyright 2023 VMware, Inc.
+ SPDX-License-Identifier: BSD-2-Clause
+*/
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tunables of a {@link TemporalGraph} instance.
+ * The defaults are suitable for most use cases and a graph created without an explicit configuration
+ * uses {@link #defaultConfig()}.
+ */
+@Data
+@Builder(toBuilder = true)
+public class TemporalGraphConfig {
+
+    // width of a single time partition in milliseconds. Retention drops whole partitions.
+    @Builder.Default
+    private final long partitionDurationMillis = TimeUnit.DAYS.toMillis(1L);
+
+    // unit of the 32-bit time offsets stored within a partition. Every partition is an epoch with its own base,
+    // hence the unit only bounds the partition duration (about 24.8 days for milliseconds) and not the graph
+    // lifetime. Timestamps are truncated to the unit.
+    @Builder.Default
+    private final TimeUnit timeUnit = TimeUnit.MILLISECONDS;
+
+    // resolution of the structural indexes in milliseconds. Vertices and edges added within a bucket are tracked
+    // under a single key and are visible from the start of the bucket, property samples keep the precision of
+    // the time unit. Non positive values use the time unit as the resolution.
+    @Builder.Default
+    private final long bucketResolutionMillis = 0L;
+
+    // number of the latest change events retained for the subscribers, rounded up to a power of two. Subscribers
+    // lagging further behind miss events. The change log is only allocated along with the first subscription.
+    @Builder.Default
+    private final int changeLogCapacity = 1 << 16;
+
+    // maintain the connectivity of the vertices as the edges are added, see TemporalGraph#areConnected
+    @Builder.Default
+    private final boolean connectivityTracking = false;
+
+    // rollup tiers of the numeric property series by property name, as resolutions in milliseconds, e.g. 5 minutes
+    // and 1 hour. The tiers are maintained as the samples are appended and outlive the purged partitions, see
+    // TemporalGraph#purgeRollupsAtTime
+    @Builder.Default
+    private final Map<String, long[]> rollupResolutionsMillis = Collections.emptyMap();
+
+    // names of the vertex and edge properties whose values are indexed, see TemporalGraph#getVerticesByPropertyValue
+    // and TemporalGraph#getEdgesByPropertyValue
+    @Builder.Default
+    private final Set<String> indexedVertexProperties = Collections.emptySet();
+    @Builder.Default
+    private final Set<String> indexedEdgeProperties = Collections.emptySet();
+
+    /**
+     * @return the effective width of a structural time bucket in milliseconds
+     */
+    public long getBucketMillis() {
+        return bucketResolutionMillis > 0L ? bucketResolutionMillis : timeUnit.toMillis(1L);
+    }
+
+    public static TemporalGraphConfig defaultConfig() {
+        return TemporalGraphConfig.builder().build();
+    }
+}
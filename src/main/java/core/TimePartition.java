@@ -0,0 +1,328 @@
+package core;
+
+/*
+ Copyright 2023 VMware, Inc.
+ SPDX-License-Identifier: BSD-2-Clause
+*/
+
+import core.propertystore.PropertyStore;
+import core.utils.IntBitmapSet;
+import it.unimi.dsi.fastutil.ints.Int2ObjectAVLTreeMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectSortedMap;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * A window [startTs, endTs) of the graph time line.
+ * Every partition is an epoch of its own: the timestamps recorded within the partition are stored as 32-bit
+ * offsets from the start of the partition. Structural offsets are counted in time buckets of the configured
+ * resolution, all the vertices and edges added within a bucket share a single key and become visible at the
+ * start of the bucket.
+ * A partition owns the structural deltas recorded within the window (vertex and edge additions along with
+ * the per-vertex adjacency), the ends of the vertices and edges removed within the window, the property registry
+ * of the entities created within the window and the property samples whose timestamp falls within the window.
+ * Retention is performed by dropping the reference to the oldest partitions, only the first retained partition is
+ * touched: it takes over the registries of the entities outliving the dropped partitions.
+ * The writers of a partition, i.e. the ingest path and the compaction of the maintenance service, are serialized
+ * on the monitor of the partition.
+ */
+@Getter
+class TimePartition {
+    private final long startTs;
+    private final long endTs;
+    // width of a structural time bucket in milliseconds
+    private final long bucketMillis;
+
+    // vertices added within the partition Map<timeOffset, Set<>>
+    private final TreeMap<Integer, IntBitmapSet> verticesByTime = new TreeMap<>();
+
+    // stores outgoing edges of a vertex added within the partition, partitioned by edge label
+    private final AdjacencyIndex outgoingEdgesByTimeForVertex = new AdjacencyIndex();
+    // stores incoming edges of a vertex added within the partition, partitioned by edge label
+    private final AdjacencyIndex incomingEdgesByTimeForVertex = new AdjacencyIndex();
+
+    // time offset to edges Ids set
+    private final Int2ObjectAVLTreeMap<IntBitmapSet> edgesByTime = new Int2ObjectAVLTreeMap<>();
+
+    // vertices removed within the partition, i.e. ending their validity Map<timeOffset, Set<>>
+    private final TreeMap<Integer, IntBitmapSet> verticesEndedByTime = new TreeMap<>();
+
+    // edges removed within the partition, keyed by the end offset. The adjacency variants are keyed by the
+    // end point vertex of the edges
+    private final Int2ObjectAVLTreeMap<IntBitmapSet> edgesEndedByTime = new Int2ObjectAVLTreeMap<>();
+    private final AdjacencyIndex outgoingEdgesEndedByTimeForVertex = new AdjacencyIndex();
+    private final AdjacencyIndex incomingEdgesEndedByTimeForVertex = new AdjacencyIndex();
+
+    // vertex to property map <vertexId, Set<Property>> for the vertices created within the partition, or carried
+    // from the dropped partitions
+    private final Map<Integer, IntOpenHashSet> vertexProperties = new Int2ObjectOpenHashMap<>();
+
+    // edge to property map <EdgeId, Set<Property>> for the edges created within the partition
+    private final Map<Integer, IntOpenHashSet> edgeProperties = new Int2ObjectOpenHashMap<>();
+
+    // headers of the properties registered in vertexProperties and edgeProperties
+    private final Map<Integer, PropertyHeader> propertyHeaders = new Int2ObjectOpenHashMap<>();
+
+    // property samples with a timestamp in [startTs, endTs)
+    private final PropertyStore propertyStore = new PropertyStore();
+
+    // set once the maintenance service compacted the partition
+    @Setter
+    private volatile boolean compacted = false;
+
+    TimePartition(final long startTs, final long endTs, final long bucketMillis) {
+        this.startTs = startTs;
+        this.endTs = endTs;
+        this.bucketMillis = bucketMillis;
+    }
+
+    synchronized void addVertex(final int vertexId, final long timestamp) {
+        verticesByTime.computeIfAbsent(toTimeOffset(timestamp), t -> new IntBitmapSet()).add(vertexId);
+    }
+
+    synchronized void addEdge(final int edgeId, final int srcVertexId, final int destVertexId, final int labelId, final long timestamp) {
+        final int timeOffset = toTimeOffset(timestamp);
+        edgesByTime.computeIfAbsent(timeOffset, t -> new IntBitmapSet()).add(edgeId);
+        //add outgoing edges in the map
+        outgoingEdgesByTimeForVertex.add(srcVertexId, labelId, timeOffset, edgeId);
+        //add incoming edges in the map
+        incomingEdgesByTimeForVertex.add(destVertexId, labelId, timeOffset, edgeId);
+    }
+
+    synchronized void endVertex(final int vertexId, final long timestamp) {
+        verticesEndedByTime.computeIfAbsent(toTimeOffset(timestamp), t -> new IntBitmapSet()).add(vertexId);
+    }
+
+    synchronized void endEdge(final int edgeId, final int srcVertexId, final int destVertexId, final int labelId, final long timestamp) {
+        final int timeOffset = toTimeOffset(timestamp);
+        edgesEndedByTime.computeIfAbsent(timeOffset, t -> new IntBitmapSet()).add(edgeId);
+        outgoingEdgesEndedByTimeForVertex.add(srcVertexId, labelId, timeOffset, edgeId);
+        incomingEdgesEndedByTimeForVertex.add(destVertexId, labelId, timeOffset, edgeId);
+    }
+
+    /*
+     * The collectors add the entities added within the partition till the timestamp to the added set, and the
+     * entities ended within the partition till the timestamp to the ended set. The entities alive at the
+     * timestamp are the difference of both sets once every partition till the timestamp has been collected.
+     */
+    void collectVertices(final long timestamp, final IntBitmapSet added, final IntBitmapSet ended) {
+        final int floorKey = toFloorOffset(timestamp);
+        collect(verticesByTime, floorKey, added);
+        collect(verticesEndedByTime, floorKey, ended);
+    }
+
+    // labelId restricts the edges to a label, AdjacencyIndex.ALL_LABELS collects the whole neighborhood
+    void collectOutEdges(final int vertexId,
+                         final int labelId,
+                         final long timestamp,
+                         final IntBitmapSet added,
+                         final IntBitmapSet ended) {
+        collectOutEdges(vertexId, labelId, timestamp, timestamp, added, ended);
+    }
+
+    void collectInEdges(final int vertexId,
+                        final int labelId,
+                        final long timestamp,
+                        final IntBitmapSet added,
+                        final IntBitmapSet ended) {
+        collectInEdges(vertexId, labelId, timestamp, timestamp, added, ended);
+    }
+
+    /*
+     * Variants collecting the edges added till addedTs and the edges ended till endedTs, with endedTs <= addedTs
+     * the difference holds the edges alive at some instant of [endedTs, addedTs].
+     */
+    void collectOutEdges(final int vertexId,
+                         final int labelId,
+                         final long addedTs,
+                         final long endedTs,
+                         final IntBitmapSet added,
+                         final IntBitmapSet ended) {
+        outgoingEdgesByTimeForVertex.collect(vertexId, labelId, toFloorOffset(addedTs), added);
+        // edges ending within the partition may have been added within an earlier one
+        if (endedTs >= startTs) {
+            outgoingEdgesEndedByTimeForVertex.collect(vertexId, labelId, toFloorOffset(endedTs), ended);
+        }
+    }
+
+    void collectInEdges(final int vertexId,
+                        final int labelId,
+                        final long addedTs,
+                        final long endedTs,
+                        final IntBitmapSet added,
+                        final IntBitmapSet ended) {
+        incomingEdgesByTimeForVertex.collect(vertexId, labelId, toFloorOffset(addedTs), added);
+        if (endedTs >= startTs) {
+            incomingEdgesEndedByTimeForVertex.collect(vertexId, labelId, toFloorOffset(endedTs), ended);
+        }
+    }
+
+    /*
+     * Apply the action to the buckets of the edges added within the partition till the timestamp, the edges ended
+     * since are left to the caller, see isEndedAt.
+     */
+    void forEachOutEdgeBucket(final int vertexId,
+                              final int labelId,
+                              final long timestamp,
+                              final Consumer<IntBitmapSet> action) {
+        outgoingEdgesByTimeForVertex.forEachBucket(vertexId, labelId, toFloorOffset(timestamp), action);
+    }
+
+    void forEachInEdgeBucket(final int vertexId,
+                             final int labelId,
+                             final long timestamp,
+                             final Consumer<IntBitmapSet> action) {
+        incomingEdgesByTimeForVertex.forEachBucket(vertexId, labelId, toFloorOffset(timestamp), action);
+    }
+
+    /*
+     * Whether an entity alive at the start of the partition, or added within it, and ending at endTs is ended for
+     * an as-of query at the timestamp, i.e. its end falls within the buckets the query includes.
+     */
+    boolean isEndedAt(final long endTs, final long timestamp) {
+        return endTs < this.endTs && toTimeOffset(endTs) <= toFloorOffset(timestamp);
+    }
+
+    /*
+     * The ended collectors add every entity ended within the partition to the set, they rewind the checkpoint of
+     * the graph, standing before a later partition, to the start of this one.
+     */
+    void collectEndedVertices(final IntBitmapSet into) {
+        collect(verticesEndedByTime, Integer.MAX_VALUE, into);
+    }
+
+    void collectEndedEdges(final IntBitmapSet into) {
+        collect(edgesEndedByTime, Integer.MAX_VALUE, into);
+    }
+
+    void collectEndedOutEdges(final int vertexId, final int labelId, final IntBitmapSet into) {
+        outgoingEdgesEndedByTimeForVertex.collect(vertexId, labelId, Integer.MAX_VALUE, into);
+    }
+
+    void collectEndedInEdges(final int vertexId, final int labelId, final IntBitmapSet into) {
+        incomingEdgesEndedByTimeForVertex.collect(vertexId, labelId, Integer.MAX_VALUE, into);
+    }
+
+    /*
+     * The window collectors add the entities added within the partition during [fromTs, toTs) to the set. Only
+     * the buckets overlapping the window are visited.
+     */
+    void collectOutEdgesBetween(final int vertexId, final int labelId, final long fromTs, final long toTs,
+                                final IntBitmapSet into) {
+        outgoingEdgesByTimeForVertex.collectBetween(vertexId, labelId, toFromOffset(fromTs), toToOffset(toTs), into);
+    }
+
+    void collectInEdgesBetween(final int vertexId, final int labelId, final long fromTs, final long toTs,
+                               final IntBitmapSet into) {
+        incomingEdgesByTimeForVertex.collectBetween(vertexId, labelId, toFromOffset(fromTs), toToOffset(toTs), into);
+    }
+
+    void collectEdgesBetween(final long fromTs, final long toTs, final IntBitmapSet into) {
+        collectRange(edgesByTime, toFromOffset(fromTs), toToOffset(toTs), into);
+    }
+
+    /*
+     * The change collectors add the entities added, respectively ended, within the partition during
+     * (fromTs, toTs] to the sets, i.e. the buckets included by an as-of query at toTs and not by one at fromTs.
+     */
+    void collectVertexChanges(final long fromTs, final long toTs, final IntBitmapSet added, final IntBitmapSet ended) {
+        final int fromKey = fromTs < startTs ? 0 : toTimeOffset(fromTs) + 1;
+        final int toKey = toFloorOffset(toTs);
+        if (fromKey <= toKey) {
+            collectRange(verticesByTime, fromKey, toKey, added);
+            collectRange(verticesEndedByTime, fromKey, toKey, ended);
+        }
+    }
+
+    void collectEdgeChanges(final long fromTs, final long toTs, final IntBitmapSet added, final IntBitmapSet ended) {
+        final int fromKey = fromTs < startTs ? 0 : toTimeOffset(fromTs) + 1;
+        final int toKey = toFloorOffset(toTs);
+        if (fromKey <= toKey) {
+            collectRange(edgesByTime, fromKey, toKey, added);
+            collectRange(edgesEndedByTime, fromKey, toKey, ended);
+        }
+    }
+
+    // first offset of a window starting at the timestamp
+    private int toFromOffset(final long fromTs) {
+        return fromTs <= startTs ? 0 : toTimeOffset(fromTs);
+    }
+
+    // last offset, inclusive, of a window ending before the timestamp
+    private int toToOffset(final long toTs) {
+        return toTs >= endTs ? Integer.MAX_VALUE : toTimeOffset(toTs - 1L);
+    }
+
+    /*
+     * Offset of a timestamp within the partition, counted in time buckets.
+     * The partition duration is validated to fit 32-bits in buckets.
+     */
+    int toTimeOffset(final long timestamp) {
+        return (int) ((timestamp - startTs) / bucketMillis);
+    }
+
+    // largest offset to be included by a query at the timestamp. Later partitions are queried as a whole.
+    int toFloorOffset(final long timestamp) {
+        return timestamp >= endTs ? Integer.MAX_VALUE : toTimeOffset(timestamp);
+    }
+
+    void collectEdges(final long timestamp, final IntBitmapSet added, final IntBitmapSet ended) {
+        final int floorKey = toFloorOffset(timestamp);
+        collect(edgesByTime, floorKey, added);
+        collect(edgesEndedByTime, floorKey, ended);
+    }
+
+    /*
+     * Copy of a time bucket with every chunk trimmed to its content. Buckets of a sealed partition are mostly
+     * iterated and rarely added to, the copy drops the growth slack of the bucket without mutating the
+     * instance the readers may be iterating.
+     */
+    static IntBitmapSet freeze(final IntBitmapSet bucket) {
+        return new IntBitmapSet(bucket);
+    }
+
+    // union of the buckets within the offsets [fromKey, toKey]
+    private static void collectRange(final TreeMap<Integer, IntBitmapSet> map,
+                                     final int fromKey,
+                                     final int toKey,
+                                     final IntBitmapSet into) {
+        for (final IntBitmapSet ids : map.subMap(fromKey, true, toKey, true).values()) {
+            into.or(ids);
+        }
+    }
+
+    private static void collectRange(final Int2ObjectAVLTreeMap<IntBitmapSet> map,
+                                     final int fromKey,
+                                     final int toKey,
+                                     final IntBitmapSet into) {
+        final Int2ObjectSortedMap<IntBitmapSet> range = Integer.MAX_VALUE == toKey
+                ? map.tailMap(fromKey)
+                : map.subMap(fromKey, toKey + 1);
+        for (final IntBitmapSet ids : range.values()) {
+            into.or(ids);
+        }
+    }
+
+    private static void collect(final Int2ObjectAVLTreeMap<IntBitmapSet> map, final int floorKey, final IntBitmapSet into) {
+        for (final Int2ObjectMap.Entry<IntBitmapSet> e : map.headMap(floorKey).int2ObjectEntrySet()) {
+            into.or(e.getValue());
+        }
+        final IntBitmapSet floorKeyEntry = map.get(floorKey);
+        if (floorKeyEntry != null) {
+            into.or(floorKeyEntry);
+        }
+    }
+
+    private static void collect(final TreeMap<Integer, IntBitmapSet> map, final int floorKey, final IntBitmapSet into) {
+        for (final IntBitmapSet ids : map.headMap(floorKey, true).values()) {
+            into.or(ids);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package core.analytics;
+
+/*
+ Copyright 2023 VMware, Inc.
+ SPDX-License-Identifier: BSD-2-Clause
+*/
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import it.unimi.dsi.fastutil.ints.IntSet;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Earliest arrival times of the vertices reachable from a source through time respecting paths, along with the
+ * last edge of the earliest path to every vertex.
+ */
+@AllArgsConstructor
+public final class ArrivalTimes {
+    public static final long UNREACHED = Long.MAX_VALUE;
+    static final int NO_EDGE = -1;
+
+    @Getter
+    private final int sourceVertexId;
+    // reached vertices including the source
+    @Getter
+    private final IntSet reachedVertices;
+    // arrival times indexed by vertex id, UNREACHED for the other vertices
+    private final long[] arrivalTimes;
+    // last edge of the earliest path indexed by vertex id, NO_EDGE for the source and the unreached vertices
+    private final int[] predecessorEdges;
+    // end point of the predecessor edges the path arrives from
+    private final int[] predecessorVertices;
+
+    /**
+     * @return the earliest time the vertex can be reached at, {@link #UNREACHED} if it can't be reached
+     */
+    public long getArrivalTime(final int vertexId) {
+        return vertexId >= 0 && vertexId < arrivalTimes.length ? arrivalTimes[vertexId] : UNREACHED;
+    }
+
+    /**
+     * @return the edges of an earliest arrival path from the source to the vertex in traversal order, empty for
+     * the source and for the unreached vertices
+     */
+    public IntList getPath(final int vertexId) {
+        final IntArrayList path = new IntArrayList();
+        if (UNREACHED == getArrivalTime(vertexId)) {
+            return path;
+        }
+        for (int v = vertexId; NO_EDGE != predecessorEdges[v]; v = predecessorVertices[v]) {
+            path.add(predecessorEdges[v]);
+        }
+        for (int i = 0, j = path.size() - 1; i < j; i++, j--) {
+            path.set(i, path.set(j, path.getInt(i)));
+        }
+        return path;
+    }
+}
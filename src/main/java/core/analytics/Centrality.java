@@ -0,0 +1,135 @@
+package core.analytics;
+
+/*
+ Copyright 2023 VMware, Inc.
+ SPDX-License-Identifier: BSD-2-Clause
+*/
+
+import com.google.common.base.Preconditions;
+import core.GraphSnapshot;
+import model.Direction;
+
+import java.util.stream.IntStream;
+
+/**
+ * Vertex centrality measures over a {@link CsrGraph}. The results are arrays indexed by vertex id, zero for the
+ * vertices absent from the snapshot. The iterations are spread over the common fork join pool.
+ */
+public final class Centrality {
+    public static final double DEFAULT_DAMPING = 0.85d;
+    public static final int DEFAULT_MAX_ITERATIONS = 50;
+    public static final double DEFAULT_TOLERANCE = 1e-9d;
+
+    private Centrality() {
+    }
+
+    /**
+     * @return the number of edges of every vertex in the direction, self loops count once per direction
+     */
+    public static int[] degree(final CsrGraph graph, final Direction direction) {
+        final int[] degrees = new int[graph.vertexIdBound];
+        IntStream.of(graph.vertices).parallel().forEach(v -> {
+            int degree = 0;
+            if (Direction.IN != direction) {
+                degree += graph.getOutDegree(v);
+            }
+            if (Direction.OUT != direction) {
+                degree += graph.getInDegree(v);
+            }
+            degrees[v] = degree;
+        });
+        return degrees;
+    }
+
+    /**
+     * Sums a numeric edge property over the edges of every vertex in the direction, the edges without a numeric
+     * value for the property weigh the default weight.
+     * @param snapshot     the snapshot the graph has been built from, read for the property values at its instant
+     * @param propertyName the property holding the weight of the edges
+     */
+    public static double[] weightedDegree(final GraphSnapshot snapshot,
+                                          final CsrGraph graph,
+                                          final Direction direction,
+                                          final String propertyName,
+                                          final double defaultWeight) {
+        // every vertex resolves the weights of its out edges, the raw property reads bypass the snapshot cache
+        // and may run concurrently
+        final double[] weights = new double[graph.getEdgeCount()];
+        IntStream.of(graph.vertices).parallel().forEach(v -> {
+            for (int i = graph.outOffsets[v]; i < graph.outOffsets[v + 1]; i++) {
+                final Object value = snapshot.getEdgePropertyValue(graph.outEdges[i], propertyName);
+                weights[i] = value instanceof Number ? ((Number) value).doubleValue() : defaultWeight;
+            }
+        });
+        final double[] degrees = new double[graph.vertexIdBound];
+        IntStream.of(graph.vertices).parallel().forEach(v -> {
+            double degree = 0d;
+            if (Direction.IN != direction) {
+                for (int i = graph.outOffsets[v]; i < graph.outOffsets[v + 1]; i++) {
+                    degree += weights[i];
+                }
+            }
+            if (Direction.OUT != direction) {
+                for (int i = graph.inOffsets[v]; i < graph.inOffsets[v + 1]; i++) {
+                    degree += weights[graph.inOutPositions[i]];
+                }
+            }
+            degrees[v] = degree;
+        });
+        return degrees;
+    }
+
+    public static double[] pageRank(final CsrGraph graph) {
+        return pageRank(graph, DEFAULT_DAMPING, DEFAULT_MAX_ITERATIONS, DEFAULT_TOLERANCE);
+    }
+
+    /*
+     * Algorithm
+     * Pull based power iteration: every vertex sums the contributions rank(u) / outDegree(u) of its in-neighbors,
+     * hence the vertices are updated in parallel without any write contention. The rank of the vertices without
+     * out edges is spread evenly over all the vertices, the ranks sum to one. Iterations stop once the L1 change
+     * of the ranks falls below the tolerance.
+     */
+    public static double[] pageRank(final CsrGraph graph,
+                                    final double damping,
+                                    final int maxIterations,
+                                    final double tolerance) {
+        Preconditions.checkArgument(damping >= 0d && damping <= 1d,
+                String.format("Damping factor %f should be within [0, 1]", damping));
+        final int[] vertices = graph.vertices;
+        double[] ranks = new double[graph.vertexIdBound];
+        if (0 == vertices.length) {
+            return ranks;
+        }
+        final int n = vertices.length;
+        for (final int v : vertices) {
+            ranks[v] = 1d / n;
+        }
+        double[] next = new double[graph.vertexIdBound];
+        final double[] contributions = new double[graph.vertexIdBound];
+        for (int iteration = 0; iteration < maxIterations; iteration++) {
+            final double[] current = ranks;
+            final double danglingRank = IntStream.of(vertices).parallel().mapToDouble(v -> {
+                final int outDegree = graph.getOutDegree(v);
+                contributions[v] = 0 == outDegree ? 0d : current[v] / outDegree;
+                return 0 == outDegree ? current[v] : 0d;
+            }).sum();
+            final double base = (1d - damping) / n + damping * danglingRank / n;
+            final double[] updated = next;
+            final double change = IntStream.of(vertices).parallel().mapToDouble(v -> {
+                double sum = 0d;
+                for (int i = graph.inOffsets[v]; i < graph.inOffsets[v + 1]; i++) {
+                    sum += contributions[graph.inNeighbors[i]];
+                }
+                updated[v] = base + damping * sum;
+                return Math.abs(updated[v] - current[v]);
+            }).sum();
+            next = ranks;
+            ranks = updated;
+            if (change < tolerance) {
+                break;
+            }
+        }
+        return ranks;
+    }
+}
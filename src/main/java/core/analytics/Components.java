@@ -0,0 +1,73 @@
+package core.analytics;
+
+/*
+ Copyright 2023 VMware, Inc.
+ SPDX-License-Identifier: BSD-2-Clause
+*/
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Weakly connected components of a {@link CsrGraph}, i.e. ignoring the direction of the edges.
+ */
+public final class Components {
+    public static final int NO_COMPONENT = -1;
+
+    private Components() {
+    }
+
+    /**
+     * Labels the vertices by parallel label propagation: every vertex starts labelled with its own id and
+     * repeatedly takes the smallest label among itself and its in and out neighbors, till no label changes. Every
+     * vertex only writes its own label and labels only decrease, hence the workers read the labels of the neighbors
+     * without synchronization, a stale read only delays the convergence. Pointer jumping, label(v) =
+     * label(label(v)), carries a label along a chain in fewer rounds than the length of the chain.
+     * @return the component of every vertex indexed by vertex id, the smallest vertex id of the component, or
+     * {@link #NO_COMPONENT} for the vertices absent from the snapshot
+     */
+    public static int[] weaklyConnected(final CsrGraph graph) {
+        final int[] labels = new int[graph.vertexIdBound];
+        Arrays.fill(labels, NO_COMPONENT);
+        for (final int v : graph.vertices) {
+            labels[v] = v;
+        }
+        boolean changed = true;
+        while (changed) {
+            changed = IntStream.of(graph.vertices).parallel().map(v -> {
+                int label = labels[labels[v]];
+                for (int i = graph.outOffsets[v]; i < graph.outOffsets[v + 1]; i++) {
+                    label = minLabel(label, labels[graph.outNeighbors[i]]);
+                }
+                for (int i = graph.inOffsets[v]; i < graph.inOffsets[v + 1]; i++) {
+                    label = minLabel(label, labels[graph.inNeighbors[i]]);
+                }
+                if (label < labels[v]) {
+                    labels[v] = label;
+                    return 1;
+                }
+                return 0;
+            }).sum() > 0;
+        }
+        return labels;
+    }
+
+    // a neighbor absent from the snapshot has no component to propagate
+    private static int minLabel(final int label, final int neighborLabel) {
+        return NO_COMPONENT == neighborLabel ? label : Math.min(label, neighborLabel);
+    }
+
+    /**
+     * @return the number of distinct components of a labelling computed by {@link #weaklyConnected(CsrGraph)}
+     */
+    public static int count(final int[] components) {
+        int count = 0;
+        for (int v = 0; v < components.length; v++) {
+            // every component is labelled with one of its vertices
+            if (components[v] == v) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,151 @@
+package core.analytics;
+
+/*
+ Copyright 2023 VMware, Inc.
+ SPDX-License-Identifier: BSD-2-Clause
+*/
+
+import core.GraphSnapshot;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import it.unimi.dsi.fastutil.ints.IntSet;
+
+/**
+ * Transient compressed sparse row copy of a {@link GraphSnapshot}, for the analytics visiting every edge many
+ * times. The edges of a vertex are the range [offsets[v], offsets[v + 1]) of the neighbor and edge id arrays, in
+ * both directions, arrays are indexed by vertex id up to the vertex id bound of the snapshot.
+ * The structure is immutable once built and may be read concurrently.
+ */
+public final class CsrGraph {
+    final int vertexIdBound;
+    // vertices present at the instant of the snapshot
+    final int[] vertices;
+
+    final int[] outOffsets;
+    final int[] outNeighbors;
+    final int[] outEdges;
+
+    final int[] inOffsets;
+    final int[] inNeighbors;
+    final int[] inEdges;
+    // position of the in edges within the out arrays, to share the per edge values between both directions
+    final int[] inOutPositions;
+
+    private CsrGraph(final int vertexIdBound,
+                     final int[] vertices,
+                     final int[] outOffsets,
+                     final int[] outNeighbors,
+                     final int[] outEdges,
+                     final int[] inOffsets,
+                     final int[] inNeighbors,
+                     final int[] inEdges,
+                     final int[] inOutPositions) {
+        this.vertexIdBound = vertexIdBound;
+        this.vertices = vertices;
+        this.outOffsets = outOffsets;
+        this.outNeighbors = outNeighbors;
+        this.outEdges = outEdges;
+        this.inOffsets = inOffsets;
+        this.inNeighbors = inNeighbors;
+        this.inEdges = inEdges;
+        this.inOutPositions = inOutPositions;
+    }
+
+    /**
+     * Copies the edges of the snapshot with the label, or all the edges for a null label, along with the vertices
+     * of the snapshot. Only the edges between vertices of the snapshot are kept, so that the analytics neither leak
+     * into nor route through absent vertices. Counting sorts fill the arrays, nothing is allocated per edge.
+     */
+    public static CsrGraph of(final GraphSnapshot snapshot, final String label) {
+        final int vertexIdBound = snapshot.getVertexIdBound();
+        // vertices added after the snapshot has been taken are out of bounds
+        final IntArrayList vertices = new IntArrayList();
+        final boolean[] present = new boolean[vertexIdBound];
+        for (final IntIterator it = snapshot.getVertices().iterator(); it.hasNext(); ) {
+            final int v = it.nextInt();
+            if (v < vertexIdBound) {
+                vertices.add(v);
+                present[v] = true;
+            }
+        }
+        final IntSet edgeIds = snapshot.getEdges(label);
+        final int[] src = new int[edgeIds.size()];
+        final int[] dest = new int[edgeIds.size()];
+        final int[] ids = new int[edgeIds.size()];
+        int edgeCount = 0;
+        for (final IntIterator it = edgeIds.iterator(); it.hasNext(); ) {
+            final int edgeId = it.nextInt();
+            final int srcVertexId = snapshot.getEdgeSrcVertex(edgeId);
+            final int destVertexId = snapshot.getEdgeDestVertex(edgeId);
+            // an end point may be absent from the snapshot, e.g. added later, or ended while the edge is alive
+            if (srcVertexId < vertexIdBound && destVertexId < vertexIdBound
+                    && present[srcVertexId] && present[destVertexId]) {
+                src[edgeCount] = srcVertexId;
+                dest[edgeCount] = destVertexId;
+                ids[edgeCount] = edgeId;
+                edgeCount++;
+            }
+        }
+        // counting sort of the edges by source
+        final int[] outOffsets = new int[vertexIdBound + 1];
+        for (int i = 0; i < edgeCount; i++) {
+            outOffsets[src[i] + 1]++;
+        }
+        prefixSum(outOffsets);
+        final int[] outNeighbors = new int[edgeCount];
+        final int[] outEdges = new int[edgeCount];
+        final int[] cursors = new int[vertexIdBound];
+        System.arraycopy(outOffsets, 0, cursors, 0, vertexIdBound);
+        for (int i = 0; i < edgeCount; i++) {
+            final int position = cursors[src[i]]++;
+            outNeighbors[position] = dest[i];
+            outEdges[position] = ids[i];
+        }
+        // counting sort of the out arrays by destination
+        final int[] inOffsets = new int[vertexIdBound + 1];
+        for (int i = 0; i < edgeCount; i++) {
+            inOffsets[outNeighbors[i] + 1]++;
+        }
+        prefixSum(inOffsets);
+        final int[] inNeighbors = new int[edgeCount];
+        final int[] inEdges = new int[edgeCount];
+        final int[] inOutPositions = new int[edgeCount];
+        System.arraycopy(inOffsets, 0, cursors, 0, vertexIdBound);
+        for (int v = 0; v < vertexIdBound; v++) {
+            for (int i = outOffsets[v]; i < outOffsets[v + 1]; i++) {
+                final int position = cursors[outNeighbors[i]]++;
+                inNeighbors[position] = v;
+                inEdges[position] = outEdges[i];
+                inOutPositions[position] = i;
+            }
+        }
+        return new CsrGraph(vertexIdBound, vertices.toIntArray(), outOffsets, outNeighbors, outEdges,
+                inOffsets, inNeighbors, inEdges, inOutPositions);
+    }
+
+    public int getVertexIdBound() {
+        return vertexIdBound;
+    }
+
+    public int getVertexCount() {
+        return vertices.length;
+    }
+
+    public int getEdgeCount() {
+        return outEdges.length;
+    }
+
+    public int getOutDegree(final int vertexId) {
+        return outOffsets[vertexId + 1] - outOffsets[vertexId];
+    }
+
+    public int getInDegree(final int vertexId) {
+        return inOffsets[vertexId + 1] - inOffsets[vertexId];
+    }
+
+    private static void prefixSum(final int[] offsets) {
+        for (int v = 1; v < offsets.length; v++) {
+            offsets[v] += offsets[v - 1];
+        }
+    }
+}
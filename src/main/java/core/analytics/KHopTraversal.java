@@ -0,0 +1,128 @@
+package core.analytics;
+
+/*
+ Copyright 2023 VMware, Inc.
+ SPDX-License-Identifier: BSD-2-Clause
+*/
+
+import com.google.common.base.Preconditions;
+import core.GraphSnapshot;
+import core.utils.AtomicBitSet;
+import core.utils.IntBitmapSet;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import it.unimi.dsi.fastutil.ints.IntSets;
+import lombok.Builder;
+import model.Direction;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Breadth first traversal of a {@link GraphSnapshot} bounded by a number of hops, e.g. the blast radius of a
+ * failing host at a point in time.
+ */
+@Builder
+public class KHopTraversal {
+    // frontiers smaller than this are expanded by the calling thread
+    private static final int PARALLEL_FRONTIER_SIZE = 256;
+    // number of frontier vertices expanded by a single task
+    private static final int CHUNK_SIZE = 64;
+
+    // orientation of the edges to follow
+    @Builder.Default
+    private final Direction direction = Direction.OUT;
+
+    // label of the edges to follow, null to follow all the edges
+    private final String label;
+
+    @Builder.Default
+    private final int maxHops = Integer.MAX_VALUE;
+
+    // expand the large frontiers on the common fork join pool
+    @Builder.Default
+    private final boolean parallel = true;
+
+    /*
+     * Algorithm
+     * Level synchronous BFS: every level expands the whole frontier into the next one. The visited vertices are
+     * claimed within an atomic bit set, the worker claiming a vertex records its distance and appends it to its
+     * own part of the next frontier, so that the workers expanding the chunks of a large frontier in parallel
+     * share no other state. The frontiers are primitive arrays and the neighbors of a vertex are collected
+     * within a reused bitmap, nothing is allocated per edge.
+     */
+    public TraversalResult traverse(final GraphSnapshot snapshot, final int... sourceVertexIds) {
+        Preconditions.checkArgument(maxHops >= 0, String.format("Hop limit %d should not be negative", maxHops));
+        final int vertexIdBound = snapshot.getVertexIdBound();
+        final int[] distances = new int[vertexIdBound];
+        Arrays.fill(distances, TraversalResult.UNREACHED);
+        final AtomicBitSet visited = new AtomicBitSet(vertexIdBound);
+        final IntBitmapSet reached = new IntBitmapSet();
+
+        final IntArrayList sources = new IntArrayList(sourceVertexIds.length);
+        for (final int vertexId : sourceVertexIds) {
+            Preconditions.checkArgument(vertexId >= 0 && vertexId < vertexIdBound,
+                    String.format("Vertex with Id %d not found.", vertexId));
+            if (visited.set(vertexId)) {
+                distances[vertexId] = 0;
+                sources.add(vertexId);
+            }
+        }
+        int[] frontier = sources.toIntArray();
+        reached.addAll(sources);
+        int depth = 0;
+        while (frontier.length > 0 && depth < maxHops) {
+            final int hop = depth + 1;
+            final int[] currentFrontier = frontier;
+            if (parallel && currentFrontier.length >= PARALLEL_FRONTIER_SIZE) {
+                final int chunks = (currentFrontier.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+                final List<IntArrayList> parts = IntStream.range(0, chunks).parallel()
+                        .mapToObj(c -> expand(snapshot, currentFrontier, c * CHUNK_SIZE,
+                                Math.min(currentFrontier.length, (c + 1) * CHUNK_SIZE), visited, distances, hop))
+                        .collect(Collectors.toList());
+                final IntArrayList next = new IntArrayList();
+                for (final IntArrayList part : parts) {
+                    next.addAll(part);
+                }
+                frontier = next.toIntArray();
+            } else {
+                frontier = expand(snapshot, currentFrontier, 0, currentFrontier.length, visited, distances, hop)
+                        .toIntArray();
+            }
+            if (frontier.length > 0) {
+                depth = hop;
+                for (final int vertexId : frontier) {
+                    reached.add(vertexId);
+                }
+            }
+        }
+        return new TraversalResult(IntSets.unmodifiable(reached), distances, depth);
+    }
+
+    // expands frontier[from, to) and returns the vertices visited first by this call
+    private IntArrayList expand(final GraphSnapshot snapshot,
+                                final int[] frontier,
+                                final int from,
+                                final int to,
+                                final AtomicBitSet visited,
+                                final int[] distances,
+                                final int hop) {
+        final IntArrayList next = new IntArrayList();
+        final IntBitmapSet neighbors = new IntBitmapSet();
+        for (int i = from; i < to; i++) {
+            neighbors.clear();
+            snapshot.collectNeighbors(frontier[i], direction, label, neighbors);
+            for (final IntIterator it = neighbors.iterator(); it.hasNext(); ) {
+                final int neighbor = it.nextInt();
+                // vertices added after the snapshot has been taken are ignored
+                if (neighbor < distances.length && visited.set(neighbor)) {
+                    distances[neighbor] = hop;
+                    next.add(neighbor);
+                }
+            }
+        }
+        return next;
+    }
+}
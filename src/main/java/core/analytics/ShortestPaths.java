@@ -0,0 +1,213 @@
+package core.analytics;
+
+/*
+ Copyright 2023 VMware, Inc.
+ SPDX-License-Identifier: BSD-2-Clause
+*/
+
+import com.google.common.base.Preconditions;
+import core.GraphSnapshot;
+import core.utils.IndexedDoubleHeap;
+import core.utils.IntBitmapSet;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import lombok.Builder;
+import model.Direction;
+
+import java.util.Arrays;
+
+/**
+ * Weighted shortest paths within a {@link GraphSnapshot}, the weight of an edge being the value of a numeric edge
+ * property at the instant of the snapshot, e.g. a latency. Weights should not be negative.
+ */
+@Builder
+public class ShortestPaths {
+    // orientation of the edges to follow
+    @Builder.Default
+    private final Direction direction = Direction.OUT;
+
+    // label of the edges to follow, null to follow all the edges
+    private final String label;
+
+    // edge property holding the weight, null to weigh every edge the default weight
+    private final String weightProperty;
+
+    // weight of the edges without a numeric value for the weight property
+    @Builder.Default
+    private final double defaultWeight = 1d;
+
+    /**
+     * Costs of the cheapest paths from the source, settling the vertices in the order of their cost till the
+     * cost exceeds the bound.
+     * @param maxCost the bound on the cost of the paths, Double.POSITIVE_INFINITY for no bound
+     * @return the costs indexed by vertex id, Double.POSITIVE_INFINITY for the vertices not reached within the bound
+     */
+    public double[] distances(final GraphSnapshot snapshot, final int sourceVertexId, final double maxCost) {
+        final Search search = new Search(snapshot, direction, sourceVertexId);
+        while (!search.heap.isEmpty() && search.heap.peekKey() <= maxCost) {
+            search.settle();
+        }
+        for (int v = 0; v < search.costs.length; v++) {
+            if (search.costs[v] > maxCost) {
+                search.costs[v] = Double.POSITIVE_INFINITY;
+            }
+        }
+        return search.costs;
+    }
+
+    /**
+     * Dijkstra search from the source, terminated as soon as the target is settled.
+     * @return the cheapest path from the source to the target, null if the target can't be reached
+     */
+    public WeightedPath shortestPath(final GraphSnapshot snapshot, final int sourceVertexId, final int targetVertexId) {
+        checkVertex(snapshot, targetVertexId);
+        final Search search = new Search(snapshot, direction, sourceVertexId);
+        while (!search.heap.isEmpty()) {
+            if (search.settle() == targetVertexId) {
+                return toPath(search, null, targetVertexId);
+            }
+        }
+        return null;
+    }
+
+    /*
+     * Algorithm
+     * Two Dijkstra searches run alternately, a forward one from the source and a backward one from the target
+     * following the edges against the direction, each time expanding the search with the cheapest frontier. Every
+     * relaxed vertex reached by both searches yields a candidate path, the search terminates once the cheapest
+     * frontier costs of both searches add up to the cheapest candidate, no later meeting can be cheaper. Both
+     * searches usually settle far fewer vertices than a single search reaching the target.
+     */
+    public WeightedPath bidirectionalShortestPath(final GraphSnapshot snapshot,
+                                                  final int sourceVertexId,
+                                                  final int targetVertexId) {
+        checkVertex(snapshot, targetVertexId);
+        final Search forward = new Search(snapshot, direction, sourceVertexId);
+        final Search backward = new Search(snapshot, reverse(direction), targetVertexId);
+        double best = sourceVertexId == targetVertexId ? 0d : Double.POSITIVE_INFINITY;
+        int meeting = sourceVertexId == targetVertexId ? sourceVertexId : -1;
+        while (!forward.heap.isEmpty() && !backward.heap.isEmpty()
+                && forward.heap.peekKey() + backward.heap.peekKey() < best) {
+            final Search search = forward.heap.peekKey() <= backward.heap.peekKey() ? forward : backward;
+            final Search other = search == forward ? backward : forward;
+            final int vertexId = search.settle();
+            // candidates through the vertex and through every neighbor relaxed by the expansion
+            for (int i = -1; i < search.relaxed.size(); i++) {
+                final int v = i < 0 ? vertexId : search.relaxed.getInt(i);
+                final double cost = search.costs[v] + other.costs[v];
+                if (cost < best) {
+                    best = cost;
+                    meeting = v;
+                }
+            }
+        }
+        return -1 == meeting ? null : toPath(forward, backward, meeting);
+    }
+
+    private void checkVertex(final GraphSnapshot snapshot, final int vertexId) {
+        Preconditions.checkArgument(vertexId >= 0 && vertexId < snapshot.getVertexIdBound(),
+                String.format("Vertex with Id %d not found.", vertexId));
+    }
+
+    private static Direction reverse(final Direction direction) {
+        return Direction.OUT == direction ? Direction.IN : Direction.IN == direction ? Direction.OUT : Direction.BOTH;
+    }
+
+    // joins the forward path to the meeting vertex and the backward path from it
+    private static WeightedPath toPath(final Search forward, final Search backward, final int meeting) {
+        final IntArrayList vertices = new IntArrayList();
+        final IntArrayList edges = new IntArrayList();
+        for (int v = meeting; Search.NO_EDGE != forward.predecessorEdges[v]; v = forward.predecessorVertices[v]) {
+            edges.add(forward.predecessorEdges[v]);
+            vertices.add(forward.predecessorVertices[v]);
+        }
+        reverse(vertices);
+        reverse(edges);
+        vertices.add(meeting);
+        double cost = forward.costs[meeting];
+        if (null != backward) {
+            for (int v = meeting; Search.NO_EDGE != backward.predecessorEdges[v]; v = backward.predecessorVertices[v]) {
+                edges.add(backward.predecessorEdges[v]);
+                vertices.add(backward.predecessorVertices[v]);
+            }
+            cost += backward.costs[meeting];
+        }
+        return new WeightedPath(cost, vertices, edges);
+    }
+
+    private static void reverse(final IntArrayList list) {
+        for (int i = 0, j = list.size() - 1; i < j; i++, j--) {
+            list.set(i, list.set(j, list.getInt(i)));
+        }
+    }
+
+    private double weight(final GraphSnapshot snapshot, final int edgeId) {
+        if (null == weightProperty) {
+            return defaultWeight;
+        }
+        final Object value = snapshot.getEdgePropertyValue(edgeId, weightProperty);
+        final double weight = value instanceof Number ? ((Number) value).doubleValue() : defaultWeight;
+        Preconditions.checkArgument(weight >= 0d,
+                String.format("Edge with Id %d has a negative weight %f.", edgeId, weight));
+        return weight;
+    }
+
+    /*
+     * State of a single Dijkstra search, costs and predecessors in arrays indexed by vertex id.
+     */
+    private final class Search {
+        static final int NO_EDGE = -1;
+
+        private final GraphSnapshot snapshot;
+        private final Direction searchDirection;
+        private final double[] costs;
+        private final int[] predecessorEdges;
+        private final int[] predecessorVertices;
+        private final IndexedDoubleHeap heap;
+        private final IntBitmapSet edges = new IntBitmapSet();
+        // vertices whose cost improved during the last expansion
+        private final IntArrayList relaxed = new IntArrayList();
+
+        Search(final GraphSnapshot snapshot, final Direction searchDirection, final int sourceVertexId) {
+            checkVertex(snapshot, sourceVertexId);
+            final int vertexIdBound = snapshot.getVertexIdBound();
+            this.snapshot = snapshot;
+            this.searchDirection = searchDirection;
+            this.costs = new double[vertexIdBound];
+            Arrays.fill(costs, Double.POSITIVE_INFINITY);
+            this.predecessorEdges = new int[vertexIdBound];
+            Arrays.fill(predecessorEdges, NO_EDGE);
+            this.predecessorVertices = new int[vertexIdBound];
+            this.heap = new IndexedDoubleHeap(vertexIdBound);
+            costs[sourceVertexId] = 0d;
+            heap.insertOrDecrease(sourceVertexId, 0d);
+        }
+
+        // settles the cheapest vertex of the frontier and relaxes its edges
+        int settle() {
+            final int vertexId = heap.poll();
+            final double cost = costs[vertexId];
+            relaxed.clear();
+            edges.clear();
+            snapshot.collectEdgesAliveSince(vertexId, searchDirection, label, snapshot.getTimestamp(), edges);
+            for (final IntIterator it = edges.iterator(); it.hasNext(); ) {
+                final int edgeId = it.nextInt();
+                final int srcVertexId = snapshot.getEdgeSrcVertex(edgeId);
+                final int neighbor = srcVertexId == vertexId ? snapshot.getEdgeDestVertex(edgeId) : srcVertexId;
+                if (neighbor >= costs.length) {
+                    // added after the snapshot has been taken
+                    continue;
+                }
+                final double neighborCost = cost + weight(snapshot, edgeId);
+                if (neighborCost < costs[neighbor]) {
+                    costs[neighbor] = neighborCost;
+                    predecessorEdges[neighbor] = edgeId;
+                    predecessorVertices[neighbor] = vertexId;
+                    heap.insertOrDecrease(neighbor, neighborCost);
+                    relaxed.add(neighbor);
+                }
+            }
+            return vertexId;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package core.analytics;
+
+/*
+ Copyright 2023 VMware, Inc.
+ SPDX-License-Identifier: BSD-2-Clause
+*/
+
+import com.google.common.base.Preconditions;
+import core.GraphSnapshot;
+import core.TemporalGraph;
+import core.utils.IntBitmapSet;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import it.unimi.dsi.fastutil.ints.IntSets;
+import lombok.Builder;
+import model.Direction;
+
+import java.util.Arrays;
+
+/**
+ * Time respecting reachability: a path may only follow an edge at an instant the edge is valid, and not before
+ * the previous hop of the path, e.g. the spread of an infection or a lateral movement through a communication
+ * graph. Hops are instantaneous, an edge valid over [creation, end) can be followed from a vertex reached at
+ * time a at max(a, creation) as long as it's before the end of the edge.
+ */
+@Builder
+public class TemporalReachability {
+    // orientation of the edges to follow
+    @Builder.Default
+    private final Direction direction = Direction.OUT;
+
+    // label of the edges to follow, null to follow all the edges
+    private final String label;
+
+    /*
+     * Algorithm
+     * Arrival times only grow along a path, hence the vertices are settled in the order of their arrival time by
+     * a label setting search, every vertex being expanded once from its earliest arrival a. The expansion walks the
+     * time sorted adjacency of the vertex a single time, collecting the edges added till toTimestamp minus the
+     * edges ended till a, and relaxes the other end point of every edge with max(a, creation of the edge).
+     */
+    public ArrivalTimes earliestArrival(final TemporalGraph graph,
+                                        final int sourceVertexId,
+                                        final long fromTimestamp,
+                                        final long toTimestamp) {
+        Preconditions.checkArgument(fromTimestamp <= toTimestamp,
+                String.format("Window start %d should not follow the window end %d.", fromTimestamp, toTimestamp));
+        final GraphSnapshot snapshot = graph.snapshotAt(toTimestamp);
+        final int vertexIdBound = snapshot.getVertexIdBound();
+        Preconditions.checkArgument(sourceVertexId >= 0 && sourceVertexId < vertexIdBound,
+                String.format("Vertex with Id %d not found.", sourceVertexId));
+        final long[] arrivalTimes = new long[vertexIdBound];
+        Arrays.fill(arrivalTimes, ArrivalTimes.UNREACHED);
+        final int[] predecessorEdges = new int[vertexIdBound];
+        Arrays.fill(predecessorEdges, ArrivalTimes.NO_EDGE);
+        final int[] predecessorVertices = new int[vertexIdBound];
+        final IntBitmapSet settled = new IntBitmapSet();
+        final IntBitmapSet edges = new IntBitmapSet();
+        final ArrivalHeap heap = new ArrivalHeap();
+
+        arrivalTimes[sourceVertexId] = fromTimestamp;
+        heap.push(fromTimestamp, sourceVertexId);
+        while (!heap.isEmpty()) {
+            final long arrival = heap.peekTime();
+            final int vertexId = heap.pop();
+            if (arrival != arrivalTimes[vertexId] || !settled.add(vertexId)) {
+                // stale entry of a vertex reached earlier since
+                continue;
+            }
+            edges.clear();
+            snapshot.collectEdgesAliveSince(vertexId, direction, label, arrival, edges);
+            for (final IntIterator it = edges.iterator(); it.hasNext(); ) {
+                final int edgeId = it.nextInt();
+                final long departure = Math.max(arrival, snapshot.getEdgeCreationTime(edgeId));
+                if (departure > toTimestamp || departure >= snapshot.getEdgeEndTime(edgeId)) {
+                    continue;
+                }
+                final int srcVertexId = snapshot.getEdgeSrcVertex(edgeId);
+                final int neighbor = srcVertexId == vertexId ? snapshot.getEdgeDestVertex(edgeId) : srcVertexId;
+                if (neighbor < vertexIdBound && departure < arrivalTimes[neighbor]) {
+                    arrivalTimes[neighbor] = departure;
+                    predecessorEdges[neighbor] = edgeId;
+                    predecessorVertices[neighbor] = vertexId;
+                    heap.push(departure, neighbor);
+                }
+            }
+        }
+        return new ArrivalTimes(sourceVertexId, IntSets.unmodifiable(settled), arrivalTimes, predecessorEdges,
+                predecessorVertices);
+    }
+
+    /*
+     * Binary min heap of (arrival time, vertex) pairs held in parallel primitive arrays. Improved arrivals are
+     * pushed again rather than decreased, the stale entries are skipped when popped.
+     */
+    private static final class ArrivalHeap {
+        private long[] times = new long[64];
+        private int[] vertices = new int[64];
+        private int size = 0;
+
+        boolean isEmpty() {
+            return 0 == size;
+        }
+
+        long peekTime() {
+            return times[0];
+        }
+
+        void push(final long time, final int vertexId) {
+            if (size == times.length) {
+                times = Arrays.copyOf(times, size * 2);
+                vertices = Arrays.copyOf(vertices, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                final int parent = (i - 1) >>> 1;
+                if (times[parent] <= time) {
+                    break;
+                }
+                times[i] = times[parent];
+                vertices[i] = vertices[parent];
+                i = parent;
+            }
+            times[i] = time;
+            vertices[i] = vertexId;
+        }
+
+        int pop() {
+            final int top = vertices[0];
+            final long time = times[--size];
+            final int vertexId = vertices[size];
+            int i = 0;
+            for (int child = 1; child < size; child = 2 * i + 1) {
+                if (child + 1 < size && times[child + 1] < times[child]) {
+                    child++;
+                }
+                if (time <= times[child]) {
+                    break;
+                }
+                times[i] = times[child];
+                vertices[i] = vertices[child];
+                i = child;
+            }
+            times[i] = time;
+            vertices[i] = vertexId;
+            return top;
+        }
+    }
+}
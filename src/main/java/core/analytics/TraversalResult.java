@@ -0,0 +1,34 @@
+package core.analytics;
+
+/*
+ Copyright 2023 VMware, Inc.
+ SPDX-License-Identifier: BSD-2-Clause
+*/
+
+import it.unimi.dsi.fastutil.ints.IntSet;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Vertices reached by a traversal along with their hop distance from the closest source.
+ */
+@AllArgsConstructor
+public final class TraversalResult {
+    public static final int UNREACHED = -1;
+
+    // reached vertices including the sources
+    @Getter
+    private final IntSet reachedVertices;
+    // hop distances indexed by vertex id, UNREACHED for the other vertices
+    private final int[] distances;
+    // number of hops of the farthest reached vertex
+    @Getter
+    private final int depth;
+
+    /**
+     * @return the number of hops from the closest source to the vertex, {@link #UNREACHED} if not reached
+     */
+    public int getDistance(final int vertexId) {
+        return vertexId >= 0 && vertexId < distances.length ? distances[vertexId] : UNREACHED;
+    }
+}
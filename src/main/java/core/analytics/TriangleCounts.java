@@ -0,0 +1,48 @@
+package core.analytics;
+
+/*
+ Copyright 2023 VMware, Inc.
+ SPDX-License-Identifier: BSD-2-Clause
+*/
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Triangles of the undirected simple graph underlying a snapshot: directions, parallel edges and self loops are
+ * ignored.
+ */
+@AllArgsConstructor
+public final class TriangleCounts {
+    // number of distinct triangles
+    @Getter
+    private final long total;
+    // triangles every vertex belongs to, indexed by vertex id
+    private final long[] triangles;
+    // number of distinct neighbors of every vertex, indexed by vertex id
+    private final int[] degrees;
+
+    public long getTriangles(final int vertexId) {
+        return triangles[vertexId];
+    }
+
+    /**
+     * @return the fraction of the pairs of neighbors of the vertex which are connected, 0 for vertices with less
+     * than two neighbors
+     */
+    public double getClusteringCoefficient(final int vertexId) {
+        final long degree = degrees[vertexId];
+        return degree < 2 ? 0d : 2d * triangles[vertexId] / (degree * (degree - 1));
+    }
+
+    /**
+     * @return the fraction of the paths of length two which are closed by an edge, 0 without such paths
+     */
+    public double getTransitivity() {
+        long wedges = 0L;
+        for (final long degree : degrees) {
+            wedges += degree * (degree - 1) / 2;
+        }
+        return 0L == wedges ? 0d : 3d * total / wedges;
+    }
+}
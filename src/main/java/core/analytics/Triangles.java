@@ -0,0 +1,118 @@
+package core.analytics;
+
+/*
+ Copyright 2023 VMware, Inc.
+ SPDX-License-Identifier: BSD-2-Clause
+*/
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
+
+/**
+ * Triangle counting over a {@link CsrGraph}.
+ */
+public final class Triangles {
+    private static final int[] NO_NEIGHBORS = new int[0];
+
+    private Triangles() {
+    }
+
+    /*
+     * Algorithm
+     * Every vertex gets the sorted array of its distinct neighbors, merged from its in and out edges. The edges are
+     * then oriented from the lower to the higher ranked end point, ranking the vertices by degree and then by id,
+     * and every vertex keeps the neighbors ranked above it only. A triangle is found once, from its lowest ranked
+     * vertex v, as a neighbor x common to the oriented arrays of v and of one of its oriented neighbors w, through a
+     * merge of both sorted arrays. Orienting by degree bounds the oriented arrays by the square root of the number of
+     * edges, hence a hub neither holds nor scans its whole neighborhood again for every neighbor. The vertices are
+     * processed in parallel, the per vertex counts are accumulated atomically.
+     */
+    public static TriangleCounts count(final CsrGraph graph) {
+        final int[][] neighbors = new int[graph.vertexIdBound][];
+        final int[] degrees = new int[graph.vertexIdBound];
+        IntStream.of(graph.vertices).parallel().forEach(v -> {
+            neighbors[v] = distinctNeighbors(graph, v);
+            degrees[v] = neighbors[v].length;
+        });
+        IntStream.of(graph.vertices).parallel().forEach(v -> neighbors[v] = higherRanked(neighbors[v], v, degrees));
+
+        final AtomicLongArray triangles = new AtomicLongArray(graph.vertexIdBound);
+        final long total = IntStream.of(graph.vertices).parallel().mapToLong(v -> {
+            final int[] vNeighbors = neighbors[v];
+            long found = 0L;
+            for (final int w : vNeighbors) {
+                final int[] wNeighbors = neighbors[w];
+                // merge of the sorted arrays
+                int i = 0;
+                int j = 0;
+                while (i < vNeighbors.length && j < wNeighbors.length) {
+                    if (vNeighbors[i] < wNeighbors[j]) {
+                        i++;
+                    } else if (vNeighbors[i] > wNeighbors[j]) {
+                        j++;
+                    } else {
+                        triangles.incrementAndGet(w);
+                        triangles.incrementAndGet(vNeighbors[i]);
+                        found++;
+                        i++;
+                        j++;
+                    }
+                }
+            }
+            triangles.addAndGet(v, found);
+            return found;
+        }).sum();
+
+        final long[] counts = new long[graph.vertexIdBound];
+        for (int v = 0; v < counts.length; v++) {
+            counts[v] = triangles.get(v);
+        }
+        return new TriangleCounts(total, counts, degrees);
+    }
+
+    // sorted neighbors of the vertex in both directions, without the vertex itself
+    private static int[] distinctNeighbors(final CsrGraph graph, final int vertexId) {
+        final int outDegree = graph.getOutDegree(vertexId);
+        final int[] merged = new int[outDegree + graph.getInDegree(vertexId)];
+        if (0 == merged.length) {
+            return NO_NEIGHBORS;
+        }
+        System.arraycopy(graph.outNeighbors, graph.outOffsets[vertexId], merged, 0, outDegree);
+        System.arraycopy(graph.inNeighbors, graph.inOffsets[vertexId], merged, outDegree, merged.length - outDegree);
+        Arrays.sort(merged);
+        int size = 0;
+        for (int i = 0; i < merged.length; i++) {
+            if (merged[i] != vertexId && (0 == size || merged[size - 1] != merged[i])) {
+                merged[size++] = merged[i];
+            }
+        }
+        return size == merged.length ? merged : Arrays.copyOf(merged, size);
+    }
+
+    // neighbors ranked above the vertex, still sorted by id
+    private static int[] higherRanked(final int[] neighbors, final int vertexId, final int[] degrees) {
+        int size = 0;
+        for (final int w : neighbors) {
+            if (ranksAbove(w, vertexId, degrees)) {
+                size++;
+            }
+        }
+        if (0 == size) {
+            return NO_NEIGHBORS;
+        }
+        final int[] higher = new int[size];
+        size = 0;
+        for (final int w : neighbors) {
+            if (ranksAbove(w, vertexId, degrees)) {
+                higher[size++] = w;
+            }
+        }
+        return higher;
+    }
+
+    private static boolean ranksAbove(final int vertexId1, final int vertexId2, final int[] degrees) {
+        return degrees[vertexId1] > degrees[vertexId2]
+                || (degrees[vertexId1] == degrees[vertexId2] && vertexId1 > vertexId2);
+    }
+}
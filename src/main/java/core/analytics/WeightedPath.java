@@ -0,0 +1,23 @@
+package core.analytics;
+
+/*
+ Copyright 2023 VMware, Inc.
+ SPDX-License-Identifier: BSD-2-Clause
+*/
+
+import it.unimi.dsi.fastutil.ints.IntList;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * A path between two vertices along with its cost, the sum of the weights of its edges.
+ */
+@Getter
+@AllArgsConstructor
+public final class WeightedPath {
+    private final double cost;
+    // vertices from the source to the target, both included
+    private final IntList vertices;
+    // edges in traversal order, one less than the vertices
+    private final IntList edges;
+}
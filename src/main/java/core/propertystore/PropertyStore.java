@@ -6,22 +6,30 @@ package core.propertystore;
 */
 
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
 import it.unimi.dsi.fastutil.ints.IntSet;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import model.Property;
+import model.PropertyAggregate;
 import model.TemporalProperty;
 import transformers.MetricsDecoderEncoderHandler;
+import transformers.VarIntArrayEncoderDecoder;
+import transformers.VarIntEncoderDecoder;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 public class PropertyStore {
     private final static int DEFAULT_NUM_PROPERTIES = 0;
+    // number of samples per block of a series, a block of a numeric series is summarized and decoded on its own
+    static final int BLOCK_SIZE = 128;
     private final Int2ObjectOpenHashMap<CompressedProperty> propertyStore;
 
     public PropertyStore() {
@@ -40,6 +48,7 @@ public class PropertyStore {
         b.name(new String(p.getName()));
         b.time(p.getTime());
         b.latestTimestamp(((TemporalProperty) p).getLatestTimestamp());
+        b.timeUnit(tp.getTimeUnit());
         int[] timeDiffs = new int[valuesWithTime.size()];
         // perform delta encoding for integer and long values.
         if ((valuesWithTime.get(0).getObject() instanceof  Long) || (valuesWithTime.get(0).getObject() instanceof  Integer)) {
@@ -57,7 +66,9 @@ public class PropertyStore {
             });
             // the resultant object is a  result object that contains
             // sufficient information to decode the result back.
-            b.valueSeries(new MetricsDecoderEncoderHandler().encode(toEncode));
+            final MetricsDecoderEncoderHandler.Result<Number> encoded = new MetricsDecoderEncoderHandler().encode(toEncode);
+            b.valueSeries(encoded);
+            b.valueOffsets(blockOffsets(encoded.getEncodedData(), valuesWithTime.size()));
         } else {
             // non-integer/long values - retain objects as from source.
             Object[] values = new Object[valuesWithTime.size()];
@@ -70,31 +81,308 @@ public class PropertyStore {
             timeDiffs[i] = valuesWithTime.get(i).getTimeDifferential();
         }
         b.timeDiffs(timeDiffs);
+        b.size(valuesWithTime.size());
+        b.blocks(summarize(tp));
         propertyStore.put(propertyId, b.build());
     }
 
+    /**
+     * Tells whether the property has a numeric sample within [minValue, maxValue] sampled within [fromTs, toTs]. The
+     * zone map of a block, i.e. the min and max of its summary, rules out the blocks outside of the value range, and
+     * accepts a block lying within the time window whose min or max falls within the value range, without decoding
+     * the block. Only the remaining blocks, mostly the ones straddling a bound of the window, are decoded.
+     */
+    public boolean anyWithin(final int propertyId,
+                             final double minValue,
+                             final double maxValue,
+                             final long fromTs,
+                             final long toTs) {
+        final CompressedProperty cp = propertyStore.get(propertyId);
+        if (null == cp) {
+            return false;
+        }
+        final SampleVisitor outOfRange = (timestamp, value) -> value < minValue || value > maxValue;
+        if (null == cp.blocks) {
+            return !scan(cp, fromTs, toTs, outOfRange);
+        }
+        for (int block = 0; block < cp.blocks.length; block++) {
+            final PropertyAggregate summary = cp.blocks[block];
+            if (summary.getFirstTimestamp() > toTs) {
+                break;
+            }
+            if (summary.getLastTimestamp() < fromTs || summary.getMax() < minValue || summary.getMin() > maxValue) {
+                continue;
+            }
+            if (fromTs <= summary.getFirstTimestamp() && summary.getLastTimestamp() <= toTs
+                    && ((minValue <= summary.getMin() && summary.getMin() <= maxValue)
+                    || (minValue <= summary.getMax() && summary.getMax() <= maxValue))) {
+                return true;
+            }
+            if (!scanBlock(cp, block, fromTs, toTs, outOfRange)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds the numeric samples of the property within [fromTs, toTs] to the aggregator. A block of the series lying
+     * within the range is merged through its summary without being decoded, only the blocks straddling a bound of the
+     * range are decoded. Non numeric samples are skipped.
+     */
+    public void aggregate(final int propertyId, final long fromTs, final long toTs, final SeriesAggregator aggregator) {
+        final CompressedProperty cp = propertyStore.get(propertyId);
+        if (null == cp) {
+            return;
+        }
+        final SampleVisitor add = (timestamp, value) -> {
+            aggregator.add(timestamp, value);
+            return true;
+        };
+        if (null == cp.blocks) {
+            scan(cp, fromTs, toTs, add);
+            return;
+        }
+        for (int block = 0; block < cp.blocks.length; block++) {
+            final PropertyAggregate summary = cp.blocks[block];
+            if (summary.getFirstTimestamp() > toTs) {
+                break;
+            }
+            if (summary.getLastTimestamp() < fromTs) {
+                continue;
+            }
+            if (fromTs <= summary.getFirstTimestamp() && summary.getLastTimestamp() <= toTs) {
+                aggregator.merge(summary);
+            } else {
+                scanBlock(cp, block, fromTs, toTs, add);
+            }
+        }
+    }
+
+    /*
+     * Visits the numeric samples of a series without block summaries within [fromTs, toTs] in chronological order.
+     * Such a series holds some non numeric sample, hence is never delta encoded. Returns false if the visitor stopped
+     * the scan.
+     */
+    private static boolean scan(final CompressedProperty cp,
+                                final long fromTs,
+                                final long toTs,
+                                final SampleVisitor visitor) {
+        final int[] timeDiffs = cp.sealed ? decodeTimeDiffs(cp.encodedTimeDiffs) : cp.timeDiffs;
+        final long unitMillis = cp.timeUnit.toMillis(1L);
+        final Object[] values = (Object[]) cp.valueSeries;
+        for (int i = 0; i < timeDiffs.length; i++) {
+            final long timestamp = cp.time + unitMillis * timeDiffs[i];
+            if (timestamp > toTs) {
+                break;
+            }
+            // sealed series only retain the raw objects
+            final Object value = cp.sealed ? values[i] : ((TemporalProperty.TimeStampWithValue) values[i]).getObject();
+            if (timestamp >= fromTs && value instanceof Number
+                    && !visitor.visit(timestamp, ((Number) value).doubleValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Visits the numeric samples of a block of the series within [fromTs, toTs] in chronological order, only the
+     * block is decoded. Returns false if the visitor stopped the scan.
+     */
+    private static boolean scanBlock(final CompressedProperty cp,
+                                     final int block,
+                                     final long fromTs,
+                                     final long toTs,
+                                     final SampleVisitor visitor) {
+        final int start = block * BLOCK_SIZE;
+        final int end = Math.min(cp.size, start + BLOCK_SIZE);
+        final int[] timeDiffs = cp.sealed
+                ? decodeTimeDiffs(Arrays.copyOfRange(cp.encodedTimeDiffs, cp.timeDiffOffsets[block],
+                cp.timeDiffOffsets[block + 1]))
+                : Arrays.copyOfRange(cp.timeDiffs, start, end);
+        final long unitMillis = cp.timeUnit.toMillis(1L);
+        if (cp.valueSeries instanceof MetricsDecoderEncoderHandler.Result) {
+            final long[] values = new MetricsDecoderEncoderHandler().decodeToLongs(
+                    (MetricsDecoderEncoderHandler.Result<?>) cp.valueSeries,
+                    cp.valueOffsets[block], cp.valueOffsets[block + 1]);
+            for (int i = 0; i < timeDiffs.length; i++) {
+                final long timestamp = cp.time + unitMillis * timeDiffs[i];
+                if (timestamp > toTs) {
+                    break;
+                }
+                if (timestamp >= fromTs && !visitor.visit(timestamp, values[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        final Object[] values = (Object[]) cp.valueSeries;
+        for (int i = 0; i < timeDiffs.length; i++) {
+            final long timestamp = cp.time + unitMillis * timeDiffs[i];
+            if (timestamp > toTs) {
+                break;
+            }
+            // sealed series only retain the raw objects
+            final Object value = cp.sealed
+                    ? values[start + i]
+                    : ((TemporalProperty.TimeStampWithValue) values[start + i]).getObject();
+            if (timestamp >= fromTs && value instanceof Number
+                    && !visitor.visit(timestamp, ((Number) value).doubleValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Point lookup of the value of the property at the timestamp, i.e. the value of the latest sample not after the
+     * timestamp, without materializing the series. The block holding that sample is found by a binary search over
+     * the first timestamps of the blocks, then only the time differentials of the block are decoded and only the
+     * value of the sample.
+     * @return the value, null if the series holds no sample till the timestamp
+     */
+    public Object getValueAtTime(final int propertyId, final long timestamp) {
+        final CompressedProperty cp = propertyStore.get(propertyId);
+        if (null == cp) {
+            return null;
+        }
+        final long differential = Math.floorDiv(timestamp - cp.time, cp.timeUnit.toMillis(1L));
+        final int block = floorBlock(cp, timestamp, differential);
+        if (-1 == block) {
+            return null;
+        }
+        final int start = block * BLOCK_SIZE;
+        final int[] timeDiffs = cp.sealed
+                ? decodeTimeDiffs(Arrays.copyOfRange(cp.encodedTimeDiffs, cp.timeDiffOffsets[block],
+                cp.timeDiffOffsets[block + 1]))
+                : cp.timeDiffs;
+        final int from = cp.sealed ? 0 : start;
+        // the first sample of the block is not after the timestamp
+        int floor = from;
+        int low = from + 1;
+        int high = cp.sealed ? timeDiffs.length - 1 : Math.min(cp.size, start + BLOCK_SIZE) - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            if (timeDiffs[mid] <= differential) {
+                floor = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        final int index = start + floor - from;
+        if (cp.valueSeries instanceof MetricsDecoderEncoderHandler.Result) {
+            return new MetricsDecoderEncoderHandler().decodeAt((MetricsDecoderEncoderHandler.Result<?>) cp.valueSeries,
+                    cp.valueOffsets[block], index - start);
+        }
+        final Object value = ((Object[]) cp.valueSeries)[index];
+        // sealed series only retain the raw objects
+        return cp.sealed ? value : ((TemporalProperty.TimeStampWithValue) value).getObject();
+    }
+
+    /*
+     * The latest block whose first sample is not after the timestamp, -1 if there is none. The summaries of a
+     * numeric series hold the first timestamps of the blocks, the first differential of a block of another series
+     * is read from the series itself, the deltas of a sealed series restart at every block.
+     */
+    private static int floorBlock(final CompressedProperty cp, final long timestamp, final long differential) {
+        int floor = -1;
+        int low = 0;
+        int high = numBlocks(cp.size) - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final boolean notAfter;
+            if (null != cp.blocks) {
+                notAfter = cp.blocks[mid].getFirstTimestamp() <= timestamp;
+            } else if (cp.sealed) {
+                // a var-int spans at most 5 bytes
+                final int offset = cp.timeDiffOffsets[mid];
+                notAfter = new VarIntEncoderDecoder().decode(Arrays.copyOfRange(cp.encodedTimeDiffs, offset,
+                        Math.min(offset + 5, cp.timeDiffOffsets[mid + 1]))) <= differential;
+            } else {
+                notAfter = cp.timeDiffs[mid * BLOCK_SIZE] <= differential;
+            }
+            if (notAfter) {
+                floor = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return floor;
+    }
+
+    // summaries of the blocks of a series holding numeric samples only, null otherwise
+    private static PropertyAggregate[] summarize(final TemporalProperty tp) {
+        final List<TemporalProperty.TimeStampWithValue> values = tp.getValues();
+        final PropertyAggregate[] blocks = new PropertyAggregate[numBlocks(values.size())];
+        for (int block = 0; block < blocks.length; block++) {
+            final SeriesAggregator aggregator = new SeriesAggregator();
+            final int end = Math.min(values.size(), (block + 1) * BLOCK_SIZE);
+            for (int i = block * BLOCK_SIZE; i < end; i++) {
+                final TemporalProperty.TimeStampWithValue value = values.get(i);
+                if (!(value.getObject() instanceof Number)) {
+                    return null;
+                }
+                aggregator.add(tp.toTimestamp(value.getTimeDifferential()), ((Number) value.getObject()).doubleValue());
+            }
+            blocks[block] = aggregator.toAggregate();
+        }
+        return blocks;
+    }
+
+    private static int numBlocks(final int size) {
+        return (size + BLOCK_SIZE - 1) / BLOCK_SIZE;
+    }
+
+    /*
+     * Byte offsets of the blocks within a var-int encoded series of the size, followed by the end of the series. A
+     * var-int ends at a byte without its most significant bit set.
+     */
+    private static int[] blockOffsets(final byte[] encoded, final int size) {
+        final int[] offsets = new int[numBlocks(size) + 1];
+        int count = 0;
+        int block = 1;
+        for (int i = 0; i < encoded.length && block < offsets.length; i++) {
+            if (0 == (encoded[i] & 0b10000000) && 0 == ++count % BLOCK_SIZE) {
+                offsets[block++] = i + 1;
+            }
+        }
+        offsets[offsets.length - 1] = encoded.length;
+        return offsets;
+    }
+
     public Property get(final int propertyId) {
-        if (!propertyStore.containsKey(propertyId)) {
+        CompressedProperty cp = propertyStore.get(propertyId);
+        if (null == cp) {
             return null;
         }
-        CompressedProperty cp = (propertyStore.get(propertyId));
         TemporalProperty.TemporalPropertyBuilder b = TemporalProperty.builder();
         b.id(propertyId);
         b.name(cp.name);
         b.time(cp.time);
         b.latestTimestamp(cp.latestTimestamp);
+        b.timeUnit(cp.timeUnit);
         ArrayList<TemporalProperty.TimeStampWithValue> valuesWithTime = new ArrayList<>();
+        final int[] timeDiffs = cp.sealed ? decodeTimeDiffs(cp.encodedTimeDiffs) : cp.timeDiffs;
         // the data was encoded using delta encoding
         if (cp.valueSeries instanceof MetricsDecoderEncoderHandler.Result) {
             MetricsDecoderEncoderHandler.Result<Number> res = (MetricsDecoderEncoderHandler.Result)(cp.valueSeries);
             List<Number> decoded = new MetricsDecoderEncoderHandler().decode(res);
 
-            for (int  i = 0; i < cp.timeDiffs.length; i++) {
-                TemporalProperty.TimeStampWithValue tsv = new TemporalProperty.TimeStampWithValue(cp.timeDiffs[i], decoded.get(i));
+            for (int  i = 0; i < timeDiffs.length; i++) {
+                TemporalProperty.TimeStampWithValue tsv = new TemporalProperty.TimeStampWithValue(timeDiffs[i], decoded.get(i));
                 valuesWithTime.add(tsv);
             }
+        } else if (cp.sealed) {
+            // sealed series only retain the raw objects
+            Object[] values = (Object[])(cp.valueSeries);
+            for (int  i = 0; i < timeDiffs.length; i++) {
+                valuesWithTime.add(new TemporalProperty.TimeStampWithValue(timeDiffs[i], values[i]));
+            }
         } else {
-            for (int  i = 0; i < cp.timeDiffs.length; i++) {
+            for (int  i = 0; i < timeDiffs.length; i++) {
                 Object[] values = (Object[])(cp.valueSeries);
                 valuesWithTime.add((TemporalProperty.TimeStampWithValue)values[i]);
             }
@@ -108,6 +396,14 @@ public class PropertyStore {
         return propertyStore.containsKey(propertyId);
     }
 
+    public void remove(final int propertyId) {
+        propertyStore.remove(propertyId);
+    }
+
+    public IntSet getPropertyIds() {
+        return propertyStore.keySet();
+    }
+
     public Map<Integer, Property> getProperties() {
         Map<Integer, Property> properties = new HashMap<>();
         for (Map.Entry<Integer, CompressedProperty> entry : propertyStore.entrySet()) {
@@ -117,6 +413,57 @@ public class PropertyStore {
         return properties;
     }
 
+    /**
+     * Re-encodes the series of a property which is not expected to receive new values anymore.
+     * The time differentials of a sealed series are stored as delta encoded var-ints, the deltas restart at every
+     * block so that a block decodes on its own, and non-numeric values are stored without their timestamp wrappers.
+     * A sealed series can still be appended to, in which case it is stored in the regular form again.
+     * @param propertyId the identifier of the property to be sealed
+     * @return true if the series got re-encoded
+     */
+    public boolean seal(final int propertyId) {
+        final CompressedProperty cp = propertyStore.get(propertyId);
+        if (null == cp || cp.sealed) {
+            return false;
+        }
+        final int[] deltas = new int[cp.timeDiffs.length];
+        for (int i = 0; i < cp.timeDiffs.length; i++) {
+            deltas[i] = cp.timeDiffs[i] - (0 == i % BLOCK_SIZE ? 0 : cp.timeDiffs[i - 1]);
+            // var-int encoding does not support negative values
+            if (deltas[i] < 0) {
+                return false;
+            }
+        }
+        Object valueSeries = cp.valueSeries;
+        if (!(valueSeries instanceof MetricsDecoderEncoderHandler.Result)) {
+            final Object[] wrapped = (Object[]) valueSeries;
+            final Object[] values = new Object[wrapped.length];
+            for (int i = 0; i < wrapped.length; i++) {
+                values[i] = ((TemporalProperty.TimeStampWithValue) wrapped[i]).getObject();
+            }
+            valueSeries = values;
+        }
+        final byte[] encodedTimeDiffs = new VarIntArrayEncoderDecoder().encode(deltas);
+        propertyStore.put(propertyId, cp.toBuilder()
+                .timeDiffs(null)
+                .encodedTimeDiffs(encodedTimeDiffs)
+                .timeDiffOffsets(blockOffsets(encodedTimeDiffs, cp.size))
+                .valueSeries(valueSeries)
+                .sealed(true)
+                .build());
+        return true;
+    }
+
+    private static int[] decodeTimeDiffs(final byte[] encodedTimeDiffs) {
+        final int[] timeDiffs = new VarIntArrayEncoderDecoder().decode(encodedTimeDiffs);
+        for (int i = 1; i < timeDiffs.length; i++) {
+            if (0 != i % BLOCK_SIZE) {
+                timeDiffs[i] += timeDiffs[i - 1];
+            }
+        }
+        return timeDiffs;
+    }
+
     public boolean trim() {
         return this.propertyStore.trim();
     }
@@ -127,12 +474,27 @@ public class PropertyStore {
             if (null == p) {
                 continue;
             }
-            if (p.purgeTimeSeriesUntilTime(timestamp)) {
+            if (!p.purgeTimeSeriesUntilTime(timestamp)) {
+                continue;
+            }
+            // a series without any remaining value can't be encoded, drop it altogether.
+            if (((TemporalProperty) p).getValues().isEmpty()) {
+                this.remove(propId);
+            } else {
                 this.put(propId, p);
             }
         }
     }
 
+    public void purgeTillTime(final long timestamp) {
+        purgePropertiesTillTime(new IntOpenHashSet(propertyStore.keySet()), timestamp);
+    }
+
+    private interface SampleVisitor {
+        // returns false to stop the scan
+        boolean visit(long timestamp, double value);
+    }
+
     @Data
     @AllArgsConstructor
     @Builder(toBuilder = true)
@@ -142,6 +504,19 @@ public class PropertyStore {
         private final long time;
         private final int[] timeDiffs;
         private final Object valueSeries;
+        // number of samples of the series
+        private final int size;
         private final long latestTimestamp;
+        private final TimeUnit timeUnit;
+        // delta encoded time differentials of a sealed series
+        private final byte[] encodedTimeDiffs;
+        private final boolean sealed;
+        // byte offsets of the blocks within the delta encoded value series, followed by the end of the series
+        private final int[] valueOffsets;
+        // byte offsets of the blocks within the encoded time differentials of a sealed series
+        private final int[] timeDiffOffsets;
+        // statistics of the blocks of BLOCK_SIZE samples of a numeric series, null for the series holding other values.
+        // The min and max of the blocks are the zone maps of the series
+        private final PropertyAggregate[] blocks;
     }
 }
@@ -0,0 +1,169 @@
+package core.propertystore;
+
+/*
+ Copyright 2023 VMware, Inc.
+ SPDX-License-Identifier: BSD-2-Clause
+*/
+
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import model.RollupBucket;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Rollup tiers of a numeric property series, every tier holding the count, sum, min and max of the samples per
+ * bucket of its resolution. Buckets are aligned to multiples of the resolution. The tiers are maintained as the
+ * samples are appended and are independent of the time partitions holding the raw samples, hence they may be
+ * retained for longer.
+ */
+public class RollupSeries {
+    // tiers by increasing resolution
+    private final Tier[] tiers;
+
+    public RollupSeries(final long[] resolutionsMillis) {
+        final long[] sorted = resolutionsMillis.clone();
+        Arrays.sort(sorted);
+        tiers = new Tier[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            tiers[i] = new Tier(sorted[i]);
+        }
+    }
+
+    public synchronized void add(final long timestamp, final double value) {
+        for (final Tier tier : tiers) {
+            tier.add(timestamp, 1L, value, value, value);
+        }
+    }
+
+    /**
+     * @param resolutionMillis the requested resolution
+     * @return the resolution of the coarsest tier dividing the requested resolution, 0 if there is none
+     */
+    public long getTierResolution(final long resolutionMillis) {
+        for (int i = tiers.length - 1; i >= 0; i--) {
+            if (resolutionMillis % tiers[i].resolution == 0L) {
+                return tiers[i].resolution;
+            }
+        }
+        return 0L;
+    }
+
+    /**
+     * Downsamples the coarsest tier dividing the requested resolution to that resolution.
+     * @return the buckets overlapping [fromTs, toTs], null if no tier divides the resolution
+     */
+    public synchronized List<RollupBucket> getBuckets(final long fromTs, final long toTs, final long resolutionMillis) {
+        final long tierResolution = getTierResolution(resolutionMillis);
+        if (0L == tierResolution) {
+            return null;
+        }
+        Tier tier = null;
+        for (final Tier t : tiers) {
+            if (t.resolution == tierResolution) {
+                tier = t;
+            }
+        }
+        final Tier downsampled = new Tier(resolutionMillis);
+        // the tier buckets nest within the buckets of the resolution
+        final long lastTs = alignTo(toTs, resolutionMillis) + (resolutionMillis - 1L);
+        for (int i = tier.indexOf(alignTo(fromTs, resolutionMillis)); i < tier.starts.size(); i++) {
+            if (tier.starts.getLong(i) > lastTs) {
+                break;
+            }
+            downsampled.add(tier.starts.getLong(i), tier.counts.getLong(i), tier.sums.getDouble(i),
+                    tier.mins.getDouble(i), tier.maxs.getDouble(i));
+        }
+        return downsampled.toBuckets();
+    }
+
+    /**
+     * Drops the buckets of every tier ending at or before the timestamp.
+     */
+    public synchronized void purgeTill(final long timestamp) {
+        for (final Tier tier : tiers) {
+            tier.purgeTill(timestamp);
+        }
+    }
+
+    public synchronized boolean isEmpty() {
+        return 0 == tiers.length || tiers[tiers.length - 1].starts.isEmpty();
+    }
+
+    public static long alignTo(final long timestamp, final long resolutionMillis) {
+        return timestamp - Math.floorMod(timestamp, resolutionMillis);
+    }
+
+    /**
+     * Buckets of a single resolution, kept sorted by their start within parallel primitive lists.
+     */
+    public static final class Tier {
+        private final long resolution;
+        private final LongArrayList starts = new LongArrayList();
+        private final LongArrayList counts = new LongArrayList();
+        private final DoubleArrayList sums = new DoubleArrayList();
+        private final DoubleArrayList mins = new DoubleArrayList();
+        private final DoubleArrayList maxs = new DoubleArrayList();
+
+        public Tier(final long resolutionMillis) {
+            this.resolution = resolutionMillis;
+        }
+
+        /**
+         * Adds the samples, or a finer bucket, starting at the timestamp to the bucket covering it.
+         */
+        public void add(final long timestamp, final long count, final double sum, final double min, final double max) {
+            final long start = alignTo(timestamp, resolution);
+            final int last = starts.size() - 1;
+            // samples mostly arrive in order and land in the last bucket
+            int i = last >= 0 && starts.getLong(last) == start ? last : indexOf(start);
+            if (i == starts.size() || starts.getLong(i) != start) {
+                starts.add(i, start);
+                counts.add(i, count);
+                sums.add(i, sum);
+                mins.add(i, min);
+                maxs.add(i, max);
+                return;
+            }
+            counts.set(i, counts.getLong(i) + count);
+            sums.set(i, sums.getDouble(i) + sum);
+            mins.set(i, Math.min(mins.getDouble(i), min));
+            maxs.set(i, Math.max(maxs.getDouble(i), max));
+        }
+
+        public List<RollupBucket> toBuckets() {
+            final List<RollupBucket> buckets = new ArrayList<>(starts.size());
+            for (int i = 0; i < starts.size(); i++) {
+                buckets.add(new RollupBucket(starts.getLong(i), counts.getLong(i), sums.getDouble(i),
+                        mins.getDouble(i), maxs.getDouble(i)));
+            }
+            return buckets;
+        }
+
+        // index of the first bucket starting at or after the timestamp
+        private int indexOf(final long start) {
+            int low = 0;
+            int high = starts.size();
+            while (low < high) {
+                final int mid = (low + high) >>> 1;
+                if (starts.getLong(mid) < start) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private void purgeTill(final long timestamp) {
+            final int dropped = indexOf(timestamp - resolution + 1L);
+            starts.removeElements(0, dropped);
+            counts.removeElements(0, dropped);
+            sums.removeElements(0, dropped);
+            mins.removeElements(0, dropped);
+            maxs.removeElements(0, dropped);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package core.propertystore;
+
+/*
+ Copyright 2023 VMware, Inc.
+ SPDX-License-Identifier: BSD-2-Clause
+*/
+
+import model.PropertyAggregate;
+
+/**
+ * Accumulates the numeric samples of a series, and the summaries of whole blocks of samples, into a
+ * {@link PropertyAggregate}. Samples and blocks are expected in chronological order.
+ */
+public class SeriesAggregator {
+    private long count = 0L;
+    private double sum = 0d;
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+    private long firstTimestamp = 0L;
+    private double firstValue = Double.NaN;
+    private long lastTimestamp = 0L;
+    private double lastValue = Double.NaN;
+
+    public void add(final long timestamp, final double value) {
+        if (0L == count) {
+            min = value;
+            max = value;
+            firstTimestamp = timestamp;
+            firstValue = value;
+        } else {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        count++;
+        sum += value;
+        lastTimestamp = timestamp;
+        lastValue = value;
+    }
+
+    public void merge(final PropertyAggregate block) {
+        if (0L == block.getCount()) {
+            return;
+        }
+        if (0L == count) {
+            min = block.getMin();
+            max = block.getMax();
+            firstTimestamp = block.getFirstTimestamp();
+            firstValue = block.getFirstValue();
+        } else {
+            min = Math.min(min, block.getMin());
+            max = Math.max(max, block.getMax());
+        }
+        count += block.getCount();
+        sum += block.getSum();
+        lastTimestamp = block.getLastTimestamp();
+        lastValue = block.getLastValue();
+    }
+
+    public PropertyAggregate toAggregate() {
+        return new PropertyAggregate(count, 0L == count ? Double.NaN : sum, min, max, firstTimestamp, firstValue,
+                lastTimestamp, lastValue);
+    }
+}
@@ -0,0 +1,46 @@
+package core.utils;
+
+/*
+ Copyright 2023 VMware, Inc.
+ SPDX-License-Identifier: BSD-2-Clause
+*/
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed size bit set whose bits may be set concurrently. Setting a bit tells whether the caller set it first,
+ * which lets parallel workers claim the bits, e.g. the vertices visited by a traversal, without locking.
+ */
+public class AtomicBitSet {
+    private final AtomicLongArray words;
+    private final int size;
+
+    public AtomicBitSet(final int size) {
+        this.words = new AtomicLongArray((size + 63) >>> 6);
+        this.size = size;
+    }
+
+    /**
+     * @return true if the bit has been set by this call, false if it was already set
+     */
+    public boolean set(final int index) {
+        final int word = index >>> 6;
+        final long mask = 1L << index;
+        long current;
+        do {
+            current = words.get(word);
+            if ((current & mask) != 0L) {
+                return false;
+            }
+        } while (!words.compareAndSet(word, current, current | mask));
+        return true;
+    }
+
+    public boolean get(final int index) {
+        return (words.get(index >>> 6) & (1L << index)) != 0L;
+    }
+
+    public int size() {
+        return size;
+    }
+}
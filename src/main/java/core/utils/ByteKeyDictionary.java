@@ -0,0 +1,272 @@
+package core.utils;
+
+/*
+ Copyright 2023 VMware, Inc.
+ SPDX-License-Identifier: BSD-2-Clause
+*/
+
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * A dictionary between byte string keys and non negative int ids, e.g. the external keys of the vertices and
+ * their graph identifiers.
+ * The keys are copied back to back into a single byte arena, each one prefixed by its varint length, and are
+ * located through an open addressed table of arena offsets using linear probing. The table stores the hash of the
+ * keys next to their offsets so that only matching hashes are compared byte by byte. Every id maps back to the
+ * offset of its key, which makes the reverse lookup a single array access.
+ * Compared to a {@code HashMap<String, Integer>} there is no object per entry, neither for the key nor for the id.
+ * The dictionary is not thread safe.
+ */
+public class ByteKeyDictionary {
+    public static final int NO_ID = -1;
+    private static final int EMPTY = -1;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    // arena offsets of the keys, EMPTY for free slots
+    private int[] slotOffsets;
+    // hashes of the keys of the slots
+    private int[] slotHashes;
+    // ids of the keys of the slots
+    private int[] slotIds;
+    private int mask;
+    private int size = 0;
+
+    private byte[] arena = new byte[1024];
+    private int arenaSize = 0;
+
+    // arena offset of the key of every id, EMPTY for the ids without a key
+    private final IntArrayList idOffsets = new IntArrayList();
+
+    public ByteKeyDictionary() {
+        this(16);
+    }
+
+    public ByteKeyDictionary(final int expectedSize) {
+        allocate(HashCommon.arraySize(Math.max(2, expectedSize), LOAD_FACTOR));
+    }
+
+    /**
+     * @param key the key to look up
+     * @return the id of the key, {@link #NO_ID} if the key is unknown
+     */
+    public int get(final byte[] key) {
+        final int hash = hash(key);
+        for (int slot = hash & mask; EMPTY != slotOffsets[slot]; slot = (slot + 1) & mask) {
+            if (slotHashes[slot] == hash && keyEquals(slotOffsets[slot], key)) {
+                return slotIds[slot];
+            }
+        }
+        return NO_ID;
+    }
+
+    /**
+     * Resolves the id of a key with a single probe of the table.
+     * @param key      the key to resolve
+     * @param resolver invoked with the current id of the key, {@link #NO_ID} if the key is unknown, and returning
+     *                 the id the key should map to from now on
+     * @return the id returned by the resolver
+     */
+    public int getOrAdd(final byte[] key, final IntUnaryOperator resolver) {
+        final int hash = hash(key);
+        int slot = hash & mask;
+        for (; EMPTY != slotOffsets[slot]; slot = (slot + 1) & mask) {
+            if (slotHashes[slot] == hash && keyEquals(slotOffsets[slot], key)) {
+                final int id = resolver.applyAsInt(slotIds[slot]);
+                if (id != slotIds[slot]) {
+                    slotIds[slot] = id;
+                    bindId(id, slotOffsets[slot]);
+                }
+                return id;
+            }
+        }
+        final int id = resolver.applyAsInt(NO_ID);
+        final int offset = appendKey(key);
+        slotOffsets[slot] = offset;
+        slotHashes[slot] = hash;
+        slotIds[slot] = id;
+        bindId(id, offset);
+        if (++size > (mask + 1) * LOAD_FACTOR) {
+            rehash((mask + 1) * 2);
+        }
+        return id;
+    }
+
+    /**
+     * @param id the id to look up
+     * @return a copy of the key of the id, null if the id has no key
+     */
+    public byte[] getKey(final int id) {
+        if (id < 0 || id >= idOffsets.size() || EMPTY == idOffsets.getInt(id)) {
+            return null;
+        }
+        final int offset = idOffsets.getInt(id);
+        final int length = readLength(offset);
+        final int start = offset + lengthBytes(length);
+        return Arrays.copyOfRange(arena, start, start + length);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Forgets the ids matching the filter: the keys bound to these ids become unknown and the ids lose their key.
+     * The table and the arena are rebuilt with the remaining keys only, so that the space of the forgotten keys is
+     * reclaimed.
+     * @param filter tells whether an id is to be forgotten
+     * @return the number of keys forgotten
+     */
+    public int removeIf(final IntPredicate filter) {
+        final byte[] oldArena = arena;
+        arena = new byte[Math.max(1024, arenaSize)];
+        arenaSize = 0;
+        // the keys bound to several ids, i.e. rebound keys, are copied once
+        final Int2IntOpenHashMap offsets = new Int2IntOpenHashMap();
+        offsets.defaultReturnValue(EMPTY);
+        for (int id = 0; id < idOffsets.size(); id++) {
+            final int offset = idOffsets.getInt(id);
+            if (EMPTY == offset) {
+                continue;
+            }
+            if (filter.test(id)) {
+                idOffsets.set(id, EMPTY);
+                continue;
+            }
+            int moved = offsets.get(offset);
+            if (EMPTY == moved) {
+                moved = copyKey(oldArena, offset);
+                offsets.put(offset, moved);
+            }
+            idOffsets.set(id, moved);
+        }
+        final int[] oldOffsets = slotOffsets;
+        final int[] oldHashes = slotHashes;
+        final int[] oldIds = slotIds;
+        final int removed = size;
+        allocate(HashCommon.arraySize(Math.max(2, offsets.size()), LOAD_FACTOR));
+        size = 0;
+        for (int i = 0; i < oldOffsets.length; i++) {
+            if (EMPTY != oldOffsets[i] && !filter.test(oldIds[i])) {
+                int slot = oldHashes[i] & mask;
+                while (EMPTY != slotOffsets[slot]) {
+                    slot = (slot + 1) & mask;
+                }
+                slotOffsets[slot] = offsets.get(oldOffsets[i]);
+                slotHashes[slot] = oldHashes[i];
+                slotIds[slot] = oldIds[i];
+                size++;
+            }
+        }
+        return removed - size;
+    }
+
+    private void bindId(final int id, final int offset) {
+        while (idOffsets.size() <= id) {
+            idOffsets.add(EMPTY);
+        }
+        idOffsets.set(id, offset);
+    }
+
+    private int appendKey(final byte[] key) {
+        final int required = arenaSize + lengthBytes(key.length) + key.length;
+        if (required > arena.length) {
+            arena = Arrays.copyOf(arena, (int) Math.min(Integer.MAX_VALUE - 8L, Math.max(required, 2L * arena.length)));
+        }
+        final int offset = arenaSize;
+        int length = key.length;
+        // varint length prefix
+        while ((length & ~0x7F) != 0) {
+            arena[arenaSize++] = (byte) ((length & 0x7F) | 0x80);
+            length >>>= 7;
+        }
+        arena[arenaSize++] = (byte) length;
+        System.arraycopy(key, 0, arena, arenaSize, key.length);
+        arenaSize += key.length;
+        return offset;
+    }
+
+    // copies a key along with its length prefix from the arena to the end of the current arena
+    private int copyKey(final byte[] from, final int offset) {
+        final int length = readLength(from, offset);
+        final int entryLength = lengthBytes(length) + length;
+        final int moved = arenaSize;
+        System.arraycopy(from, offset, arena, arenaSize, entryLength);
+        arenaSize += entryLength;
+        return moved;
+    }
+
+    private int readLength(final int offset) {
+        return readLength(arena, offset);
+    }
+
+    private static int readLength(final byte[] arena, final int offset) {
+        int length = 0;
+        int shift = 0;
+        int position = offset;
+        byte b;
+        do {
+            b = arena[position++];
+            length |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return length;
+    }
+
+    private boolean keyEquals(final int offset, final byte[] key) {
+        final int length = readLength(offset);
+        if (length != key.length) {
+            return false;
+        }
+        final int start = offset + lengthBytes(length);
+        for (int i = 0; i < length; i++) {
+            if (arena[start + i] != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rehash(final int capacity) {
+        final int[] oldOffsets = slotOffsets;
+        final int[] oldHashes = slotHashes;
+        final int[] oldIds = slotIds;
+        allocate(capacity);
+        for (int i = 0; i < oldOffsets.length; i++) {
+            if (EMPTY != oldOffsets[i]) {
+                int slot = oldHashes[i] & mask;
+                while (EMPTY != slotOffsets[slot]) {
+                    slot = (slot + 1) & mask;
+                }
+                slotOffsets[slot] = oldOffsets[i];
+                slotHashes[slot] = oldHashes[i];
+                slotIds[slot] = oldIds[i];
+            }
+        }
+    }
+
+    private void allocate(final int capacity) {
+        slotOffsets = new int[capacity];
+        Arrays.fill(slotOffsets, EMPTY);
+        slotHashes = new int[capacity];
+        slotIds = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    private static int lengthBytes(final int length) {
+        int bytes = 1;
+        for (int l = length >>> 7; l != 0; l >>>= 7) {
+            bytes++;
+        }
+        return bytes;
+    }
+
+    private static int hash(final byte[] key) {
+        return HashCommon.mix(Arrays.hashCode(key));
+    }
+}
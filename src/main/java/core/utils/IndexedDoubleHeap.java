@@ -0,0 +1,111 @@
+package core.utils;
+
+/*
+ Copyright 2023 VMware, Inc.
+ SPDX-License-Identifier: BSD-2-Clause
+*/
+
+import java.util.Arrays;
+
+/**
+ * Binary min heap of the ids [0, capacity) keyed by a double, which locates every id within the heap so that the
+ * key of an id can be decreased in place, e.g. the tentative distances of a shortest path search. The heap is
+ * held in primitive arrays, nothing is allocated per operation.
+ */
+public class IndexedDoubleHeap {
+    private static final int ABSENT = -1;
+
+    private final int[] ids;
+    private final double[] keys;
+    // position of every id within the heap, ABSENT for the ids out of the heap
+    private final int[] positions;
+    private int size = 0;
+
+    public IndexedDoubleHeap(final int capacity) {
+        this.ids = new int[capacity];
+        this.keys = new double[capacity];
+        this.positions = new int[capacity];
+        Arrays.fill(positions, ABSENT);
+    }
+
+    public boolean isEmpty() {
+        return 0 == size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(final int id) {
+        return ABSENT != positions[id];
+    }
+
+    /**
+     * Adds the id with the key, or lowers the key of the id if it's already in the heap and the key is lower.
+     * @return true if the heap has changed
+     */
+    public boolean insertOrDecrease(final int id, final double key) {
+        int position = positions[id];
+        if (ABSENT == position) {
+            position = size++;
+        } else if (key >= keys[position]) {
+            return false;
+        }
+        siftUp(position, id, key);
+        return true;
+    }
+
+    public double peekKey() {
+        return keys[0];
+    }
+
+    public int peek() {
+        return ids[0];
+    }
+
+    /**
+     * @return the id with the lowest key, removed from the heap
+     */
+    public int poll() {
+        final int top = ids[0];
+        positions[top] = ABSENT;
+        if (--size > 0) {
+            siftDown(ids[size], keys[size]);
+        }
+        return top;
+    }
+
+    private void siftUp(final int from, final int id, final double key) {
+        int i = from;
+        while (i > 0) {
+            final int parent = (i - 1) >>> 1;
+            if (keys[parent] <= key) {
+                break;
+            }
+            place(i, ids[parent], keys[parent]);
+            i = parent;
+        }
+        place(i, id, key);
+    }
+
+    private void siftDown(final int id, final double key) {
+        int i = 0;
+        for (int child = 1; child < size; child = 2 * i + 1) {
+            if (child + 1 < size && keys[child + 1] < keys[child]) {
+                child++;
+            }
+            if (key <= keys[child]) {
+                break;
+            }
+            place(i, ids[child], keys[child]);
+            i = child;
+        }
+        place(i, id, key);
+    }
+
+    private void place(final int position, final int id, final double key) {
+        ids[position] = id;
+        keys[position] = key;
+        positions[id] = position;
+    }
+}
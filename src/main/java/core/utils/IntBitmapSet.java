@@ -0,0 +1,655 @@
+package core.utils;
+
+/*
+ Copyright 2023 VMware, Inc.
+ SPDX-License-Identifier: BSD-2-Clause
+*/
+
+import it.unimi.dsi.fastutil.ints.AbstractIntSet;
+import it.unimi.dsi.fastutil.ints.IntCollection;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A compressed bitmap set of ints in the spirit of Roaring bitmaps.
+ * The values are split by their 16 high bits into chunks, every chunk holding the 16 low bits of its values
+ * either as a sorted array of chars (sparse chunks) or as a bitmap of 65536 bits (dense chunks). Sequentially
+ * assigned ids hence cost about 2 bytes each in sparse chunks and 1 bit each in dense ones, instead of the
+ * 4 bytes plus the load factor slack of a hash set.
+ * The unions, intersections and differences with another bitmap set are performed in place, chunk by chunk,
+ * a word at a time for dense chunks. Values are iterated in ascending unsigned order.
+ * Like the fastutil collections the set is not thread safe.
+ */
+public class IntBitmapSet extends AbstractIntSet {
+    // chunks holding more values than this are stored as bitmaps, both representations weigh 8KB at the threshold
+    private static final int MAX_ARRAY_CARDINALITY = 4096;
+    private static final int BITMAP_WORDS = 1024;
+    private static final char[] EMPTY_KEYS = new char[0];
+    private static final Chunk[] EMPTY_CHUNKS = new Chunk[0];
+
+    // sorted high bits of the chunks
+    private char[] keys = EMPTY_KEYS;
+    private Chunk[] chunks = EMPTY_CHUNKS;
+    private int chunkCount = 0;
+    private int size = 0;
+
+    public IntBitmapSet() {
+    }
+
+    /**
+     * Creates a copy of the set with every chunk trimmed to its content.
+     * @param other the set to copy
+     */
+    public IntBitmapSet(final IntBitmapSet other) {
+        this.keys = Arrays.copyOf(other.keys, other.chunkCount);
+        this.chunks = new Chunk[other.chunkCount];
+        for (int i = 0; i < other.chunkCount; i++) {
+            this.chunks[i] = other.chunks[i].copy();
+        }
+        this.chunkCount = other.chunkCount;
+        this.size = other.size;
+    }
+
+    @Override
+    public boolean add(final int value) {
+        final char high = high(value);
+        int index = findChunk(high);
+        if (index < 0) {
+            index = -index - 1;
+            insertChunk(index, high, new ArrayChunk());
+        }
+        final Chunk chunk = chunks[index];
+        final int cardinality = chunk.cardinality();
+        chunks[index] = chunk.add(low(value));
+        if (chunks[index].cardinality() == cardinality) {
+            return false;
+        }
+        size++;
+        return true;
+    }
+
+    @Override
+    public boolean remove(final int value) {
+        final int index = findChunk(high(value));
+        if (index < 0) {
+            return false;
+        }
+        final Chunk chunk = chunks[index];
+        final int cardinality = chunk.cardinality();
+        chunks[index] = chunk.remove(low(value));
+        if (chunks[index].cardinality() == cardinality) {
+            return false;
+        }
+        size--;
+        if (0 == chunks[index].cardinality()) {
+            removeChunk(index);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean contains(final int value) {
+        final int index = findChunk(high(value));
+        return index >= 0 && chunks[index].contains(low(value));
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return 0 == size;
+    }
+
+    @Override
+    public void clear() {
+        keys = EMPTY_KEYS;
+        chunks = EMPTY_CHUNKS;
+        chunkCount = 0;
+        size = 0;
+    }
+
+    @Override
+    public boolean addAll(final IntCollection c) {
+        if (c instanceof IntBitmapSet) {
+            final int previousSize = size;
+            or((IntBitmapSet) c);
+            return size != previousSize;
+        }
+        return super.addAll(c);
+    }
+
+    @Override
+    public boolean retainAll(final IntCollection c) {
+        if (c instanceof IntBitmapSet) {
+            final int previousSize = size;
+            and((IntBitmapSet) c);
+            return size != previousSize;
+        }
+        return super.retainAll(c);
+    }
+
+    @Override
+    public boolean removeAll(final IntCollection c) {
+        if (c instanceof IntBitmapSet) {
+            final int previousSize = size;
+            andNot((IntBitmapSet) c);
+            return size != previousSize;
+        }
+        return super.removeAll(c);
+    }
+
+    /**
+     * In place union with another set.
+     * @param other the set to add
+     */
+    public void or(final IntBitmapSet other) {
+        if (0 == other.chunkCount) {
+            return;
+        }
+        final char[] mergedKeys = new char[chunkCount + other.chunkCount];
+        final Chunk[] mergedChunks = new Chunk[chunkCount + other.chunkCount];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < chunkCount || j < other.chunkCount) {
+            final int cmp = i == chunkCount ? 1 : j == other.chunkCount ? -1 : Character.compare(keys[i], other.keys[j]);
+            if (cmp < 0) {
+                mergedKeys[k] = keys[i];
+                mergedChunks[k++] = chunks[i++];
+            } else if (cmp > 0) {
+                mergedKeys[k] = other.keys[j];
+                mergedChunks[k++] = other.chunks[j++].copy();
+            } else {
+                mergedKeys[k] = keys[i];
+                mergedChunks[k++] = chunks[i++].or(other.chunks[j++]);
+            }
+        }
+        replaceChunks(mergedKeys, mergedChunks, k);
+    }
+
+    /**
+     * In place intersection with another set.
+     * @param other the set to retain
+     */
+    public void and(final IntBitmapSet other) {
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < chunkCount && j < other.chunkCount) {
+            final int cmp = Character.compare(keys[i], other.keys[j]);
+            if (cmp < 0) {
+                i++;
+            } else if (cmp > 0) {
+                j++;
+            } else {
+                final Chunk chunk = chunks[i].and(other.chunks[j++]);
+                if (chunk.cardinality() > 0) {
+                    keys[k] = keys[i];
+                    chunks[k++] = chunk;
+                }
+                i++;
+            }
+        }
+        Arrays.fill(chunks, k, chunkCount, null);
+        replaceChunks(keys, chunks, k);
+    }
+
+    /**
+     * In place difference with another set.
+     * @param other the set to remove
+     */
+    public void andNot(final IntBitmapSet other) {
+        if (other == this) {
+            clear();
+            return;
+        }
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < chunkCount) {
+            final int cmp = j == other.chunkCount ? -1 : Character.compare(keys[i], other.keys[j]);
+            if (cmp > 0) {
+                j++;
+                continue;
+            }
+            final Chunk chunk = 0 == cmp ? chunks[i].andNot(other.chunks[j++]) : chunks[i];
+            if (chunk.cardinality() > 0) {
+                keys[k] = keys[i];
+                chunks[k++] = chunk;
+            }
+            i++;
+        }
+        Arrays.fill(chunks, k, chunkCount, null);
+        replaceChunks(keys, chunks, k);
+    }
+
+    @Override
+    public IntIterator iterator() {
+        return new IntIterator() {
+            private int chunkIndex = 0;
+            private int valueIndex = 0;
+            private int next = advance();
+            private boolean hasNext = chunkIndex < chunkCount;
+            private int last;
+            private boolean canRemove = false;
+
+            @Override
+            public boolean hasNext() {
+                return hasNext;
+            }
+
+            @Override
+            public int nextInt() {
+                if (!hasNext) {
+                    throw new NoSuchElementException();
+                }
+                final int value = next;
+                valueIndex++;
+                next = advance();
+                hasNext = chunkIndex < chunkCount;
+                last = value;
+                canRemove = true;
+                return value;
+            }
+
+            @Override
+            public void remove() {
+                if (!canRemove) {
+                    throw new IllegalStateException();
+                }
+                canRemove = false;
+                IntBitmapSet.this.remove(last);
+                // the chunks may have been converted or removed, seek past the removed value
+                chunkIndex = findChunk(high(last));
+                if (chunkIndex >= 0) {
+                    valueIndex = chunks[chunkIndex].seek(low(last) + 1);
+                } else {
+                    chunkIndex = -chunkIndex - 1;
+                    valueIndex = 0;
+                }
+                next = advance();
+                hasNext = chunkIndex < chunkCount;
+            }
+
+            // positions the iterator on the next value at or after the current position
+            private int advance() {
+                while (chunkIndex < chunkCount) {
+                    final int low = chunks[chunkIndex].nextValue(valueIndex);
+                    if (low >= 0) {
+                        valueIndex = chunks[chunkIndex].position(low, valueIndex);
+                        return (keys[chunkIndex] << 16) | low;
+                    }
+                    chunkIndex++;
+                    valueIndex = 0;
+                }
+                return 0;
+            }
+        };
+    }
+
+    private void replaceChunks(final char[] newKeys, final Chunk[] newChunks, final int newChunkCount) {
+        int newSize = 0;
+        for (int i = 0; i < newChunkCount; i++) {
+            newSize += newChunks[i].cardinality();
+        }
+        keys = newKeys;
+        chunks = newChunks;
+        chunkCount = newChunkCount;
+        size = newSize;
+    }
+
+    private int findChunk(final char high) {
+        return Arrays.binarySearch(keys, 0, chunkCount, high);
+    }
+
+    private void insertChunk(final int index, final char high, final Chunk chunk) {
+        if (chunkCount == keys.length) {
+            final int capacity = Math.max(1, chunkCount * 2);
+            keys = Arrays.copyOf(keys, capacity);
+            chunks = Arrays.copyOf(chunks, capacity);
+        }
+        System.arraycopy(keys, index, keys, index + 1, chunkCount - index);
+        System.arraycopy(chunks, index, chunks, index + 1, chunkCount - index);
+        keys[index] = high;
+        chunks[index] = chunk;
+        chunkCount++;
+    }
+
+    private void removeChunk(final int index) {
+        System.arraycopy(keys, index + 1, keys, index, chunkCount - index - 1);
+        System.arraycopy(chunks, index + 1, chunks, index, chunkCount - index - 1);
+        chunks[--chunkCount] = null;
+    }
+
+    private static char high(final int value) {
+        return (char) (value >>> 16);
+    }
+
+    private static char low(final int value) {
+        return (char) value;
+    }
+
+    /*
+     * Holds the low bits of the values sharing the same high bits. Mutations may return a chunk of the other
+     * representation, which replaces the chunk within the set.
+     */
+    private abstract static class Chunk {
+        abstract int cardinality();
+
+        abstract boolean contains(char low);
+
+        abstract Chunk add(char low);
+
+        abstract Chunk remove(char low);
+
+        abstract Chunk or(Chunk other);
+
+        abstract Chunk and(Chunk other);
+
+        abstract Chunk andNot(Chunk other);
+
+        // trimmed copy of the chunk
+        abstract Chunk copy();
+
+        // smallest value at or after the iteration position, -1 if there is none
+        abstract int nextValue(int position);
+
+        // iteration position of a value returned by nextValue
+        abstract int position(int low, int position);
+
+        // iteration position of the smallest value at or after the low bits
+        abstract int seek(int low);
+    }
+
+    private static final class ArrayChunk extends Chunk {
+        private char[] values;
+        private int cardinality;
+
+        ArrayChunk() {
+            this(new char[4], 0);
+        }
+
+        ArrayChunk(final char[] values, final int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean contains(final char low) {
+            return Arrays.binarySearch(values, 0, cardinality, low) >= 0;
+        }
+
+        @Override
+        Chunk add(final char low) {
+            int index = Arrays.binarySearch(values, 0, cardinality, low);
+            if (index >= 0) {
+                return this;
+            }
+            if (cardinality == MAX_ARRAY_CARDINALITY) {
+                return toBitmap().add(low);
+            }
+            index = -index - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.max(4, Math.min(MAX_ARRAY_CARDINALITY, cardinality * 2)));
+            }
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = low;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        Chunk remove(final char low) {
+            final int index = Arrays.binarySearch(values, 0, cardinality, low);
+            if (index >= 0) {
+                System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+                cardinality--;
+            }
+            return this;
+        }
+
+        @Override
+        Chunk or(final Chunk other) {
+            if (other instanceof BitmapChunk || cardinality + other.cardinality() > MAX_ARRAY_CARDINALITY) {
+                return toBitmap().or(other);
+            }
+            final ArrayChunk that = (ArrayChunk) other;
+            final char[] merged = new char[cardinality + that.cardinality];
+            int i = 0;
+            int j = 0;
+            int k = 0;
+            while (i < cardinality && j < that.cardinality) {
+                if (values[i] < that.values[j]) {
+                    merged[k++] = values[i++];
+                } else if (values[i] > that.values[j]) {
+                    merged[k++] = that.values[j++];
+                } else {
+                    merged[k++] = values[i++];
+                    j++;
+                }
+            }
+            while (i < cardinality) {
+                merged[k++] = values[i++];
+            }
+            while (j < that.cardinality) {
+                merged[k++] = that.values[j++];
+            }
+            values = merged;
+            cardinality = k;
+            return this;
+        }
+
+        @Override
+        Chunk and(final Chunk other) {
+            return filter(other, true);
+        }
+
+        @Override
+        Chunk andNot(final Chunk other) {
+            return filter(other, false);
+        }
+
+        @Override
+        Chunk copy() {
+            return new ArrayChunk(Arrays.copyOf(values, cardinality), cardinality);
+        }
+
+        @Override
+        int nextValue(final int position) {
+            return position < cardinality ? values[position] : -1;
+        }
+
+        @Override
+        int position(final int low, final int position) {
+            return position;
+        }
+
+        @Override
+        int seek(final int low) {
+            if (low > Character.MAX_VALUE) {
+                return cardinality;
+            }
+            final int index = Arrays.binarySearch(values, 0, cardinality, (char) low);
+            return index >= 0 ? index : -index - 1;
+        }
+
+        // keeps the values contained, or not contained, by the other chunk
+        private Chunk filter(final Chunk other, final boolean contained) {
+            int k = 0;
+            for (int i = 0; i < cardinality; i++) {
+                if (other.contains(values[i]) == contained) {
+                    values[k++] = values[i];
+                }
+            }
+            cardinality = k;
+            return this;
+        }
+
+        private BitmapChunk toBitmap() {
+            final BitmapChunk bitmap = new BitmapChunk();
+            for (int i = 0; i < cardinality; i++) {
+                bitmap.add(values[i]);
+            }
+            return bitmap;
+        }
+    }
+
+    private static final class BitmapChunk extends Chunk {
+        private final long[] words;
+        private int cardinality;
+
+        BitmapChunk() {
+            this(new long[BITMAP_WORDS], 0);
+        }
+
+        BitmapChunk(final long[] words, final int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean contains(final char low) {
+            return 0L != (words[low >>> 6] & (1L << low));
+        }
+
+        @Override
+        Chunk add(final char low) {
+            final long word = words[low >>> 6];
+            final long updated = word | (1L << low);
+            if (word != updated) {
+                words[low >>> 6] = updated;
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        Chunk remove(final char low) {
+            final long word = words[low >>> 6];
+            final long updated = word & ~(1L << low);
+            if (word != updated) {
+                words[low >>> 6] = updated;
+                cardinality--;
+            }
+            return cardinality > MAX_ARRAY_CARDINALITY ? this : toArray();
+        }
+
+        @Override
+        Chunk or(final Chunk other) {
+            if (other instanceof BitmapChunk) {
+                final long[] otherWords = ((BitmapChunk) other).words;
+                for (int i = 0; i < BITMAP_WORDS; i++) {
+                    words[i] |= otherWords[i];
+                }
+                return recount();
+            }
+            final ArrayChunk that = (ArrayChunk) other;
+            for (int i = 0; i < that.cardinality; i++) {
+                add(that.values[i]);
+            }
+            return this;
+        }
+
+        @Override
+        Chunk and(final Chunk other) {
+            if (other instanceof BitmapChunk) {
+                final long[] otherWords = ((BitmapChunk) other).words;
+                for (int i = 0; i < BITMAP_WORDS; i++) {
+                    words[i] &= otherWords[i];
+                }
+                return recount();
+            }
+            // the intersection with a sparse chunk is sparse
+            return other.copy().and(this);
+        }
+
+        @Override
+        Chunk andNot(final Chunk other) {
+            if (other instanceof BitmapChunk) {
+                final long[] otherWords = ((BitmapChunk) other).words;
+                for (int i = 0; i < BITMAP_WORDS; i++) {
+                    words[i] &= ~otherWords[i];
+                }
+                return recount();
+            }
+            final ArrayChunk that = (ArrayChunk) other;
+            for (int i = 0; i < that.cardinality; i++) {
+                final char low = that.values[i];
+                if (contains(low)) {
+                    words[low >>> 6] &= ~(1L << low);
+                    cardinality--;
+                }
+            }
+            return cardinality > MAX_ARRAY_CARDINALITY ? this : toArray();
+        }
+
+        @Override
+        Chunk copy() {
+            return new BitmapChunk(words.clone(), cardinality);
+        }
+
+        @Override
+        int nextValue(final int position) {
+            int wordIndex = position >>> 6;
+            if (wordIndex >= BITMAP_WORDS) {
+                return -1;
+            }
+            long word = words[wordIndex] & (-1L << position);
+            while (0L == word) {
+                if (++wordIndex == BITMAP_WORDS) {
+                    return -1;
+                }
+                word = words[wordIndex];
+            }
+            return (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+        }
+
+        @Override
+        int position(final int low, final int position) {
+            // bitmaps are iterated by value
+            return low;
+        }
+
+        @Override
+        int seek(final int low) {
+            return low;
+        }
+
+        private Chunk recount() {
+            int count = 0;
+            for (final long word : words) {
+                count += Long.bitCount(word);
+            }
+            cardinality = count;
+            return cardinality > MAX_ARRAY_CARDINALITY ? this : toArray();
+        }
+
+        private ArrayChunk toArray() {
+            final char[] values = new char[cardinality];
+            int k = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                long word = words[i];
+                while (0L != word) {
+                    values[k++] = (char) ((i << 6) + Long.numberOfTrailingZeros(word));
+                    word &= word - 1L;
+                }
+            }
+            return new ArrayChunk(values, cardinality);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package core.utils;
+
+/*
+ Copyright 2023 VMware, Inc.
+ SPDX-License-Identifier: BSD-2-Clause
+*/
+
+/**
+ * Bounded binary min heap retaining the k ids with the largest double keys offered, ties are broken towards the
+ * lower ids. The root is the weakest retained id, hence an offer below it is rejected after a single comparison.
+ * The heap is held in primitive arrays, nothing is allocated per offer.
+ */
+public class TopKHeap {
+    private final int[] ids;
+    private final double[] keys;
+    private int size = 0;
+
+    public TopKHeap(final int k) {
+        this.ids = new int[k];
+        this.keys = new double[k];
+    }
+
+    public boolean isEmpty() {
+        return 0 == size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true if the id is retained among the top k
+     */
+    public boolean offer(final int id, final double key) {
+        if (size < ids.length) {
+            siftUp(size++, id, key);
+            return true;
+        }
+        if (0 == size || !outranks(key, id, keys[0], ids[0])) {
+            return false;
+        }
+        siftDown(id, key);
+        return true;
+    }
+
+    /**
+     * Offers the ids retained by the other heap, which is left untouched.
+     */
+    public void merge(final TopKHeap other) {
+        for (int i = 0; i < other.size; i++) {
+            offer(other.ids[i], other.keys[i]);
+        }
+    }
+
+    public double peekKey() {
+        return keys[0];
+    }
+
+    /**
+     * @return the weakest retained id, removed from the heap
+     */
+    public int poll() {
+        final int top = ids[0];
+        if (--size > 0) {
+            siftDown(ids[size], keys[size]);
+        }
+        return top;
+    }
+
+    private static boolean outranks(final double key, final int id, final double otherKey, final int otherId) {
+        return key > otherKey || (key == otherKey && id < otherId);
+    }
+
+    private void siftUp(final int from, final int id, final double key) {
+        int i = from;
+        while (i > 0) {
+            final int parent = (i - 1) >>> 1;
+            if (!outranks(keys[parent], ids[parent], key, id)) {
+                break;
+            }
+            ids[i] = ids[parent];
+            keys[i] = keys[parent];
+            i = parent;
+        }
+        ids[i] = id;
+        keys[i] = key;
+    }
+
+    private void siftDown(final int id, final double key) {
+        int i = 0;
+        for (int child = 1; child < size; child = 2 * i + 1) {
+            if (child + 1 < size && outranks(keys[child], ids[child], keys[child + 1], ids[child + 1])) {
+                child++;
+            }
+            if (!outranks(key, id, keys[child], ids[child])) {
+                break;
+            }
+            ids[i] = ids[child];
+            keys[i] = keys[child];
+            i = child;
+        }
+        ids[i] = id;
+        keys[i] = key;
+    }
+}
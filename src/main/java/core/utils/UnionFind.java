@@ -0,0 +1,89 @@
+package core.utils;
+
+/*
+ Copyright 2023 VMware, Inc.
+ SPDX-License-Identifier: BSD-2-Clause
+*/
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+/**
+ * Disjoint sets of non negative int elements, with union by size and path halving, which makes both operations
+ * near constant time. Elements are singletons till they are first united, the sets grow along with the largest
+ * element seen. The structure is not thread safe.
+ */
+public class UnionFind {
+    // parent of every element, roots are their own parent
+    private final IntArrayList parents = new IntArrayList();
+    // size of the set of every root
+    private final IntArrayList sizes = new IntArrayList();
+    private int setCount = 0;
+
+    /**
+     * @return the representative of the set of the element
+     */
+    public int find(final int element) {
+        if (element >= parents.size()) {
+            return element;
+        }
+        int e = element;
+        while (parents.getInt(e) != e) {
+            final int grandParent = parents.getInt(parents.getInt(e));
+            parents.set(e, grandParent);
+            e = grandParent;
+        }
+        return e;
+    }
+
+    /**
+     * Merges the sets of both elements.
+     * @return true if the elements were in different sets
+     */
+    public boolean union(final int element1, final int element2) {
+        grow(Math.max(element1, element2));
+        int root1 = find(element1);
+        int root2 = find(element2);
+        if (root1 == root2) {
+            return false;
+        }
+        if (sizes.getInt(root1) < sizes.getInt(root2)) {
+            final int root = root1;
+            root1 = root2;
+            root2 = root;
+        }
+        parents.set(root2, root1);
+        sizes.set(root1, sizes.getInt(root1) + sizes.getInt(root2));
+        setCount--;
+        return true;
+    }
+
+    public boolean connected(final int element1, final int element2) {
+        return find(element1) == find(element2);
+    }
+
+    /**
+     * @return the number of elements within the set of the element
+     */
+    public int setSize(final int element) {
+        final int root = find(element);
+        return root < sizes.size() ? sizes.getInt(root) : 1;
+    }
+
+    /**
+     * @return the number of sets among the elements up to the largest one seen
+     */
+    public int setCount() {
+        return setCount;
+    }
+
+    /**
+     * Registers the elements up to the element as singletons.
+     */
+    public void grow(final int element) {
+        for (int e = parents.size(); e <= element; e++) {
+            parents.add(e);
+            sizes.add(1);
+            setCount++;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package model;
+
+/*
+ Copyright 2023 VMware, Inc.
+ SPDX-License-Identifier: BSD-2-Clause
+*/
+
+/**
+ * Aggregation of numeric values, evaluated from their count, sum, min and max.
+ */
+public enum AggregateFunction {
+    COUNT,
+    SUM,
+    MIN,
+    MAX,
+    AVG
+    ;
+
+    /**
+     * @return the aggregate, 0 for the count and the sum of no values and NaN otherwise
+     */
+    public double evaluate(final long count, final double sum, final double min, final double max) {
+        switch (this) {
+            case COUNT:
+                return count;
+            case SUM:
+                return 0L == count ? 0d : sum;
+            case MIN:
+                return 0L == count ? Double.NaN : min;
+            case MAX:
+                return 0L == count ? Double.NaN : max;
+            default:
+                return 0L == count ? Double.NaN : sum / count;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package model;
+
+/*
+ Copyright 2023 VMware, Inc.
+ SPDX-License-Identifier: BSD-2-Clause
+*/
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * A change applied to a {@link Graph}, as emitted to the change subscribers.
+ * Events are numbered by a sequence following the order in which the changes have been applied. The end points of
+ * the edge events are set so that consumers mirroring the topology don't have to query the graph back, they are
+ * negative for the other events.
+ */
+@Getter
+@AllArgsConstructor
+public final class ChangeEvent {
+    public enum Type {
+        VERTEX_ADDED,
+        EDGE_ADDED,
+        VERTEX_REMOVED,
+        EDGE_REMOVED,
+        VERTEX_PROPERTY_APPENDED,
+        EDGE_PROPERTY_APPENDED,
+        // partitions till the timestamp have been dropped
+        PURGE
+    }
+
+    private final long sequence;
+    private final Type type;
+    private final long timestamp;
+    // vertex or edge id, negative for purges
+    private final int entityId;
+    private final int srcVertexId;
+    private final int destVertexId;
+    // label of the added entities, property name of the appended samples
+    private final String name;
+    // value of the appended samples
+    private final Object value;
+}
@@ -10,6 +10,8 @@ package model;
  */
 public enum Direction {
     IN,
-    OUT
+    OUT,
+    // either direction, for traversals ignoring the orientation of the edges
+    BOTH
     ;
 }
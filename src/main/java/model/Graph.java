@@ -9,6 +9,7 @@ import exceptions.PropertyNotFoundException;
 
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -19,7 +20,8 @@ import java.util.Map;
  * the returned identifier and the identifier for the entity as present within their model. Such an enforcement
  * ensures simplicity of the graph interface without having the client to maintain various representations of the
  * graph where the domain entities are the same but domain entity identifiers could be different based on the
- * use case.
+ * use case. Implementations may offer a built-in dictionary of the external keys of the vertices, such as
+ * {@code core.TemporalGraph#getOrAddVertex}, relieving the clients from maintaining the mapping themselves.
  * Generally, it is recommended to embed the domain identifier of the entity as a property within the vertex or
  * the edge itself so that it is readily available in the desired format.<br>
  * The getVertices and getEdges (including the direction aware methods) methods return an iterator instead of the
@@ -39,6 +41,16 @@ public interface Graph {
      */
     int addVertex(Collection<Property> properties, long timestamp);
 
+    /**
+     * add a labelled vertex to the graph with the specified {@link Property} collection and time.
+     *
+     * @param label      the label of the vertex, null for an unlabelled vertex
+     * @param properties the properties associated with the vertex
+     * @param timestamp  the timestamp at which the vertex would be inserted in the graph
+     * @return an identifier for the vertex as present within the graph storage layer
+     */
+    int addVertex(String label, Collection<Property> properties, long timestamp);
+
     /**
      * add an edge to the graph between  source and destination vertices with the specified properties and time
      *
@@ -50,6 +62,79 @@ public interface Graph {
      */
     int addEdge(int srcVertexId, int destVertexId, Collection<Property> properties, long timestamp);
 
+    /**
+     * add a labelled edge to the graph between source and destination vertices with the specified properties and time
+     *
+     * @param srcVertexId  the identifier of the source vertex as known to the graph storage layer
+     * @param destVertexId the identifier of the destination vertex as known to the graph storage layer
+     * @param label        the label of the edge, null for an unlabelled edge
+     * @param properties   the properties associated with the edge
+     * @param timestamp    the timestamp at which the edge would be inserted in the graph
+     * @return an identifier for the edge as present within the graph storage layer
+     */
+    int addEdge(int srcVertexId, int destVertexId, String label, Collection<Property> properties, long timestamp);
+
+    /**
+     * get the label of a vertex
+     *
+     * @param vertexId the identifier of the vertex as known to the graph storage layer
+     * @return the label of the vertex, null for an unlabelled vertex
+     */
+    String getVertexLabel(int vertexId);
+
+    /**
+     * get the label of an edge
+     *
+     * @param edgeId the identifier of the edge as known to the graph storage layer
+     * @return the label of the edge, null for an unlabelled edge
+     */
+    String getEdgeLabel(int edgeId);
+
+    /**
+     * add or extend the edge between source and destination vertices with the specified label.
+     * The edge alive at the time with the same label between the vertices is reused, a new edge is added
+     * otherwise. Repeated interactions between the same vertices hence map to a single logical edge.
+     *
+     * @param srcVertexId  the identifier of the source vertex as known to the graph storage layer
+     * @param destVertexId the identifier of the destination vertex as known to the graph storage layer
+     * @param label        the label of the edge
+     * @param timestamp    the timestamp at which the edge is asserted
+     * @return an identifier for the edge as present within the graph storage layer
+     */
+    int upsertEdge(int srcVertexId, int destVertexId, String label, long timestamp);
+
+    /**
+     * add or extend the edge between source and destination vertices with the specified label, and append the
+     * specified values to the property series of the edge. Properties unknown to the edge are added to it.
+     *
+     * @param srcVertexId    the identifier of the source vertex as known to the graph storage layer
+     * @param destVertexId   the identifier of the destination vertex as known to the graph storage layer
+     * @param label          the label of the edge
+     * @param propertyValues the property values by property name to be added at the timestamp
+     * @param timestamp      the timestamp at which the edge is asserted
+     * @return an identifier for the edge as present within the graph storage layer
+     */
+    int upsertEdge(int srcVertexId, int destVertexId, String label, Map<String, Object> propertyValues, long timestamp);
+
+    /**
+     * end a vertex at the specified time. The vertex, along with the edges incident to it and alive at the time,
+     * is no longer returned by the queries at or after the time. The history of the vertex and its properties
+     * remains queryable before the time.
+     *
+     * @param vertexId  the identifier of the vertex as known to the graph storage layer
+     * @param timestamp the timestamp at which the vertex is removed from the graph
+     */
+    void removeVertex(int vertexId, long timestamp);
+
+    /**
+     * end an edge at the specified time. The edge is no longer returned by the queries at or after the time.
+     * The history of the edge and its properties remains queryable before the time.
+     *
+     * @param edgeId    the identifier of the edge as known to the graph storage layer
+     * @param timestamp the timestamp at which the edge is removed from the graph
+     */
+    void removeEdge(int edgeId, long timestamp);
+
     /**
      * get the vertices present in the graph at a specified time.
      *
@@ -92,6 +177,231 @@ public interface Graph {
      */
     Iterator<Integer> getInEdgesAtTime(int vertexId, long timestamp);
 
+    /**
+     * aggregate the values of an edge property over the outgoing edges of a vertex at a specified time, in a single
+     * pass over the edges. Edges without a numeric value of the property are skipped.
+     *
+     * @param vertexId     the id of the source vertex as known to the graph storage layer
+     * @param propertyName the name of the edge property to be aggregated
+     * @param function     the {@link AggregateFunction} to be evaluated
+     * @param timestamp    the timestamp at which the edges and their properties need to be retrieved
+     * @return the aggregate, see {@link AggregateFunction#evaluate(long, double, double, double)} for no values
+     */
+    double aggregateOutEdgeProperty(int vertexId, String propertyName, AggregateFunction function, long timestamp);
+
+    /**
+     * aggregate the values of an edge property over the incoming edges of a vertex at a specified time, in a single
+     * pass over the edges. Edges without a numeric value of the property are skipped.
+     *
+     * @param vertexId     the id of the destination vertex as known to the graph storage layer
+     * @param propertyName the name of the edge property to be aggregated
+     * @param function     the {@link AggregateFunction} to be evaluated
+     * @param timestamp    the timestamp at which the edges and their properties need to be retrieved
+     * @return the aggregate, see {@link AggregateFunction#evaluate(long, double, double, double)} for no values
+     */
+    double aggregateInEdgeProperty(int vertexId, String propertyName, AggregateFunction function, long timestamp);
+
+    /**
+     * get the k edges present at a specified time with the largest values of a numeric property at that time.
+     *
+     * @param propertyName the name of the edge property the edges are ranked by
+     * @param k            the number of edges to be returned
+     * @param timestamp    the timestamp at which the edges and their properties need to be retrieved
+     * @return up to k {@link RankedEntity} by decreasing value, ties ordered by the edge id
+     */
+    List<RankedEntity> getTopEdgesByProperty(String propertyName, int k, long timestamp);
+
+    /**
+     * get the k edges present within a time window with the largest aggregates of the values of a numeric
+     * property sampled within the window, e.g. the sum of the volume.
+     *
+     * @param propertyName  the name of the edge property the edges are ranked by
+     * @param function      the {@link AggregateFunction} of the samples
+     * @param k             the number of edges to be returned
+     * @param fromTimestamp the start of the window, inclusive
+     * @param toTimestamp   the end of the window, inclusive
+     * @return up to k {@link RankedEntity} by decreasing value, ties ordered by the edge id
+     */
+    List<RankedEntity> getTopEdgesByProperty(String propertyName, AggregateFunction function, int k,
+                                             long fromTimestamp, long toTimestamp);
+
+    /**
+     * get the k vertices present at a specified time with the largest values of a numeric property at that time.
+     *
+     * @param propertyName the name of the vertex property the vertices are ranked by
+     * @param k            the number of vertices to be returned
+     * @param timestamp    the timestamp at which the vertices and their properties need to be retrieved
+     * @return up to k {@link RankedEntity} by decreasing value, ties ordered by the vertex id
+     */
+    List<RankedEntity> getTopVerticesByProperty(String propertyName, int k, long timestamp);
+
+    /**
+     * get the k vertices present within a time window with the largest aggregates of the values of a numeric
+     * property sampled within the window.
+     *
+     * @param propertyName  the name of the vertex property the vertices are ranked by
+     * @param function      the {@link AggregateFunction} of the samples
+     * @param k             the number of vertices to be returned
+     * @param fromTimestamp the start of the window, inclusive
+     * @param toTimestamp   the end of the window, inclusive
+     * @return up to k {@link RankedEntity} by decreasing value, ties ordered by the vertex id
+     */
+    List<RankedEntity> getTopVerticesByProperty(String propertyName, AggregateFunction function, int k,
+                                                long fromTimestamp, long toTimestamp);
+
+    /**
+     * get the vertices whose property had the value at a specified time, through the secondary index of the
+     * property values.
+     *
+     * @param propertyName the name of an indexed vertex property
+     * @param value        the value of the property
+     * @param timestamp    the timestamp at which the property had the value
+     * @return An {@link Iterator} that can be used to iterate through the vertex ids as known to the graph
+     * storage layer
+     */
+    Iterator<Integer> getVerticesByPropertyValue(String propertyName, Object value, long timestamp);
+
+    /**
+     * get the vertices whose property had the value at some time within a time window, through the secondary
+     * index of the property values.
+     *
+     * @param propertyName  the name of an indexed vertex property
+     * @param value         the value of the property
+     * @param fromTimestamp the start of the window, inclusive
+     * @param toTimestamp   the end of the window, inclusive
+     * @return An {@link Iterator} that can be used to iterate through the vertex ids as known to the graph
+     * storage layer
+     */
+    Iterator<Integer> getVerticesByPropertyValue(String propertyName, Object value, long fromTimestamp,
+                                                 long toTimestamp);
+
+    /**
+     * get the edges whose property had the value at a specified time, through the secondary index of the
+     * property values.
+     *
+     * @param propertyName the name of an indexed edge property
+     * @param value        the value of the property
+     * @param timestamp    the timestamp at which the property had the value
+     * @return An {@link Iterator} that can be used to iterate through the edge ids as known to the graph
+     * storage layer
+     */
+    Iterator<Integer> getEdgesByPropertyValue(String propertyName, Object value, long timestamp);
+
+    /**
+     * get the edges whose property had the value at some time within a time window, through the secondary index
+     * of the property values.
+     *
+     * @param propertyName  the name of an indexed edge property
+     * @param value         the value of the property
+     * @param fromTimestamp the start of the window, inclusive
+     * @param toTimestamp   the end of the window, inclusive
+     * @return An {@link Iterator} that can be used to iterate through the edge ids as known to the graph
+     * storage layer
+     */
+    Iterator<Integer> getEdgesByPropertyValue(String propertyName, Object value, long fromTimestamp,
+                                              long toTimestamp);
+
+    /**
+     * get the vertices present within a time window with a numeric value of a property within [minValue, maxValue]
+     * sampled within the window, e.g. the vertices whose load exceeded a threshold. The min and max of the stored
+     * blocks of samples let the scan skip the blocks falling outside of the value range without decoding them.
+     *
+     * @param propertyName  the name of the vertex property
+     * @param minValue      the lowest matching value, inclusive
+     * @param maxValue      the highest matching value, inclusive
+     * @param fromTimestamp the start of the window, inclusive
+     * @param toTimestamp   the end of the window, inclusive
+     * @return An {@link Iterator} that can be used to iterate through the vertex ids as known to the graph
+     * storage layer
+     */
+    Iterator<Integer> getVerticesByPropertyRange(String propertyName, double minValue, double maxValue,
+                                                 long fromTimestamp, long toTimestamp);
+
+    /**
+     * get the edges present within a time window with a numeric value of a property within [minValue, maxValue]
+     * sampled within the window, e.g. the edges whose session count exceeded a threshold. The min and max of the
+     * stored blocks of samples let the scan skip the blocks falling outside of the value range without decoding them.
+     *
+     * @param propertyName  the name of the edge property
+     * @param minValue      the lowest matching value, inclusive
+     * @param maxValue      the highest matching value, inclusive
+     * @param fromTimestamp the start of the window, inclusive
+     * @param toTimestamp   the end of the window, inclusive
+     * @return An {@link Iterator} that can be used to iterate through the edge ids as known to the graph
+     * storage layer
+     */
+    Iterator<Integer> getEdgesByPropertyRange(String propertyName, double minValue, double maxValue,
+                                              long fromTimestamp, long toTimestamp);
+
+    /**
+     * get the outgoing edges with the specified label for a given source vertex at a specified time. Only the edges
+     * of the label are scanned.
+     *
+     * @param vertexId  the id of the source vertex as known to the graph storage layer
+     * @param label     the label of the edges
+     * @param timestamp the timestamp at which the edges need to be retrieved
+     * @return An {@link Iterator} that can be used to iterate through the edge ids as known to the graph
+     * storage layer
+     */
+    Iterator<Integer> getOutEdgesAtTime(int vertexId, String label, long timestamp);
+
+    /**
+     * get the incoming edges with the specified label for a given destination vertex at a specified time. Only the
+     * edges of the label are scanned.
+     *
+     * @param vertexId  the id of the destination vertex as known to the graph storage layer
+     * @param label     the label of the edges
+     * @param timestamp the timestamp at which the edges need to be retrieved
+     * @return An {@link Iterator} that can be used to iterate through the edge ids as known to the graph
+     * storage layer
+     */
+    Iterator<Integer> getInEdgesAtTime(int vertexId, String label, long timestamp);
+
+    /**
+     * get the outgoing edges of a given source vertex which became active within a time window, i.e. the edges
+     * added, or re-asserted by an upsert, during [fromTimestamp, toTimestamp). The cost is proportional to the
+     * window rather than to the history of the vertex.
+     *
+     * @param vertexId      the id of the source vertex as known to the graph storage layer
+     * @param fromTimestamp the start of the window, inclusive
+     * @param toTimestamp   the end of the window, exclusive
+     * @return An {@link Iterator} that can be used to iterate through the edge ids as known to the graph
+     * storage layer
+     */
+    Iterator<Integer> getOutEdgesBetween(int vertexId, long fromTimestamp, long toTimestamp);
+
+    /**
+     * get the incoming edges of a given destination vertex which became active within a time window.
+     *
+     * @param vertexId      the id of the destination vertex as known to the graph storage layer
+     * @param fromTimestamp the start of the window, inclusive
+     * @param toTimestamp   the end of the window, exclusive
+     * @return An {@link Iterator} that can be used to iterate through the edge ids as known to the graph
+     * storage layer
+     */
+    Iterator<Integer> getInEdgesBetween(int vertexId, long fromTimestamp, long toTimestamp);
+
+    /**
+     * get all the edges which became active within a time window.
+     *
+     * @param fromTimestamp the start of the window, inclusive
+     * @param toTimestamp   the end of the window, exclusive
+     * @return An {@link Iterator} that can be used to iterate through the edge ids as known to the graph
+     * storage layer
+     */
+    Iterator<Integer> getAllEdgesBetween(long fromTimestamp, long toTimestamp);
+
+    /**
+     * get the vertices and edges added or ended between two timestamps, i.e. the difference between the graph as of
+     * toTimestamp and the graph as of fromTimestamp. Only the changes recorded within (fromTimestamp, toTimestamp]
+     * are read.
+     *
+     * @param fromTimestamp the timestamp of the graph the diff starts from
+     * @param toTimestamp   the timestamp of the graph the diff ends at
+     * @return the {@link GraphDiff} between the timestamps
+     */
+    GraphDiff getDiff(long fromTimestamp, long toTimestamp);
+
     /**
      * get the properties associated with the vertex at the specified timestamp
      *
@@ -154,6 +464,64 @@ public interface Graph {
     Map<Integer, TimestampedPropertyValue> getEdgePropertyAtTime(int srcVertexId, int destVertexId,
                                                                  String propertyName, long timestamp);
 
+    /**
+     * aggregate the numeric values of a vertex property sampled within a time window. The samples of the window
+     * are aggregated from the stored series, a block of samples lying entirely within the window only contributes
+     * its precomputed summary. Non numeric values are skipped.
+     *
+     * @param vertexId      the identifier of the vertex as known to the graph storage layer
+     * @param propertyName  the name of the property to be aggregated
+     * @param fromTimestamp the start of the window, inclusive
+     * @param toTimestamp   the end of the window, inclusive
+     * @return the {@link PropertyAggregate} of the samples, empty if the vertex has no such property
+     */
+    PropertyAggregate aggregateVertexProperty(int vertexId, String propertyName, long fromTimestamp, long toTimestamp);
+
+    /**
+     * aggregate the numeric values of an edge property sampled within a time window. The samples of the window
+     * are aggregated from the stored series, a block of samples lying entirely within the window only contributes
+     * its precomputed summary. Non numeric values are skipped.
+     *
+     * @param edgeId        the identifier of the edge as known to the graph storage layer
+     * @param propertyName  the name of the property to be aggregated
+     * @param fromTimestamp the start of the window, inclusive
+     * @param toTimestamp   the end of the window, inclusive
+     * @return the {@link PropertyAggregate} of the samples, empty if the edge has no such property
+     */
+    PropertyAggregate aggregateEdgeProperty(int edgeId, String propertyName, long fromTimestamp, long toTimestamp);
+
+    /**
+     * get the numeric values of a vertex property downsampled to a resolution. The buckets are aligned to
+     * multiples of the resolution, the ones overlapping the time window are returned. They are served from the
+     * coarsest rollup tier configured for the property dividing the resolution, or from the raw samples if
+     * there is none. Non numeric values are skipped.
+     *
+     * @param vertexId         the identifier of the vertex as known to the graph storage layer
+     * @param propertyName     the name of the property to be downsampled
+     * @param fromTimestamp    the start of the window, inclusive
+     * @param toTimestamp      the end of the window, inclusive
+     * @param resolutionMillis the width of a bucket in milliseconds
+     * @return the non empty {@link RollupBucket}s in chronological order
+     */
+    List<RollupBucket> getVertexPropertyRollup(int vertexId, String propertyName, long fromTimestamp,
+                                               long toTimestamp, long resolutionMillis);
+
+    /**
+     * get the numeric values of an edge property downsampled to a resolution. The buckets are aligned to
+     * multiples of the resolution, the ones overlapping the time window are returned. They are served from the
+     * coarsest rollup tier configured for the property dividing the resolution, or from the raw samples if
+     * there is none. Non numeric values are skipped.
+     *
+     * @param edgeId           the identifier of the edge as known to the graph storage layer
+     * @param propertyName     the name of the property to be downsampled
+     * @param fromTimestamp    the start of the window, inclusive
+     * @param toTimestamp      the end of the window, inclusive
+     * @param resolutionMillis the width of a bucket in milliseconds
+     * @return the non empty {@link RollupBucket}s in chronological order
+     */
+    List<RollupBucket> getEdgePropertyRollup(int edgeId, String propertyName, long fromTimestamp,
+                                             long toTimestamp, long resolutionMillis);
+
     /**
      * add the new value at the new timestamp to the existing property of vertex.
      *
@@ -183,7 +551,9 @@ public interface Graph {
 
     /**
      * Purge the graph till the timestamp provided as a parameter.
-     * This would compute intensive method and would be used if required only.
+     * Implementations storing the graph in time partitions drop the partitions ending at or before the timestamp
+     * as a whole, and only trim the property values of the partition straddling the timestamp.
+     * Writes into the dropped time range are rejected afterwards.
      * @param timestamp the timestamp till which graph needs to be purged.
      */
     void purgeAtTime(long timestamp);
@@ -0,0 +1,27 @@
+package model;
+
+/*
+ Copyright 2023 VMware, Inc.
+ SPDX-License-Identifier: BSD-2-Clause
+*/
+
+import it.unimi.dsi.fastutil.ints.IntSet;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Topology changes of a {@link Graph} between two timestamps.
+ * The added entities are present in the graph at the end of the diff and were not at its start, the ended
+ * entities were present at the start and are not at the end. The identifiers are held in primitive sets, their
+ * {@link IntSet#iterator()} iterates them without boxing.
+ */
+@Getter
+@AllArgsConstructor
+public final class GraphDiff {
+    private final long fromTimestamp;
+    private final long toTimestamp;
+    private final IntSet addedVertices;
+    private final IntSet endedVertices;
+    private final IntSet addedEdges;
+    private final IntSet endedEdges;
+}
@@ -0,0 +1,42 @@
+package model;
+
+/*
+ Copyright 2023 VMware, Inc.
+ SPDX-License-Identifier: BSD-2-Clause
+*/
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Summary of the numeric samples of a property series within a time range. Without any sample the count is zero
+ * and the other statistics are NaN, the timestamps are zero.
+ */
+@Getter
+@AllArgsConstructor
+public final class PropertyAggregate {
+    private final long count;
+    private final double sum;
+    private final double min;
+    private final double max;
+    // earliest sample of the range
+    private final long firstTimestamp;
+    private final double firstValue;
+    // latest sample of the range
+    private final long lastTimestamp;
+    private final double lastValue;
+
+    public double getAverage() {
+        return 0L == count ? Double.NaN : sum / count;
+    }
+
+    /**
+     * @return the change per second between the first and the last sample, as for a counter, NaN unless the
+     * samples span some time
+     */
+    public double getRate() {
+        return lastTimestamp > firstTimestamp
+                ? (lastValue - firstValue) * 1000d / (lastTimestamp - firstTimestamp)
+                : Double.NaN;
+    }
+}
@@ -0,0 +1,19 @@
+package model;
+
+/*
+ Copyright 2023 VMware, Inc.
+ SPDX-License-Identifier: BSD-2-Clause
+*/
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * A vertex or an edge along with the property value it is ranked by.
+ */
+@Data
+@AllArgsConstructor
+public final class RankedEntity {
+    private final int id;
+    private final double value;
+}
@@ -0,0 +1,27 @@
+package model;
+
+/*
+ Copyright 2023 VMware, Inc.
+ SPDX-License-Identifier: BSD-2-Clause
+*/
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Downsampled numeric samples of a property series falling within [timestamp, timestamp + resolution).
+ */
+@Getter
+@AllArgsConstructor
+public final class RollupBucket {
+    // start of the bucket, a multiple of the resolution
+    private final long timestamp;
+    private final long count;
+    private final double sum;
+    private final double min;
+    private final double max;
+
+    public double getAverage() {
+        return sum / count;
+    }
+}
@@ -13,11 +13,15 @@ import lombok.EqualsAndHashCode;
 import java.util.ArrayList;
 import java.util.Random;
 import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * An implementation of the {@link Property}.
  * Maintains the property time series within a {@link TreeMap} instance
  * in a chronological ascending order.
+ * The timestamps of the series are stored as 32-bit differentials, counted in the {@link TimeUnit} of the
+ * property, from the creation time of the property. A series hence covers about 24.8 days with the default
+ * millisecond unit, coarser units stretch the range at the expense of precision.
  */
 @Data
 @Builder(toBuilder = true)
@@ -37,6 +41,10 @@ public class TemporalProperty  implements  Property {
     @Builder.Default
     private final ArrayList<TimeStampWithValue> values = new ArrayList<>();
 
+    // unit of the time differentials, milliseconds unless specified
+    @EqualsAndHashCode.Exclude
+    private final TimeUnit timeUnit;
+
 
     @Override
     public Object getValueAtTime(long timestamp) {
@@ -56,7 +64,13 @@ public class TemporalProperty  implements  Property {
                                                                      "than last known timestamp: %d", timestamp,
                                                              name, latestTimestamp));
         }
-        int timeDifferential = (int)(timestamp - this.time);
+        final long differential = toDifferential(timestamp);
+        if (differential < Integer.MIN_VALUE || differential > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(String.format("Incoming timestamp: %d for property %s falls beyond " +
+                                                                     "the supported range of the series", timestamp,
+                                                             name));
+        }
+        int timeDifferential = (int) differential;
         TimeStampWithValue tsv = new TimeStampWithValue(timeDifferential, value);
         values.add(tsv);
         latestTimestamp = timestamp;
@@ -72,10 +86,24 @@ public class TemporalProperty  implements  Property {
         return true;
     }
 
+    /**
+     * Converts a time differential of the series back to the timestamp in milliseconds.
+     * @param timeDifferential the time differential of a value within the series
+     * @return the timestamp of the value
+     */
+    public long toTimestamp(final int timeDifferential) {
+        return this.time + timeUnit.toMillis(timeDifferential);
+    }
+
+    private long toDifferential(final long timestamp) {
+        return Math.floorDiv(timestamp - this.time, timeUnit.toMillis(1L));
+    }
+
     private int floorIndex(final long timestamp) {
 
         int floorEntry = Integer.MIN_VALUE;
-        int baseline = (int)(timestamp - this.time);
+        // timestamps beyond the range of the series are floored to its bounds
+        int baseline = (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, toDifferential(timestamp)));
         int left = 0;
         int right = values.size();
 
@@ -119,8 +147,12 @@ public class TemporalProperty  implements  Property {
                 throw new IllegalArgumentException(String.format("Time parameter is invalid"));
             }
 
+            if (null != timeUnit && timeUnit.toMillis(1L) < 1L) {
+                throw new IllegalArgumentException(String.format("Time unit %s is finer than milliseconds", timeUnit));
+            }
+
             return new TemporalProperty(id, name, time, latestTimestamp, (this.values$value == null) ? new ArrayList<>() :
-                    this.values$value);
+                    this.values$value, (null == timeUnit) ? TimeUnit.MILLISECONDS : timeUnit);
         }
     }
 
@@ -55,6 +55,60 @@ public class MetricsDecoderEncoderHandler {
         return retVal;
     }
 
+    /**
+     * Decodes the series into a primitive array, without boxing the values.
+     */
+    public long[] decodeToLongs(Result<? extends Number> encoded) {
+        return decodeToLongs(encoded, 0, encoded.getEncodedData().length);
+    }
+
+    /**
+     * Decodes the values encoded within the byte range [fromByte, toByte) of the series into a primitive array,
+     * the range is expected to start and end at value boundaries.
+     */
+    public long[] decodeToLongs(Result<? extends Number> encoded, int fromByte, int toByte) {
+        final byte[] range = 0 == fromByte && encoded.getEncodedData().length == toByte
+                ? encoded.getEncodedData()
+                : Arrays.copyOfRange(encoded.getEncodedData(), fromByte, toByte);
+        if (encoded.metric_type == METRIC_TYPE.LONG) {
+            return new VarLongArrayEncoderDecoder().decode(range);
+        }
+        if (encoded.metric_type == METRIC_TYPE.INTEGER) {
+            return Arrays.stream(new VarIntArrayEncoderDecoder().decode(range)).asLongStream().toArray();
+        }
+        return new long[0];
+    }
+
+    /**
+     * Decodes a single value of the series, only the value at the index is boxed.
+     */
+    public Number decodeAt(Result<? extends Number> encoded, int index) {
+        return decodeAt(encoded, 0, index);
+    }
+
+    /**
+     * Decodes the value at the index counted from the value starting at the byte offset, e.g. the start of a block
+     * of the series. Only the bytes up to the value are read, none of the values in between is decoded.
+     */
+    public Number decodeAt(Result<? extends Number> encoded, int fromByte, int index) {
+        final byte[] data = encoded.getEncodedData();
+        int start = fromByte;
+        for (int skipped = 0; skipped < index; start++) {
+            if ((data[start] & 0b10000000) == 0) {
+                skipped++;
+            }
+        }
+        // a var-long spans at most 10 bytes, the decoders stop at the last byte of the value
+        final byte[] value = Arrays.copyOfRange(data, start, Math.min(data.length, start + 10));
+        if (encoded.metric_type == METRIC_TYPE.LONG) {
+            return new VarLongEncoderDecoder().decode(value);
+        }
+        if (encoded.metric_type == METRIC_TYPE.INTEGER) {
+            return new VarIntEncoderDecoder().decode(value);
+        }
+        return null;
+    }
+
     private void decodeVarLongSeries(byte[] encodedData, List<Number> retVal) {
         retVal.addAll(Arrays.stream(new VarLongArrayEncoderDecoder().decode(encodedData)).boxed().collect(Collectors.toList()));
     }
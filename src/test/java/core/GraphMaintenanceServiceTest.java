@@ -0,0 +1,99 @@
+package core;
+
+/*
+ Copyright 2023 VMware, Inc.
+ SPDX-License-Identifier: BSD-2-Clause
+*/
+
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Sets;
+import model.TemporalProperty;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GraphMaintenanceServiceTest {
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    private static final long initTime = System.currentTimeMillis();
+    private TemporalGraph graph;
+    private AtomicLong now;
+    private Random random;
+
+    @BeforeEach
+    void init() {
+        graph = new TemporalGraph(initTime, TemporalGraphConfig.builder().partitionDurationMillis(HOUR).build());
+        now = new AtomicLong(initTime);
+        random = new Random();
+    }
+
+    @Test
+    void compactionPreservesQueryResults() {
+        int[] vertices = new int[4];
+        for (int i = 0; i < vertices.length; i++) {
+            TemporalProperty p = TemporalProperty.builder().name("Name").id(Math.abs(random.nextInt())).time(initTime + i * HOUR).build();
+            p.setValueAtTime(initTime + i * HOUR, "vm_" + i);
+            p.setValueAtTime(initTime + i * HOUR + 10, "vm_" + i + "_renamed");
+            vertices[i] = graph.addVertex(Sets.newHashSet(p), initTime + i * HOUR);
+        }
+        for (int i = 1; i < vertices.length; i++) {
+            TemporalProperty p = TemporalProperty.builder().name("Volume").id(Math.abs(random.nextInt())).time(initTime + i * HOUR + 1).build();
+            p.setValueAtTime(initTime + i * HOUR + 1, 10L * i);
+            p.setValueAtTime(initTime + i * HOUR + 5, 20L * i);
+            graph.addEdge(vertices[i - 1], vertices[i], Sets.newHashSet(p), initTime + i * HOUR + 1);
+        }
+        final long queryTs = initTime + 4 * HOUR;
+        final Set<Integer> edgesBefore = Sets.newHashSet(graph.getAllEdgesAtTime(queryTs));
+
+        now.set(initTime + 3 * HOUR + TimeUnit.MINUTES.toMillis(2));
+        GraphMaintenanceService service = new GraphMaintenanceService(graph, GraphMaintenanceService.Config.builder()
+                .clock(now::get)
+                .cpuBudget(1.0d)
+                .intervalMillis(TimeUnit.SECONDS.toMillis(10))
+                .build());
+        while (service.runOnce()) {
+            // keep compacting till there is no work left
+        }
+        long compacted = graph.getPartitions().stream().filter(TimePartition::isCompacted).count();
+        assertEquals(3, compacted);
+        assertEquals(edgesBefore, Sets.newHashSet(graph.getAllEdgesAtTime(queryTs)));
+        assertEquals(4, Iterators.size(graph.getVerticesAtTime(queryTs)));
+        assertEquals(1, Iterators.size(graph.getOutEdgesAtTime(vertices[1], queryTs)));
+        assertEquals("vm_1_renamed", graph.getVertexPropertyAtTime(vertices[1], "Name", queryTs).getValue());
+        assertEquals(20L, graph.getEdgePropertyAtTime(0, "Volume", queryTs).getValue());
+        assertEquals(10L, graph.getEdgePropertyAtTime(0, "Volume", initTime + HOUR + 2).getValue());
+        // sealed partitions keep accepting out of order writes
+        assertDoesNotThrow(() -> graph.addEdge(vertices[0], vertices[2], null, initTime + 20));
+        assertEquals(4, Iterators.size(graph.getAllEdgesAtTime(queryTs)));
+    }
+
+    @Test
+    void retentionDropsOldPartitions() {
+        for (int i = 0; i < 5; i++) {
+            final int vertexId = graph.addVertex(null, initTime + i * HOUR);
+            if (i < 3) {
+                graph.removeVertex(vertexId, initTime + i * HOUR + 10);
+            }
+        }
+        now.set(initTime + 5 * HOUR);
+        GraphMaintenanceService service = new GraphMaintenanceService(graph, GraphMaintenanceService.Config.builder()
+                .clock(now::get)
+                .retentionMillis(2 * HOUR)
+                .build());
+        service.runOnce();
+        assertEquals(2, graph.getPartitions().size());
+        assertEquals(2, Iterators.size(graph.getVerticesAtTime(initTime + 5 * HOUR)));
+        assertThrows(IllegalArgumentException.class, () -> graph.addVertex(null, initTime + HOUR));
+    }
+
+    @Test
+    void invalidCpuBudget() {
+        assertThrows(IllegalArgumentException.class, () -> new GraphMaintenanceService(graph,
+                GraphMaintenanceService.Config.builder().cpuBudget(0.0d).build()));
+    }
+}
@@ -5,24 +5,39 @@ package core;
  SPDX-License-Identifier: BSD-2-Clause
 */
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import core.propertystore.PropertyStore;
+import core.utils.IntBitmapSet;
 import exceptions.PropertyNotFoundException;
+import model.AggregateFunction;
+import model.ChangeEvent;
+import model.GraphDiff;
+import model.PropertyAggregate;
+import model.RankedEntity;
+import model.RollupBucket;
 import model.TemporalProperty;
 import model.TimestampedPropertyValue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import static org.junit.jupiter.api.Assertions.*;
 
 public class TemporalGraphTests {
@@ -299,6 +314,1194 @@ public class TemporalGraphTests {
         }
     }
 
+    @Test
+    void testRejectedEntitiesAreNotAnnounced() {
+        final TemporalGraph graph = new TemporalGraph(initTime, TemporalGraphConfig.builder()
+                .connectivityTracking(true)
+                .build());
+        int vertexId1 = graph.addVertex(null, initTime);
+        int vertexId2 = graph.addVertex(null, initTime);
+        final ChangeSubscription subscription = graph.subscribe();
+        // a property starting before the entity is rejected
+        TemporalProperty early = TemporalProperty.builder().name(property1).id(getRandomId()).time(initTime + 5).build();
+        early.setValueAtTime(initTime + 5, 100L);
+        assertThrows(IllegalArgumentException.class, () -> graph.addVertex(Sets.newHashSet(early), initTime + 10));
+        assertThrows(IllegalArgumentException.class,
+                () -> graph.addEdge(vertexId1, vertexId2, Sets.newHashSet(early), initTime + 10));
+
+        assertTrue(subscription.poll(10).isEmpty());
+        assertFalse(graph.areConnected(vertexId1, vertexId2));
+    }
+
+    @Test
+    void testPurgeDropsWholePartitions() throws PropertyNotFoundException {
+        final long hour = TimeUnit.HOURS.toMillis(1);
+        final TemporalGraph graph = new TemporalGraph(initTime,
+                TemporalGraphConfig.builder().partitionDurationMillis(hour).build());
+        TemporalProperty prop1 = TemporalProperty.builder().name(property1).id(getRandomId()).time(initTime + 10).build();
+        prop1.setValueAtTime(initTime + 10, 100L);
+        prop1.setValueAtTime(initTime + hour + 10, 200L);
+        prop1.setValueAtTime(initTime + 2 * hour + 10, 300L);
+        int vertexId1 = graph.addVertex(Sets.newHashSet(prop1), initTime + 10);
+        int vertexId2 = graph.addVertex(null, initTime + hour + 5);
+        int vertexId3 = graph.addVertex(null, initTime + 2 * hour + 5);
+        int edgeId1 = graph.addEdge(vertexId1, vertexId2, null, initTime + hour + 20);
+        int edgeId2 = graph.addEdge(vertexId2, vertexId3, null, initTime + 2 * hour + 20);
+        assertEquals(3, Iterators.size(graph.getVerticesAtTime(initTime + 3 * hour)));
+        assertEquals(2, Iterators.size(graph.getAllEdgesAtTime(initTime + 3 * hour)));
+        assertEquals(200L, graph.getVertexPropertyAtTime(vertexId1, property1, initTime + 2 * hour).getValue());
+
+        // drops the first two partitions and trims the samples of the third one
+        graph.purgeAtTime(initTime + 2 * hour + 10);
+        Set<Integer> vertices = Sets.newHashSet(graph.getVerticesAtTime(initTime + 3 * hour));
+        assertEquals(Sets.newHashSet(vertexId1, vertexId2, vertexId3), vertices);
+        assertEquals(Sets.newHashSet(edgeId1, edgeId2), Sets.newHashSet(graph.getAllEdgesAtTime(initTime + 3 * hour)));
+        assertEquals(Sets.newHashSet(edgeId2), Sets.newHashSet(graph.getInEdgesAtTime(vertexId3, initTime + 3 * hour)));
+        assertEquals(Sets.newHashSet(edgeId1), Sets.newHashSet(graph.getOutEdgesAtTime(vertexId1, initTime + 3 * hour)));
+        assertFalse(graph.getVerticesAtTime(initTime + hour).hasNext());
+        // the registry of the live vertex is carried forward, only the purged samples went away
+        assertNull(graph.getVertexPropertyAtTime(vertexId1, property1, initTime + 2 * hour + 20));
+        graph.addVertexProperty(vertexId1, property1, 400L, initTime + 3 * hour);
+        assertEquals(400L, graph.getVertexPropertyAtTime(vertexId1, property1, initTime + 3 * hour).getValue());
+        // writes to the purged range are rejected
+        assertThrows(IllegalArgumentException.class, () -> graph.addVertex(null, initTime + hour));
+        int vertexId4 = graph.addVertex(null, initTime + 2 * hour + 30);
+
+        // the entities ended within the dropped partitions go away along with them
+        graph.removeEdge(edgeId1, initTime + 3 * hour + 10);
+        graph.removeVertex(vertexId1, initTime + 3 * hour + 20);
+        graph.purgeAtTime(initTime + 4 * hour);
+        assertEquals(Sets.newHashSet(vertexId2, vertexId3, vertexId4), Sets.newHashSet(graph.getVerticesAtTime(initTime + 5 * hour)));
+        assertEquals(Sets.newHashSet(edgeId2), Sets.newHashSet(graph.getAllEdgesAtTime(initTime + 5 * hour)));
+        assertNull(graph.getVertexPropertyAtTime(vertexId1, property1, initTime + 5 * hour));
+    }
+
+    @Test
+    void testLateWritesBehindLaterPartitions() {
+        final long hour = TimeUnit.HOURS.toMillis(1);
+        final int partitionCount = 6;
+        final TemporalGraph graph = new TemporalGraph(initTime,
+                TemporalGraphConfig.builder().partitionDurationMillis(hour).build());
+        // creation and end times tracked aside, the writes land in random partitions
+        final List<long[]> vertices = new ArrayList<>();
+        final List<long[]> edges = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            final long ts = initTime + (long) (random.nextDouble() * partitionCount * hour);
+            final int op = random.nextInt(10);
+            if (op < 3 || vertices.size() < 2) {
+                assertEquals(vertices.size(), graph.addVertex(null, ts));
+                vertices.add(new long[]{ts, Long.MAX_VALUE});
+            } else if (op < 8) {
+                final int src = random.nextInt(vertices.size());
+                final int dest = random.nextInt(vertices.size());
+                final long edgeTs = Math.max(ts, Math.max(vertices.get(src)[0], vertices.get(dest)[0]));
+                if (edgeTs < Math.min(vertices.get(src)[1], vertices.get(dest)[1])) {
+                    assertEquals(edges.size(), graph.addEdge(src, dest, null, edgeTs));
+                    edges.add(new long[]{edgeTs, Math.min(vertices.get(src)[1], vertices.get(dest)[1]), src, dest});
+                }
+            } else if (op < 9 && !edges.isEmpty()) {
+                final int edgeId = random.nextInt(edges.size());
+                final long[] edge = edges.get(edgeId);
+                if (Long.MAX_VALUE == edge[1]) {
+                    final long endTs = Math.max(ts, edge[0]);
+                    graph.removeEdge(edgeId, endTs);
+                    edge[1] = endTs;
+                }
+            } else {
+                final int vertexId = random.nextInt(vertices.size());
+                final long[] vertex = vertices.get(vertexId);
+                if (Long.MAX_VALUE == vertex[1]) {
+                    final long endTs = Math.max(ts, vertex[0]);
+                    graph.removeVertex(vertexId, endTs);
+                    vertex[1] = endTs;
+                    for (final long[] edge : edges) {
+                        if ((edge[2] == vertexId || edge[3] == vertexId) && edge[0] <= endTs && edge[1] > endTs) {
+                            edge[1] = endTs;
+                        }
+                    }
+                }
+            }
+        }
+        checkLiveEntities(graph, vertices, edges, initTime, partitionCount * hour);
+
+        // the entities alive at the start of the first retained partition survive the purge
+        graph.purgeAtTime(initTime + 2 * hour);
+        checkLiveEntities(graph, vertices, edges, initTime + 2 * hour, (partitionCount - 2) * hour);
+    }
+
+    private void checkLiveEntities(final TemporalGraph graph,
+                                   final List<long[]> vertices,
+                                   final List<long[]> edges,
+                                   final long fromTs,
+                                   final long duration) {
+        for (int i = 0; i < 50; i++) {
+            final long ts = fromTs + (long) (random.nextDouble() * duration);
+            final Set<Integer> expectedVertices = new HashSet<>();
+            for (int vertexId = 0; vertexId < vertices.size(); vertexId++) {
+                if (vertices.get(vertexId)[0] <= ts && vertices.get(vertexId)[1] > ts) {
+                    expectedVertices.add(vertexId);
+                }
+            }
+            final Set<Integer> expectedEdges = new HashSet<>();
+            final Set<Integer> expectedOutEdges = new HashSet<>();
+            final int vertexId = random.nextInt(vertices.size());
+            for (int edgeId = 0; edgeId < edges.size(); edgeId++) {
+                final long[] edge = edges.get(edgeId);
+                if (edge[0] <= ts && edge[1] > ts) {
+                    expectedEdges.add(edgeId);
+                    if (edge[2] == vertexId) {
+                        expectedOutEdges.add(edgeId);
+                    }
+                }
+            }
+            assertEquals(expectedVertices, Sets.newHashSet(graph.getVerticesAtTime(ts)));
+            assertEquals(expectedEdges, Sets.newHashSet(graph.getAllEdgesAtTime(ts)));
+            assertEquals(expectedOutEdges, Sets.newHashSet(graph.getOutEdgesAtTime(vertexId, ts)));
+            final GraphSnapshot snapshot = graph.snapshotAt(ts);
+            assertEquals(expectedVertices, Sets.newHashSet(snapshot.getVertices()));
+            assertEquals(expectedOutEdges, Sets.newHashSet(snapshot.getOutEdges(vertexId)));
+        }
+    }
+
+    @Test
+    void testConcurrentWriters() throws InterruptedException {
+        final long hour = TimeUnit.HOURS.toMillis(1);
+        final TemporalGraph graph = new TemporalGraph(initTime,
+                TemporalGraphConfig.builder().partitionDurationMillis(hour).build());
+        final int writers = 8;
+        final int perWriter = 2000;
+        final AtomicInteger propertyIds = new AtomicInteger();
+        // every writer records the creation time of the entities it added, by id
+        final List<Map<Integer, Long>> vertexTimes = new ArrayList<>();
+        final List<Map<Integer, Long>> edgeTimes = new ArrayList<>();
+        final List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            final Map<Integer, Long> vertices = new HashMap<>();
+            final Map<Integer, Long> edges = new HashMap<>();
+            vertexTimes.add(vertices);
+            edgeTimes.add(edges);
+            final Random writerRandom = new Random(w);
+            threads.add(new Thread(() -> {
+                int previous = -1;
+                for (int i = 0; i < perWriter; i++) {
+                    final long ts = initTime + (long) (writerRandom.nextDouble() * 6 * hour);
+                    TemporalProperty prop = TemporalProperty.builder().name(property1).id(propertyIds.incrementAndGet()).time(ts).build();
+                    prop.setValueAtTime(ts, ts);
+                    final int vertexId = graph.addVertex(Sets.newHashSet(prop), ts);
+                    vertices.put(vertexId, ts);
+                    if (-1 != previous) {
+                        final long edgeTs = Math.max(ts, vertices.get(previous));
+                        prop = TemporalProperty.builder().name(property1).id(propertyIds.incrementAndGet()).time(edgeTs).build();
+                        prop.setValueAtTime(edgeTs, edgeTs);
+                        edges.put(graph.addEdge(previous, vertexId, Sets.newHashSet(prop), edgeTs), edgeTs);
+                    }
+                    previous = vertexId;
+                }
+            }));
+        }
+        for (final Thread t : threads) {
+            t.start();
+        }
+        for (final Thread t : threads) {
+            t.join();
+        }
+        // the columns of every entity line up with its id, its registry is found in the partition of its creation
+        for (int w = 0; w < writers; w++) {
+            for (final Map.Entry<Integer, Long> e : vertexTimes.get(w).entrySet()) {
+                assertEquals(e.getValue(), graph.getVertexPropertyAtTime(e.getKey(), property1, e.getValue()).getValue());
+            }
+            for (final Map.Entry<Integer, Long> e : edgeTimes.get(w).entrySet()) {
+                assertEquals(e.getValue(), graph.getEdgePropertyAtTime(e.getKey(), property1, e.getValue()).getValue());
+            }
+        }
+        assertEquals(writers * perWriter, Iterators.size(graph.getVerticesAtTime(initTime + 6 * hour)));
+        assertEquals(writers * (perWriter - 1), Iterators.size(graph.getAllEdgesAtTime(initTime + 6 * hour)));
+    }
+
+    @Test
+    void testPropertySeriesSpanningPartitions() throws PropertyNotFoundException {
+        final long hour = TimeUnit.HOURS.toMillis(1);
+        final TemporalGraph graph = new TemporalGraph(initTime,
+                TemporalGraphConfig.builder().partitionDurationMillis(hour).build());
+        TemporalProperty prop1 = TemporalProperty.builder().name(property1).id(getRandomId()).time(initTime + 10).build();
+        prop1.setValueAtTime(initTime + 10, 100L);
+        int vertexId = graph.addVertex(Sets.newHashSet(prop1), initTime + 10);
+        graph.addVertexProperty(vertexId, property1, 200L, initTime + 3 * hour);
+        assertThrows(IllegalArgumentException.class, () -> graph.addVertexProperty(vertexId, property1, 300L, initTime + 2 * hour));
+        assertNull(graph.getVertexPropertyAtTime(vertexId, property1, initTime + 5));
+        assertEquals(100L, graph.getVertexPropertyAtTime(vertexId, property1, initTime + 2 * hour).getValue());
+        assertEquals(200L, graph.getVertexPropertyAtTime(vertexId, property1, initTime + 4 * hour).getValue());
+    }
+
+    @Test
+    void testGraphStartingAtEpoch() throws PropertyNotFoundException {
+        final TemporalGraph graph = new TemporalGraph(0L, TemporalGraphConfig.builder()
+                .partitionDurationMillis(TimeUnit.HOURS.toMillis(1))
+                .build());
+        TemporalProperty prop = TemporalProperty.builder().name(property1).id(getRandomId()).time(5L).build();
+        prop.setValueAtTime(5L, 100L);
+        int vertexId = graph.addVertex(Collections.singletonList(prop), 5L);
+        graph.addVertexProperty(vertexId, property1, 200L, 7L);
+        assertEquals(100L, graph.getVertexPropertyAtTime(vertexId, property1, 6L).getValue());
+        assertEquals(200L, graph.getVertexPropertyAtTime(vertexId, property1, 7L).getValue());
+    }
+
+    @Test
+    void testTimestampsBeyondIntegerRange() throws PropertyNotFoundException {
+        final long day = TimeUnit.DAYS.toMillis(1);
+        TemporalProperty prop1 = TemporalProperty.builder().name(property1).id(getRandomId()).time(initTime + 10).build();
+        prop1.setValueAtTime(initTime + 10, 100L);
+        int vertexId1 = underTest.addVertex(Sets.newHashSet(prop1), initTime + 10);
+        // well beyond the 24.8 days covered by 32-bit millisecond offsets from the graph init time
+        int vertexId2 = underTest.addVertex(null, initTime + 40 * day);
+        int edgeId = underTest.addEdge(vertexId1, vertexId2, null, initTime + 90 * day);
+        underTest.addVertexProperty(vertexId1, property1, 200L, initTime + 365 * day);
+        assertEquals(1, Iterators.size(underTest.getVerticesAtTime(initTime + 39 * day)));
+        assertEquals(2, Iterators.size(underTest.getVerticesAtTime(initTime + 40 * day)));
+        assertEquals(0, Iterators.size(underTest.getOutEdgesAtTime(vertexId1, initTime + 90 * day - 1)));
+        assertEquals(Sets.newHashSet(edgeId), Sets.newHashSet(underTest.getInEdgesAtTime(vertexId2, initTime + 90 * day)));
+        assertEquals(100L, underTest.getVertexPropertyAtTime(vertexId1, property1, initTime + 364 * day).getValue());
+        assertEquals(200L, underTest.getVertexPropertyAtTime(vertexId1, property1, initTime + 400 * day).getValue());
+    }
+
+    @Test
+    void testCoarserTimeUnit() throws PropertyNotFoundException {
+        final long day = TimeUnit.DAYS.toMillis(1);
+        assertThrows(IllegalArgumentException.class, () -> new TemporalGraph(initTime,
+                TemporalGraphConfig.builder().partitionDurationMillis(30 * day).build()));
+        assertThrows(IllegalArgumentException.class, () -> new TemporalGraph(initTime,
+                TemporalGraphConfig.builder().timeUnit(TimeUnit.MICROSECONDS).build()));
+        final TemporalGraph graph = new TemporalGraph(initTime, TemporalGraphConfig.builder()
+                .partitionDurationMillis(30 * day)
+                .timeUnit(TimeUnit.SECONDS)
+                .build());
+        TemporalProperty prop1 = TemporalProperty.builder().name(property1).id(getRandomId()).time(initTime).build();
+        prop1.setValueAtTime(initTime, 100L);
+        int vertexId1 = graph.addVertex(Sets.newHashSet(prop1), initTime);
+        int vertexId2 = graph.addVertex(null, initTime + 29 * day);
+        graph.addVertexProperty(vertexId1, property1, 200L, initTime + 29 * day + 1500);
+        assertEquals(1, Iterators.size(graph.getVerticesAtTime(initTime + 29 * day - 1000)));
+        assertEquals(Sets.newHashSet(vertexId1, vertexId2), Sets.newHashSet(graph.getVerticesAtTime(initTime + 29 * day)));
+        // samples are truncated to the second
+        assertEquals(200L, graph.getVertexPropertyAtTime(vertexId1, property1, initTime + 29 * day + 1000).getValue());
+        assertEquals(100L, graph.getVertexPropertyAtTime(vertexId1, property1, initTime + 29 * day + 999).getValue());
+    }
+
+    @Test
+    void testBucketResolution() throws PropertyNotFoundException {
+        final long second = TimeUnit.SECONDS.toMillis(1);
+        assertThrows(IllegalArgumentException.class, () -> new TemporalGraph(initTime,
+                TemporalGraphConfig.builder().bucketResolutionMillis(7 * second).build()));
+        final TemporalGraph graph = new TemporalGraph(initTime, TemporalGraphConfig.builder()
+                .bucketResolutionMillis(10 * second)
+                .build());
+        TemporalProperty prop1 = TemporalProperty.builder().name(property1).id(getRandomId()).time(initTime + 1).build();
+        prop1.setValueAtTime(initTime + 1, 100L);
+        prop1.setValueAtTime(initTime + 2, 200L);
+        int vertexId1 = graph.addVertex(Sets.newHashSet(prop1), initTime + 1);
+        int vertexId2 = graph.addVertex(null, initTime + 9 * second);
+        int vertexId3 = graph.addVertex(null, initTime + 10 * second);
+        for (int i = 0; i < 100; i++) {
+            graph.addEdge(vertexId1, vertexId2, null, initTime + 10 * second + i);
+        }
+        // the whole bucket shares a single key
+        TimePartition partition = graph.getPartitions().iterator().next();
+        assertEquals(2, partition.getVerticesByTime().size());
+        assertEquals(1, partition.getEdgesByTime().size());
+        partition.getOutgoingEdgesByTimeForVertex().forEachBucketMap(vertexId1, buckets -> assertEquals(1, buckets.size()));
+        // entities are visible from the start of their bucket
+        assertEquals(Sets.newHashSet(vertexId1, vertexId2), Sets.newHashSet(graph.getVerticesAtTime(initTime)));
+        assertEquals(3, Iterators.size(graph.getVerticesAtTime(initTime + 10 * second)));
+        assertEquals(0, Iterators.size(graph.getAllEdgesAtTime(initTime + 10 * second - 1)));
+        assertEquals(100, Iterators.size(graph.getInEdgesAtTime(vertexId2, initTime + 10 * second)));
+        assertEquals(0, Iterators.size(graph.getInEdgesAtTime(vertexId3, initTime + 20 * second)));
+        // property samples keep their precision
+        assertEquals(100L, graph.getVertexPropertyAtTime(vertexId1, property1, initTime + 1).getValue());
+        assertEquals(200L, graph.getVertexPropertyAtTime(vertexId1, property1, initTime + 2).getValue());
+    }
+
+    @Test
+    void testRemoveEdgesAndVertices() throws PropertyNotFoundException {
+        final long hour = TimeUnit.HOURS.toMillis(1);
+        final TemporalGraph graph = new TemporalGraph(initTime, TemporalGraphConfig.builder()
+                .partitionDurationMillis(hour)
+                .build());
+        TemporalProperty prop1 = TemporalProperty.builder().name(property1).id(getRandomId()).time(initTime + 1).build();
+        prop1.setValueAtTime(initTime + 1, 100L);
+        int vertexId1 = graph.addVertex(null, initTime);
+        int vertexId2 = graph.addVertex(null, initTime);
+        int vertexId3 = graph.addVertex(null, initTime);
+        int edgeId1 = graph.addEdge(vertexId1, vertexId2, Sets.newHashSet(prop1), initTime + 1);
+        int edgeId2 = graph.addEdge(vertexId1, vertexId2, null, initTime + 2);
+        int edgeId3 = graph.addEdge(vertexId2, vertexId3, null, initTime + 3);
+
+        // the edge ends within a later partition than the one it has been added to
+        graph.removeEdge(edgeId1, initTime + 2 * hour);
+        assertEquals(Sets.newHashSet(edgeId1, edgeId2), Sets.newHashSet(graph.getEdgesAtTime(vertexId1, vertexId2, initTime + 2 * hour - 1)));
+        assertEquals(Sets.newHashSet(edgeId2), Sets.newHashSet(graph.getEdgesAtTime(vertexId1, vertexId2, initTime + 2 * hour)));
+        assertEquals(Sets.newHashSet(edgeId2), Sets.newHashSet(graph.getOutEdgesAtTime(vertexId1, initTime + 3 * hour)));
+        assertEquals(Sets.newHashSet(edgeId2), Sets.newHashSet(graph.getInEdgesAtTime(vertexId2, initTime + 3 * hour)));
+        assertEquals(2, Iterators.size(graph.getAllEdgesAtTime(initTime + 3 * hour)));
+        // the history of the removed edge remains queryable
+        assertEquals(100L, graph.getEdgePropertyAtTime(edgeId1, property1, initTime + hour).getValue());
+        assertThrows(IllegalArgumentException.class, () -> graph.removeEdge(edgeId1, initTime + 3 * hour));
+        assertThrows(IllegalArgumentException.class, () -> graph.removeEdge(edgeId3, initTime + 2));
+
+        // removing a vertex ends its incident edges
+        graph.removeVertex(vertexId2, initTime + 10);
+        assertEquals(3, Iterators.size(graph.getVerticesAtTime(initTime + 9)));
+        assertEquals(Sets.newHashSet(vertexId1, vertexId3), Sets.newHashSet(graph.getVerticesAtTime(initTime + 10)));
+        assertEquals(0, Iterators.size(graph.getAllEdgesAtTime(initTime + 10)));
+        assertEquals(3, Iterators.size(graph.getAllEdgesAtTime(initTime + 9)));
+        assertEquals(0, Iterators.size(graph.getOutEdgesAtTime(vertexId1, initTime + 3 * hour)));
+        assertThrows(IllegalArgumentException.class, () -> graph.removeVertex(vertexId2, initTime + 20));
+        assertThrows(IllegalArgumentException.class, () -> graph.addEdge(vertexId1, vertexId2, null, initTime + 20));
+        // an edge added late to a removed vertex ends with the vertex
+        int edgeId4 = graph.addEdge(vertexId1, vertexId2, null, initTime + 5);
+        assertTrue(Sets.newHashSet(graph.getAllEdgesAtTime(initTime + 9)).contains(edgeId4));
+        assertEquals(0, Iterators.size(graph.getAllEdgesAtTime(initTime + 10)));
+    }
+
+    @Test
+    void testUpsertEdges() {
+        final long hour = TimeUnit.HOURS.toMillis(1);
+        final TemporalGraph graph = new TemporalGraph(initTime, TemporalGraphConfig.builder()
+                .partitionDurationMillis(hour)
+                .build());
+        int vertexId1 = graph.addVertex(null, initTime);
+        int vertexId2 = graph.addVertex(null, initTime);
+        final Map<String, Object> values = new HashMap<>();
+        int edgeId = -1;
+        for (int i = 0; i < 10; i++) {
+            values.put("Volume", 10L * i);
+            int upserted = graph.upsertEdge(vertexId1, vertexId2, "NetworkConnectivity", values, initTime + i * hour / 2);
+            if (edgeId != -1) {
+                assertEquals(edgeId, upserted);
+            }
+            edgeId = upserted;
+        }
+        // another label or direction is another logical edge
+        int otherEdgeId = graph.upsertEdge(vertexId1, vertexId2, "Traffic", initTime + 1);
+        assertNotEquals(edgeId, otherEdgeId);
+        assertNotEquals(edgeId, graph.upsertEdge(vertexId2, vertexId1, "NetworkConnectivity", initTime + 1));
+        assertEquals(3, Iterators.size(graph.getAllEdgesAtTime(initTime + 5 * hour)));
+        assertEquals(Sets.newHashSet(edgeId, otherEdgeId), Sets.newHashSet(graph.getEdgesAtTime(vertexId1, vertexId2, initTime + hour)));
+        assertEquals(0L, graph.getEdgePropertyAtTime(edgeId, "Volume", initTime + 1).getValue());
+        assertEquals(90L, graph.getEdgePropertyAtTime(edgeId, "Volume", initTime + 5 * hour).getValue());
+
+        // the edges survive the retention of the partition they have been added to
+        graph.purgeAtTime(initTime + 3 * hour);
+        assertEquals(Sets.newHashSet(edgeId, otherEdgeId), Sets.newHashSet(graph.getOutEdgesAtTime(vertexId1, initTime + 5 * hour)));
+        assertEquals(90L, graph.getEdgePropertyAtTime(edgeId, "Volume", initTime + 5 * hour).getValue());
+
+        // a removed edge is not extended
+        graph.removeEdge(edgeId, initTime + 6 * hour);
+        int newEdgeId = graph.upsertEdge(vertexId1, vertexId2, "NetworkConnectivity", initTime + 7 * hour);
+        assertNotEquals(edgeId, newEdgeId);
+        assertEquals(Sets.newHashSet(newEdgeId, otherEdgeId), Sets.newHashSet(graph.getOutEdgesAtTime(vertexId1, initTime + 7 * hour)));
+        assertEquals(edgeId, graph.upsertEdge(vertexId1, vertexId2, "NetworkConnectivity", initTime + 5 * hour + 1));
+    }
+
+    @Test
+    void testPurgeKeepsEndPointsOfUpsertedEdges() {
+        final long hour = TimeUnit.HOURS.toMillis(1);
+        final TemporalGraph graph = new TemporalGraph(initTime, TemporalGraphConfig.builder()
+                .partitionDurationMillis(hour)
+                .build());
+        int vertexId1 = graph.addVertex(null, initTime + 10);
+        int vertexId2 = graph.addVertex(null, initTime + 20);
+        int vertexId3 = graph.addVertex(null, initTime + 30);
+        int edgeId = graph.upsertEdge(vertexId1, vertexId2, "NetworkConnectivity", initTime + 40);
+        int otherEdgeId = graph.upsertEdge(vertexId2, vertexId3, "NetworkConnectivity", initTime + 50);
+        assertEquals(edgeId, graph.upsertEdge(vertexId1, vertexId2, "NetworkConnectivity", initTime + 3 * hour));
+
+        // the end points of the edges, re-asserted or not, survive along with them
+        graph.purgeAtTime(initTime + 2 * hour);
+        assertEquals(Sets.newHashSet(edgeId, otherEdgeId), Sets.newHashSet(graph.getAllEdgesAtTime(initTime + 3 * hour)));
+        assertEquals(Sets.newHashSet(vertexId1, vertexId2, vertexId3),
+                Sets.newHashSet(graph.getVerticesAtTime(initTime + 3 * hour)));
+        assertEquals(Sets.newHashSet(vertexId1, vertexId2, vertexId3),
+                Sets.newHashSet(graph.snapshotAt(initTime + 4 * hour).getVertices()));
+        assertEquals(Sets.newHashSet(edgeId, otherEdgeId), Sets.newHashSet(graph.getAllEdgesAtTime(initTime + 2 * hour + 10)));
+        // only the re-asserted edge is seen within the window of the retained partitions
+        assertEquals(Sets.newHashSet(edgeId),
+                Sets.newHashSet(graph.getAllEdgesBetween(initTime + 2 * hour + 10, initTime + 4 * hour)));
+    }
+
+    @Test
+    void testExternalVertexKeys() {
+        UUID uuid = UUID.randomUUID();
+        int vertexId1 = underTest.getOrAddVertex("vm-1", initTime);
+        int vertexId2 = underTest.getOrAddVertex(42L, initTime + 1);
+        int vertexId3 = underTest.getOrAddVertex(uuid, initTime + 2);
+        int vertexId4 = underTest.addVertex(null, initTime + 3);
+        assertEquals(vertexId1, underTest.getOrAddVertex("vm-1", initTime + 10));
+        assertEquals(vertexId2, underTest.getOrAddVertex(42L, initTime + 10));
+        assertEquals(vertexId3, underTest.getOrAddVertex(uuid, initTime + 10));
+        // keys of different types do not collide
+        assertNotEquals(vertexId2, underTest.getOrAddVertex("42", initTime + 10));
+        assertEquals(5, Iterators.size(underTest.getVerticesAtTime(initTime + 10)));
+        assertEquals(vertexId1, underTest.getVertexId("vm-1"));
+        assertEquals(TemporalGraph.UNKNOWN_VERTEX, underTest.getVertexId("vm-2"));
+        assertEquals("vm-1", underTest.getVertexKey(vertexId1));
+        assertEquals(42L, underTest.getVertexKey(vertexId2));
+        assertEquals(uuid, underTest.getVertexKey(vertexId3));
+        assertNull(underTest.getVertexKey(vertexId4));
+
+        // a removed vertex is replaced by a new one
+        underTest.removeVertex(vertexId1, initTime + 20);
+        assertEquals(vertexId1, underTest.getOrAddVertex("vm-1", initTime + 19));
+        int replacement = underTest.getOrAddVertex("vm-1", initTime + 20);
+        assertNotEquals(vertexId1, replacement);
+        assertEquals(replacement, underTest.getVertexId("vm-1"));
+    }
+
+    @Test
+    void testExternalVertexKeysAcrossRetention() {
+        final long hour = TimeUnit.HOURS.toMillis(1);
+        final TemporalGraph graph = new TemporalGraph(initTime, TemporalGraphConfig.builder()
+                .partitionDurationMillis(hour)
+                .build());
+        int ended = graph.getOrAddVertex("vm-1", initTime);
+        int live = graph.getOrAddVertex("vm-2", initTime);
+        graph.removeVertex(ended, initTime + 10);
+        graph.purgeAtTime(initTime + 2 * hour);
+        // the vertex ended before the retained partitions is forgotten along with its key
+        assertEquals(TemporalGraph.UNKNOWN_VERTEX, graph.getVertexId("vm-1"));
+        assertNull(graph.getVertexKey(ended));
+        int replacement = graph.getOrAddVertex("vm-1", initTime + 2 * hour + 10);
+        assertNotEquals(ended, replacement);
+        assertEquals(replacement, graph.getVertexId("vm-1"));
+        // the live vertex is retained along with its key
+        assertEquals(live, graph.getVertexId("vm-2"));
+        assertEquals(live, graph.getOrAddVertex("vm-2", initTime + 2 * hour + 10));
+        assertEquals("vm-2", graph.getVertexKey(live));
+    }
+
+    @Test
+    void testLabels() {
+        int vertexId1 = underTest.addVertex("VirtualMachine", null, initTime);
+        int vertexId2 = underTest.addVertex("VirtualMachine", null, initTime);
+        int vertexId3 = underTest.addVertex(null, initTime);
+        int edgeId1 = underTest.addEdge(vertexId1, vertexId2, "NetworkConnectivity", null, initTime + 1);
+        int edgeId2 = underTest.addEdge(vertexId1, vertexId2, "HostedOn", null, initTime + 2);
+        int edgeId3 = underTest.addEdge(vertexId1, vertexId3, null, initTime + 3);
+        int edgeId4 = underTest.upsertEdge(vertexId1, vertexId3, "NetworkConnectivity", initTime + 4);
+        assertEquals("VirtualMachine", underTest.getVertexLabel(vertexId1));
+        assertNull(underTest.getVertexLabel(vertexId3));
+        assertEquals("HostedOn", underTest.getEdgeLabel(edgeId2));
+        assertNull(underTest.getEdgeLabel(edgeId3));
+
+        assertEquals(Sets.newHashSet(edgeId1, edgeId2, edgeId3, edgeId4), Sets.newHashSet(underTest.getOutEdgesAtTime(vertexId1, initTime + 4)));
+        assertEquals(Sets.newHashSet(edgeId1, edgeId4), Sets.newHashSet(underTest.getOutEdgesAtTime(vertexId1, "NetworkConnectivity", initTime + 4)));
+        assertEquals(Sets.newHashSet(edgeId1), Sets.newHashSet(underTest.getOutEdgesAtTime(vertexId1, "NetworkConnectivity", initTime + 3)));
+        assertEquals(Sets.newHashSet(edgeId2), Sets.newHashSet(underTest.getInEdgesAtTime(vertexId2, "HostedOn", initTime + 4)));
+        assertEquals(0, Iterators.size(underTest.getInEdgesAtTime(vertexId3, "HostedOn", initTime + 4)));
+        assertEquals(0, Iterators.size(underTest.getOutEdgesAtTime(vertexId1, "Unknown", initTime + 4)));
+
+        underTest.removeEdge(edgeId1, initTime + 5);
+        assertEquals(Sets.newHashSet(edgeId4), Sets.newHashSet(underTest.getOutEdgesAtTime(vertexId1, "NetworkConnectivity", initTime + 5)));
+    }
+
+    @Test
+    void testWindowQueries() {
+        final long hour = TimeUnit.HOURS.toMillis(1);
+        final TemporalGraph graph = new TemporalGraph(initTime, TemporalGraphConfig.builder()
+                .partitionDurationMillis(hour)
+                .build());
+        int vertexId1 = graph.addVertex(null, initTime);
+        int vertexId2 = graph.addVertex(null, initTime);
+        List<Integer> edges = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            edges.add(graph.addEdge(vertexId1, vertexId2, null, initTime + i * hour / 2));
+        }
+        assertEquals(Sets.newHashSet(edges.subList(1, 4)),
+                Sets.newHashSet(graph.getOutEdgesBetween(vertexId1, initTime + hour / 2, initTime + 2 * hour)));
+        assertEquals(Sets.newHashSet(edges.subList(2, 3)),
+                Sets.newHashSet(graph.getInEdgesBetween(vertexId2, initTime + hour, initTime + hour + 1)));
+        assertEquals(Sets.newHashSet(edges.subList(0, 6)),
+                Sets.newHashSet(graph.getAllEdgesBetween(initTime, initTime + 10 * hour)));
+        assertEquals(Sets.newHashSet(edges.subList(5, 6)),
+                Sets.newHashSet(graph.getAllEdgesBetween(initTime + 2 * hour + 1, initTime + 10 * hour)));
+        // removed edges were still active within the window
+        graph.removeEdge(edges.get(1), initTime + hour);
+        assertEquals(2, Iterators.size(graph.getOutEdgesBetween(vertexId1, initTime, initTime + hour)));
+        assertEquals(0, Iterators.size(graph.getInEdgesBetween(vertexId1, initTime, initTime + 10 * hour)));
+        assertThrows(IllegalArgumentException.class, () -> graph.getAllEdgesBetween(initTime + 1, initTime + 1));
+    }
+
+    @Test
+    void testDiff() {
+        final long hour = TimeUnit.HOURS.toMillis(1);
+        final TemporalGraph graph = new TemporalGraph(initTime, TemporalGraphConfig.builder()
+                .partitionDurationMillis(hour)
+                .build());
+        int vertexId1 = graph.addVertex(null, initTime);
+        int vertexId2 = graph.addVertex(null, initTime);
+        int edgeId1 = graph.addEdge(vertexId1, vertexId2, null, initTime + 1);
+        int edgeId2 = graph.upsertEdge(vertexId1, vertexId2, "NetworkConnectivity", initTime + 2);
+        int vertexId3 = graph.addVertex(null, initTime + hour);
+        int edgeId3 = graph.addEdge(vertexId2, vertexId3, null, initTime + hour + 1);
+        int edgeId4 = graph.addEdge(vertexId2, vertexId3, null, initTime + hour + 2);
+        graph.removeEdge(edgeId4, initTime + 2 * hour);
+        graph.removeEdge(edgeId1, initTime + 2 * hour + 1);
+        // re-asserted within the window, but present before it
+        graph.upsertEdge(vertexId1, vertexId2, "NetworkConnectivity", initTime + 2 * hour + 2);
+
+        GraphDiff diff = graph.getDiff(initTime + 2, initTime + 3 * hour);
+        assertEquals(Sets.newHashSet(vertexId3), Sets.newHashSet(diff.getAddedVertices()));
+        assertTrue(diff.getEndedVertices().isEmpty());
+        assertEquals(Sets.newHashSet(edgeId3), Sets.newHashSet(diff.getAddedEdges()));
+        assertEquals(Sets.newHashSet(edgeId1), Sets.newHashSet(diff.getEndedEdges()));
+
+        // the diff matches the difference of the as-of queries
+        for (long from = initTime; from < initTime + 3 * hour; from += hour / 4) {
+            GraphDiff d = graph.getDiff(from, from + hour);
+            Set<Integer> before = Sets.newHashSet(graph.getAllEdgesAtTime(from));
+            Set<Integer> after = Sets.newHashSet(graph.getAllEdgesAtTime(from + hour));
+            assertEquals(Sets.difference(after, before), Sets.newHashSet(d.getAddedEdges()));
+            assertEquals(Sets.difference(before, after), Sets.newHashSet(d.getEndedEdges()));
+        }
+        assertTrue(graph.getDiff(initTime + 3, initTime + hour - 1).getAddedEdges().isEmpty());
+        assertEquals(edgeId2, graph.getDiff(initTime + 1, initTime + 2).getAddedEdges().iterator().nextInt());
+    }
+
+    @Test
+    void testChangeSubscription() throws PropertyNotFoundException {
+        final TemporalGraph graph = new TemporalGraph(initTime, TemporalGraphConfig.builder()
+                .changeLogCapacity(6)
+                .build());
+        int vertexId1 = graph.addVertex(null, initTime);
+        final ChangeSubscription subscription = graph.subscribe();
+        int vertexId2 = graph.addVertex("Host", null, initTime + 1);
+        int edgeId = graph.upsertEdge(vertexId1, vertexId2, "NetworkConnectivity",
+                ImmutableMap.of(property1, 10), initTime + 2);
+        graph.addEdgeProperty(edgeId, property1, 20, initTime + 3);
+        graph.removeVertex(vertexId2, initTime + 4);
+
+        List<ChangeEvent> events = subscription.poll(3);
+        assertEquals(3, events.size());
+        assertEquals(ChangeEvent.Type.VERTEX_ADDED, events.get(0).getType());
+        assertEquals(vertexId2, events.get(0).getEntityId());
+        assertEquals("Host", events.get(0).getName());
+        assertEquals(ChangeEvent.Type.EDGE_ADDED, events.get(1).getType());
+        assertEquals(vertexId1, events.get(1).getSrcVertexId());
+        assertEquals(vertexId2, events.get(1).getDestVertexId());
+        assertEquals(ChangeEvent.Type.EDGE_PROPERTY_APPENDED, events.get(2).getType());
+        assertEquals(10, events.get(2).getValue());
+        events = subscription.poll(10);
+        assertEquals(Arrays.asList(ChangeEvent.Type.EDGE_PROPERTY_APPENDED, ChangeEvent.Type.EDGE_REMOVED,
+                ChangeEvent.Type.VERTEX_REMOVED), Lists.transform(events, ChangeEvent::getType));
+        assertEquals(initTime + 4, events.get(2).getTimestamp());
+        assertTrue(subscription.poll(10).isEmpty());
+        assertEquals(0L, subscription.getDroppedEvents());
+
+        // a subscriber lagging by more than the capacity skips the overwritten events
+        for (int i = 0; i < 20; i++) {
+            graph.addVertex(null, initTime + 5 + i);
+        }
+        graph.purgeAtTime(initTime + 30);
+        assertEquals(21L, subscription.getLag());
+        events = subscription.poll(100);
+        assertEquals(8, events.size());
+        assertEquals(13L, subscription.getDroppedEvents());
+        for (int i = 1; i < events.size(); i++) {
+            assertEquals(events.get(i - 1).getSequence() + 1, events.get(i).getSequence());
+        }
+        assertEquals(ChangeEvent.Type.PURGE, events.get(events.size() - 1).getType());
+        // subscriptions don't share their cursor
+        assertTrue(graph.subscribe().poll(10).isEmpty());
+    }
+
+    @Test
+    void testAggregateProperty() throws PropertyNotFoundException {
+        final long hour = TimeUnit.HOURS.toMillis(1);
+        final long minute = TimeUnit.MINUTES.toMillis(1);
+        final TemporalGraph graph = new TemporalGraph(initTime, TemporalGraphConfig.builder()
+                .partitionDurationMillis(hour)
+                .build());
+        TemporalProperty cpu = TemporalProperty.builder().name(property2).id(getRandomId()).time(initTime).build();
+        cpu.setValueAtTime(initTime, 0L);
+        TemporalProperty label = TemporalProperty.builder().name("state").id(getRandomId()).time(initTime).build();
+        label.setValueAtTime(initTime, "up");
+        int vertexId1 = graph.addVertex(Sets.newHashSet(cpu, label), initTime);
+        int vertexId2 = graph.addVertex(null, initTime);
+        int edgeId = graph.upsertEdge(vertexId1, vertexId2, "NetworkConnectivity",
+                ImmutableMap.of(property1, 0.5d), initTime);
+        // a sample every ten seconds, the series of a partition spans several blocks
+        final long[] timestamps = new long[4 * 360];
+        final long[] cpuValues = new long[timestamps.length];
+        final double[] bandwidthValues = new double[timestamps.length];
+        final String[] states = new String[timestamps.length];
+        timestamps[0] = initTime;
+        bandwidthValues[0] = 0.5d;
+        states[0] = "up";
+        for (int i = 1; i < timestamps.length; i++) {
+            timestamps[i] = initTime + i * TimeUnit.SECONDS.toMillis(10);
+            cpuValues[i] = random.nextInt(100);
+            bandwidthValues[i] = random.nextDouble();
+            graph.addVertexProperty(vertexId1, property2, cpuValues[i], timestamps[i]);
+            graph.addEdgeProperty(edgeId, property1, bandwidthValues[i], timestamps[i]);
+            states[i] = "up" + i;
+            graph.addVertexProperty(vertexId1, "state", states[i], timestamps[i]);
+        }
+
+        // the aggregates hold before and after sealing the series
+        for (int pass = 0; pass < 2; pass++) {
+            if (1 == pass) {
+                for (TimePartition partition : graph.getPartitions()) {
+                    for (int propertyId : partition.getPropertyStore().getPropertyIds().toIntArray()) {
+                        partition.getPropertyStore().seal(propertyId);
+                    }
+                }
+            }
+            // windows spanning whole partitions and straddling their bounds
+            for (long from = initTime; from < initTime + 4 * hour; from += 37 * minute) {
+                for (long to = from; to < initTime + 5 * hour; to += 53 * minute) {
+                    long count = 0;
+                    double cpuSum = 0, cpuMin = Double.MAX_VALUE, cpuMax = -Double.MAX_VALUE, bandwidthSum = 0;
+                    int first = -1, last = -1;
+                    boolean sampled42 = false;
+                    for (int i = 0; i < timestamps.length; i++) {
+                        if (timestamps[i] >= from && timestamps[i] <= to) {
+                            count++;
+                            sampled42 |= 42L == cpuValues[i];
+                            cpuSum += cpuValues[i];
+                            cpuMin = Math.min(cpuMin, cpuValues[i]);
+                            cpuMax = Math.max(cpuMax, cpuValues[i]);
+                            bandwidthSum += bandwidthValues[i];
+                            first = -1 == first ? i : first;
+                            last = i;
+                        }
+                    }
+                    // range scans skip the blocks by their zone maps
+                    assertEquals(sampled42,
+                            Iterators.contains(graph.getVerticesByPropertyRange(property2, 42, 42, from, to), vertexId1));
+                    PropertyAggregate aggregate = graph.aggregateVertexProperty(vertexId1, property2, from, to);
+                    assertEquals(count, aggregate.getCount());
+                    if (0 == count) {
+                        assertTrue(Double.isNaN(aggregate.getAverage()));
+                        continue;
+                    }
+                    assertEquals(cpuSum, aggregate.getSum());
+                    assertEquals(cpuMin, aggregate.getMin());
+                    assertEquals(cpuMax, aggregate.getMax());
+                    assertEquals(cpuSum / count, aggregate.getAverage(), 1e-9);
+                    assertEquals(timestamps[first], aggregate.getFirstTimestamp());
+                    assertEquals(timestamps[last], aggregate.getLastTimestamp());
+                    if (first != last) {
+                        assertEquals((cpuValues[last] - cpuValues[first]) * 1000d / (timestamps[last] - timestamps[first]),
+                                aggregate.getRate(), 1e-9);
+                    } else {
+                        assertTrue(Double.isNaN(aggregate.getRate()));
+                    }
+                    aggregate = graph.aggregateEdgeProperty(edgeId, property1, from, to);
+                    assertEquals(count, aggregate.getCount());
+                    assertEquals(bandwidthSum, aggregate.getSum(), 1e-9);
+                    assertEquals(bandwidthValues[last], aggregate.getLastValue());
+                }
+            }
+            // point lookups only decode the block of the series holding the sample
+            for (int i = 0; i < timestamps.length; i += 7) {
+                assertEquals(cpuValues[i], graph.getVertexPropertyAtTime(vertexId1, property2, timestamps[i] + 1).getValue());
+                assertEquals(states[i], graph.getVertexPropertyAtTime(vertexId1, "state", timestamps[i] + 1).getValue());
+                assertEquals(bandwidthValues[i], graph.getEdgePropertyAtTime(edgeId, property1, timestamps[i] + 1).getValue());
+            }
+        }
+        // non numeric and unknown properties aggregate to nothing
+        assertEquals(0L, graph.aggregateVertexProperty(vertexId1, "state", initTime, initTime + hour).getCount());
+        assertEquals(0L, graph.aggregateVertexProperty(vertexId2, property2, initTime, initTime + hour).getCount());
+        assertThrows(IllegalArgumentException.class,
+                () -> graph.aggregateVertexProperty(vertexId1, property2, initTime + 1, initTime));
+        // windows start within the time line of the graph
+        assertThrows(IllegalArgumentException.class,
+                () -> graph.aggregateVertexProperty(vertexId1, property2, initTime - minute, initTime));
+        assertThrows(IllegalArgumentException.class,
+                () -> graph.getTopVerticesByProperty(property2, AggregateFunction.MAX, 1, initTime - minute, initTime));
+        assertThrows(IllegalArgumentException.class,
+                () -> graph.getEdgesByPropertyRange(property1, 0, 1, initTime - minute, initTime));
+    }
+
+    @Test
+    void testPropertyRollup() throws PropertyNotFoundException {
+        final long hour = TimeUnit.HOURS.toMillis(1);
+        final long minute = TimeUnit.MINUTES.toMillis(1);
+        final TemporalGraph graph = new TemporalGraph(initTime, TemporalGraphConfig.builder()
+                .partitionDurationMillis(hour)
+                .rollupResolutionsMillis(ImmutableMap.of(property1, new long[]{hour, 5 * minute}))
+                .build());
+        final long[] timestamps = new long[4 * 60];
+        final long[] values = new long[timestamps.length];
+        TemporalProperty bandwidth = TemporalProperty.builder().name(property1).id(getRandomId()).time(initTime).build();
+        bandwidth.setValueAtTime(initTime, 0L);
+        timestamps[0] = initTime;
+        int vertexId = graph.addVertex(Sets.newHashSet(bandwidth), initTime);
+        for (int i = 1; i < timestamps.length; i++) {
+            timestamps[i] = initTime + i * minute;
+            values[i] = random.nextInt(1000);
+            graph.addVertexProperty(vertexId, property1, values[i], timestamps[i]);
+        }
+
+        // served from the hourly tier, from the 5 minutes tier and from the raw samples
+        for (long resolution : new long[]{hour, 2 * hour, 15 * minute, 2 * minute}) {
+            for (long from = initTime; from < initTime + 4 * hour; from += 47 * minute) {
+                final long to = from + 73 * minute;
+                assertRollup(timestamps, values, from, to, resolution,
+                        graph.getVertexPropertyRollup(vertexId, property1, from, to, resolution));
+            }
+        }
+        assertTrue(graph.getVertexPropertyRollup(vertexId, property2, initTime, initTime + hour, hour).isEmpty());
+
+        // the rollups outlive the raw samples
+        graph.purgeAtTime(initTime + 2 * hour);
+        final long end = initTime + 4 * hour;
+        assertRollup(timestamps, values, initTime, end, hour,
+                graph.getVertexPropertyRollup(vertexId, property1, initTime, end, hour));
+        assertTrue(graph.getVertexPropertyRollup(vertexId, property1, initTime, initTime + hour, minute).isEmpty());
+        // without the rollups only the raw samples of the retained partitions are left
+        graph.purgeRollupsAtTime(end + hour);
+        assertTrue(graph.getVertexPropertyRollup(vertexId, property1, initTime, initTime + hour, hour).isEmpty());
+        assertFalse(graph.getVertexPropertyRollup(vertexId, property1, initTime + 3 * hour, end, hour).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> new TemporalGraph(initTime, TemporalGraphConfig.builder()
+                .rollupResolutionsMillis(ImmutableMap.of(property1, new long[]{0L}))
+                .build()));
+    }
+
+    private static void assertRollup(final long[] timestamps,
+                                     final long[] values,
+                                     final long from,
+                                     final long to,
+                                     final long resolution,
+                                     final List<RollupBucket> actual) {
+        final Map<Long, List<Long>> expected = new TreeMap<>();
+        for (int i = 0; i < timestamps.length; i++) {
+            final long start = timestamps[i] - Math.floorMod(timestamps[i], resolution);
+            if (start + resolution > from && start <= to) {
+                expected.computeIfAbsent(start, s -> new ArrayList<>()).add(values[i]);
+            }
+        }
+        assertEquals(expected.size(), actual.size());
+        int i = 0;
+        for (Map.Entry<Long, List<Long>> e : expected.entrySet()) {
+            final RollupBucket bucket = actual.get(i++);
+            assertEquals((long) e.getKey(), bucket.getTimestamp());
+            assertEquals(e.getValue().size(), bucket.getCount());
+            assertEquals(e.getValue().stream().mapToLong(Long::longValue).sum(), bucket.getSum());
+            assertEquals(Collections.min(e.getValue()).doubleValue(), bucket.getMin());
+            assertEquals(Collections.max(e.getValue()).doubleValue(), bucket.getMax());
+        }
+    }
+
+    @Test
+    void testAggregateNeighborhoodEdgeProperty() throws PropertyNotFoundException {
+        final long hour = TimeUnit.HOURS.toMillis(1);
+        final TemporalGraph graph = new TemporalGraph(initTime, TemporalGraphConfig.builder()
+                .partitionDurationMillis(hour)
+                .build());
+        int hub = graph.addVertex(null, initTime);
+        int host = graph.addVertex(null, initTime);
+        // the edges of the hub are aggregated in parallel, the ones of the host sequentially
+        for (int i = 0; i < 5000; i++) {
+            int vertexId = graph.addVertex(null, initTime);
+            TemporalProperty bandwidth = TemporalProperty.builder().name(property1).id(getRandomId()).time(initTime + i).build();
+            bandwidth.setValueAtTime(initTime + i, (long) random.nextInt(1000));
+            int edgeId = graph.addEdge(hub, vertexId, Sets.newHashSet(bandwidth), initTime + i);
+            if (i % 7 == 0) {
+                graph.addEdgeProperty(edgeId, property1, (long) random.nextInt(1000), initTime + hour + i);
+            }
+            if (i % 11 == 0) {
+                graph.removeEdge(edgeId, initTime + 2 * hour + i);
+            }
+            if (i < 10) {
+                graph.upsertEdge(vertexId, host, "NetworkConnectivity", ImmutableMap.of(property1, 0.5d * i),
+                        initTime + hour + i);
+            }
+        }
+        graph.addEdge(hub, host, null, initTime + 1);
+
+        // the latest timestamps fall amid, then past, the removals
+        for (long ts : new long[]{initTime + hour / 2, initTime + hour + 3000, initTime + 2 * hour + 2500,
+                initTime + 3 * hour}) {
+            assertNeighborhoodAggregate(graph, hub, ts, true);
+            assertNeighborhoodAggregate(graph, host, ts, false);
+        }
+        assertEquals(0d, graph.aggregateOutEdgeProperty(host, property1, AggregateFunction.SUM, initTime));
+        assertTrue(Double.isNaN(graph.aggregateOutEdgeProperty(host, property1, AggregateFunction.MAX, initTime)));
+    }
+
+    private static void assertNeighborhoodAggregate(final TemporalGraph graph,
+                                                    final int vertexId,
+                                                    final long ts,
+                                                    final boolean outgoing) {
+        final Iterator<Integer> edges = outgoing ? graph.getOutEdgesAtTime(vertexId, ts) : graph.getInEdgesAtTime(vertexId, ts);
+        final List<Double> values = new ArrayList<>();
+        edges.forEachRemaining(edgeId -> {
+            TimestampedPropertyValue value = graph.getEdgePropertyAtTime(edgeId, property1, ts);
+            if (null != value && null != value.getValue()) {
+                values.add(((Number) value.getValue()).doubleValue());
+            }
+        });
+        for (AggregateFunction function : AggregateFunction.values()) {
+            final double actual = outgoing
+                    ? graph.aggregateOutEdgeProperty(vertexId, property1, function, ts)
+                    : graph.aggregateInEdgeProperty(vertexId, property1, function, ts);
+            final double sum = values.stream().mapToDouble(Double::doubleValue).sum();
+            final double expected = function.evaluate(values.size(), sum,
+                    values.stream().mapToDouble(Double::doubleValue).min().orElse(Double.NaN),
+                    values.stream().mapToDouble(Double::doubleValue).max().orElse(Double.NaN));
+            assertEquals(expected, actual, 1e-6);
+        }
+    }
+
+    @Test
+    void testTopKByProperty() throws PropertyNotFoundException {
+        final long hour = TimeUnit.HOURS.toMillis(1);
+        final TemporalGraph graph = new TemporalGraph(initTime, TemporalGraphConfig.builder()
+                .partitionDurationMillis(hour)
+                .build());
+        final int vertexCount = 100;
+        for (int i = 0; i < vertexCount; i++) {
+            TemporalProperty cpu = TemporalProperty.builder().name(property2).id(getRandomId()).time(initTime).build();
+            cpu.setValueAtTime(initTime, (long) random.nextInt(50));
+            graph.addVertex(Sets.newHashSet(cpu), initTime);
+        }
+        // spread over several ranking chunks
+        final int edgeCount = 10000;
+        final Map<Integer, List<long[]>> volumes = new HashMap<>();
+        for (int i = 0; i < edgeCount; i++) {
+            long ts = initTime + i;
+            long volume = random.nextInt(100000);
+            int edgeId = graph.upsertEdge(random.nextInt(vertexCount), random.nextInt(vertexCount), "Flow",
+                    ImmutableMap.of(property3, volume), ts);
+            volumes.computeIfAbsent(edgeId, e -> new ArrayList<>()).add(new long[]{ts, volume});
+            if (i % 13 == 0) {
+                graph.removeEdge(edgeId, ts + 1);
+            }
+        }
+        final long ts = initTime + edgeCount;
+        final List<RankedEntity> top = graph.getTopEdgesByProperty(property3, 25, ts);
+        final List<RankedEntity> expected = new ArrayList<>();
+        graph.getAllEdgesAtTime(ts).forEachRemaining(edgeId -> expected.add(
+                new RankedEntity(edgeId, ((Number) graph.getEdgePropertyAtTime(edgeId, property3, ts).getValue()).doubleValue())));
+        expected.sort((a, b) -> a.getValue() != b.getValue()
+                ? Double.compare(b.getValue(), a.getValue()) : Integer.compare(a.getId(), b.getId()));
+        assertEquals(expected.subList(0, 25), top);
+
+        // the sum of the samples within a window, including the edges ended within the window
+        final long from = initTime + edgeCount / 2;
+        final List<RankedEntity> expectedSums = new ArrayList<>();
+        for (Map.Entry<Integer, List<long[]>> e : volumes.entrySet()) {
+            long sum = 0;
+            boolean sampled = false;
+            for (long[] sample : e.getValue()) {
+                if (sample[0] >= from && sample[0] <= ts) {
+                    sum += sample[1];
+                    sampled = true;
+                }
+            }
+            if (sampled) {
+                expectedSums.add(new RankedEntity(e.getKey(), sum));
+            }
+        }
+        expectedSums.sort((a, b) -> a.getValue() != b.getValue()
+                ? Double.compare(b.getValue(), a.getValue()) : Integer.compare(a.getId(), b.getId()));
+        assertEquals(expectedSums.subList(0, 10),
+                graph.getTopEdgesByProperty(property3, AggregateFunction.SUM, 10, from, ts));
+        assertEquals(expectedSums.size(),
+                graph.getTopEdgesByProperty(property3, AggregateFunction.SUM, edgeCount, from, ts).size());
+
+        final List<RankedEntity> topVertices = graph.getTopVerticesByProperty(property2, 5, ts);
+        assertEquals(5, topVertices.size());
+        for (int vertexId = 0; vertexId < vertexCount; vertexId++) {
+            final double cpu = ((Number) graph.getVertexPropertyAtTime(vertexId, property2, ts).getValue()).doubleValue();
+            final int id = vertexId;
+            assertTrue(cpu <= topVertices.get(4).getValue()
+                    || topVertices.stream().anyMatch(r -> r.getId() == id));
+        }
+        assertEquals(topVertices.subList(0, 1),
+                graph.getTopVerticesByProperty(property2, AggregateFunction.MAX, 1, initTime, ts));
+        assertTrue(graph.getTopVerticesByProperty(property1, 5, ts).isEmpty());
+        assertTrue(graph.getTopEdgesByProperty(property3, 0, ts).isEmpty());
+    }
+
+    @Test
+    void testTopKWindowAfterEndedHistory() throws PropertyNotFoundException {
+        final long hour = TimeUnit.HOURS.toMillis(1);
+        final TemporalGraph graph = new TemporalGraph(initTime, TemporalGraphConfig.builder()
+                .partitionDurationMillis(hour)
+                .build());
+        final long from = initTime + 8 * hour + 30;
+        final long to = initTime + 9 * hour;
+        // most of the vertices and edges are created and ended before the window
+        int hub = graph.addVertex(null, initTime);
+        for (int i = 0; i < 5000; i++) {
+            final long ts = initTime + i * (from - initTime - 10) / 5000;
+            int vertexId = graph.addVertex(Sets.newHashSet(cpuSample(1000L + i, ts)), ts);
+            graph.upsertEdge(hub, vertexId, "Flow", ImmutableMap.of(property3, 1000L + i), ts);
+            // the edge ends along with the vertex
+            graph.removeVertex(vertexId, ts + 10);
+        }
+        // created long before the window and alive throughout, ended within the window, created within the window
+        int longLived = graph.addVertex(Sets.newHashSet(cpuSample(1L, initTime + 10)), initTime + 10);
+        int endedWithin = graph.addVertex(Sets.newHashSet(cpuSample(1L, initTime + 3 * hour)), initTime + 3 * hour);
+        int createdWithin = graph.addVertex(Sets.newHashSet(cpuSample(10L, from + 10)), from + 10);
+        graph.addVertexProperty(longLived, property2, 30L, from + 20);
+        graph.addVertexProperty(endedWithin, property2, 20L, from + 20);
+        graph.removeVertex(endedWithin, from + 30);
+        int longLivedEdge = graph.upsertEdge(hub, longLived, "Flow", ImmutableMap.of(property3, 5L), initTime + 20);
+        graph.addEdgeProperty(longLivedEdge, property3, 7L, from + 40);
+
+        assertEquals(Arrays.asList(new RankedEntity(longLived, 30), new RankedEntity(endedWithin, 20),
+                        new RankedEntity(createdWithin, 10)),
+                graph.getTopVerticesByProperty(property2, AggregateFunction.MAX, 5, from, to));
+        assertEquals(Collections.singletonList(new RankedEntity(longLivedEdge, 7)),
+                graph.getTopEdgesByProperty(property3, AggregateFunction.MAX, 5, from, to));
+        assertEquals(Sets.newHashSet(longLived, endedWithin, createdWithin),
+                Sets.newHashSet(graph.getVerticesByPropertyRange(property2, 0, 100, from, to)));
+        // the ended history still ranks within its own windows
+        assertEquals(Collections.singletonList(new RankedEntity(5000, 1000 + 4999)),
+                graph.getTopVerticesByProperty(property2, AggregateFunction.MAX, 1, initTime, from));
+    }
+
+    private TemporalProperty cpuSample(final long value, final long timestamp) {
+        TemporalProperty cpu = TemporalProperty.builder().name(property2).id(getRandomId()).time(timestamp).build();
+        cpu.setValueAtTime(timestamp, value);
+        return cpu;
+    }
+
+    @Test
+    void testPropertyValueIndex() throws PropertyNotFoundException {
+        final long hour = TimeUnit.HOURS.toMillis(1);
+        final String ipAddress = "IPAddress";
+        final TemporalGraph graph = new TemporalGraph(initTime, TemporalGraphConfig.builder()
+                .partitionDurationMillis(hour)
+                .indexedVertexProperties(Sets.newHashSet(ipAddress))
+                .indexedEdgeProperties(Sets.newHashSet(property1))
+                .build());
+        final int vertexCount = 50;
+        for (int i = 0; i < vertexCount; i++) {
+            TemporalProperty ip = TemporalProperty.builder().name(ipAddress).id(getRandomId()).time(initTime).build();
+            ip.setValueAtTime(initTime, "10.1.2." + random.nextInt(5));
+            graph.addVertex(Sets.newHashSet(ip), initTime);
+        }
+        for (int i = 1; i < 500; i++) {
+            final long ts = initTime + i * (3 * hour / 500);
+            graph.addVertexProperty(1 + random.nextInt(vertexCount - 1), ipAddress, "10.1.2." + random.nextInt(5), ts);
+            graph.upsertEdge(1 + random.nextInt(vertexCount - 1), 1 + random.nextInt(vertexCount - 1),
+                    "NetworkConnectivity", ImmutableMap.of(property1, (long) random.nextInt(3)), ts);
+        }
+        // the removed vertex keeps its value, but is not found anymore
+        graph.removeVertex(0, initTime + hour + 1);
+
+        // the index agrees with a scan of the vertices and their properties
+        for (long ts = initTime; ts < initTime + 4 * hour; ts += hour / 7) {
+            for (int i = 0; i < 5; i++) {
+                final String ip = "10.1.2." + i;
+                final Set<Integer> expected = new HashSet<>();
+                final long time = ts;
+                graph.getVerticesAtTime(ts).forEachRemaining(vertexId -> {
+                    if (ip.equals(graph.getVertexPropertyAtTime(vertexId, ipAddress, time).getValue())) {
+                        expected.add(vertexId);
+                    }
+                });
+                assertEquals(expected, Sets.newHashSet(graph.getVerticesByPropertyValue(ipAddress, ip, ts)));
+            }
+            final Set<Integer> expectedEdges = new HashSet<>();
+            final long time = ts;
+            graph.getAllEdgesAtTime(ts).forEachRemaining(edgeId -> {
+                if (Long.valueOf(1L).equals(graph.getEdgePropertyAtTime(edgeId, property1, time).getValue())) {
+                    expectedEdges.add(edgeId);
+                }
+            });
+            assertEquals(expectedEdges, Sets.newHashSet(graph.getEdgesByPropertyValue(property1, 1L, ts)));
+        }
+
+        // range lookups match the union of the as-of lookups over the samples within the range
+        final long from = initTime + hour;
+        final long to = initTime + 2 * hour;
+        final Set<Integer> union = Sets.newHashSet(graph.getVerticesByPropertyValue(ipAddress, "10.1.2.0", from));
+        for (int i = 1; i < 500; i++) {
+            final long ts = initTime + i * (3 * hour / 500);
+            if (ts > from && ts <= to) {
+                union.addAll(Sets.newHashSet(graph.getVerticesByPropertyValue(ipAddress, "10.1.2.0", ts)));
+            }
+        }
+        assertEquals(union, Sets.newHashSet(graph.getVerticesByPropertyValue(ipAddress, "10.1.2.0", from, to)));
+        assertFalse(graph.getVerticesByPropertyValue(ipAddress, "10.9.9.9", initTime).hasNext());
+
+        // the postings ending within the dropped partitions go away, the live vertices keep their latest value
+        final Set<Integer> expected = Sets.newHashSet(graph.getVerticesByPropertyValue(ipAddress, "10.1.2.0", initTime + 4 * hour));
+        TemporalProperty ip = TemporalProperty.builder().name(ipAddress).id(getRandomId()).time(initTime + 4 * hour).build();
+        ip.setValueAtTime(initTime + 4 * hour, "10.1.2.0");
+        expected.add(graph.addVertex(Sets.newHashSet(ip), initTime + 4 * hour));
+        graph.purgeAtTime(initTime + 4 * hour);
+        assertEquals(expected,
+                Sets.newHashSet(graph.getVerticesByPropertyValue(ipAddress, "10.1.2.0", initTime, initTime + 5 * hour)));
+        assertThrows(IllegalArgumentException.class, () -> graph.getVerticesByPropertyValue(property2, 1L, initTime));
+    }
+
+    @Test
+    void testOutOfOrderIndexedSamples() throws PropertyNotFoundException {
+        final String ipAddress = "IPAddress";
+        final TemporalGraph graph = new TemporalGraph(initTime, TemporalGraphConfig.builder()
+                .indexedVertexProperties(Sets.newHashSet(ipAddress))
+                .build());
+        // a series out of order is rejected before any of its samples is indexed
+        final ArrayList<TemporalProperty.TimeStampWithValue> values = Lists.newArrayList(
+                new TemporalProperty.TimeStampWithValue(10, "10.1.2.1"),
+                new TemporalProperty.TimeStampWithValue(5, "10.1.2.2"));
+        final TemporalProperty unordered = TemporalProperty.builder().name(ipAddress).id(getRandomId())
+                .time(initTime).values(values).build();
+        assertThrows(IllegalArgumentException.class, () -> graph.addVertex(Sets.newHashSet(unordered), initTime));
+        assertFalse(graph.getVerticesByPropertyValue(ipAddress, "10.1.2.1", initTime + 7).hasNext());
+        assertFalse(graph.getVerticesByPropertyValue(ipAddress, "10.1.2.2", initTime + 10).hasNext());
+
+        TemporalProperty ip = TemporalProperty.builder().name(ipAddress).id(getRandomId()).time(initTime).build();
+        ip.setValueAtTime(initTime, "10.1.2.1");
+        final int vertexId = graph.addVertex(Sets.newHashSet(ip), initTime);
+        graph.addVertexProperty(vertexId, ipAddress, "10.1.2.2", initTime + 10);
+        assertThrows(IllegalArgumentException.class,
+                () -> graph.addVertexProperty(vertexId, ipAddress, "10.1.2.3", initTime + 5));
+        assertEquals(Collections.singletonList(vertexId),
+                Lists.newArrayList(graph.getVerticesByPropertyValue(ipAddress, "10.1.2.1", initTime + 7)));
+        assertFalse(graph.getVerticesByPropertyValue(ipAddress, "10.1.2.3", initTime + 7).hasNext());
+
+        // the index rejects a sample preceding the latest one of the entity, even once its posting is closed
+        final PropertyValueIndex index = new PropertyValueIndex(Sets.newHashSet(ipAddress));
+        index.add(ipAddress, 1, "10.1.2.1", 10);
+        assertThrows(IllegalArgumentException.class, () -> index.add(ipAddress, 1, "10.1.2.2", 5));
+        index.add(ipAddress, 1, null, 20);
+        assertThrows(IllegalArgumentException.class, () -> index.add(ipAddress, 1, "10.1.2.2", 15));
+        index.add(ipAddress, 2, "10.1.2.2", 15);
+        index.purgeTill(30);
+        index.add(ipAddress, 1, "10.1.2.2", 40);
+        final IntBitmapSet matches = new IntBitmapSet();
+        index.collect(ipAddress, "10.1.2.2", 0, 50, matches);
+        assertEquals(Sets.newHashSet(1, 2), Sets.newHashSet(matches.iterator()));
+    }
+
+    @Test
+    void testPropertyRangeScan() throws PropertyNotFoundException {
+        final long hour = TimeUnit.HOURS.toMillis(1);
+        final String sessionCount = "SessionCount";
+        final TemporalGraph graph = new TemporalGraph(initTime, TemporalGraphConfig.builder()
+                .partitionDurationMillis(hour)
+                .build());
+        final int vertexCount = 30;
+        for (int i = 0; i < vertexCount; i++) {
+            TemporalProperty load = TemporalProperty.builder().name(property2).id(getRandomId()).time(initTime).build();
+            // non numeric series are never matched
+            load.setValueAtTime(initTime, i % 10 == 0 ? "n/a" : (Object) (random.nextDouble() * i));
+            graph.addVertex(Sets.newHashSet(load), initTime);
+        }
+        final Map<Integer, List<long[]>> samples = new HashMap<>();
+        for (int i = 0; i < 3000; i++) {
+            final long ts = initTime + i * (3 * hour / 3000);
+            // the session counts only peak within the second hour
+            final long count = random.nextInt(ts >= initTime + hour && ts < initTime + 2 * hour ? 20000 : 10000);
+            int edgeId = graph.upsertEdge(random.nextInt(vertexCount), random.nextInt(vertexCount), "Flow",
+                    ImmutableMap.of(sessionCount, count), ts);
+            samples.computeIfAbsent(edgeId, e -> new ArrayList<>()).add(new long[]{ts, count});
+        }
+        // the zone maps of the series of the first and last partitions rule them out
+        final List<TimePartition> partitions = new ArrayList<>(graph.getPartitions());
+        for (int i = 0; i < partitions.size(); i++) {
+            final PropertyStore store = partitions.get(i).getPropertyStore();
+            final boolean peaked = store.getPropertyIds().stream().anyMatch(propertyId ->
+                    store.anyWithin(propertyId, 10000, Double.MAX_VALUE, initTime, initTime + 3 * hour));
+            assertEquals(1 == i, peaked);
+        }
+
+        final long[][] windows = {{initTime, initTime + 3 * hour}, {initTime + hour / 2, initTime + hour + hour / 3},
+                {initTime + 2 * hour, initTime + 3 * hour}, {initTime + hour + 17, initTime + hour + 17}};
+        final double[][] ranges = {{10000, Double.MAX_VALUE}, {0, 100}, {5000, 5100}};
+        for (long[] window : windows) {
+            for (double[] range : ranges) {
+                final Set<Integer> expected = new HashSet<>();
+                for (Map.Entry<Integer, List<long[]>> e : samples.entrySet()) {
+                    for (long[] sample : e.getValue()) {
+                        if (sample[0] >= window[0] && sample[0] <= window[1]
+                                && sample[1] >= range[0] && sample[1] <= range[1]) {
+                            expected.add(e.getKey());
+                        }
+                    }
+                }
+                assertEquals(expected, Sets.newHashSet(
+                        graph.getEdgesByPropertyRange(sessionCount, range[0], range[1], window[0], window[1])));
+            }
+        }
+
+        final Set<Integer> expectedVertices = new HashSet<>();
+        for (int vertexId = 0; vertexId < vertexCount; vertexId++) {
+            final Object load = graph.getVertexPropertyAtTime(vertexId, property2, initTime).getValue();
+            if (load instanceof Double && (Double) load >= 5d) {
+                expectedVertices.add(vertexId);
+            }
+        }
+        assertEquals(expectedVertices, Sets.newHashSet(
+                graph.getVerticesByPropertyRange(property2, 5d, Double.MAX_VALUE, initTime, initTime + hour)));
+        assertFalse(graph.getVerticesByPropertyRange(property1, 0d, 1d, initTime, initTime + hour).hasNext());
+    }
+
+    @Test
+    void testSnapshot() throws PropertyNotFoundException {
+        final long hour = TimeUnit.HOURS.toMillis(1);
+        final TemporalGraph graph = new TemporalGraph(initTime, TemporalGraphConfig.builder()
+                .partitionDurationMillis(hour)
+                .build());
+        final int vertexCount = 20;
+        final List<Integer> vertexIds = new ArrayList<>();
+        for (int i = 0; i < vertexCount; i++) {
+            TemporalProperty prop = TemporalProperty.builder().name(property2).id(getRandomId()).time(initTime).build();
+            prop.setValueAtTime(initTime, (long) i);
+            vertexIds.add(graph.addVertex(Sets.newHashSet(prop), initTime));
+        }
+        final List<Integer> edgeIds = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            // property samples are appended in order
+            long ts = initTime + 1 + i * (4 * hour / 200);
+            int edgeId = graph.upsertEdge(vertexIds.get(random.nextInt(vertexCount)),
+                    vertexIds.get(random.nextInt(vertexCount)), "NetworkConnectivity",
+                    ImmutableMap.of(property1, (long) i), ts);
+            edgeIds.add(edgeId);
+        }
+        graph.removeVertex(vertexIds.get(0), initTime + 2 * hour);
+        graph.addVertexProperty(vertexIds.get(1), property2, 100L, initTime + hour);
+
+        for (long ts = initTime; ts < initTime + 5 * hour; ts += hour / 2) {
+            final GraphSnapshot snapshot = graph.snapshotAt(ts);
+            assertEquals(ts, snapshot.getTimestamp());
+            assertEquals(Sets.newHashSet(graph.getVerticesAtTime(ts)), Sets.newHashSet(snapshot.getVertices()));
+            for (int vertexId : vertexIds) {
+                // the second lookup is served from the cache
+                for (int i = 0; i < 2; i++) {
+                    assertEquals(Sets.newHashSet(graph.getOutEdgesAtTime(vertexId, ts)),
+                            Sets.newHashSet(snapshot.getOutEdges(vertexId)));
+                    assertEquals(Sets.newHashSet(graph.getInEdgesAtTime(vertexId, ts)),
+                            Sets.newHashSet(snapshot.getInEdges(vertexId)));
+                }
+                Set<Integer> neighbors = new HashSet<>();
+                graph.getOutEdgesAtTime(vertexId, ts).forEachRemaining(e -> neighbors.add(snapshot.getEdgeDestVertex(e)));
+                assertEquals(neighbors, Sets.newHashSet(snapshot.getOutNeighbors(vertexId)));
+                neighbors.clear();
+                graph.getInEdgesAtTime(vertexId, ts).forEachRemaining(e -> neighbors.add(snapshot.getEdgeSrcVertex(e)));
+                assertEquals(neighbors, Sets.newHashSet(snapshot.getInNeighbors(vertexId)));
+                assertEquals(graph.getVertexPropertyAtTime(vertexId, property2, ts).getValue(),
+                        snapshot.getVertexProperty(vertexId, property2).getValue());
+            }
+            for (int edgeId : edgeIds) {
+                TimestampedPropertyValue expected = graph.getEdgePropertyAtTime(edgeId, property1, ts);
+                TimestampedPropertyValue actual = snapshot.getEdgeProperty(edgeId, property1);
+                assertEquals(null == expected ? null : expected.getValue(), null == actual ? null : actual.getValue());
+            }
+        }
+        final GraphSnapshot snapshot = graph.snapshotAt(initTime + hour);
+        assertEquals(100L, snapshot.getVertexProperty(vertexIds.get(1), property2).getValue());
+        assertNull(snapshot.getVertexProperty(vertexIds.get(1), property3));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.getVertices().remove((int) vertexIds.get(1)));
+        assertThrows(IllegalArgumentException.class, () -> snapshot.getOutEdges(vertexCount));
+    }
+
     private void checkPropertyValues(Set<TimestampedPropertyValue> properties, int size, long p1Val, long p2Val) {
         assertNotNull(properties);
         assertEquals(size, properties.size());
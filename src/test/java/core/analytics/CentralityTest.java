@@ -0,0 +1,136 @@
+package core.analytics;
+
+/*
+ Copyright 2023 VMware, Inc.
+ SPDX-License-Identifier: BSD-2-Clause
+*/
+
+import com.google.common.collect.ImmutableMap;
+import core.GraphSnapshot;
+import core.TemporalGraph;
+import model.Direction;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CentralityTest {
+    private static final long initTime = System.currentTimeMillis();
+    private static final String weight = "Bandwidth";
+
+    @Test
+    void testDegrees() {
+        final TemporalGraph graph = new TemporalGraph(initTime);
+        int vertexId1 = graph.addVertex(null, initTime);
+        int vertexId2 = graph.addVertex(null, initTime);
+        int vertexId3 = graph.addVertex(null, initTime);
+        graph.upsertEdge(vertexId1, vertexId2, "NetworkConnectivity", ImmutableMap.of(weight, 10L), initTime + 1);
+        graph.upsertEdge(vertexId1, vertexId3, "NetworkConnectivity", ImmutableMap.of(weight, 5L), initTime + 1);
+        graph.upsertEdge(vertexId2, vertexId3, "Dependency", ImmutableMap.of(weight, 1L), initTime + 1);
+        int edgeId = graph.addEdge(vertexId3, vertexId1, null, initTime + 1);
+        graph.removeEdge(edgeId, initTime + 5);
+        graph.upsertEdge(vertexId1, vertexId2, "NetworkConnectivity", ImmutableMap.of(weight, 20L), initTime + 6);
+
+        GraphSnapshot snapshot = graph.snapshotAt(initTime + 2);
+        CsrGraph csr = CsrGraph.of(snapshot, null);
+        assertEquals(3, csr.getVertexCount());
+        assertEquals(4, csr.getEdgeCount());
+        assertArrayEquals(new int[]{2, 1, 1}, Centrality.degree(csr, Direction.OUT));
+        assertArrayEquals(new int[]{1, 1, 2}, Centrality.degree(csr, Direction.IN));
+        assertArrayEquals(new int[]{3, 2, 3}, Centrality.degree(csr, Direction.BOTH));
+        assertArrayEquals(new double[]{15d, 1d, 0d},
+                Centrality.weightedDegree(snapshot, csr, Direction.OUT, weight, 0d), 0d);
+        assertArrayEquals(new double[]{1d, 10d, 6d},
+                Centrality.weightedDegree(snapshot, csr, Direction.IN, weight, 1d), 0d);
+
+        snapshot = graph.snapshotAt(initTime + 6);
+        csr = CsrGraph.of(snapshot, "NetworkConnectivity");
+        assertEquals(2, csr.getEdgeCount());
+        assertArrayEquals(new int[]{0, 1, 1}, Centrality.degree(csr, Direction.IN));
+        assertArrayEquals(new double[]{25d, 20d, 5d},
+                Centrality.weightedDegree(snapshot, csr, Direction.BOTH, weight, 0d), 0d);
+        assertEquals(0, CsrGraph.of(snapshot, "Unknown").getEdgeCount());
+    }
+
+    @Test
+    void testEdgesToAbsentVertices() {
+        final TemporalGraph graph = new TemporalGraph(initTime);
+        int vertexId1 = graph.addVertex(null, initTime);
+        int vertexId2 = graph.addVertex(null, initTime);
+        int vertexId3 = graph.addVertex(null, initTime + 100);
+        graph.addEdge(vertexId1, vertexId2, null, initTime + 10);
+        // the destination is not present yet at the instant of the snapshot
+        graph.addEdge(vertexId1, vertexId3, null, initTime + 10);
+
+        final CsrGraph csr = CsrGraph.of(graph.snapshotAt(initTime + 50), null);
+        assertEquals(2, csr.getVertexCount());
+        assertEquals(1, csr.getEdgeCount());
+        assertArrayEquals(new int[]{1, 0, 0}, Centrality.degree(csr, Direction.OUT));
+        // no rank leaks through the edge to the absent vertex
+        final double[] ranks = Centrality.pageRank(csr);
+        assertEquals(1d, Arrays.stream(ranks).sum(), 1e-9d);
+        assertEquals(0d, ranks[vertexId3], 0d);
+    }
+
+    @Test
+    void testPageRank() {
+        final Random random = new Random(3);
+        final TemporalGraph graph = new TemporalGraph(initTime);
+        final int vertexCount = 500;
+        for (int i = 0; i < vertexCount; i++) {
+            graph.addVertex(null, initTime);
+        }
+        final int[] src = new int[4000];
+        final int[] dest = new int[src.length];
+        for (int i = 0; i < src.length; i++) {
+            // vertices past 400 have no out edges
+            src[i] = random.nextInt(400);
+            dest[i] = random.nextInt(vertexCount);
+            graph.addEdge(src[i], dest[i], null, initTime + 1);
+        }
+        final double[] ranks = Centrality.pageRank(CsrGraph.of(graph.snapshotAt(initTime + 1), null),
+                0.85d, 100, 1e-12d);
+        assertEquals(1d, Arrays.stream(ranks).sum(), 1e-9d);
+        assertArrayEquals(pageRank(vertexCount, src, dest, 0.85d, 100), ranks, 1e-9d);
+
+        // a directed cycle ranks every vertex the same
+        final TemporalGraph cycle = new TemporalGraph(initTime);
+        for (int i = 0; i < 10; i++) {
+            cycle.addVertex(null, initTime);
+        }
+        for (int i = 0; i < 10; i++) {
+            cycle.addEdge(i, (i + 1) % 10, null, initTime);
+        }
+        final double[] expected = new double[10];
+        Arrays.fill(expected, 0.1d);
+        assertArrayEquals(expected, Centrality.pageRank(CsrGraph.of(cycle.snapshotAt(initTime), null)), 1e-9d);
+        assertEquals(0, Centrality.pageRank(CsrGraph.of(new TemporalGraph(initTime).snapshotAt(initTime), null)).length);
+    }
+
+    // push based reference implementation
+    private static double[] pageRank(final int n, final int[] src, final int[] dest, final double d, final int iterations) {
+        final int[] outDegrees = new int[n];
+        for (int s : src) {
+            outDegrees[s]++;
+        }
+        double[] ranks = new double[n];
+        Arrays.fill(ranks, 1d / n);
+        for (int it = 0; it < iterations; it++) {
+            double dangling = 0d;
+            for (int v = 0; v < n; v++) {
+                if (0 == outDegrees[v]) {
+                    dangling += ranks[v];
+                }
+            }
+            final double[] next = new double[n];
+            Arrays.fill(next, (1d - d) / n + d * dangling / n);
+            for (int i = 0; i < src.length; i++) {
+                next[dest[i]] += d * ranks[src[i]] / outDegrees[src[i]];
+            }
+            ranks = next;
+        }
+        return ranks;
+    }
+}
@@ -0,0 +1,92 @@
+package core.analytics;
+
+/*
+ Copyright 2023 VMware, Inc.
+ SPDX-License-Identifier: BSD-2-Clause
+*/
+
+import core.TemporalGraph;
+import core.TemporalGraphConfig;
+import core.utils.UnionFind;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ComponentsTest {
+    private static final long initTime = System.currentTimeMillis();
+
+    @Test
+    void testEdgeToAbsentVertex() {
+        final TemporalGraph graph = new TemporalGraph(initTime);
+        int vertexId1 = graph.addVertex(null, initTime);
+        int vertexId2 = graph.addVertex(null, initTime + 100);
+        graph.addEdge(vertexId1, vertexId2, null, initTime + 10);
+
+        int[] components = Components.weaklyConnected(CsrGraph.of(graph.snapshotAt(initTime + 50), null));
+        assertArrayEquals(new int[]{vertexId1, Components.NO_COMPONENT}, components);
+        assertEquals(1, Components.count(components));
+    }
+
+    @Test
+    void testWeaklyConnected() {
+        final Random random = new Random(5);
+        final TemporalGraph graph = new TemporalGraph(initTime);
+        final int vertexCount = 2000;
+        for (int i = 0; i < vertexCount; i++) {
+            graph.addVertex(null, initTime);
+        }
+        // a long chain on top of sparse random edges
+        final UnionFind expected = new UnionFind();
+        expected.grow(vertexCount - 1);
+        for (int i = 1; i < 500; i++) {
+            graph.addEdge(i, i - 1, null, initTime + 1);
+            expected.union(i, i - 1);
+        }
+        for (int i = 0; i < 800; i++) {
+            int src = random.nextInt(vertexCount);
+            int dest = random.nextInt(vertexCount);
+            graph.addEdge(src, dest, null, initTime + 1);
+            expected.union(src, dest);
+        }
+        graph.removeVertex(vertexCount - 1, initTime + 2);
+
+        int[] components = Components.weaklyConnected(CsrGraph.of(graph.snapshotAt(initTime + 1), null));
+        for (int v = 0; v < vertexCount; v++) {
+            int min = v;
+            for (int u = 0; u < vertexCount; u++) {
+                if (expected.connected(u, v)) {
+                    min = Math.min(min, u);
+                    break;
+                }
+            }
+            assertEquals(min, components[v]);
+        }
+        assertEquals(expected.setCount(), Components.count(components));
+
+        // the removed vertex is absent later on
+        components = Components.weaklyConnected(CsrGraph.of(graph.snapshotAt(initTime + 2), null));
+        assertEquals(Components.NO_COMPONENT, components[vertexCount - 1]);
+        // before the edges every vertex is a component of its own
+        assertEquals(vertexCount, Components.count(
+                Components.weaklyConnected(CsrGraph.of(graph.snapshotAt(initTime), null))));
+    }
+
+    @Test
+    void testConnectivityTracking() {
+        final TemporalGraph graph = new TemporalGraph(initTime, TemporalGraphConfig.builder()
+                .connectivityTracking(true)
+                .build());
+        int vertexId1 = graph.addVertex(null, initTime);
+        int vertexId2 = graph.addVertex(null, initTime);
+        int vertexId3 = graph.addVertex(null, initTime);
+        assertFalse(graph.areConnected(vertexId1, vertexId2));
+        graph.addEdge(vertexId1, vertexId2, null, initTime + 1);
+        graph.upsertEdge(vertexId3, vertexId2, "NetworkConnectivity", initTime + 2);
+        assertTrue(graph.areConnected(vertexId1, vertexId3));
+        assertTrue(graph.areConnected(vertexId3, vertexId3));
+        assertThrows(IllegalArgumentException.class, () -> graph.areConnected(vertexId1, 3));
+        assertThrows(IllegalStateException.class, () -> new TemporalGraph(initTime).areConnected(0, 0));
+    }
+}
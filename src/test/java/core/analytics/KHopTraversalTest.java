@@ -0,0 +1,132 @@
+package core.analytics;
+
+/*
+ Copyright 2023 VMware, Inc.
+ SPDX-License-Identifier: BSD-2-Clause
+*/
+
+import core.GraphSnapshot;
+import core.TemporalGraph;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayFIFOQueue;
+import model.Direction;
+import org.junit.jupiter.api.Test;
+
+import java.util.Iterator;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class KHopTraversalTest {
+    private static final long initTime = System.currentTimeMillis();
+    private static final String[] labels = {"NetworkConnectivity", "Dependency"};
+
+    @Test
+    void testMatchesSequentialBfs() {
+        final Random random = new Random(7);
+        final TemporalGraph graph = new TemporalGraph(initTime);
+        final int vertexCount = 3000;
+        for (int i = 0; i < vertexCount; i++) {
+            graph.addVertex(null, initTime);
+        }
+        for (int i = 0; i < 9000; i++) {
+            graph.addEdge(random.nextInt(vertexCount), random.nextInt(vertexCount), labels[i % 2], null,
+                    initTime + 1 + random.nextInt(100));
+        }
+        for (long ts : new long[]{initTime + 20, initTime + 100}) {
+            final GraphSnapshot snapshot = graph.snapshotAt(ts);
+            for (Direction direction : Direction.values()) {
+                for (String label : new String[]{null, labels[0]}) {
+                    for (int maxHops : new int[]{0, 1, 3, Integer.MAX_VALUE}) {
+                        final Int2IntOpenHashMap expected = bfs(graph, ts, direction, label, maxHops, 0, 1);
+                        for (boolean parallel : new boolean[]{false, true}) {
+                            final TraversalResult result = KHopTraversal.builder()
+                                    .direction(direction)
+                                    .label(label)
+                                    .maxHops(maxHops)
+                                    .parallel(parallel)
+                                    .build()
+                                    .traverse(snapshot, 0, 1, 1);
+                            assertEquals(expected.keySet(), result.getReachedVertices());
+                            int depth = 0;
+                            for (Int2IntOpenHashMap.Entry e : expected.int2IntEntrySet()) {
+                                assertEquals(e.getIntValue(), result.getDistance(e.getIntKey()));
+                                depth = Math.max(depth, e.getIntValue());
+                            }
+                            assertEquals(depth, result.getDepth());
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void testHonorsTime() {
+        final TemporalGraph graph = new TemporalGraph(initTime);
+        int vertexId1 = graph.addVertex(null, initTime);
+        int vertexId2 = graph.addVertex(null, initTime);
+        int vertexId3 = graph.addVertex(null, initTime);
+        graph.addEdge(vertexId1, vertexId2, null, initTime + 10);
+        int edgeId = graph.addEdge(vertexId2, vertexId3, null, initTime + 20);
+        graph.removeEdge(edgeId, initTime + 30);
+        final KHopTraversal traversal = KHopTraversal.builder().build();
+
+        assertEquals(1, traversal.traverse(graph.snapshotAt(initTime + 5), vertexId1).getReachedVertices().size());
+        TraversalResult result = traversal.traverse(graph.snapshotAt(initTime + 25), vertexId1);
+        assertEquals(2, result.getDistance(vertexId3));
+        assertEquals(2, result.getDepth());
+        result = traversal.traverse(graph.snapshotAt(initTime + 30), vertexId1);
+        assertEquals(TraversalResult.UNREACHED, result.getDistance(vertexId3));
+        assertEquals(1, result.getDepth());
+        assertThrows(IllegalArgumentException.class, () -> traversal.traverse(graph.snapshotAt(initTime), 3));
+    }
+
+    // reference BFS over the public per-vertex edge queries
+    private static Int2IntOpenHashMap bfs(final TemporalGraph graph,
+                                          final long ts,
+                                          final Direction direction,
+                                          final String label,
+                                          final int maxHops,
+                                          final int... sources) {
+        final GraphSnapshot snapshot = graph.snapshotAt(ts);
+        final Int2IntOpenHashMap distances = new Int2IntOpenHashMap();
+        final IntArrayFIFOQueue queue = new IntArrayFIFOQueue();
+        for (int source : sources) {
+            distances.put(source, 0);
+            queue.enqueue(source);
+        }
+        while (!queue.isEmpty()) {
+            final int vertexId = queue.dequeueInt();
+            final int distance = distances.get(vertexId);
+            if (distance == maxHops) {
+                continue;
+            }
+            if (Direction.IN != direction) {
+                Iterator<Integer> edges = null == label ? graph.getOutEdgesAtTime(vertexId, ts)
+                        : graph.getOutEdgesAtTime(vertexId, label, ts);
+                while (edges.hasNext()) {
+                    visit(snapshot.getEdgeDestVertex(edges.next()), distance + 1, distances, queue);
+                }
+            }
+            if (Direction.OUT != direction) {
+                Iterator<Integer> edges = null == label ? graph.getInEdgesAtTime(vertexId, ts)
+                        : graph.getInEdgesAtTime(vertexId, label, ts);
+                while (edges.hasNext()) {
+                    visit(snapshot.getEdgeSrcVertex(edges.next()), distance + 1, distances, queue);
+                }
+            }
+        }
+        return distances;
+    }
+
+    private static void visit(final int vertexId,
+                              final int distance,
+                              final Int2IntOpenHashMap distances,
+                              final IntArrayFIFOQueue queue) {
+        if (!distances.containsKey(vertexId)) {
+            distances.put(vertexId, distance);
+            queue.enqueue(vertexId);
+        }
+    }
+}
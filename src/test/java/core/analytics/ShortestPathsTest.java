@@ -0,0 +1,170 @@
+package core.analytics;
+
+/*
+ Copyright 2023 VMware, Inc.
+ SPDX-License-Identifier: BSD-2-Clause
+*/
+
+import com.google.common.collect.ImmutableMap;
+import core.GraphSnapshot;
+import core.TemporalGraph;
+import exceptions.PropertyNotFoundException;
+import model.Direction;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShortestPathsTest {
+    private static final long initTime = System.currentTimeMillis();
+    private static final String latency = "latency";
+
+    @Test
+    void testMatchesBellmanFord() {
+        final Random random = new Random(19);
+        final TemporalGraph graph = new TemporalGraph(initTime);
+        final int vertexCount = 150;
+        final int edgeCount = 600;
+        for (int i = 0; i < vertexCount; i++) {
+            graph.addVertex(null, initTime);
+        }
+        final int[] src = new int[edgeCount];
+        final int[] dest = new int[edgeCount];
+        final double[] weights = new double[edgeCount];
+        for (int i = 0; i < edgeCount; i++) {
+            src[i] = random.nextInt(vertexCount);
+            dest[i] = random.nextInt(vertexCount);
+            weights[i] = random.nextInt(100);
+            int edgeId = graph.upsertEdge(src[i], dest[i], "NetworkConnectivity" + i,
+                    ImmutableMap.of(latency, (long) weights[i]), initTime + 1);
+            assertEquals(i, edgeId);
+        }
+        final GraphSnapshot snapshot = graph.snapshotAt(initTime + 1);
+        for (Direction direction : Direction.values()) {
+            final ShortestPaths paths = ShortestPaths.builder()
+                    .direction(direction)
+                    .weightProperty(latency)
+                    .build();
+            for (int source = 0; source < 5; source++) {
+                final double[] expected = bellmanFord(direction, src, dest, weights, vertexCount, source);
+                assertArrayEquals(expected, paths.distances(snapshot, source, Double.POSITIVE_INFINITY));
+                for (int target = 0; target < vertexCount; target += 7) {
+                    final WeightedPath path = paths.shortestPath(snapshot, source, target);
+                    final WeightedPath bidirectional = paths.bidirectionalShortestPath(snapshot, source, target);
+                    if (Double.POSITIVE_INFINITY == expected[target]) {
+                        assertNull(path);
+                        assertNull(bidirectional);
+                        continue;
+                    }
+                    checkPath(path, direction, src, dest, weights, source, target, expected[target]);
+                    checkPath(bidirectional, direction, src, dest, weights, source, target, expected[target]);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testEarlyTermination() {
+        final TemporalGraph graph = new TemporalGraph(initTime);
+        for (int i = 0; i < 5; i++) {
+            graph.addVertex(null, initTime);
+        }
+        // 0 -> 1 -> 2 -> 3 costs 3, 0 -> 3 costs 10, 4 is isolated
+        graph.upsertEdge(0, 1, null, ImmutableMap.of(latency, 1), initTime);
+        graph.upsertEdge(1, 2, null, ImmutableMap.of(latency, 1), initTime);
+        graph.upsertEdge(2, 3, null, ImmutableMap.of(latency, 1), initTime);
+        int edgeId = graph.upsertEdge(0, 3, null, ImmutableMap.of(latency, 10), initTime);
+        graph.upsertEdge(1, 2, null, ImmutableMap.of(latency, 20), initTime + 10);
+        final ShortestPaths paths = ShortestPaths.builder().weightProperty(latency).build();
+
+        assertEquals(3d, paths.shortestPath(graph.snapshotAt(initTime), 0, 3).getCost());
+        assertEquals(Arrays.asList(0, 1, 2, 3), paths.bidirectionalShortestPath(graph.snapshotAt(initTime), 0, 3)
+                .getVertices());
+        // the weights are read at the instant of the snapshot
+        WeightedPath path = paths.shortestPath(graph.snapshotAt(initTime + 10), 0, 3);
+        assertEquals(10d, path.getCost());
+        assertEquals(Arrays.asList(edgeId), path.getEdges());
+        assertArrayEquals(new double[]{0d, 1d, 2d, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY},
+                paths.distances(graph.snapshotAt(initTime), 0, 2.5d));
+        assertNull(paths.shortestPath(graph.snapshotAt(initTime), 0, 4));
+        assertEquals(0d, paths.bidirectionalShortestPath(graph.snapshotAt(initTime), 4, 4).getCost());
+        // unweighted, every edge costs the default weight
+        assertEquals(1d, ShortestPaths.builder().build().shortestPath(graph.snapshotAt(initTime), 0, 3).getCost());
+    }
+
+    @Test
+    void testPathsAfterRetention() throws PropertyNotFoundException {
+        final long day = TimeUnit.DAYS.toMillis(1);
+        final TemporalGraph graph = new TemporalGraph(initTime);
+        for (int i = 0; i < 3; i++) {
+            graph.addVertex(null, initTime);
+        }
+        // created within partitions dropped by the retention and still alive
+        int edgeId1 = graph.upsertEdge(0, 1, null, ImmutableMap.of(latency, 2), initTime + 1);
+        int edgeId2 = graph.upsertEdge(1, 2, null, ImmutableMap.of(latency, 3), initTime + 2);
+        // ended before the retained partitions
+        graph.removeEdge(graph.upsertEdge(0, 2, null, ImmutableMap.of(latency, 1), initTime + 3), initTime + day);
+        graph.purgeAtTime(initTime + 2 * day);
+        // the samples recorded within the dropped partitions are gone along with them
+        graph.addEdgeProperty(edgeId1, latency, 2L, initTime + 2 * day + 10);
+        graph.addEdgeProperty(edgeId2, latency, 3L, initTime + 2 * day + 10);
+        final GraphSnapshot snapshot = graph.snapshotAt(initTime + 3 * day);
+
+        assertEquals(Arrays.asList(0, 1), ShortestPaths.builder().build().shortestPath(snapshot, 0, 1).getVertices());
+        final ShortestPaths paths = ShortestPaths.builder().weightProperty(latency).build();
+        WeightedPath path = paths.shortestPath(snapshot, 0, 2);
+        assertEquals(5d, path.getCost());
+        assertEquals(Arrays.asList(edgeId1, edgeId2), path.getEdges());
+        assertEquals(5d, paths.bidirectionalShortestPath(snapshot, 0, 2).getCost());
+    }
+
+    private static void checkPath(final WeightedPath path,
+                                  final Direction direction,
+                                  final int[] src,
+                                  final int[] dest,
+                                  final double[] weights,
+                                  final int source,
+                                  final int target,
+                                  final double expectedCost) {
+        assertEquals(expectedCost, path.getCost());
+        assertEquals(path.getEdges().size() + 1, path.getVertices().size());
+        assertEquals(source, path.getVertices().getInt(0));
+        assertEquals(target, path.getVertices().getInt(path.getVertices().size() - 1));
+        double cost = 0d;
+        for (int i = 0; i < path.getEdges().size(); i++) {
+            final int e = path.getEdges().getInt(i);
+            final int from = path.getVertices().getInt(i);
+            final int to = path.getVertices().getInt(i + 1);
+            final boolean forward = src[e] == from && dest[e] == to;
+            final boolean backward = dest[e] == from && src[e] == to;
+            assertTrue(Direction.OUT == direction ? forward : Direction.IN == direction ? backward : forward || backward);
+            cost += weights[e];
+        }
+        assertEquals(expectedCost, cost);
+    }
+
+    private static double[] bellmanFord(final Direction direction,
+                                        final int[] src,
+                                        final int[] dest,
+                                        final double[] weights,
+                                        final int vertexCount,
+                                        final int source) {
+        final double[] costs = new double[vertexCount];
+        Arrays.fill(costs, Double.POSITIVE_INFINITY);
+        costs[source] = 0d;
+        for (int round = 0; round < vertexCount; round++) {
+            for (int e = 0; e < src.length; e++) {
+                if (Direction.IN != direction) {
+                    costs[dest[e]] = Math.min(costs[dest[e]], costs[src[e]] + weights[e]);
+                }
+                if (Direction.OUT != direction) {
+                    costs[src[e]] = Math.min(costs[src[e]], costs[dest[e]] + weights[e]);
+                }
+            }
+        }
+        return costs;
+    }
+}
@@ -0,0 +1,179 @@
+package core.analytics;
+
+/*
+ Copyright 2023 VMware, Inc.
+ SPDX-License-Identifier: BSD-2-Clause
+*/
+
+import core.TemporalGraph;
+import it.unimi.dsi.fastutil.ints.IntList;
+import model.Direction;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TemporalReachabilityTest {
+    private static final long initTime = System.currentTimeMillis();
+
+    @Test
+    void testTimeRespectingPaths() {
+        final TemporalGraph graph = new TemporalGraph(initTime);
+        int vertexId1 = graph.addVertex(null, initTime);
+        int vertexId2 = graph.addVertex(null, initTime);
+        int vertexId3 = graph.addVertex(null, initTime);
+        int vertexId4 = graph.addVertex(null, initTime);
+        // 2 -> 3 ends before 1 -> 2 starts, there is no time respecting path from 1 to 3
+        int edgeId1 = graph.addEdge(vertexId1, vertexId2, null, initTime + 20);
+        int edgeId2 = graph.addEdge(vertexId2, vertexId3, null, initTime + 5);
+        graph.removeEdge(edgeId2, initTime + 10);
+        int edgeId3 = graph.addEdge(vertexId2, vertexId4, null, initTime + 30);
+        final TemporalReachability reachability = TemporalReachability.builder().build();
+
+        ArrivalTimes arrivals = reachability.earliestArrival(graph, vertexId1, initTime, initTime + 100);
+        assertEquals(initTime, arrivals.getArrivalTime(vertexId1));
+        assertEquals(initTime + 20, arrivals.getArrivalTime(vertexId2));
+        assertEquals(ArrivalTimes.UNREACHED, arrivals.getArrivalTime(vertexId3));
+        assertEquals(initTime + 30, arrivals.getArrivalTime(vertexId4));
+        assertEquals(Arrays.asList(edgeId1, edgeId3), arrivals.getPath(vertexId4));
+        assertTrue(arrivals.getPath(vertexId1).isEmpty());
+        assertEquals(3, arrivals.getReachedVertices().size());
+
+        // the window bounds the departures
+        arrivals = reachability.earliestArrival(graph, vertexId1, initTime, initTime + 25);
+        assertEquals(ArrivalTimes.UNREACHED, arrivals.getArrivalTime(vertexId4));
+        // from vertex 2 the edge to vertex 3 is followed while it's valid
+        arrivals = reachability.earliestArrival(graph, vertexId2, initTime + 7, initTime + 100);
+        assertEquals(initTime + 7, arrivals.getArrivalTime(vertexId3));
+        arrivals = reachability.earliestArrival(graph, vertexId2, initTime + 10, initTime + 100);
+        assertEquals(ArrivalTimes.UNREACHED, arrivals.getArrivalTime(vertexId3));
+        // against the orientation of the edges
+        arrivals = TemporalReachability.builder().direction(Direction.IN).build()
+                .earliestArrival(graph, vertexId4, initTime, initTime + 100);
+        assertEquals(initTime + 30, arrivals.getArrivalTime(vertexId2));
+        assertEquals(initTime + 30, arrivals.getArrivalTime(vertexId1));
+    }
+
+    @Test
+    void testPathsAfterRetention() {
+        final long day = TimeUnit.DAYS.toMillis(1);
+        final TemporalGraph graph = new TemporalGraph(initTime);
+        int vertexId1 = graph.addVertex(null, initTime);
+        int vertexId2 = graph.addVertex(null, initTime);
+        int vertexId3 = graph.addVertex(null, initTime);
+        // created within a dropped partition and still alive
+        int edgeId1 = graph.addEdge(vertexId1, vertexId2, null, initTime + 1);
+        // created and ended within the dropped partitions
+        int edgeId2 = graph.addEdge(vertexId2, vertexId3, null, initTime + 2);
+        graph.removeEdge(edgeId2, initTime + day);
+        graph.purgeAtTime(initTime + 2 * day);
+        int edgeId3 = graph.addEdge(vertexId2, vertexId3, null, initTime + 3 * day + 10);
+
+        final ArrivalTimes arrivals = TemporalReachability.builder().build()
+                .earliestArrival(graph, vertexId1, initTime + 3 * day, initTime + 4 * day);
+        assertEquals(initTime + 3 * day, arrivals.getArrivalTime(vertexId2));
+        assertEquals(Arrays.asList(edgeId1), arrivals.getPath(vertexId2));
+        assertEquals(initTime + 3 * day + 10, arrivals.getArrivalTime(vertexId3));
+        assertEquals(Arrays.asList(edgeId1, edgeId3), arrivals.getPath(vertexId3));
+    }
+
+    @Test
+    void testMatchesFixpoint() {
+        final Random random = new Random(11);
+        final TemporalGraph graph = new TemporalGraph(initTime);
+        final int vertexCount = 300;
+        final int edgeCount = 1500;
+        for (int i = 0; i < vertexCount; i++) {
+            graph.addVertex(null, initTime);
+        }
+        final int[] src = new int[edgeCount];
+        final int[] dest = new int[edgeCount];
+        final long[] start = new long[edgeCount];
+        final long[] end = new long[edgeCount];
+        for (int i = 0; i < edgeCount; i++) {
+            src[i] = random.nextInt(vertexCount);
+            dest[i] = random.nextInt(vertexCount);
+            start[i] = initTime + random.nextInt(1000);
+            end[i] = Long.MAX_VALUE;
+            int edgeId = graph.addEdge(src[i], dest[i], null, null, start[i]);
+            assertEquals(i, edgeId);
+            if (random.nextBoolean()) {
+                end[i] = start[i] + random.nextInt(100);
+                graph.removeEdge(edgeId, end[i]);
+            }
+        }
+        for (Direction direction : Direction.values()) {
+            final TemporalReachability reachability = TemporalReachability.builder().direction(direction).build();
+            for (int source = 0; source < 5; source++) {
+                final long from = initTime + 100 * source;
+                final long to = from + 400;
+                final ArrivalTimes arrivals = reachability.earliestArrival(graph, source, from, to);
+                final long[] expected = fixpoint(direction, src, dest, start, end, vertexCount, source, from, to);
+                for (int v = 0; v < vertexCount; v++) {
+                    assertEquals(expected[v], arrivals.getArrivalTime(v));
+                    // the path is time respecting and arrives at the earliest arrival time
+                    long time = from;
+                    int at = source;
+                    for (int edgeId : arrivals.getPath(v)) {
+                        time = Math.max(time, start[edgeId]);
+                        assertTrue(time < end[edgeId] && time <= to);
+                        assertTrue(src[edgeId] == at || dest[edgeId] == at);
+                        at = src[edgeId] == at ? dest[edgeId] : src[edgeId];
+                    }
+                    if (ArrivalTimes.UNREACHED != expected[v]) {
+                        assertEquals(v, at);
+                        assertEquals(expected[v], time);
+                    }
+                }
+            }
+        }
+    }
+
+    // relaxes every edge till the arrival times are stable
+    private static long[] fixpoint(final Direction direction,
+                                  final int[] src,
+                                  final int[] dest,
+                                  final long[] start,
+                                  final long[] end,
+                                  final int vertexCount,
+                                  final int source,
+                                  final long from,
+                                  final long to) {
+        final long[] arrivals = new long[vertexCount];
+        Arrays.fill(arrivals, ArrivalTimes.UNREACHED);
+        arrivals[source] = from;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int e = 0; e < src.length; e++) {
+                if (Direction.IN != direction) {
+                    changed |= relax(arrivals, src[e], dest[e], start[e], end[e], to);
+                }
+                if (Direction.OUT != direction) {
+                    changed |= relax(arrivals, dest[e], src[e], start[e], end[e], to);
+                }
+            }
+        }
+        return arrivals;
+    }
+
+    private static boolean relax(final long[] arrivals,
+                                 final int u,
+                                 final int v,
+                                 final long start,
+                                 final long end,
+                                 final long to) {
+        if (ArrivalTimes.UNREACHED == arrivals[u]) {
+            return false;
+        }
+        final long departure = Math.max(arrivals[u], start);
+        if (departure < end && departure <= to && departure < arrivals[v]) {
+            arrivals[v] = departure;
+            return true;
+        }
+        return false;
+    }
+}
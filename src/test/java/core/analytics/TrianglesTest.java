@@ -0,0 +1,86 @@
+package core.analytics;
+
+/*
+ Copyright 2023 VMware, Inc.
+ SPDX-License-Identifier: BSD-2-Clause
+*/
+
+import core.TemporalGraph;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TrianglesTest {
+    private static final long initTime = System.currentTimeMillis();
+
+    @Test
+    void testMatchesBruteForce() {
+        final Random random = new Random(13);
+        final TemporalGraph graph = new TemporalGraph(initTime);
+        final int vertexCount = 200;
+        for (int i = 0; i < vertexCount; i++) {
+            graph.addVertex(null, initTime);
+        }
+        final boolean[][] adjacent = new boolean[vertexCount][vertexCount];
+        for (int i = 0; i < 2000; i++) {
+            // vertex 0 is a hub, parallel edges and self loops are ignored
+            int src = i % 4 == 0 ? 0 : random.nextInt(vertexCount);
+            int dest = random.nextInt(vertexCount);
+            graph.addEdge(src, dest, null, initTime + 1);
+            adjacent[src][dest] = src != dest;
+            adjacent[dest][src] = src != dest;
+        }
+        // a removed edge is not part of the snapshot
+        graph.removeEdge(graph.addEdge(vertexCount - 1, vertexCount - 2, null, initTime + 1), initTime + 1);
+        graph.removeEdge(graph.addEdge(vertexCount - 1, vertexCount - 3, null, initTime + 1), initTime + 1);
+
+        final TriangleCounts counts = Triangles.count(CsrGraph.of(graph.snapshotAt(initTime + 1), null));
+        long total = 0L;
+        long wedges = 0L;
+        for (int v = 0; v < vertexCount; v++) {
+            long triangles = 0L;
+            int degree = 0;
+            for (int u = 0; u < vertexCount; u++) {
+                if (adjacent[v][u]) {
+                    degree++;
+                    for (int w = u + 1; w < vertexCount; w++) {
+                        if (adjacent[v][w] && adjacent[u][w]) {
+                            triangles++;
+                        }
+                    }
+                }
+            }
+            assertEquals(triangles, counts.getTriangles(v));
+            if (degree > 1) {
+                assertEquals(2d * triangles / (degree * (degree - 1d)), counts.getClusteringCoefficient(v), 1e-12d);
+            }
+            total += triangles;
+            wedges += degree * (degree - 1L) / 2;
+        }
+        assertEquals(total / 3, counts.getTotal());
+        assertEquals(3d * counts.getTotal() / wedges, counts.getTransitivity(), 1e-12d);
+    }
+
+    @Test
+    void testSingleTriangle() {
+        final TemporalGraph graph = new TemporalGraph(initTime);
+        for (int i = 0; i < 4; i++) {
+            graph.addVertex(null, initTime);
+        }
+        graph.addEdge(0, 1, null, initTime);
+        graph.addEdge(1, 0, null, initTime);
+        graph.addEdge(1, 2, null, initTime);
+        graph.addEdge(2, 0, null, initTime + 5);
+        graph.addEdge(2, 3, null, initTime);
+        assertEquals(0L, Triangles.count(CsrGraph.of(graph.snapshotAt(initTime + 4), null)).getTotal());
+        final TriangleCounts counts = Triangles.count(CsrGraph.of(graph.snapshotAt(initTime + 5), null));
+        assertEquals(1L, counts.getTotal());
+        assertEquals(1L, counts.getTriangles(2));
+        assertEquals(0L, counts.getTriangles(3));
+        assertEquals(1d, counts.getClusteringCoefficient(0), 0d);
+        assertEquals(1d / 3, counts.getClusteringCoefficient(2), 1e-12d);
+        assertEquals(0.6d, counts.getTransitivity(), 1e-12d);
+    }
+}
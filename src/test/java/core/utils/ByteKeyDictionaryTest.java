@@ -0,0 +1,84 @@
+package core.utils;
+
+/*
+ Copyright 2023 VMware, Inc.
+ SPDX-License-Identifier: BSD-2-Clause
+*/
+
+import com.google.common.base.Strings;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ByteKeyDictionaryTest {
+
+    @Test
+    void getOrAddAndReverseLookup() {
+        ByteKeyDictionary dictionary = new ByteKeyDictionary();
+        Map<String, Integer> expected = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 100_000; i++) {
+            // long keys exercise the multi byte length prefix
+            String key = "vm-" + random.nextInt(50_000) + (i % 1000 == 0 ? Strings.repeat("x", 300) : "");
+            int next = expected.size();
+            int id = dictionary.getOrAdd(bytes(key), existing -> ByteKeyDictionary.NO_ID == existing ? next : existing);
+            assertEquals(expected.computeIfAbsent(key, k -> next), id);
+        }
+        assertEquals(expected.size(), dictionary.size());
+        for (Map.Entry<String, Integer> e : expected.entrySet()) {
+            assertEquals(e.getValue(), dictionary.get(bytes(e.getKey())));
+            assertArrayEquals(bytes(e.getKey()), dictionary.getKey(e.getValue()));
+        }
+        assertEquals(ByteKeyDictionary.NO_ID, dictionary.get(bytes("unknown")));
+        assertNull(dictionary.getKey(expected.size()));
+    }
+
+    @Test
+    void rebindKey() {
+        ByteKeyDictionary dictionary = new ByteKeyDictionary();
+        assertEquals(3, dictionary.getOrAdd(bytes("a"), existing -> 3));
+        assertEquals(5, dictionary.getOrAdd(bytes("a"), existing -> existing + 2));
+        assertEquals(5, dictionary.get(bytes("a")));
+        assertArrayEquals(bytes("a"), dictionary.getKey(5));
+        // the previous id keeps its key for the reverse lookup
+        assertArrayEquals(bytes("a"), dictionary.getKey(3));
+        assertNull(dictionary.getKey(4));
+    }
+
+    @Test
+    void removeIf() {
+        ByteKeyDictionary dictionary = new ByteKeyDictionary();
+        for (int i = 0; i < 1000; i++) {
+            final int id = i;
+            dictionary.getOrAdd(bytes("vm-" + i), existing -> id);
+        }
+        // the key of the last id is rebound, the previous id keeps it for the reverse lookup
+        assertEquals(1000, dictionary.getOrAdd(bytes("vm-999"), existing -> 1000));
+        assertEquals(501, dictionary.removeIf(id -> id % 2 == 0 || id == 1000));
+        assertEquals(499, dictionary.size());
+        for (int i = 0; i < 999; i++) {
+            assertEquals(i % 2 == 0 ? ByteKeyDictionary.NO_ID : i, dictionary.get(bytes("vm-" + i)));
+            if (i % 2 == 0) {
+                assertNull(dictionary.getKey(i));
+            } else {
+                assertArrayEquals(bytes("vm-" + i), dictionary.getKey(i));
+            }
+        }
+        assertEquals(ByteKeyDictionary.NO_ID, dictionary.get(bytes("vm-999")));
+        assertArrayEquals(bytes("vm-999"), dictionary.getKey(999));
+        assertNull(dictionary.getKey(1000));
+        // a forgotten key gets a new id
+        assertEquals(2000, dictionary.getOrAdd(bytes("vm-0"), existing -> ByteKeyDictionary.NO_ID == existing ? 2000 : existing));
+        assertEquals(2000, dictionary.get(bytes("vm-0")));
+        assertArrayEquals(bytes("vm-1"), dictionary.getKey(1));
+    }
+
+    private static byte[] bytes(final String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+}
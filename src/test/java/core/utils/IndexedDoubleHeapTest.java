@@ -0,0 +1,58 @@
+package core.utils;
+
+/*
+ Copyright 2023 VMware, Inc.
+ SPDX-License-Identifier: BSD-2-Clause
+*/
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IndexedDoubleHeapTest {
+
+    @Test
+    void testPollsInKeyOrder() {
+        final Random random = new Random(17);
+        final int capacity = 1000;
+        final IndexedDoubleHeap heap = new IndexedDoubleHeap(capacity);
+        final double[] keys = new double[capacity];
+        Arrays.fill(keys, Double.POSITIVE_INFINITY);
+        for (int i = 0; i < 5000; i++) {
+            final int id = random.nextInt(capacity);
+            final double key = random.nextDouble();
+            assertEquals(key < keys[id], heap.insertOrDecrease(id, key));
+            keys[id] = Math.min(keys[id], key);
+        }
+        double previous = Double.NEGATIVE_INFINITY;
+        int polled = 0;
+        while (!heap.isEmpty()) {
+            final double key = heap.peekKey();
+            final int id = heap.poll();
+            assertFalse(heap.contains(id));
+            assertEquals(keys[id], key);
+            assertTrue(key >= previous);
+            previous = key;
+            polled++;
+        }
+        assertEquals(Arrays.stream(keys).filter(k -> k < Double.POSITIVE_INFINITY).count(), polled);
+    }
+
+    @Test
+    void testReinsertAfterPoll() {
+        final IndexedDoubleHeap heap = new IndexedDoubleHeap(3);
+        heap.insertOrDecrease(2, 5d);
+        heap.insertOrDecrease(1, 3d);
+        assertEquals(1, heap.poll());
+        assertTrue(heap.insertOrDecrease(1, 7d));
+        assertFalse(heap.insertOrDecrease(1, 8d));
+        assertEquals(2, heap.size());
+        assertEquals(2, heap.peek());
+        assertEquals(2, heap.poll());
+        assertEquals(1, heap.poll());
+        assertTrue(heap.isEmpty());
+    }
+}
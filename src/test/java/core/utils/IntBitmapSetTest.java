@@ -0,0 +1,107 @@
+package core.utils;
+
+/*
+ Copyright 2023 VMware, Inc.
+ SPDX-License-Identifier: BSD-2-Clause
+*/
+
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntBitmapSetTest {
+    private final Random random = new Random(42);
+
+    @Test
+    void addRemoveContains() {
+        IntBitmapSet set = new IntBitmapSet();
+        IntOpenHashSet expected = new IntOpenHashSet();
+        for (int i = 0; i < 200_000; i++) {
+            // dense ranges along with sparse values spread across the chunks
+            int value = random.nextBoolean() ? random.nextInt(100_000) : random.nextInt(Integer.MAX_VALUE);
+            assertEquals(expected.add(value), set.add(value));
+        }
+        for (int i = 0; i < 100_000; i++) {
+            int value = random.nextInt(100_000);
+            assertEquals(expected.remove(value), set.remove(value));
+        }
+        assertEquals(expected, set);
+        assertEquals(expected.size(), set.size());
+        assertFalse(set.contains(-1));
+    }
+
+    @Test
+    void iteratesInAscendingOrder() {
+        IntBitmapSet set = new IntBitmapSet();
+        for (int i = 0; i < 10_000; i++) {
+            set.add(random.nextInt(1_000_000));
+        }
+        int previous = -1;
+        int count = 0;
+        for (IntIterator it = set.iterator(); it.hasNext(); count++) {
+            int value = it.nextInt();
+            assertTrue(value > previous);
+            previous = value;
+        }
+        assertEquals(set.size(), count);
+    }
+
+    @Test
+    void iteratorRemove() {
+        IntBitmapSet set = new IntBitmapSet();
+        for (int i = 0; i < 70_000; i++) {
+            set.add(i);
+        }
+        for (IntIterator it = set.iterator(); it.hasNext(); ) {
+            if (it.nextInt() % 3 != 0) {
+                it.remove();
+            }
+        }
+        assertEquals(23_334, set.size());
+        assertTrue(set.contains(69_999));
+        assertFalse(set.contains(69_998));
+    }
+
+    @Test
+    void setAlgebra() {
+        for (int round = 0; round < 10; round++) {
+            int bound = round % 2 == 0 ? 200_000 : 20_000_000;
+            IntBitmapSet a = randomSet(50_000, bound);
+            IntBitmapSet b = randomSet(50_000, bound);
+            IntOpenHashSet bBefore = new IntOpenHashSet(b);
+
+            IntOpenHashSet expected = new IntOpenHashSet(a);
+            expected.addAll(b);
+            IntBitmapSet union = new IntBitmapSet(a);
+            union.or(b);
+            assertEquals(expected, union);
+
+            expected = new IntOpenHashSet(a);
+            expected.retainAll(b);
+            IntBitmapSet intersection = new IntBitmapSet(a);
+            intersection.and(b);
+            assertEquals(expected, intersection);
+
+            expected = new IntOpenHashSet(a);
+            expected.removeAll(b);
+            IntBitmapSet difference = new IntBitmapSet(a);
+            difference.andNot(b);
+            assertEquals(expected, difference);
+
+            // operands are left untouched
+            assertEquals(bBefore, b);
+        }
+    }
+
+    private IntBitmapSet randomSet(final int count, final int bound) {
+        IntBitmapSet set = new IntBitmapSet();
+        for (int i = 0; i < count; i++) {
+            set.add(random.nextInt(bound));
+        }
+        return set;
+    }
+}
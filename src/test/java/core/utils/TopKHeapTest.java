@@ -0,0 +1,64 @@
+package core.utils;
+
+/*
+ Copyright 2023 VMware, Inc.
+ SPDX-License-Identifier: BSD-2-Clause
+*/
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TopKHeapTest {
+
+    @Test
+    void testRetainsLargestKeys() {
+        final Random random = new Random(23);
+        final double[] keys = new double[10000];
+        for (int i = 0; i < keys.length; i++) {
+            // plenty of ties
+            keys[i] = random.nextInt(500);
+        }
+        final int k = 50;
+        // two heaps merged retain the same ids as a single heap
+        final TopKHeap heap = new TopKHeap(k);
+        final TopKHeap other = new TopKHeap(k);
+        for (int i = 0; i < keys.length; i++) {
+            (i % 2 == 0 ? heap : other).offer(i, keys[i]);
+        }
+        heap.merge(other);
+        final int[] expected = IntStream.range(0, keys.length).boxed()
+                .sorted(Comparator.<Integer>comparingDouble(i -> -keys[i]).thenComparingInt(i -> i))
+                .limit(k)
+                .mapToInt(Integer::intValue)
+                .toArray();
+        assertEquals(k, heap.size());
+        final int[] actual = new int[k];
+        for (int i = k - 1; i >= 0; i--) {
+            assertEquals(keys[expected[i]], heap.peekKey());
+            actual[i] = heap.poll();
+        }
+        assertTrue(heap.isEmpty());
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    void testBounds() {
+        final TopKHeap empty = new TopKHeap(0);
+        assertFalse(empty.offer(1, 10d));
+        assertTrue(empty.isEmpty());
+        final TopKHeap heap = new TopKHeap(2);
+        assertTrue(heap.offer(3, 1d));
+        assertTrue(heap.offer(4, 1d));
+        // a tie ranks the lower id first
+        assertTrue(heap.offer(2, 1d));
+        assertFalse(heap.offer(5, 1d));
+        assertFalse(heap.offer(6, 0.5d));
+        assertEquals(3, heap.poll());
+        assertEquals(2, heap.poll());
+    }
+}
@@ -0,0 +1,46 @@
+package core.utils;
+
+/*
+ Copyright 2023 VMware, Inc.
+ SPDX-License-Identifier: BSD-2-Clause
+*/
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UnionFindTest {
+
+    @Test
+    void testUnion() {
+        final UnionFind sets = new UnionFind();
+        sets.grow(9);
+        assertEquals(10, sets.setCount());
+        assertTrue(sets.union(0, 1));
+        assertTrue(sets.union(2, 3));
+        assertFalse(sets.union(1, 0));
+        assertTrue(sets.union(1, 3));
+        assertTrue(sets.connected(0, 2));
+        assertFalse(sets.connected(0, 4));
+        assertEquals(4, sets.setSize(3));
+        assertEquals(7, sets.setCount());
+        // unseen elements are singletons
+        assertEquals(42, sets.find(42));
+        assertEquals(1, sets.setSize(42));
+        assertTrue(sets.union(42, 5));
+        assertEquals(2, sets.setSize(5));
+        // 10 to 42 registered, 42 merged
+        assertEquals(7 + 33 - 1, sets.setCount());
+    }
+
+    @Test
+    void testLongChain() {
+        final UnionFind sets = new UnionFind();
+        for (int i = 1; i < 100_000; i++) {
+            sets.union(i - 1, i);
+        }
+        assertEquals(1, sets.setCount());
+        assertEquals(100_000, sets.setSize(0));
+        assertTrue(sets.connected(0, 99_999));
+    }
+}
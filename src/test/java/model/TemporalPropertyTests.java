@@ -9,6 +9,7 @@ import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
 import java.util.Random;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -119,4 +120,23 @@ class TemporalPropertyTests {
         assertEquals(70L, prop.getValueAtTime(time + 14L));
         assertThrows(IllegalArgumentException.class, () -> prop.setValueAtTime(time + 8L, 100L));
     }
-}
\ No newline at end of file
+
+    @Test
+    void timeUnitBoundsTheSeriesRange() {
+        final long time = System.currentTimeMillis();
+        final long days = TimeUnit.DAYS.toMillis(30);
+        TemporalProperty millis = TemporalProperty.builder().name("Test property").time(time).build();
+        assertThrows(IllegalArgumentException.class, () -> millis.setValueAtTime(time + days, 1L));
+
+        TemporalProperty seconds = TemporalProperty.builder().name("Test property").time(time)
+                .timeUnit(TimeUnit.SECONDS).build();
+        seconds.setValueAtTime(time, 1L);
+        seconds.setValueAtTime(time + days, 2L);
+        assertEquals(1L, seconds.getValueAtTime(time + days - 1000L));
+        assertEquals(2L, seconds.getValueAtTime(time + days));
+        assertEquals(time + days, seconds.toTimestamp(seconds.getValues().get(1).getTimeDifferential()));
+
+        assertThrows(IllegalArgumentException.class, () -> TemporalProperty.builder().name("Test property")
+                .time(time).timeUnit(TimeUnit.MICROSECONDS).build());
+    }
+}